@@ -31,10 +31,15 @@ android {
     }
     buildFeatures {
         viewBinding = true
+        // BuildConfig.DEBUG decide si se registran los suscriptores de depuración
+        buildConfig = true
     }
 }
 
 dependencies {
+    // Pipeline de análisis sin Android
+    implementation(project(":vision-core"))
+
     // Dependencias básicas
     implementation(libs.appcompat)
     implementation(libs.material)
@@ -53,6 +58,9 @@ dependencies {
     implementation("androidx.camera:camera-view:$cameraxVersion")
     implementation("androidx.camera:camera-extensions:$cameraxVersion")
 
+    // Tira de capturas recientes
+    implementation("androidx.recyclerview:recyclerview:1.3.2")
+
     // Lifecycle
     implementation("androidx.lifecycle:lifecycle-runtime:2.6.2")
 
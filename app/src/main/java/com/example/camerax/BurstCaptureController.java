@@ -0,0 +1,132 @@
+package com.example.camerax;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageCapture;
+import androidx.camera.core.ImageCaptureException;
+import androidx.camera.core.ImageProxy;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+/**
+ * Ráfaga de fotos con {@code OnImageCapturedCallback}: cada JPEG se copia a memoria,
+ * se encola en la {@link BurstQueue} y la siguiente foto se pide enseguida, mientras
+ * el {@link BurstWriter} guarda las anteriores. Si el presupuesto de la cola se
+ * llena, la ráfaga se pausa hasta que el escritor libere espacio.
+ *
+ * <p>El estado de la ráfaga solo se toca en el hilo principal.
+ */
+public class BurstCaptureController implements BurstWriter.Listener {
+    private static final String TAG = "BurstCapture";
+
+    public interface Listener {
+        void onBurstFinished(int captured, int dropped);
+    }
+
+    private final BurstQueue queue;
+    private final BurstWriter<?> writer;
+    private final Executor captureExecutor;
+    private final Executor mainExecutor;
+    private final Listener listener;
+
+    private ImageCapture imageCapture;
+    private int remaining;
+    private int captured;
+    private int dropped;
+    private int lastShotBytes;
+    private boolean inFlight;
+    private boolean paused;
+
+    private final ImageCapture.OnImageCapturedCallback captureCallback =
+            new ImageCapture.OnImageCapturedCallback() {
+                @Override
+                public void onCaptureSuccess(@NonNull ImageProxy image) {
+                    // Hilo de captura: copiar el JPEG y soltar el ImageProxy cuanto antes
+                    ByteBuffer jpeg = image.getPlanes()[0].getBuffer();
+                    jpeg.rewind();
+                    byte[] data = new byte[jpeg.remaining()];
+                    jpeg.get(data);
+                    int rotation = image.getImageInfo().getRotationDegrees();
+                    image.close();
+                    boolean accepted = queue.offer(
+                            new BurstShot(data, data.length, rotation, System.currentTimeMillis()));
+                    mainExecutor.execute(() -> onShotCaptured(data.length, accepted));
+                }
+
+                @Override
+                public void onError(@NonNull ImageCaptureException exception) {
+                    Log.e(TAG, "Error en la foto de ráfaga: ", exception);
+                    mainExecutor.execute(() -> onShotCaptured(0, false));
+                }
+            };
+
+    public BurstCaptureController(BurstQueue queue, BurstWriter<?> writer,
+                                  Executor captureExecutor, Executor mainExecutor,
+                                  Listener listener) {
+        this.queue = queue;
+        this.writer = writer;
+        this.captureExecutor = captureExecutor;
+        this.mainExecutor = mainExecutor;
+        this.listener = listener;
+    }
+
+    /** Inicia una ráfaga; devuelve false si ya hay una en curso. */
+    public boolean start(ImageCapture imageCapture, int shots) {
+        if (isActive()) {
+            return false;
+        }
+        this.imageCapture = imageCapture;
+        remaining = shots;
+        captured = 0;
+        dropped = 0;
+        takeNext();
+        return true;
+    }
+
+    public boolean isActive() {
+        return remaining > 0 || inFlight;
+    }
+
+    private void takeNext() {
+        if (remaining == 0) {
+            Log.d(TAG, "Ráfaga: " + captured + " capturadas, " + dropped + " descartadas, "
+                    + String.format(Locale.US, "%.1f", writer.getShotsPerSecond())
+                    + " fotos/s escritas");
+            listener.onBurstFinished(captured, dropped);
+            return;
+        }
+        // Contrapresión: esperar a que el escritor libere sitio para otra foto
+        if (!queue.hasRoomFor(lastShotBytes)) {
+            paused = true;
+            return;
+        }
+        paused = false;
+        inFlight = true;
+        imageCapture.takePicture(captureExecutor, captureCallback);
+    }
+
+    private void onShotCaptured(int bytes, boolean accepted) {
+        inFlight = false;
+        remaining--;
+        if (accepted) {
+            captured++;
+            lastShotBytes = bytes;
+        } else {
+            dropped++;
+        }
+        takeNext();
+    }
+
+    @Override
+    public void onShotWritten(boolean success) {
+        // Hilo del escritor: reanudar la ráfaga pausada en el hilo principal
+        mainExecutor.execute(() -> {
+            if (paused) {
+                takeNext();
+            }
+        });
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.camerax;
+
+import java.util.ArrayDeque;
+
+/**
+ * Cola de fotos de ráfaga limitada por bytes.
+ *
+ * <p>Una foto ocupa presupuesto desde {@link #offer} hasta que el escritor la suelta
+ * con {@link #release}, de modo que el límite cubre también la foto que se está
+ * escribiendo. Si el presupuesto está lleno, {@link #offer} la rechaza y la ráfaga
+ * debe esperar (contrapresión). Una foto mayor que el presupuesto solo se admite con
+ * la cola vacía, para no bloquearse para siempre.
+ */
+public final class BurstQueue {
+    private final long maxBytes;
+    private final ArrayDeque<BurstShot> shots = new ArrayDeque<>();
+    private long usedBytes;
+    private boolean closed;
+    private long rejected;
+
+    public BurstQueue(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("El presupuesto debe ser positivo");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /** Encola la foto si cabe en el presupuesto; no bloquea. */
+    public synchronized boolean offer(BurstShot shot) {
+        if (closed || (usedBytes > 0 && usedBytes + shot.getLength() > maxBytes)) {
+            rejected++;
+            return false;
+        }
+        usedBytes += shot.getLength();
+        shots.addLast(shot);
+        notifyAll();
+        return true;
+    }
+
+    /** Espera la siguiente foto; devuelve null cuando la cola está cerrada y vacía. */
+    public synchronized BurstShot take() throws InterruptedException {
+        while (shots.isEmpty()) {
+            if (closed) {
+                return null;
+            }
+            wait();
+        }
+        return shots.removeFirst();
+    }
+
+    // Libera el presupuesto de una foto ya escrita (o descartada)
+    public synchronized void release(BurstShot shot) {
+        usedBytes -= shot.getLength();
+        notifyAll();
+    }
+
+    public synchronized boolean hasRoomFor(int bytes) {
+        return !closed && (usedBytes == 0 || usedBytes + bytes <= maxBytes);
+    }
+
+    public synchronized boolean isEmpty() {
+        return shots.isEmpty();
+    }
+
+    public synchronized int size() {
+        return shots.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // Deja de admitir fotos; las encoladas se siguen entregando
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+}
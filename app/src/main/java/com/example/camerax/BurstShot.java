@@ -0,0 +1,38 @@
+package com.example.camerax;
+
+/**
+ * Foto JPEG de una ráfaga ya copiada fuera del {@code ImageProxy}, a la espera de
+ * escribirse. Los bytes válidos son {@code data[0..length)}.
+ */
+public final class BurstShot {
+    private final byte[] data;
+    private final int length;
+    private final int rotationDegrees;
+    private final long captureTimeMillis;
+
+    public BurstShot(byte[] data, int length, int rotationDegrees, long captureTimeMillis) {
+        if (length < 0 || length > data.length) {
+            throw new IllegalArgumentException("Longitud fuera de rango: " + length);
+        }
+        this.data = data;
+        this.length = length;
+        this.rotationDegrees = rotationDegrees;
+        this.captureTimeMillis = captureTimeMillis;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    public long getCaptureTimeMillis() {
+        return captureTimeMillis;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.camerax;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Escritor en segundo plano de las fotos de ráfaga.
+ *
+ * <p>Saca fotos de la {@link BurstQueue}, crea cada entrada pendiente y escribe sus
+ * bytes mientras la cámara sigue capturando. Las entradas escritas se publican por
+ * lotes: al llenar el lote o cuando la cola se queda vacía. El formateador de nombres
+ * es uno por escritor, no uno por foto.
+ */
+public final class BurstWriter<H> {
+    public static final String MIME_TYPE = "image/jpeg";
+    private static final String FILENAME_FORMAT = "yyyy-MM-dd-HH-mm-ss-SSS";
+
+    public interface Listener {
+        // Se invoca en el hilo del escritor tras liberar el presupuesto de una foto
+        void onShotWritten(boolean success);
+    }
+
+    private final BurstQueue queue;
+    private final MediaSink<H> sink;
+    private final int batchSize;
+    private final Clock clock;
+    private final Listener listener;
+    private final List<H> pending;
+    private final SimpleDateFormat nameFormat = new SimpleDateFormat(FILENAME_FORMAT, Locale.US);
+    private final StringBuilder name = new StringBuilder(40);
+    private Thread thread;
+    private int sequence;
+
+    private volatile long written;
+    private volatile long failed;
+    private volatile long batches;
+    private volatile long firstShotNanos;
+    private volatile long lastShotNanos;
+
+    public BurstWriter(BurstQueue queue, MediaSink<H> sink, int batchSize, Clock clock,
+                       Listener listener) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("El lote debe tener al menos una foto");
+        }
+        this.queue = queue;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.listener = listener;
+        this.pending = new ArrayList<>(batchSize);
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::run, "burst-writer");
+        thread.start();
+    }
+
+    // Deja de admitir fotos; las ya encoladas se escriben y publican igualmente
+    public void shutdown() {
+        queue.close();
+    }
+
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t == null) {
+            return true;
+        }
+        t.join(timeoutMillis);
+        return !t.isAlive();
+    }
+
+    private void run() {
+        try {
+            BurstShot shot;
+            while ((shot = queue.take()) != null) {
+                if (firstShotNanos == 0) {
+                    firstShotNanos = clock.nanoTime();
+                }
+                boolean success = writeShot(shot);
+                queue.release(shot);
+                if (pending.size() >= batchSize || queue.isEmpty()) {
+                    publishPending();
+                }
+                lastShotNanos = clock.nanoTime();
+                if (listener != null) {
+                    listener.onShotWritten(success);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            publishPending();
+        }
+    }
+
+    private boolean writeShot(BurstShot shot) {
+        H entry = null;
+        try {
+            entry = sink.insertPending(nextName(shot.getCaptureTimeMillis()), MIME_TYPE,
+                    shot.getRotationDegrees());
+            sink.write(entry, shot.getData(), shot.getLength());
+            pending.add(entry);
+            written++;
+            return true;
+        } catch (IOException e) {
+            if (entry != null) {
+                sink.abort(entry);
+            }
+            failed++;
+            return false;
+        }
+    }
+
+    // Las fotos de una ráfaga pueden compartir milisegundo: se añade una secuencia
+    private String nextName(long captureTimeMillis) {
+        name.setLength(0);
+        name.append(nameFormat.format(captureTimeMillis)).append('-').append(sequence++);
+        return name.toString();
+    }
+
+    private void publishPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            sink.publish(pending);
+            batches++;
+        } catch (IOException e) {
+            for (H entry : pending) {
+                sink.abort(entry);
+            }
+            failed += pending.size();
+            written -= pending.size();
+        }
+        pending.clear();
+    }
+
+    public long getWrittenCount() {
+        return written;
+    }
+
+    public long getFailedCount() {
+        return failed;
+    }
+
+    public long getBatchCount() {
+        return batches;
+    }
+
+    /** Fotos escritas por segundo entre la primera y la última de la sesión. */
+    public double getShotsPerSecond() {
+        long elapsed = lastShotNanos - firstShotNanos;
+        if (written == 0 || elapsed <= 0) {
+            return 0;
+        }
+        return written * 1e9 / elapsed;
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.camerax;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.CameraInfo;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ConcurrentCamera;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageCapture;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Preview;
+import androidx.camera.core.UseCase;
+import androidx.camera.core.UseCaseGroup;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.video.FallbackStrategy;
+import androidx.camera.video.Quality;
+import androidx.camera.video.QualitySelector;
+import androidx.camera.video.Recorder;
+import androidx.camera.video.VideoCapture;
+import androidx.camera.view.PreviewView;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Sesión de cámara con proveedor y casos de uso reutilizables.
+ *
+ * <p>El {@link ProcessCameraProvider} se pide una sola vez ({@link #preload()}, ya en
+ * {@code onCreate}) y los casos de uso se construyen una vez. Al cambiar de lente solo
+ * se desvinculan y vuelven a vincular estos mismos casos de uso, sin {@code unbindAll}
+ * y sin cortar una grabación persistente en curso; pedir la lente ya vinculada no hace
+ * nada. Se mide el tiempo hasta el primer fotograma de vista previa en el arranque y
+ * en cada cambio de lente.
+ *
+ * <p>{@link #applyTier} cambia el {@link QualityTier}: reconstruye y revincula solo
+ * los casos de uso cuya configuración cambia. Los que están ocupados (grabación o
+ * ráfaga en curso) se aplazan hasta {@link #applyPendingTier}.
+ *
+ * <p>{@link #bindConcurrent} vincula dos lentes a la vez (vista previa y análisis en
+ * la primera, solo análisis en la segunda) si el dispositivo admite esa combinación;
+ * mientras tanto no hay captura de fotos ni vídeo y los cambios de nivel esperan a
+ * {@link #unbindConcurrent}.
+ *
+ * <p>Todos los métodos se llaman desde el hilo principal.
+ */
+public class CameraSessionManager {
+    private static final String TAG = "CameraSession";
+    private static final int NO_LENS = -1;
+
+    public interface Listener {
+        void onCameraBound(int lensFacing);
+
+        void onCameraError(Exception e);
+    }
+
+    /** Analizador que además recibe la lente de la que salió cada fotograma. */
+    public interface LensAnalyzer {
+        void analyze(@NonNull ImageProxy image, int lensFacing);
+    }
+
+    private final Context context;
+    private final LifecycleOwner lifecycleOwner;
+    private final Executor mainExecutor;
+    private final Listener listener;
+
+    private final Preview preview;
+    private final Executor analysisExecutor;
+    private final LensAnalyzer analyzer;
+    private ImageCapture imageCapture;
+    private ImageAnalysis imageAnalysis;
+    private VideoCapture<Recorder> videoCapture;
+    // Análisis de la segunda lente en modo concurrente; null fuera de ese modo
+    private ImageAnalysis secondaryAnalysis;
+
+    // Nivel pedido y nivel con el que se construyó cada caso de uso
+    private QualityTier targetTier = QualityTier.DEFAULT_TIERS[0];
+    private QualityTier analysisTier = targetTier;
+    private QualityTier videoTier = targetTier;
+    private QualityTier captureTier = targetTier;
+
+    private ListenableFuture<ProcessCameraProvider> providerFuture;
+    private ProcessCameraProvider cameraProvider;
+    private int boundLens = NO_LENS;
+    private int requestedLens = NO_LENS;
+    private int concurrentLens = NO_LENS;
+
+    // Medición del primer fotograma pendiente: etapa y marca de inicio (0 si no hay)
+    private int firstFrameStage = PipelineMetrics.STAGE_FIRST_FRAME_COLD;
+    private long firstFrameStartNanos;
+
+    public CameraSessionManager(Context context, LifecycleOwner lifecycleOwner,
+                                PreviewView previewView, Executor analysisExecutor,
+                                LensAnalyzer analyzer, PipelineMetrics metrics,
+                                Listener listener) {
+        this.context = context;
+        this.lifecycleOwner = lifecycleOwner;
+        this.mainExecutor = ContextCompat.getMainExecutor(context);
+        this.listener = listener;
+        this.analysisExecutor = analysisExecutor;
+        this.analyzer = analyzer;
+
+        // Los casos de uso se crean una vez y sobreviven a los cambios de lente
+        preview = new Preview.Builder().build();
+        preview.setSurfaceProvider(previewView.getSurfaceProvider());
+        imageCapture = buildImageCapture(captureTier);
+        imageAnalysis = buildImageAnalysis(analysisTier);
+        videoCapture = buildVideoCapture(videoTier);
+
+        previewView.getPreviewStreamState().observe(lifecycleOwner, state -> {
+            if (state == PreviewView.StreamState.STREAMING && firstFrameStartNanos != 0) {
+                metrics.record(firstFrameStage, System.nanoTime() - firstFrameStartNanos);
+                firstFrameStartNanos = 0;
+            }
+        });
+    }
+
+    // Pide el proveedor sin esperar a los permisos; la inicialización corre en segundo plano
+    public void preload() {
+        if (providerFuture != null) {
+            return;
+        }
+        providerFuture = ProcessCameraProvider.getInstance(context);
+        providerFuture.addListener(this::onProviderReady, mainExecutor);
+    }
+
+    /** Vincula la lente pedida; si el proveedor aún no está listo, se vincula al llegar. */
+    public void bind(int lensFacing) {
+        if (lensFacing == boundLens) {
+            return;
+        }
+        if (requestedLens == NO_LENS || boundLens != NO_LENS) {
+            // Primer vínculo (arranque en frío) o cambio de lente sobre una cámara activa
+            firstFrameStage = boundLens == NO_LENS
+                    ? PipelineMetrics.STAGE_FIRST_FRAME_COLD
+                    : PipelineMetrics.STAGE_FIRST_FRAME_SWITCH;
+            firstFrameStartNanos = System.nanoTime();
+        }
+        requestedLens = lensFacing;
+        preload();
+        if (cameraProvider != null) {
+            bindRequestedLens();
+        }
+    }
+
+    private void onProviderReady() {
+        try {
+            cameraProvider = providerFuture.get();
+        } catch (ExecutionException | InterruptedException e) {
+            Log.e(TAG, "Error al obtener el proveedor de cámara: ", e);
+            providerFuture = null;
+            listener.onCameraError(e);
+            return;
+        }
+        if (requestedLens != NO_LENS) {
+            bindRequestedLens();
+        }
+    }
+
+    private void bindRequestedLens() {
+        if (requestedLens == boundLens || concurrentLens != NO_LENS) {
+            return;
+        }
+        CameraSelector cameraSelector = selectorFor(requestedLens);
+        try {
+            // Un caso de uso solo puede estar vinculado a una cámara, así que al cambiar de
+            // lente se mueven los cuatro. Se sueltan solo los nuestros y se vinculan en el
+            // mismo turno: la grabación persistente pasa a la nueva lente sin cortarse
+            cameraProvider.unbind(preview, imageCapture, videoCapture, imageAnalysis);
+            attachAnalyzer(requestedLens);
+            cameraProvider.bindToLifecycle(lifecycleOwner, cameraSelector,
+                    preview, imageCapture, videoCapture, imageAnalysis);
+            boundLens = requestedLens;
+            listener.onCameraBound(boundLens);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Log.e(TAG, "Error al vincular la cámara: ", e);
+            boundLens = NO_LENS;
+            firstFrameStartNanos = 0;
+            listener.onCameraError(e);
+        }
+    }
+
+    /** Indica si el dispositivo puede abrir a la vez las dos lentes dadas. */
+    public boolean isConcurrentSupported(int primaryLens, int secondaryLens) {
+        if (cameraProvider == null) {
+            return false;
+        }
+        for (List<CameraInfo> combination : cameraProvider.getAvailableConcurrentCameraInfos()) {
+            boolean primary = false;
+            boolean secondary = false;
+            for (CameraInfo info : combination) {
+                primary |= info.getLensFacing() == primaryLens;
+                secondary |= info.getLensFacing() == secondaryLens;
+            }
+            if (primary && secondary) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Vincula las dos lentes a la vez; los fotogramas de la segunda llegan a
+     * {@code secondaryAnalyzer} por el mismo executor de análisis. Devuelve false si
+     * el dispositivo no lo admite, y la sesión sigue como estaba.
+     */
+    public boolean bindConcurrent(int primaryLens, int secondaryLens,
+                                  ImageAnalysis.Analyzer secondaryAnalyzer) {
+        if (concurrentLens != NO_LENS) {
+            return true;
+        }
+        if (!isConcurrentSupported(primaryLens, secondaryLens)) {
+            return false;
+        }
+        ImageAnalysis analysis = new ImageAnalysis.Builder()
+                .setTargetResolution(new Size(analysisTier.getAnalysisWidth(),
+                        analysisTier.getAnalysisHeight()))
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .build();
+        analysis.setAnalyzer(analysisExecutor, secondaryAnalyzer);
+        List<ConcurrentCamera.SingleCameraConfig> configs = new ArrayList<>(2);
+        configs.add(new ConcurrentCamera.SingleCameraConfig(selectorFor(primaryLens),
+                new UseCaseGroup.Builder().addUseCase(preview).addUseCase(imageAnalysis).build(),
+                lifecycleOwner));
+        configs.add(new ConcurrentCamera.SingleCameraConfig(selectorFor(secondaryLens),
+                new UseCaseGroup.Builder().addUseCase(analysis).build(), lifecycleOwner));
+        try {
+            cameraProvider.unbind(preview, imageCapture, videoCapture, imageAnalysis);
+            attachAnalyzer(primaryLens);
+            cameraProvider.bindToLifecycle(configs);
+        } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
+            Log.e(TAG, "Error al vincular las dos cámaras: ", e);
+            analysis.clearAnalyzer();
+            // Se vuelve a la lente que había
+            int lens = boundLens;
+            boundLens = NO_LENS;
+            requestedLens = lens;
+            bindRequestedLens();
+            return false;
+        }
+        secondaryAnalysis = analysis;
+        boundLens = primaryLens;
+        requestedLens = primaryLens;
+        concurrentLens = secondaryLens;
+        listener.onCameraBound(boundLens);
+        return true;
+    }
+
+    /** Sale del modo concurrente y vuelve a vincular solo {@code lensFacing}. */
+    public void unbindConcurrent(int lensFacing) {
+        if (concurrentLens == NO_LENS) {
+            bind(lensFacing);
+            return;
+        }
+        cameraProvider.unbind(preview, imageAnalysis, secondaryAnalysis);
+        secondaryAnalysis.clearAnalyzer();
+        secondaryAnalysis = null;
+        concurrentLens = NO_LENS;
+        boundLens = NO_LENS;
+        bind(lensFacing);
+        // Lo aplazado durante el modo concurrente; no hay grabación ni ráfaga en él
+        applyPendingTier(false, false);
+    }
+
+    private static CameraSelector selectorFor(int lensFacing) {
+        return new CameraSelector.Builder()
+                .requireLensFacing(lensFacing)
+                .build();
+    }
+
+    private static ImageCapture buildImageCapture(QualityTier tier) {
+        return new ImageCapture.Builder()
+                .setCaptureMode(tier.getCaptureMode() == QualityTier.CAPTURE_MINIMIZE_LATENCY
+                        ? ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY
+                        : ImageCapture.CAPTURE_MODE_MAXIMIZE_QUALITY)
+                .build();
+    }
+
+    // El analizador se asigna al vincular, con la lente a la que va a estar unido
+    private static ImageAnalysis buildImageAnalysis(QualityTier tier) {
+        return new ImageAnalysis.Builder()
+                .setTargetResolution(new Size(tier.getAnalysisWidth(), tier.getAnalysisHeight()))
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .build();
+    }
+
+    /*
+     * Etiqueta los fotogramas con la lente. Se llama con el análisis ya desvinculado y
+     * antes de vincularlo: CameraX toma el analizador al encolar cada fotograma, así que
+     * uno de la lente anterior que aún espera en el executor conserva su etiqueta.
+     */
+    private void attachAnalyzer(int lensFacing) {
+        imageAnalysis.setAnalyzer(analysisExecutor, image -> analyzer.analyze(image, lensFacing));
+    }
+
+    // Si la cámara no ofrece la calidad pedida se usa la siguiente inferior
+    private static VideoCapture<Recorder> buildVideoCapture(QualityTier tier) {
+        QualitySelector selector;
+        switch (tier.getVideoQuality()) {
+            case QualityTier.VIDEO_FHD:
+                selector = QualitySelector.from(Quality.FHD,
+                        FallbackStrategy.lowerQualityOrHigherThan(Quality.FHD));
+                break;
+            case QualityTier.VIDEO_HD:
+                selector = QualitySelector.from(Quality.HD,
+                        FallbackStrategy.lowerQualityOrHigherThan(Quality.HD));
+                break;
+            case QualityTier.VIDEO_SD:
+                selector = QualitySelector.from(Quality.SD,
+                        FallbackStrategy.higherQualityThan(Quality.SD));
+                break;
+            default:
+                selector = QualitySelector.from(Quality.HIGHEST);
+                break;
+        }
+        Recorder recorder = new Recorder.Builder()
+                .setQualitySelector(selector)
+                .build();
+        return VideoCapture.withOutput(recorder);
+    }
+
+    /**
+     * Pasa al nivel dado. Con {@code videoBusy} o {@code captureBusy} el caso de uso
+     * correspondiente conserva su configuración hasta {@link #applyPendingTier}.
+     */
+    public void applyTier(QualityTier tier, boolean videoBusy, boolean captureBusy) {
+        targetTier = tier;
+        applyPendingTier(videoBusy, captureBusy);
+    }
+
+    /** Aplica lo que quedó aplazado del último nivel pedido; no hace nada si no hay. */
+    public void applyPendingTier(boolean videoBusy, boolean captureBusy) {
+        if (concurrentLens != NO_LENS) {
+            // Los grupos concurrentes no se revinculan por partes
+            return;
+        }
+        List<UseCase> removed = new ArrayList<>(3);
+        List<UseCase> added = new ArrayList<>(3);
+        if ((analysisTier.changesTo(targetTier) & QualityTier.CHANGED_ANALYSIS) != 0) {
+            imageAnalysis.clearAnalyzer();
+            removed.add(imageAnalysis);
+            imageAnalysis = buildImageAnalysis(targetTier);
+            if (boundLens != NO_LENS) {
+                attachAnalyzer(boundLens);
+            }
+            added.add(imageAnalysis);
+            analysisTier = targetTier;
+        }
+        if (!videoBusy && (videoTier.changesTo(targetTier) & QualityTier.CHANGED_VIDEO) != 0) {
+            removed.add(videoCapture);
+            videoCapture = buildVideoCapture(targetTier);
+            added.add(videoCapture);
+            videoTier = targetTier;
+        }
+        if (!captureBusy && (captureTier.changesTo(targetTier) & QualityTier.CHANGED_CAPTURE) != 0) {
+            removed.add(imageCapture);
+            imageCapture = buildImageCapture(targetTier);
+            added.add(imageCapture);
+            captureTier = targetTier;
+        }
+        if (added.isEmpty() || cameraProvider == null || boundLens == NO_LENS) {
+            // Sin cámara vinculada, los casos de uso nuevos se vinculan con la próxima lente
+            return;
+        }
+        CameraSelector cameraSelector = selectorFor(boundLens);
+        try {
+            // Solo se sueltan los casos de uso sustituidos; la vista previa sigue activa
+            cameraProvider.unbind(removed.toArray(new UseCase[0]));
+            cameraProvider.bindToLifecycle(lifecycleOwner, cameraSelector,
+                    added.toArray(new UseCase[0]));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Log.e(TAG, "Error al aplicar el nivel " + targetTier + ": ", e);
+            listener.onCameraError(e);
+        }
+    }
+
+    // Cámara vinculada con captura de fotos y vídeo; el modo concurrente no la tiene
+    public boolean isBound() {
+        return boundLens != NO_LENS && concurrentLens == NO_LENS;
+    }
+
+    public boolean isConcurrent() {
+        return concurrentLens != NO_LENS;
+    }
+
+    public ImageCapture getImageCapture() {
+        return imageCapture;
+    }
+
+    public VideoCapture<Recorder> getVideoCapture() {
+        return videoCapture;
+    }
+}
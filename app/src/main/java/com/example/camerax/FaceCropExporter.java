@@ -0,0 +1,212 @@
+package com.example.camerax;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Exportador en segundo plano de las miniaturas de rostros.
+ *
+ * <p>Recibe el mejor recorte de cada pista terminada ({@link FaceCropCollector}), lo
+ * codifica a JPEG en su propio hilo y lo escribe en un {@link MediaSink}; las
+ * entradas se publican por lotes, como en {@link BurstWriter}. La cola es un anillo
+ * de capacidad fija: si está llena, {@link #submit} rechaza el recorte y el llamante
+ * lo devuelve. Cada recorte se devuelve con {@code release} tras escribirlo.
+ */
+public final class FaceCropExporter<H> {
+    public static final String MIME_TYPE = "image/jpeg";
+    private static final String FILENAME_FORMAT = "yyyy-MM-dd-HH-mm-ss-SSS";
+    private static final int INITIAL_JPEG_BYTES = 64 * 1024;
+
+    /** Codifica un recorte NV21 a JPEG. */
+    public interface Encoder {
+        void encode(FrameBuffer crop, OutputStream out) throws IOException;
+    }
+
+    // Deja leer el array interno sin copiarlo
+    private static final class JpegBuffer extends ByteArrayOutputStream {
+        JpegBuffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    private final MediaSink<H> sink;
+    private final Encoder encoder;
+    private final Consumer<FrameBuffer> release;
+    private final int batchSize;
+    private final List<H> pending;
+    private final SimpleDateFormat nameFormat = new SimpleDateFormat(FILENAME_FORMAT, Locale.US);
+    private final StringBuilder name = new StringBuilder(48);
+    private final JpegBuffer jpeg = new JpegBuffer(INITIAL_JPEG_BYTES);
+
+    // Anillo de recortes pendientes
+    private final FrameBuffer[] crops;
+    private final int[] trackingIds;
+    private final long[] submitTimesMillis;
+    private int head;
+    private int queued;
+    private boolean closed;
+    private Thread thread;
+
+    private volatile long written;
+    private volatile long failed;
+    private volatile long rejected;
+    private volatile long batches;
+
+    public FaceCropExporter(MediaSink<H> sink, Encoder encoder, int capacity, int batchSize,
+                            Consumer<FrameBuffer> release) {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Capacidad y lote deben ser positivos");
+        }
+        this.sink = sink;
+        this.encoder = encoder;
+        this.release = release;
+        this.batchSize = batchSize;
+        this.pending = new ArrayList<>(batchSize);
+        crops = new FrameBuffer[capacity];
+        trackingIds = new int[capacity];
+        submitTimesMillis = new long[capacity];
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::run, "face-crop-exporter");
+        thread.start();
+    }
+
+    /** Encola el recorte si hay hueco; no bloquea. Con false el recorte sigue siendo del llamante. */
+    public synchronized boolean submit(int trackingId, FrameBuffer crop) {
+        if (closed || queued == crops.length) {
+            rejected++;
+            return false;
+        }
+        int tail = (head + queued) % crops.length;
+        crops[tail] = crop;
+        trackingIds[tail] = trackingId;
+        submitTimesMillis[tail] = System.currentTimeMillis();
+        queued++;
+        notifyAll();
+        return true;
+    }
+
+    // Deja de admitir recortes; los ya encolados se escriben y publican igualmente
+    public synchronized void shutdown() {
+        closed = true;
+        notifyAll();
+    }
+
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t == null) {
+            return true;
+        }
+        t.join(timeoutMillis);
+        return !t.isAlive();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                FrameBuffer crop;
+                int trackingId;
+                long submitTimeMillis;
+                boolean drained;
+                synchronized (this) {
+                    while (queued == 0 && !closed) {
+                        wait();
+                    }
+                    if (queued == 0) {
+                        return;
+                    }
+                    crop = crops[head];
+                    trackingId = trackingIds[head];
+                    submitTimeMillis = submitTimesMillis[head];
+                    crops[head] = null;
+                    head = (head + 1) % crops.length;
+                    queued--;
+                    drained = queued == 0;
+                }
+                writeCrop(trackingId, crop, submitTimeMillis);
+                release.accept(crop);
+                if (pending.size() >= batchSize || drained) {
+                    publishPending();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            publishPending();
+        }
+    }
+
+    private void writeCrop(int trackingId, FrameBuffer crop, long submitTimeMillis) {
+        H entry = null;
+        try {
+            jpeg.reset();
+            encoder.encode(crop, jpeg);
+            entry = sink.insertPending(nextName(trackingId, submitTimeMillis), MIME_TYPE,
+                    crop.getRotationDegrees());
+            sink.write(entry, jpeg.array(), jpeg.size());
+            pending.add(entry);
+            written++;
+        } catch (IOException e) {
+            if (entry != null) {
+                sink.abort(entry);
+            }
+            failed++;
+        }
+    }
+
+    private String nextName(int trackingId, long timeMillis) {
+        name.setLength(0);
+        name.append("face-").append(nameFormat.format(timeMillis)).append('-').append(trackingId);
+        return name.toString();
+    }
+
+    private void publishPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            sink.publish(pending);
+            batches++;
+        } catch (IOException e) {
+            for (H entry : pending) {
+                sink.abort(entry);
+            }
+            failed += pending.size();
+            written -= pending.size();
+        }
+        pending.clear();
+    }
+
+    public long getWrittenCount() {
+        return written;
+    }
+
+    public long getFailedCount() {
+        return failed;
+    }
+
+    public long getRejectedCount() {
+        return rejected;
+    }
+
+    public long getBatchCount() {
+        return batches;
+    }
+}
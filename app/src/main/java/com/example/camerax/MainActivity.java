@@ -3,61 +3,131 @@ package com.example.camerax;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
+import androidx.annotation.OptIn;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
-import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.ImageProxy;
-import androidx.camera.core.Preview;
-import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.video.ExperimentalPersistentRecording;
 import androidx.camera.video.MediaStoreOutputOptions;
-import androidx.camera.video.Quality;
-import androidx.camera.video.QualitySelector;
-import androidx.camera.video.Recorder;
 import androidx.camera.video.Recording;
-import androidx.camera.video.VideoCapture;
 import androidx.camera.video.VideoRecordEvent;
 import androidx.core.content.ContextCompat;
-import androidx.lifecycle.LifecycleOwner;
+import androidx.recyclerview.widget.LinearLayoutManager;
 
 import android.Manifest;
-import android.annotation.SuppressLint;
+import android.content.ActivityNotFoundException;
 import android.content.ContentValues;
+import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.ImageFormat;
 import android.graphics.Rect;
-import android.media.Image;
+import android.graphics.YuvImage;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.PowerManager;
 import android.provider.MediaStore;
 import android.util.Log;
-import android.util.Size;
+import android.view.Choreographer;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.camerax.databinding.ActivityMainBinding;
-import com.google.android.gms.tasks.Task;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.face.Face;
 import com.google.mlkit.vision.face.FaceDetection;
-import com.google.mlkit.vision.face.FaceDetector;
 import com.google.mlkit.vision.face.FaceDetectorOptions;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MainActivity extends AppCompatActivity {
     private static final String TAG = "CameraXApp";
     private static final String FILENAME_FORMAT = "yyyy-MM-dd-HH-mm-ss-SSS";
     private static final int REQUEST_CODE_PERMISSIONS = 10;
+    // Factor de reducción del fotograma de análisis antes de la detección (1280x720 -> 640x360)
+    private static final int ANALYSIS_DOWNSCALE_FACTOR = 2;
+    private static final int FRAME_POOL_CAPACITY = 3;
+    // Pipeline de análisis: hilos de trabajo y fotogramas que pueden estar en vuelo a la vez
+    private static final int ANALYSIS_WORKER_THREADS = 2;
+    private static final int MAX_FRAMES_IN_FLIGHT = 2;
+    private static final int LUMA_STATS_SAMPLE_STEP = 4;
+    // Tamaño mínimo de rostro (fracción del ancho de la imagen) de cada modo del detector
+    private static final float ACCURATE_MIN_FACE_SIZE = 0.1f;
+    private static final float FAST_MIN_FACE_SIZE = 0.25f;
+    // Conteos de rostros cuyos textos de estado se preformatean
+    private static final int MAX_CACHED_FACE_COUNT = 16;
+    // Volcado periódico de métricas del pipeline a logcat y a un fichero compacto
+    private static final long METRICS_DUMP_PERIOD_MS = 10_000L;
+    private static final String METRICS_FILE_NAME = "pipeline-metrics.bin";
+    // Ráfaga: fotos por pulsación larga, memoria máxima encolada y fotos por publicación
+    private static final int BURST_SHOT_COUNT = 10;
+    private static final long BURST_QUEUE_BYTES = 32L * 1024 * 1024;
+    private static final int BURST_COMMIT_BATCH = 5;
+    // Pre-roll: segundos previos al evento, grabación en directo tras él y tamaño del anillo
+    private static final long PRE_ROLL_MILLIS = 5_000L;
+    private static final long PRE_ROLL_LIVE_MILLIS = 10_000L;
+    private static final int PRE_ROLL_RING_BYTES = 2 * 1024 * 1024;
+    private static final int PRE_ROLL_RING_SAMPLES = 512;
+    // Fichero lateral de rostros de cada vídeo: cola hacia el escritor y volcado periódico
+    private static final int FACE_TRACK_QUEUE_CAPACITY = 1024;
+    private static final long FACE_TRACK_FLUSH_MS = 200L;
+    private static final String FACE_TRACK_DIR = "face-tracks";
+    // Grabación de fotogramas de análisis sin convertir para reproducirlos fuera del móvil
+    private static final int FRAME_RECORDER_BUFFERS = 4;
+    private static final String FRAME_CAPTURE_DIR = "frame-captures";
+    // Miniaturas de rostros: pistas y candidatos por pista, cola hacia el exportador y JPEG
+    private static final int FACE_CROP_MAX_TRACKS = 8;
+    private static final int FACE_CROP_CANDIDATES = 3;
+    private static final int FACE_CROP_EXPORT_QUEUE = 4;
+    private static final int FACE_CROP_COMMIT_BATCH = 4;
+    private static final float FACE_CROP_PADDING_RATIO = 0.3f;
+    private static final int FACE_CROP_JPEG_QUALITY = 90;
+    // Flujo de rostros para consumidores de la app y periodo del registro de depuración
+    private static final int FACE_STREAM_MAX_FACES = 8;
+    private static final long FACE_LOG_INTERVAL_NANOS = 1_000_000_000L;
+    // Resultados pendientes de publicar por lente; potencia de dos
+    private static final int FACE_HANDOFF_CAPACITY = 16;
+    // Tira de capturas recientes: página de MediaStore, margen para pedir la siguiente y
+    // tamaño de las miniaturas; memoria y disco de su caché
+    private static final int RECENT_CAPTURES_PAGE_SIZE = 20;
+    private static final int RECENT_CAPTURES_PREFETCH = 5;
+    private static final int THUMBNAIL_SIZE_DP = 64;
+    private static final int THUMBNAIL_MARGIN_DP = 4;
+    private static final long THUMBNAIL_MEMORY_BYTES = 8L * 1024 * 1024;
+    private static final long THUMBNAIL_DISK_BYTES = 32L * 1024 * 1024;
+    private static final String THUMBNAIL_DIR = "thumbnails";
+    // Miniatura inmediata de una captura a partir del fotograma de análisis (hasta 640x480)
+    private static final int CAPTURE_THUMBNAIL_MAX_PIXELS = 640 * 480;
+    private static final int THUMBNAIL_FOR_PHOTO = 1;
+    private static final int THUMBNAIL_FOR_VIDEO = 1 << 1;
+
+    // Evaluación del nivel de calidad (latencia, pérdidas y temperatura)
+    private static final long QUALITY_GOVERNOR_PERIOD_MS = 1_000L;
+
+    // Modo dual: la lente principal (trasera) y la segunda (frontal) comparten un único
+    // cupo de detección; sin cámaras concurrentes se alternan en turnos de 2 s y se
+    // descartan los primeros 300 ms de cada turno
+    private static final int STREAM_PRIMARY = 0;
+    private static final int STREAM_SECONDARY = 1;
+    private static final int DETECTOR_POOL_SLOTS = 1;
+    private static final long LENS_SLICE_NANOS = 2_000_000_000L;
+    private static final long LENS_SETTLE_NANOS = 300_000_000L;
+    private static final long LENS_TICK_MS = 100L;
 
     // Permisos actualizados según versión de Android
     private String[] getRequiredPermissions() {
@@ -90,8 +160,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private ActivityMainBinding viewBinding;
-    private ImageCapture imageCapture;
-    private VideoCapture<Recorder> videoCapture;
+    private CameraSessionManager cameraSession;
     private Recording recording;
     private ExecutorService cameraExecutor;
     private int lensFacing = CameraSelector.LENS_FACING_BACK;
@@ -99,8 +168,106 @@ public class MainActivity extends AppCompatActivity {
     private Button videoCaptureButton;
 
     // Variables para detección de rostros - CORREGIDO: Usar FaceDetector de ML Kit
-    private FaceDetector faceDetector;
-    private int facesDetected = 0;
+    private FaceDetectionStage faceDetectionStage;
+    private SharedDetectorPool detectorPool;
+    // Hilo de los callbacks de ML Kit; al cerrarlo se descartan los que lleguen tarde
+    private final HandlerThread detectorCallbackThread = new HandlerThread("face-detector-callbacks");
+    private SecondaryLensAnalyzer secondaryAnalyzer;
+    private FaceResultStream secondaryFaceStream;
+    private FaceResultHandoff secondaryFaceHandoff;
+    private boolean dualLensMode;
+    // Solo en modo dual multiplexado; lo lee el hilo de análisis
+    private volatile LensMultiplexer lensMultiplexer;
+    // Último flujo analizado; solo en el hilo de análisis
+    private int lastAnalyzedStream = STREAM_PRIMARY;
+    private FrameResultMerger frameResultMerger;
+    // Rostros por fotograma para cualquier consumidor; publicar nunca bloquea el análisis
+    private FaceResultStream faceResultStream;
+    // Los hilos del pipeline entregan aquí; el único productor de los flujos es facePublishExecutor
+    private FaceResultHandoff faceResultHandoff;
+    private ExecutorService facePublishExecutor;
+    private ExecutorService faceStreamExecutor;
+    private final StringBuilder faceLogLine = new StringBuilder(128);
+
+    // Capturas recientes; la paginación se gestiona en el hilo principal
+    private ThumbnailCache<Bitmap> thumbnailCache;
+    private ExecutorService thumbnailExecutor;
+    private RecentCapturesQuery recentCapturesQuery;
+    private RecentCapturesAdapter recentCapturesAdapter;
+    private int recentCapturesOffset;
+    private int recentCapturesGeneration;
+    private boolean recentCapturesLoading;
+    private boolean recentCapturesExhausted;
+    // Peticiones THUMBNAIL_FOR_*; las atiende el hilo de análisis con el siguiente fotograma
+    private final AtomicInteger captureThumbnailRequests = new AtomicInteger();
+    private final FrameThumbnailer frameThumbnailer = new FrameThumbnailer(CAPTURE_THUMBNAIL_MAX_PIXELS);
+    private volatile int thumbnailSizePx;
+    private volatile Bitmap photoThumbnail;
+    private volatile Bitmap videoThumbnail;
+
+    // Pipeline que reparte cada fotograma entre las etapas de análisis
+    private AnalysisPipeline<FrameBuffer> analysisPipeline;
+    private AnalysisPipeline.StageKey<FaceResult> faceStageKey;
+    private AnalysisPipeline.StageKey<LumaStats> lumaStageKey;
+    private PreRollRecorder preRollRecorder;
+    // Rostros de cada fotograma mientras se graba, para buscar en el vídeo sin re-detectar
+    private final FaceTrackWriter faceTrackWriter = new FaceTrackWriter(FACE_TRACK_QUEUE_CAPACITY,
+            FaceTrackWriter.DEFAULT_INDEX_INTERVAL, FACE_TRACK_FLUSH_MS, line -> Log.e(TAG, line));
+
+    // Estado visible publicado desde el análisis; se pinta como mucho una vez por frame
+    private UiStatePublisher uiStatePublisher;
+    private StatusTextCache facesText;
+    private StatusTextCache recordingFacesText;
+    private String readyText;
+    private String recordingText;
+
+    // Latencias por etapa y fotogramas perdidos
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics();
+    private MetricsDumper metricsDumper;
+    // Marcas de tiempo (nanoTime) de operaciones pendientes; 0 si no hay ninguna
+    private long recordingStartNanos;
+    private long recordingStopNanos;
+
+    // Ráfaga de fotos: captura en memoria y escritura por lotes en segundo plano
+    private ExecutorService burstExecutor;
+    private BurstQueue burstQueue;
+    private BurstWriter<Uri> burstWriter;
+    private BurstCaptureController burstController;
+
+    // Miniatura del mejor fotograma de cada rostro seguido
+    private FaceCropCollector faceCropCollector;
+    private FaceCropExporter<Uri> faceCropExporter;
+
+    // Nivel de calidad de la sesión; se evalúa en el hilo principal
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private QualityGovernor qualityGovernor;
+    private final Runnable lensMultiplexerTick = new Runnable() {
+        @Override
+        public void run() {
+            LensMultiplexer multiplexer = lensMultiplexer;
+            if (multiplexer != null) {
+                multiplexer.tick();
+                mainHandler.postDelayed(this, LENS_TICK_MS);
+            }
+        }
+    };
+    private final Runnable qualityGovernorTick = new Runnable() {
+        @Override
+        public void run() {
+            qualityGovernor.evaluate();
+            mainHandler.postDelayed(this, QUALITY_GOVERNOR_PERIOD_MS);
+        }
+    };
+
+    // Fotogramas crudos para réplica offline; el RawFrame se reutiliza en el hilo de análisis
+    private final FrameRecorder frameRecorder =
+            new FrameRecorder(FRAME_RECORDER_BUFFERS, line -> Log.e(TAG, line));
+    private final RawFrame rawFrame = new RawFrame();
+
+    // Buffers reutilizables para los fotogramas reducidos que se envían al detector
+    private final FrameBufferPool frameBufferPool = new FrameBufferPool(FRAME_POOL_CAPACITY);
+    private final YuvDownscaler yuvDownscaler =
+            new YuvDownscaler(frameBufferPool, ANALYSIS_DOWNSCALE_FACTOR, FrameBuffer.FORMAT_NV21);
 
     // Nuevo: ActivityResultLauncher para manejo de permisos moderno
     private ActivityResultLauncher<String[]> requestPermissionLauncher =
@@ -116,6 +283,7 @@ public class MainActivity extends AppCompatActivity {
 
                         if (allGranted) {
                             startCamera();
+                            reloadRecentCaptures();
                         } else {
                             Toast.makeText(this,
                                     "Los permisos no fueron concedidos",
@@ -129,8 +297,14 @@ public class MainActivity extends AppCompatActivity {
         viewBinding = ActivityMainBinding.inflate(getLayoutInflater());
         setContentView(viewBinding.getRoot());
 
+        cameraExecutor = Executors.newSingleThreadExecutor();
+
         // Inicializar el detector de rostros
         setupFaceDetector();
+        setupRecentCaptures();
+
+        // Pedir el proveedor de cámara mientras se resuelven los permisos
+        setupCameraSession();
 
         // Verificar permisos con el nuevo enfoque
         if (allPermissionsGranted()) {
@@ -142,28 +316,249 @@ public class MainActivity extends AppCompatActivity {
         // Inicializar componentes
         cameraStatus = viewBinding.cameraStatus;
         videoCaptureButton = viewBinding.videoCaptureButton;
+        setupStatusPublisher();
+        setupMetrics();
+        setupBurstCapture();
+        setupQualityGovernor();
 
         // Configurar botones
         viewBinding.imageCaptureButton.setOnClickListener(v -> takePhoto());
+        viewBinding.imageCaptureButton.setOnLongClickListener(v -> takeBurst());
         viewBinding.videoCaptureButton.setOnClickListener(v -> captureVideo());
+        viewBinding.videoCaptureButton.setOnLongClickListener(v -> togglePreRoll());
         viewBinding.cameraToggleButton.setOnClickListener(v -> toggleCamera());
+        viewBinding.cameraToggleButton.setOnLongClickListener(v -> toggleFrameRecording());
+        cameraStatus.setOnLongClickListener(v -> toggleDualLens());
+    }
 
-        cameraExecutor = Executors.newSingleThreadExecutor();
+    // Textos preformateados y publicador de estado sincronizado con Choreographer
+    private void setupStatusPublisher() {
+        readyText = getString(R.string.ready);
+        recordingText = getString(R.string.recording);
+        facesText = new StatusTextCache(MAX_CACHED_FACE_COUNT,
+                count -> getString(R.string.faces_detected, count));
+        recordingFacesText = new StatusTextCache(MAX_CACHED_FACE_COUNT,
+                count -> getString(R.string.recording_faces, count));
+
+        Choreographer choreographer = Choreographer.getInstance();
+        Choreographer.FrameCallback frameCallback = frameTimeNanos -> uiStatePublisher.onFrame();
+        uiStatePublisher = new UiStatePublisher(
+                () -> choreographer.postFrameCallback(frameCallback),
+                this::renderStatus);
+    }
+
+    private void setupCameraSession() {
+        cameraSession = new CameraSessionManager(this, this, viewBinding.viewFinder,
+                cameraExecutor, this::analyzeFaces, pipelineMetrics,
+                new CameraSessionManager.Listener() {
+                    @Override
+                    public void onCameraBound(int boundLensFacing) {
+                        uiStatePublisher.invalidate();
+                    }
+
+                    @Override
+                    public void onCameraError(Exception e) {
+                        Toast.makeText(MainActivity.this,
+                                "Error al iniciar la cámara: " + e.getMessage(),
+                                Toast.LENGTH_SHORT).show();
+                    }
+                });
+        cameraSession.preload();
+    }
+
+    private void setupBurstCapture() {
+        burstExecutor = Executors.newSingleThreadExecutor();
+        burstQueue = new BurstQueue(BURST_QUEUE_BYTES);
+        burstWriter = new BurstWriter<>(burstQueue,
+                new MediaStoreSink(getContentResolver(), "Pictures/CameraX-Image"),
+                BURST_COMMIT_BATCH, Clock.SYSTEM,
+                success -> burstController.onShotWritten(success));
+        burstController = new BurstCaptureController(burstQueue, burstWriter, burstExecutor,
+                ContextCompat.getMainExecutor(this),
+                (captured, dropped) -> {
+                    Toast.makeText(this,
+                            "Ráfaga: " + captured + " fotos" + (dropped > 0 ? ", " + dropped + " perdidas" : ""),
+                            Toast.LENGTH_SHORT).show();
+                    // Cambio de modo de captura aplazado durante la ráfaga
+                    cameraSession.applyPendingTier(recording != null, false);
+                    // Las fotos de la ráfaga entran en la tira al releerla
+                    reloadRecentCaptures();
+                });
+        burstWriter.start();
+    }
+
+    // Volcado periódico de métricas
+    private void setupMetrics() {
+        metricsDumper = new MetricsDumper(pipelineMetrics,
+                new File(getFilesDir(), METRICS_FILE_NAME), line -> Log.i(TAG, line));
+        metricsDumper.start(METRICS_DUMP_PERIOD_MS);
+    }
+
+    // Gobernador de calidad: baja o sube de nivel según latencia, pérdidas y temperatura
+    private void setupQualityGovernor() {
+        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+        FrameScheduler<?> scheduler = faceDetectionStage.getScheduler();
+        FrameDropDetector dropDetector = pipelineMetrics.getDropDetector();
+        QualityGovernor.Signals signals = new QualityGovernor.Signals() {
+            @Override
+            public long getAnalysisLatencyNanos() {
+                return scheduler.getAverageLatencyNanos();
+            }
+
+            @Override
+            public long getFrameCount() {
+                return dropDetector.getFrameCount();
+            }
+
+            @Override
+            public long getDroppedFrameCount() {
+                return dropDetector.getDroppedCount();
+            }
+
+            @Override
+            public int getThermalStatus() {
+                // El estado térmico de la plataforma existe desde Android 10
+                return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                        ? powerManager.getCurrentThermalStatus()
+                        : QualityGovernor.THERMAL_NONE;
+            }
+        };
+        qualityGovernor = new QualityGovernor(QualityTier.DEFAULT_TIERS, signals, Clock.SYSTEM,
+                scheduler.getFrameIntervalNanos(), this::onQualityTierChanged);
+        mainHandler.postDelayed(qualityGovernorTick, QUALITY_GOVERNOR_PERIOD_MS);
+    }
+
+    // Solo se reconfigura lo que cambia; el vídeo y la captura en curso se aplazan
+    private void onQualityTierChanged(QualityTier previous, QualityTier current, int changes) {
+        Log.i(TAG, "Nivel de calidad: " + previous + " -> " + current);
+        // La tasa de la nueva configuración y el hueco al revincular no son pérdidas
+        pipelineMetrics.getDropDetector().requestReset();
+        if ((changes & QualityTier.CHANGED_DETECTOR) != 0) {
+            faceDetectionStage.getScheduler().setFastOnly(current.isFastDetectorOnly());
+        }
+        if ((changes & ~QualityTier.CHANGED_DETECTOR) != 0) {
+            cameraSession.applyTier(current, recording != null, burstController.isActive());
+        }
+    }
+
+    // Pinta el estado publicado; solo se llama cuando cambia
+    private void renderStatus(int faceCount, int status) {
+        if (status == UiStatePublisher.STATUS_RECORDING) {
+            cameraStatus.setText(faceCount > 0 ? recordingFacesText.get(faceCount) : recordingText);
+        } else {
+            cameraStatus.setText(faceCount > 0 ? facesText.get(faceCount) : readyText);
+        }
     }
 
     // Configurar el detector de rostros de ML Kit
     private void setupFaceDetector() {
-        // Opciones de alta precisión para detección de rostros
-        FaceDetectorOptions highAccuracyOpts =
+        // Ajuste normal del seguimiento: modo preciso y rostros desde el 10 % de la imagen
+        FaceDetectorOptions accurateOpts =
                 new FaceDetectorOptions.Builder()
                         .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE)
                         .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_NONE)
                         .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_NONE)
+                        .setMinFaceSize(ACCURATE_MIN_FACE_SIZE)
+                        .enableTracking()
+                        .build();
+
+        // Degradado, cuando la latencia supera el presupuesto o lo pide el nivel de
+        // calidad: modo rápido y solo rostros grandes
+        FaceDetectorOptions fastOpts =
+                new FaceDetectorOptions.Builder()
+                        .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_FAST)
+                        .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_NONE)
+                        .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_NONE)
+                        .setMinFaceSize(FAST_MIN_FACE_SIZE)
                         .enableTracking()
                         .build();
 
-        // Crear el detector con las opciones configuradas
-        faceDetector = FaceDetection.getClient(highAccuracyOpts);
+        // Alta precisión con puntos faciales y clasificación, solo sobre el recorte de
+        // pistas nuevas o que se movieron
+        FaceDetectorOptions attributeOpts =
+                new FaceDetectorOptions.Builder()
+                        .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE)
+                        .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_ALL)
+                        .setClassificationMode(FaceDetectorOptions.CLASSIFICATION_MODE_ALL)
+                        .build();
+
+        // Los resultados de ML Kit se procesan en un hilo propio y no en el principal:
+        // tras cada detección se puntúan y copian recortes píxel a píxel
+        detectorCallbackThread.start();
+        Handler detectorCallbackHandler = new Handler(detectorCallbackThread.getLooper());
+        Executor detectorCallbacks = detectorCallbackHandler::post;
+
+        // Cada lente tiene sus clientes (el seguimiento guarda estado entre fotogramas),
+        // pero las detecciones en curso se reparten por turnos entre las dos
+        detectorPool = new SharedDetectorPool(new FaceDetectorBackend[]{
+                new MlKitFaceDetectorBackend(FaceDetection.getClient(accurateOpts),
+                        FaceDetection.getClient(fastOpts), detectorCallbacks),
+                new MlKitFaceDetectorBackend(FaceDetection.getClient(accurateOpts),
+                        FaceDetection.getClient(fastOpts), detectorCallbacks)},
+                DETECTOR_POOL_SLOTS, Clock.SYSTEM);
+
+        // Crear los detectores con las opciones configuradas
+        faceDetectionStage = new FaceDetectionStage(detectorPool.lens(STREAM_PRIMARY),
+                new MlKitFaceAttributeBackend(FaceDetection.getClient(attributeOpts),
+                        detectorCallbacks),
+                MAX_FRAMES_IN_FLIGHT, pipelineMetrics, Clock.SYSTEM, line -> Log.d(TAG, line));
+
+        // Al terminar cada pista su mejor recorte se codifica y guarda en segundo plano
+        faceCropExporter = new FaceCropExporter<>(
+                new MediaStoreSink(getContentResolver(), "Pictures/CameraX-Faces"),
+                MainActivity::encodeFaceCrop, FACE_CROP_EXPORT_QUEUE, FACE_CROP_COMMIT_BATCH,
+                crop -> faceCropCollector.release(crop));
+        faceCropCollector = new FaceCropCollector(FACE_CROP_MAX_TRACKS, FACE_CROP_CANDIDATES,
+                FACE_CROP_EXPORT_QUEUE, FACE_CROP_PADDING_RATIO,
+                (trackingId, crop, score) -> faceCropExporter.submit(trackingId, crop));
+        faceDetectionStage.setCropCollector(faceCropCollector);
+        faceCropExporter.start();
+
+        // Registrar las etapas; el fotograma vuelve al pool cuando la última lo suelta
+        analysisPipeline = new AnalysisPipeline<>(ANALYSIS_WORKER_THREADS, MAX_FRAMES_IN_FLIGHT,
+                frameBufferPool::release);
+        faceStageKey = analysisPipeline.register("faces", faceDetectionStage);
+        lumaStageKey = analysisPipeline.register("luma",
+                new LumaStatsStage(MAX_FRAMES_IN_FLIGHT, LUMA_STATS_SAMPLE_STEP));
+        // Codifica los fotogramas en un anillo para guardar lo ocurrido antes de un rostro
+        preRollRecorder = new PreRollRecorder(this, PRE_ROLL_MILLIS, PRE_ROLL_LIVE_MILLIS,
+                PRE_ROLL_RING_BYTES, PRE_ROLL_RING_SAMPLES,
+                location -> ContextCompat.getMainExecutor(this).execute(() ->
+                        Toast.makeText(this, "Clip guardado: " + location, Toast.LENGTH_SHORT).show()));
+        analysisPipeline.register("preroll", preRollRecorder);
+        // Cada suscriptor elige su política y su executor; en depuración, un registro muestreado
+        faceResultStream = new FaceResultStream(FACE_STREAM_MAX_FACES);
+        facePublishExecutor = Executors.newSingleThreadExecutor();
+        faceResultHandoff = new FaceResultHandoff(FACE_HANDOFF_CAPACITY, faceResultStream,
+                facePublishExecutor);
+        faceStreamExecutor = Executors.newSingleThreadExecutor();
+        if (BuildConfig.DEBUG) {
+            faceResultStream.subscribeSampled(FACE_LOG_INTERVAL_NANOS, faceStreamExecutor,
+                    faces -> logFaces("principal", faces));
+        }
+        frameResultMerger = new FrameResultMerger(faceStageKey, this::onFacesAnalyzed);
+        analysisPipeline.start(frameResultMerger::merge);
+
+        // Segunda lente del modo dual, con su propio flujo de resultados
+        secondaryFaceStream = new FaceResultStream(FACE_STREAM_MAX_FACES);
+        secondaryFaceHandoff = new FaceResultHandoff(FACE_HANDOFF_CAPACITY, secondaryFaceStream,
+                facePublishExecutor);
+        if (BuildConfig.DEBUG) {
+            secondaryFaceStream.subscribeSampled(FACE_LOG_INTERVAL_NANOS, faceStreamExecutor,
+                    faces -> logFaces("frontal", faces));
+        }
+        secondaryAnalyzer = new SecondaryLensAnalyzer(detectorPool.lens(STREAM_SECONDARY),
+                new PipelineMetrics(), line -> Log.d(TAG, line),
+                (faces, appeared) -> secondaryFaceHandoff.offer(faces));
+    }
+
+    private static void encodeFaceCrop(FrameBuffer crop, OutputStream out) throws IOException {
+        int width = crop.getWidth();
+        int height = crop.getHeight();
+        YuvImage image = new YuvImage(crop.getData(), ImageFormat.NV21, width, height, null);
+        if (!image.compressToJpeg(new Rect(0, 0, width, height), FACE_CROP_JPEG_QUALITY, out)) {
+            throw new IOException("No se pudo codificar la miniatura");
+        }
     }
 
     private void requestPermissions() {
@@ -172,14 +567,63 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void toggleCamera() {
+        if (dualLensMode) {
+            // En modo dual las dos lentes ya están en uso
+            return;
+        }
         if (lensFacing == CameraSelector.LENS_FACING_BACK) {
             lensFacing = CameraSelector.LENS_FACING_FRONT;
         } else {
             lensFacing = CameraSelector.LENS_FACING_BACK;
         }
+        // Las pistas de la otra cámara ya no son válidas
+        faceDetectionStage.reset();
+        frameResultMerger.reset();
         startCamera();
     }
 
+    // Pulsación larga en el estado: entra o sale del modo dual (trasera y frontal)
+    private boolean toggleDualLens() {
+        if (recording != null || burstController.isActive()) {
+            Toast.makeText(this, "El modo dual no está disponible durante una captura",
+                    Toast.LENGTH_SHORT).show();
+            return true;
+        }
+        if (!allPermissionsGranted()) {
+            requestPermissions();
+            return true;
+        }
+        dualLensMode = !dualLensMode;
+        // Las pistas de cada lente empiezan de cero al cambiar de modo
+        faceDetectionStage.reset();
+        frameResultMerger.reset();
+        secondaryAnalyzer.reset();
+        if (!dualLensMode) {
+            lensMultiplexer = null;
+            mainHandler.removeCallbacks(lensMultiplexerTick);
+            cameraSession.unbindConcurrent(lensFacing);
+            Toast.makeText(this, "Modo dual desactivado", Toast.LENGTH_SHORT).show();
+            return true;
+        }
+        lensFacing = CameraSelector.LENS_FACING_BACK;
+        if (cameraSession.bindConcurrent(CameraSelector.LENS_FACING_BACK,
+                CameraSelector.LENS_FACING_FRONT, secondaryAnalyzer)) {
+            Toast.makeText(this, "Modo dual: cámaras simultáneas", Toast.LENGTH_SHORT).show();
+            return true;
+        }
+        // Sin cámaras concurrentes: una lente vinculada que rota por turnos
+        LensMultiplexer multiplexer = new LensMultiplexer(2, LENS_SLICE_NANOS,
+                LENS_SETTLE_NANOS, Clock.SYSTEM, (previous, current) -> cameraSession.bind(
+                current == STREAM_PRIMARY ? CameraSelector.LENS_FACING_BACK
+                        : CameraSelector.LENS_FACING_FRONT));
+        cameraSession.bind(CameraSelector.LENS_FACING_BACK);
+        multiplexer.restartSlice();
+        lensMultiplexer = multiplexer;
+        mainHandler.postDelayed(lensMultiplexerTick, LENS_TICK_MS);
+        Toast.makeText(this, "Modo dual: cámaras alternadas", Toast.LENGTH_SHORT).show();
+        return true;
+    }
+
     private void startCamera() {
         // Verificar permisos antes de iniciar la cámara
         if (!allPermissionsGranted()) {
@@ -187,116 +631,219 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        ListenableFuture<ProcessCameraProvider> cameraProviderFuture =
-                ProcessCameraProvider.getInstance(this);
+        // Solo se vincula de nuevo si cambió la lente; los casos de uso se reutilizan
+        cameraSession.bind(lensFacing);
+    }
 
-        cameraProviderFuture.addListener(() -> {
-            try {
-                // Obtener el proveedor de cámara
-                ProcessCameraProvider cameraProvider = cameraProviderFuture.get();
+    // Método de análisis para detectar rostros en imágenes de la cámara
+    private void analyzeFaces(ImageProxy imageProxy, int frameLensFacing) {
+        LensMultiplexer multiplexer = lensMultiplexer;
+        // Flujo de la lente de la que salió el fotograma, no del turno actual: uno
+        // rezagado de la lente anterior se descarta en lugar de ir al otro analizador
+        int stream = multiplexer != null && frameLensFacing == CameraSelector.LENS_FACING_FRONT
+                ? STREAM_SECONDARY : STREAM_PRIMARY;
+        if (multiplexer != null && !multiplexer.accept(stream)) {
+            // Turno recién cambiado: exposición aún convergiendo o fotograma de la otra lente
+            imageProxy.close();
+            return;
+        }
+        if (stream != lastAnalyzedStream) {
+            // El hueco del turno de la otra lente no son fotogramas perdidos
+            lastAnalyzedStream = stream;
+            pipelineMetrics.getDropDetector().reset();
+        }
+        if (stream == STREAM_SECONDARY) {
+            secondaryAnalyzer.analyze(imageProxy);
+            return;
+        }
 
-                // Configurar la vista previa
-                Preview preview = new Preview.Builder().build();
-                preview.setSurfaceProvider(viewBinding.viewFinder.getSurfaceProvider());
+        long arrivalNanos = System.nanoTime();
+        pipelineMetrics.onFrameArrived(imageProxy.getImageInfo().getTimestamp(), arrivalNanos);
 
-                // Configurar la captura de imagen
-                imageCapture = new ImageCapture.Builder()
-                        .setCaptureMode(ImageCapture.CAPTURE_MODE_MAXIMIZE_QUALITY)
-                        .build();
+        // Reducir el fotograma a un buffer NV21 del pool para aliviar al detector
+        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+        rawFrame.set(planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                imageProxy.getWidth(), imageProxy.getHeight(),
+                imageProxy.getImageInfo().getRotationDegrees(),
+                imageProxy.getImageInfo().getTimestamp());
+        frameRecorder.record(rawFrame);
+        FrameBuffer frame = rawFrame.convert(yuvDownscaler);
+        long convertedNanos = System.nanoTime();
+        pipelineMetrics.record(PipelineMetrics.STAGE_CONVERSION, convertedNanos - arrivalNanos);
 
-                // Configurar el análisis de imagen con detección de rostros
-                ImageAnalysis imageAnalyzer = new ImageAnalysis.Builder()
-                        .setTargetResolution(new Size(1280, 720))
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                        .build();
+        // El buffer es una copia: cerrar ya el imageProxy para recibir el siguiente fotograma
+        imageProxy.close();
+        pipelineMetrics.record(PipelineMetrics.STAGE_IMAGE_CLOSE, System.nanoTime() - convertedNanos);
 
-                imageAnalyzer.setAnalyzer(cameraExecutor, this::analyzeFaces);
+        takeCaptureThumbnail(frame);
+        analysisPipeline.submit(frame, frame.getTimestampNanos());
+    }
 
-                // Configurar la captura de video
-                Recorder recorder = new Recorder.Builder()
-                        .setQualitySelector(QualitySelector.from(Quality.HIGHEST))
-                        .build();
-                videoCapture = VideoCapture.withOutput(recorder);
+    // Con una captura en curso, su miniatura sale de este fotograma sin decodificar nada
+    private void takeCaptureThumbnail(FrameBuffer frame) {
+        int requests = captureThumbnailRequests.getAndSet(0);
+        if (requests == 0 || !frameThumbnailer.convert(frame, thumbnailSizePx)) {
+            return;
+        }
+        int width = frameThumbnailer.getWidth();
+        Bitmap thumbnail = Bitmap.createBitmap(frameThumbnailer.getPixels(), 0, width, width,
+                frameThumbnailer.getHeight(), Bitmap.Config.ARGB_8888);
+        if ((requests & THUMBNAIL_FOR_PHOTO) != 0) {
+            photoThumbnail = thumbnail;
+        }
+        if ((requests & THUMBNAIL_FOR_VIDEO) != 0) {
+            videoThumbnail = thumbnail;
+        }
+    }
 
-                // Seleccionar cámara según lensFacing
-                CameraSelector cameraSelector = new CameraSelector.Builder()
-                        .requireLensFacing(lensFacing)
-                        .build();
+    private void requestCaptureThumbnail(int target) {
+        captureThumbnailRequests.accumulateAndGet(target, (current, bit) -> current | bit);
+    }
 
-                // Vincular todos los casos de uso a la cámara
-                cameraProvider.unbindAll();
-                Camera camera = cameraProvider.bindToLifecycle(
-                        (LifecycleOwner) this, cameraSelector, preview, imageCapture, videoCapture, imageAnalyzer);
+    // Tira de capturas recientes con miniaturas en memoria y disco
+    private void setupRecentCaptures() {
+        float density = getResources().getDisplayMetrics().density;
+        int sizePx = Math.round(THUMBNAIL_SIZE_DP * density);
+        thumbnailSizePx = sizePx;
+        ThumbnailDiskCache disk = null;
+        try {
+            disk = new ThumbnailDiskCache(new File(getCacheDir(), THUMBNAIL_DIR), THUMBNAIL_DISK_BYTES);
+        } catch (IOException e) {
+            Log.w(TAG, "Miniaturas solo en memoria", e);
+        }
+        thumbnailCache = new ThumbnailCache<>(THUMBNAIL_MEMORY_BYTES, disk, ThumbnailLoader.BITMAP_CODEC);
+        thumbnailExecutor = Executors.newSingleThreadExecutor();
+        recentCapturesQuery = new RecentCapturesQuery(getContentResolver());
+        ThumbnailLoader loader = new ThumbnailLoader(getContentResolver(), thumbnailCache,
+                thumbnailExecutor, mainHandler, sizePx);
+        recentCapturesAdapter = new RecentCapturesAdapter(loader, sizePx,
+                Math.round(THUMBNAIL_MARGIN_DP * density), RECENT_CAPTURES_PREFETCH,
+                new RecentCapturesAdapter.Listener() {
+                    @Override
+                    public void onCaptureClicked(RecentCapture item) {
+                        openCapture(item);
+                    }
 
-                cameraStatus.setText(R.string.ready);
+                    @Override
+                    public void onNeedMore() {
+                        loadNextCapturesPage();
+                    }
+                });
+        viewBinding.recentCaptures.setLayoutManager(
+                new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false));
+        viewBinding.recentCaptures.setAdapter(recentCapturesAdapter);
+        loadNextCapturesPage();
+    }
 
-            } catch (ExecutionException | InterruptedException e) {
-                Log.e(TAG, "Error al iniciar la cámara: ", e);
-                Toast.makeText(this, "Error al iniciar la cámara: " + e.getMessage(),
-                        Toast.LENGTH_SHORT).show();
-            }
-        }, ContextCompat.getMainExecutor(this));
+    // Sin permisos no se consulta; la tira se recarga al concederlos
+    private void loadNextCapturesPage() {
+        if (recentCapturesLoading || recentCapturesExhausted || !allPermissionsGranted()) {
+            return;
+        }
+        recentCapturesLoading = true;
+        int offset = recentCapturesOffset;
+        int generation = recentCapturesGeneration;
+        thumbnailExecutor.execute(() -> {
+            List<RecentCapture> page = recentCapturesQuery.loadPage(offset, RECENT_CAPTURES_PAGE_SIZE);
+            mainHandler.post(() -> {
+                // Página de antes de recargar la tira: se descarta
+                if (generation != recentCapturesGeneration) {
+                    return;
+                }
+                recentCapturesLoading = false;
+                if (page == null) {
+                    // Consulta fallida: la tira se queda como está hasta la próxima recarga
+                    return;
+                }
+                recentCapturesOffset += page.size();
+                recentCapturesExhausted = page.size() < RECENT_CAPTURES_PAGE_SIZE;
+                recentCapturesAdapter.appendPage(page);
+            });
+        });
     }
 
-    // Método de análisis para detectar rostros en imágenes de la cámara
-    @SuppressLint("UnsafeOptInUsageError")
-    private void analyzeFaces(ImageProxy imageProxy) {
-        Image mediaImage = imageProxy.getImage();
-        if (mediaImage != null) {
-            InputImage image = InputImage.fromMediaImage(
-                    mediaImage,
-                    imageProxy.getImageInfo().getRotationDegrees()
-            );
+    // Vuelve a leer la tira desde el principio, p. ej. tras una ráfaga
+    private void reloadRecentCaptures() {
+        recentCapturesGeneration++;
+        recentCapturesLoading = false;
+        recentCapturesExhausted = false;
+        recentCapturesOffset = 0;
+        recentCapturesAdapter.clear();
+        loadNextCapturesPage();
+    }
 
-            // Procesar la imagen con el detector de rostros
-            Task<List<Face>> result = faceDetector.process(image)
-                    .addOnSuccessListener(faces -> {
-                        facesDetected = faces.size();
+    // Captura recién guardada: entra al principio con la miniatura del fotograma de análisis
+    private void onCaptureSaved(Uri uri, boolean video, Bitmap thumbnail) {
+        if (uri == null) {
+            return;
+        }
+        if (thumbnail != null) {
+            thumbnailCache.putEager(uri.toString(), thumbnail);
+        }
+        recentCapturesAdapter.addFirst(
+                new RecentCapture(uri, video, ThumbnailCache.UNKNOWN_MODIFIED, 0));
+        recentCapturesOffset++;
+        viewBinding.recentCaptures.scrollToPosition(0);
+    }
 
-                        // Actualizar la interfaz con información sobre los rostros detectados
-                        runOnUiThread(() -> {
-                            if (facesDetected > 0) {
-                                cameraStatus.setText("Rostros detectados: " + facesDetected);
+    private void openCapture(RecentCapture item) {
+        Intent intent = new Intent(Intent.ACTION_VIEW)
+                .setDataAndType(item.uri, item.video ? "video/*" : "image/*")
+                .addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        try {
+            startActivity(intent);
+        } catch (ActivityNotFoundException e) {
+            Toast.makeText(this, "No hay visor para " + item.uri, Toast.LENGTH_SHORT).show();
+        }
+    }
 
-                                // Obtener información adicional del primer rostro
-                                if (faces.size() > 0) {
-                                    Face face = faces.get(0);
+    // Resultado combinado de todas las etapas; se invoca en un hilo del pipeline
+    private void onFacesAnalyzed(FaceResult faces, boolean appeared) {
+        // El primer rostro tras una escena vacía dispara el clip con pre-roll
+        if (appeared) {
+            preRollRecorder.trigger();
+        }
+        uiStatePublisher.setFaceCount(faces.getCount());
+        faceTrackWriter.offer(faces);
+        faceResultHandoff.offer(faces);
+    }
 
-                                    // Si el seguimiento está activado, puedes obtener el ID
-                                    if (face.getTrackingId() != null) {
-                                        Log.d(TAG, "ID de seguimiento: " + face.getTrackingId());
-                                    }
+    // Suscriptor de depuración de cada lente (solo en builds debug); en faceStreamExecutor
+    private void logFaces(String lens, FaceResult faces) {
+        if (faces.getCount() == 0) {
+            return;
+        }
+        faceLogLine.setLength(0);
+        faceLogLine.append("Rostros en seguimiento (").append(lens).append("):");
+        for (int i = 0; i < faces.getCount(); i++) {
+            faceLogLine.append(' ').append(faces.getTrackingId(i)).append(" [")
+                    .append((int) faces.getBox(i, 0)).append(',')
+                    .append((int) faces.getBox(i, 1)).append(',')
+                    .append((int) faces.getBox(i, 2)).append(',')
+                    .append((int) faces.getBox(i, 3)).append(']');
+        }
+        Log.d(TAG, faceLogLine.toString());
+    }
 
-                                    // Obtener los límites del rostro
-                                    Rect bounds = face.getBoundingBox();
-                                    Log.d(TAG, "Rostro en: " + bounds.toString());
+    /** Flujo de rostros por fotograma; los suscriptores deben copiar lo que conserven. */
+    public FaceResultStream getFaceResultStream() {
+        return faceResultStream;
+    }
 
-                                    // También puedes detectar sonrisas, ojos abiertos, etc. si lo configuraste
-                                    // float smileProb = face.getSmilingProbability();
-                                    // float rightEyeOpenProb = face.getRightEyeOpenProbability();
-                                }
-                            } else {
-                                cameraStatus.setText(R.string.ready);
-                            }
-                        });
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error en detección de rostros: ", e);
-                    })
-                    .addOnCompleteListener(task -> {
-                        // Importante: cerrar el imageProxy cuando termines
-                        imageProxy.close();
-                    });
-        } else {
-            imageProxy.close();
-        }
+    /** Flujo de la lente dada; en modo dual la frontal tiene el suyo. */
+    public FaceResultStream getFaceResultStream(int lens) {
+        return dualLensMode && lens == CameraSelector.LENS_FACING_FRONT
+                ? secondaryFaceStream : faceResultStream;
     }
 
     private void takePhoto() {
-        // Verificar que la captura de imagen está inicializada
-        if (imageCapture == null) {
+        // Verificar que la captura de imagen está vinculada
+        if (!cameraSession.isBound()) {
             return;
         }
+        ImageCapture imageCapture = cameraSession.getImageCapture();
 
         // Verificar permisos explícitamente antes de tomar una foto
         if (!allPermissionsGranted()) {
@@ -315,6 +862,8 @@ public class MainActivity extends AppCompatActivity {
         // Actualizado para compatibilidad con versiones recientes de Android
         if (Build.VERSION.SDK_INT > Build.VERSION_CODES.P) {
             contentValues.put(MediaStore.Images.Media.RELATIVE_PATH, "Pictures/CameraX-Image");
+        } else {
+            MediaStoreSink.putLegacyPath(contentValues, "Pictures/CameraX-Image", name + ".jpg");
         }
 
         // Crear opciones de salida
@@ -324,6 +873,9 @@ public class MainActivity extends AppCompatActivity {
                 contentValues)
                 .build();
 
+        long captureStartNanos = System.nanoTime();
+        photoThumbnail = null;
+        requestCaptureThumbnail(THUMBNAIL_FOR_PHOTO);
         try {
             // Configurar el callback de captura
             imageCapture.takePicture(
@@ -332,13 +884,18 @@ public class MainActivity extends AppCompatActivity {
                     new ImageCapture.OnImageSavedCallback() {
                         @Override
                         public void onImageSaved(@NonNull ImageCapture.OutputFileResults outputFileResults) {
+                            pipelineMetrics.record(PipelineMetrics.STAGE_PHOTO_CAPTURE,
+                                    System.nanoTime() - captureStartNanos);
                             String msg = "Foto guardada: " +
                                     outputFileResults.getSavedUri();
+                            int facesDetected = frameResultMerger.getFaceCount();
                             if (facesDetected > 0) {
                                 msg += " - Rostros detectados: " + facesDetected;
                             }
                             Toast.makeText(MainActivity.this, msg, Toast.LENGTH_SHORT).show();
                             Log.d(TAG, msg);
+                            onCaptureSaved(outputFileResults.getSavedUri(), false, photoThumbnail);
+                            photoThumbnail = null;
                         }
 
                         @Override
@@ -356,17 +913,67 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // Pulsación larga: ráfaga de fotos que se guardan mientras se siguen capturando
+    private boolean takeBurst() {
+        if (!cameraSession.isBound()) {
+            return false;
+        }
+        if (!allPermissionsGranted()) {
+            requestPermissions();
+            Toast.makeText(this, "Se requieren permisos para tomar fotos", Toast.LENGTH_SHORT).show();
+            return true;
+        }
+        burstController.start(cameraSession.getImageCapture(), BURST_SHOT_COUNT);
+        return true;
+    }
+
+    // Pulsación larga en grabar: activa o desactiva el modo pre-roll
+    private boolean togglePreRoll() {
+        boolean enable = !preRollRecorder.isEnabled();
+        preRollRecorder.setEnabled(enable);
+        Toast.makeText(this, enable ? "Pre-roll activado" : "Pre-roll desactivado",
+                Toast.LENGTH_SHORT).show();
+        return true;
+    }
+
+    // Pulsación larga en cambiar cámara: graba o deja de grabar fotogramas crudos
+    private boolean toggleFrameRecording() {
+        if (frameRecorder.isRecording()) {
+            frameRecorder.stop();
+            Toast.makeText(this, "Fotogramas grabados: " + frameRecorder.getRecordedCount()
+                    + ", perdidos: " + frameRecorder.getDroppedCount(), Toast.LENGTH_SHORT).show();
+            return true;
+        }
+        File dir = getExternalFilesDir(FRAME_CAPTURE_DIR);
+        if (dir == null || (!dir.isDirectory() && !dir.mkdirs())) {
+            Log.e(TAG, "No se pudo crear el directorio de fotogramas");
+            return true;
+        }
+        String name = new SimpleDateFormat(FILENAME_FORMAT, Locale.US)
+                .format(System.currentTimeMillis());
+        try {
+            frameRecorder.start(new File(dir, name + ".frames"));
+            Toast.makeText(this, "Grabando fotogramas", Toast.LENGTH_SHORT).show();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+
+    // Grabación persistente: sobrevive a la revinculación al cambiar de lente
+    @OptIn(markerClass = ExperimentalPersistentRecording.class)
     private void captureVideo() {
-        if (videoCapture == null) {
+        if (!cameraSession.isBound()) {
             return;
         }
 
         // Si hay una grabación en curso, detenerla
         if (recording != null) {
+            recordingStopNanos = System.nanoTime();
             recording.stop();
             recording = null;
             videoCaptureButton.setText(R.string.start_video);
-            cameraStatus.setText(R.string.ready);
+            uiStatePublisher.setStatus(UiStatePublisher.STATUS_READY);
             return;
         }
 
@@ -387,6 +994,8 @@ public class MainActivity extends AppCompatActivity {
         // Actualizado para compatibilidad con versiones recientes de Android
         if (Build.VERSION.SDK_INT > Build.VERSION_CODES.P) {
             contentValues.put(MediaStore.Video.Media.RELATIVE_PATH, "Movies/CameraX-Video");
+        } else {
+            MediaStoreSink.putLegacyPath(contentValues, "Movies/CameraX-Video", name + ".mp4");
         }
 
         MediaStoreOutputOptions mediaStoreOutputOptions = new MediaStoreOutputOptions
@@ -394,34 +1003,49 @@ public class MainActivity extends AppCompatActivity {
                 .setContentValues(contentValues)
                 .build();
 
+        recordingStartNanos = System.nanoTime();
+        videoThumbnail = null;
+        requestCaptureThumbnail(THUMBNAIL_FOR_VIDEO);
         try {
             // Configurar el callback de grabación
-            recording = videoCapture.getOutput()
+            recording = cameraSession.getVideoCapture().getOutput()
                     .prepareRecording(this, mediaStoreOutputOptions)
+                    .asPersistentRecording()
                     .withAudioEnabled()
                     .start(ContextCompat.getMainExecutor(this), videoRecordEvent -> {
                         if (videoRecordEvent instanceof VideoRecordEvent.Start) {
+                            pipelineMetrics.record(PipelineMetrics.STAGE_RECORDING_START,
+                                    System.nanoTime() - recordingStartNanos);
                             videoCaptureButton.setText(R.string.stop_video);
+                            startFaceTrack(name);
 
-                            // Actualizar el estado si hay rostros detectados
-                            if (facesDetected > 0) {
-                                cameraStatus.setText("Grabando - Rostros: " + facesDetected);
-                            } else {
-                                cameraStatus.setText("Grabando...");
-                            }
+                            // El texto de estado incluye los rostros detectados mientras se graba
+                            uiStatePublisher.setStatus(UiStatePublisher.STATUS_RECORDING);
                         } else if (videoRecordEvent instanceof VideoRecordEvent.Finalize) {
                             VideoRecordEvent.Finalize finalizeEvent =
                                     (VideoRecordEvent.Finalize) videoRecordEvent;
+                            faceTrackWriter.stop();
+                            // Calidad de vídeo aplazada mientras se grababa
+                            cameraSession.applyPendingTier(false, burstController.isActive());
+                            if (recordingStopNanos != 0) {
+                                pipelineMetrics.record(PipelineMetrics.STAGE_RECORDING_FINALIZE,
+                                        System.nanoTime() - recordingStopNanos);
+                                recordingStopNanos = 0;
+                            }
                             if (!finalizeEvent.hasError()) {
                                 String msg = "Video guardado en: " +
                                         finalizeEvent.getOutputResults().getOutputUri();
                                 Toast.makeText(MainActivity.this, msg, Toast.LENGTH_SHORT).show();
                                 Log.d(TAG, msg);
+                                onCaptureSaved(finalizeEvent.getOutputResults().getOutputUri(),
+                                        true, videoThumbnail);
+                                videoThumbnail = null;
                             } else {
                                 Log.e(TAG, "Error al grabar video: " +
                                         finalizeEvent.getError());
                                 recording = null;
                                 videoCaptureButton.setText(R.string.start_video);
+                                uiStatePublisher.setStatus(UiStatePublisher.STATUS_READY);
                             }
                         }
                     });
@@ -431,6 +1055,20 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // El fichero de rostros lleva el mismo nombre que el vídeo
+    private void startFaceTrack(String videoName) {
+        File dir = getExternalFilesDir(FACE_TRACK_DIR);
+        if (dir == null) {
+            dir = new File(getFilesDir(), FACE_TRACK_DIR);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "No se pudo crear " + dir);
+            return;
+        }
+        // No bloquea: si el fichero anterior aún se cierra, espera el hilo escritor
+        faceTrackWriter.start(new File(dir, videoName + ".faces"));
+    }
+
     private boolean allPermissionsGranted() {
         String[] requiredPermissions = getRequiredPermissions();
         for (String permission : requiredPermissions) {
@@ -451,6 +1089,7 @@ public class MainActivity extends AppCompatActivity {
         if (requestCode == REQUEST_CODE_PERMISSIONS) {
             if (allPermissionsGranted()) {
                 startCamera();
+                reloadRecentCaptures();
             } else {
                 Toast.makeText(this,
                         "Los permisos no fueron concedidos",
@@ -462,6 +1101,38 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        mainHandler.removeCallbacks(qualityGovernorTick);
+        mainHandler.removeCallbacks(lensMultiplexerTick);
         cameraExecutor.shutdown();
+        facePublishExecutor.shutdown();
+        faceStreamExecutor.shutdown();
+        thumbnailExecutor.shutdown();
+        analysisPipeline.shutdown();
+        faceDetectionStage.close();
+        secondaryAnalyzer.shutdown();
+        FairStreamScheduler<?> detectorScheduler = detectorPool.getScheduler();
+        Log.d(TAG, "Detecciones por lente: " + detectorScheduler.getCompletedCount(STREAM_PRIMARY)
+                + " principal, " + detectorScheduler.getCompletedCount(STREAM_SECONDARY)
+                + " frontal; espera máxima en la frontal "
+                + detectorScheduler.getMaxWaitNanos(STREAM_SECONDARY) / 1_000_000 + " ms");
+        detectorPool.close();
+        detectorCallbackThread.quitSafely();
+        // Las pistas abiertas exportan su mejor recorte antes de cerrar el exportador
+        faceCropCollector.flush();
+        faceCropExporter.shutdown();
+        Log.d(TAG, "Miniaturas de rostros: " + faceCropExporter.getWrittenCount() + " guardadas hasta ahora, "
+                + faceCropCollector.getDroppedForMemoryCount() + " candidatos descartados por memoria");
+        preRollRecorder.close();
+        faceTrackWriter.stop();
+        frameRecorder.stop();
+        metricsDumper.stop();
+        // Lo ya encolado se sigue escribiendo en el hilo del escritor
+        burstWriter.shutdown();
+        burstExecutor.shutdown();
+        Log.d(TAG, "Flujo de rostros: " + faceResultStream.getPublishedCount() + " publicados, "
+                + faceResultHandoff.getDroppedCount() + " descartados en el traspaso y "
+                + faceResultStream.getOutOfOrderCount() + " desordenados descartados");
+        Log.d(TAG, "Actualizaciones de UI: " + uiStatePublisher.getPostedCount() + " publicadas, "
+                + uiStatePublisher.getSuppressedCount() + " suprimidas");
     }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.example.camerax;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destino de las fotos de ráfaga al estilo de {@code ContentResolver}: se inserta una
+ * entrada pendiente, se escriben sus bytes y se publican varias de una vez.
+ *
+ * @param <H> identificador de la entrada (p. ej. una {@code Uri})
+ */
+public interface MediaSink<H> {
+    /** Crea una entrada oculta (pendiente) para la foto. */
+    H insertPending(String displayName, String mimeType, int rotationDegrees) throws IOException;
+
+    void write(H entry, byte[] data, int length) throws IOException;
+
+    /** Hace visibles todas las entradas del lote en una sola operación. */
+    void publish(List<H> entries) throws IOException;
+
+    /** Elimina una entrada que no llegó a escribirse completa. */
+    void abort(H entry);
+}
@@ -0,0 +1,104 @@
+package com.example.camerax;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.os.RemoteException;
+import android.provider.MediaStore;
+import android.webkit.MimeTypeMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link MediaSink} sobre MediaStore. En Android 10+ cada foto se inserta con
+ * {@code IS_PENDING = 1} y un lote se publica con un único {@code applyBatch}; en
+ * versiones anteriores no existe el indicador y la foto es visible al insertarla; la
+ * carpeta se fija con la ruta absoluta de {@link #putLegacyPath}.
+ */
+public class MediaStoreSink implements MediaSink<Uri> {
+    private final ContentResolver resolver;
+    private final String relativePath;
+    private final ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+
+    public MediaStoreSink(ContentResolver resolver, String relativePath) {
+        this.resolver = resolver;
+        this.relativePath = relativePath;
+    }
+
+    @Override
+    public Uri insertPending(String displayName, String mimeType, int rotationDegrees)
+            throws IOException {
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.MediaColumns.DISPLAY_NAME, displayName);
+        values.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);
+        values.put(MediaStore.Images.Media.ORIENTATION, rotationDegrees);
+        if (Build.VERSION.SDK_INT > Build.VERSION_CODES.P) {
+            values.put(MediaStore.Images.Media.RELATIVE_PATH, relativePath);
+            values.put(MediaStore.MediaColumns.IS_PENDING, 1);
+        } else {
+            String extension = MimeTypeMap.getSingleton().getExtensionFromMimeType(mimeType);
+            putLegacyPath(values, relativePath,
+                    extension != null ? displayName + "." + extension : displayName);
+        }
+        Uri uri = resolver.insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
+        if (uri == null) {
+            throw new IOException("MediaStore no creó la entrada " + displayName);
+        }
+        return uri;
+    }
+
+    /**
+     * Antes de Android 10: guarda en DATA la ruta de {@code fileName} dentro de
+     * {@code relativePath} del almacenamiento compartido, que es lo que equivale a
+     * RELATIVE_PATH. Si no se puede crear la carpeta, MediaStore usa la de por defecto.
+     */
+    @SuppressWarnings("deprecation")
+    static void putLegacyPath(ContentValues values, String relativePath, String fileName) {
+        File dir = new File(Environment.getExternalStorageDirectory(), relativePath);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        values.put(MediaStore.MediaColumns.DATA, new File(dir, fileName).getAbsolutePath());
+    }
+
+    @Override
+    public void write(Uri entry, byte[] data, int length) throws IOException {
+        try (OutputStream out = resolver.openOutputStream(entry)) {
+            if (out == null) {
+                throw new IOException("No se pudo abrir " + entry);
+            }
+            out.write(data, 0, length);
+        }
+    }
+
+    @Override
+    public void publish(List<Uri> entries) throws IOException {
+        if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.P) {
+            return;
+        }
+        operations.clear();
+        for (Uri entry : entries) {
+            operations.add(ContentProviderOperation.newUpdate(entry)
+                    .withValue(MediaStore.MediaColumns.IS_PENDING, 0)
+                    .build());
+        }
+        try {
+            resolver.applyBatch(MediaStore.AUTHORITY, operations);
+        } catch (RemoteException | OperationApplicationException e) {
+            throw new IOException("No se pudo publicar el lote", e);
+        }
+    }
+
+    @Override
+    public void abort(Uri entry) {
+        resolver.delete(entry, null, null);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.camerax;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Vuelca periódicamente {@link PipelineMetrics} a un log (una línea de resumen) y
+ * a un fichero binario compacto, desde un hilo propio para no tocar el pipeline.
+ */
+public final class MetricsDumper {
+    private final PipelineMetrics metrics;
+    private final File file;
+    private final Consumer<String> log;
+    private final StringBuilder line = new StringBuilder(512);
+    private ScheduledExecutorService executor;
+    private FileChannel channel;
+
+    public MetricsDumper(PipelineMetrics metrics, File file, Consumer<String> log) {
+        this.metrics = metrics;
+        this.file = file;
+        this.log = log;
+    }
+
+    public synchronized void start(long periodMillis) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "metrics-dumper"));
+        executor.scheduleWithFixedDelay(this::dump, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        executor = null;
+        dump();
+        closeChannel();
+    }
+
+    // Vuelca el estado actual; también se invoca al parar
+    synchronized void dump() {
+        line.setLength(0);
+        line.append("Métricas: ");
+        metrics.appendSummary(line);
+        log.accept(line.toString());
+        try {
+            if (channel == null) {
+                // FileOutputStream en modo append: java.nio.file requiere API 26
+                channel = new FileOutputStream(file, true).getChannel();
+            }
+            metrics.writeRecord(channel, System.currentTimeMillis());
+        } catch (IOException e) {
+            log.accept("No se pudieron escribir las métricas: " + e.getMessage());
+            closeChannel();
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nada más que hacer al cerrar
+            }
+            channel = null;
+        }
+    }
+}
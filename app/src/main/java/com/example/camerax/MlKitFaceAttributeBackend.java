@@ -0,0 +1,79 @@
+package com.example.camerax;
+
+import android.graphics.Rect;
+import android.util.Log;
+
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.face.Face;
+import com.google.mlkit.vision.face.FaceDetector;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Atributos con ML Kit (puntos faciales y clasificación activados) sobre el recorte
+ * de un rostro. Si el recorte contiene varios se usa el mayor; los callbacks llegan
+ * en {@code callbackExecutor}, el mismo que el del detector para que la caché de
+ * atributos se toque desde un solo hilo.
+ */
+public final class MlKitFaceAttributeBackend implements FaceAttributeBackend {
+    private static final String TAG = "FaceAttributes";
+
+    private final FaceDetector detector;
+    private final Executor callbackExecutor;
+
+    public MlKitFaceAttributeBackend(FaceDetector detector, Executor callbackExecutor) {
+        this.detector = detector;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public void analyze(FrameBuffer crop, Callback callback) {
+        InputImage image = InputImage.fromByteArray(
+                crop.getData(),
+                crop.getWidth(),
+                crop.getHeight(),
+                crop.getRotationDegrees(),
+                InputImage.IMAGE_FORMAT_NV21
+        );
+
+        detector.process(image)
+                .addOnSuccessListener(callbackExecutor, faces -> {
+                    Face face = largest(faces);
+                    if (face != null) {
+                        callback.onAttributes(probability(face.getSmilingProbability()),
+                                probability(face.getLeftEyeOpenProbability()),
+                                probability(face.getRightEyeOpenProbability()));
+                    }
+                    callback.onComplete(face != null);
+                })
+                .addOnFailureListener(callbackExecutor, e -> {
+                    Log.e(TAG, "Error al analizar atributos: ", e);
+                    callback.onComplete(false);
+                });
+    }
+
+    private static Face largest(List<Face> faces) {
+        Face best = null;
+        long bestArea = 0;
+        for (Face face : faces) {
+            Rect box = face.getBoundingBox();
+            long area = (long) box.width() * box.height();
+            if (best == null || area > bestArea) {
+                best = face;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    // ML Kit devuelve null si no pudo calcular la probabilidad
+    private static float probability(Float value) {
+        return value != null ? value : Float.NaN;
+    }
+
+    @Override
+    public void close() {
+        detector.close();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.camerax;
+
+import android.graphics.Rect;
+import android.util.Log;
+
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.face.Face;
+import com.google.mlkit.vision.face.FaceDetector;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Detección con ML Kit: una instancia por modo del planificador. Los rostros sin
+ * tracking ID se ignoran. Los callbacks llegan en {@code callbackExecutor} y no en el
+ * hilo principal (el de ML Kit por defecto): tras ellos {@link FaceDetectionStage}
+ * puntúa y copia recortes píxel a píxel.
+ */
+public final class MlKitFaceDetectorBackend implements FaceDetectorBackend {
+    private static final String TAG = "FaceDetectionStage";
+
+    private final FaceDetector accurateDetector;
+    private final FaceDetector fastDetector;
+    private final Executor callbackExecutor;
+
+    public MlKitFaceDetectorBackend(FaceDetector accurateDetector, FaceDetector fastDetector,
+                                    Executor callbackExecutor) {
+        this.accurateDetector = accurateDetector;
+        this.fastDetector = fastDetector;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public void detect(FrameBuffer input, int mode, Callback callback) {
+        FaceDetector detector = mode == FrameScheduler.MODE_FAST ? fastDetector : accurateDetector;
+        InputImage image = InputImage.fromByteArray(
+                input.getData(),
+                input.getWidth(),
+                input.getHeight(),
+                input.getRotationDegrees(),
+                InputImage.IMAGE_FORMAT_NV21
+        );
+
+        detector.process(image)
+                .addOnSuccessListener(callbackExecutor, faces -> {
+                    for (Face face : faces) {
+                        Integer trackingId = face.getTrackingId();
+                        if (trackingId != null) {
+                            Rect box = face.getBoundingBox();
+                            callback.onFace(trackingId, box.left, box.top, box.right, box.bottom);
+                        }
+                    }
+                    callback.onComplete(true);
+                })
+                .addOnFailureListener(callbackExecutor, e -> {
+                    Log.e(TAG, "Error en detección de rostros: ", e);
+                    callback.onComplete(false);
+                });
+    }
+
+    @Override
+    public void close() {
+        accurateDetector.close();
+        fastDetector.close();
+    }
+}
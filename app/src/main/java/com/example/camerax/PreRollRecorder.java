@@ -0,0 +1,439 @@
+package com.example.camerax;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * Grabación con pre-roll: etapa del pipeline que codifica en H.264 los fotogramas de
+ * análisis y guarda las muestras en un {@link EncodedSampleRing}. Al dispararse
+ * ({@link #trigger()}) se abre un MP4, se vuelca el anillo desde el último fotograma
+ * clave anterior al pre-roll y se sigue grabando en directo durante un tiempo fijo.
+ *
+ * <p>El códec trabaja en modo asíncrono en un hilo propio; el anillo y el muxer solo
+ * se tocan en ese hilo, que es también el que detiene y libera el códec. Cada códec
+ * tiene su propio callback, que ignora lo que llegue cuando ya no es el actual (p. ej.
+ * tras reconfigurarlo al cambiar la resolución). Solo vídeo: el audio no pasa por el
+ * pipeline de análisis.
+ */
+public class PreRollRecorder implements AnalysisStage<FrameBuffer, Void> {
+    private static final String TAG = "PreRollRecorder";
+    private static final String FILENAME_FORMAT = "yyyy-MM-dd-HH-mm-ss-SSS";
+    private static final int BIT_RATE = 1_000_000;
+    private static final int FRAME_RATE = 30;
+    private static final int I_FRAME_INTERVAL_SECONDS = 1;
+    private static final int MAX_PENDING_INPUTS = 16;
+
+    public interface Listener {
+        // Se invoca en el hilo del codificador
+        void onClipSaved(String location);
+    }
+
+    private final Context context;
+    private final long preRollUs;
+    private final long liveUs;
+    private final EncodedSampleRing ring;
+    private final Listener listener;
+    private final HandlerThread encoderThread = new HandlerThread("preroll-encoder");
+    private final Handler encoderHandler;
+    private final MediaCodec.BufferInfo muxInfo = new MediaCodec.BufferInfo();
+
+    // Índices de entrada libres del códec actual (pila primitiva); el cerrojo también
+    // protege el cambio de 'codec' para que no se cuele un índice de uno liberado
+    private final int[] freeInputs = new int[MAX_PENDING_INPUTS];
+    private int freeInputCount;
+
+    private volatile boolean enabled;
+    private volatile boolean triggerRequested;
+    private volatile int rotationDegrees;
+    private volatile MediaCodec codec;
+    private int encoderWidth;
+    private int encoderHeight;
+
+    // Estado del hilo del codificador
+    private MediaFormat outputFormat;
+    private MediaMuxer muxer;
+    private ParcelFileDescriptor clipDescriptor;
+    private Uri clipUri;
+    private String clipLocation;
+    private int muxerTrack;
+    private long clipTriggerUs;
+    private boolean waitingForKeyframe;
+
+    public PreRollRecorder(Context context, long preRollMillis, long liveMillis,
+                           int ringBytes, int ringSamples, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.preRollUs = preRollMillis * 1000L;
+        this.liveUs = liveMillis * 1000L;
+        this.ring = new EncodedSampleRing(ringBytes, ringSamples);
+        this.listener = listener;
+        encoderThread.start();
+        encoderHandler = new Handler(encoderThread.getLooper());
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Pide guardar un clip con el pre-roll; se ignora si ya hay uno en curso. */
+    public void trigger() {
+        if (enabled) {
+            triggerRequested = true;
+        }
+    }
+
+    @Override
+    public void analyze(SharedFrame<FrameBuffer> frame, Completion<Void> completion) {
+        if (!enabled) {
+            if (codec != null) {
+                releaseEncoder();
+            }
+            completion.complete(null);
+            return;
+        }
+        FrameBuffer buffer = frame.get();
+        if (buffer.getFormat() != FrameBuffer.FORMAT_NV21) {
+            completion.complete(null);
+            return;
+        }
+        if (codec != null && (buffer.getWidth() != encoderWidth || buffer.getHeight() != encoderHeight)) {
+            // Cambió la resolución de análisis (nivel de calidad): se cierra el clip y se reconfigura
+            releaseEncoder();
+        }
+        if (codec == null && !startEncoder(buffer.getWidth(), buffer.getHeight())) {
+            enabled = false;
+            completion.complete(null);
+            return;
+        }
+        rotationDegrees = buffer.getRotationDegrees();
+
+        int index = pollFreeInput();
+        if (index >= 0) {
+            // Sin entrada libre el códec va atrasado: el fotograma se pierde
+            Image image = codec.getInputImage(index);
+            if (image != null) {
+                writeNv21(buffer, image);
+                codec.queueInputBuffer(index, 0,
+                        FrameBuffer.sizeOf(buffer.getWidth(), buffer.getHeight(), FrameBuffer.FORMAT_NV21),
+                        frame.getTimestampNanos() / 1000L, 0);
+            } else {
+                codec.queueInputBuffer(index, 0, 0, frame.getTimestampNanos() / 1000L, 0);
+            }
+        }
+        completion.complete(null);
+    }
+
+    private boolean startEncoder(int width, int height) {
+        MediaFormat format = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_AVC, width, height);
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+                MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, BIT_RATE);
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, FRAME_RATE);
+        format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, I_FRAME_INTERVAL_SECONDS);
+        MediaCodec encoder = null;
+        try {
+            encoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_VIDEO_AVC);
+            encoder.setCallback(new EncoderCallback(encoder), encoderHandler);
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            // Actual antes de arrancar: los primeros índices de entrada llegan al arrancar
+            synchronized (freeInputs) {
+                codec = encoder;
+            }
+            encoder.start();
+            encoderWidth = width;
+            encoderHeight = height;
+            return true;
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            Log.e(TAG, "No se pudo iniciar el codificador: ", e);
+            synchronized (freeInputs) {
+                codec = null;
+                freeInputCount = 0;
+            }
+            if (encoder != null) {
+                encoder.release();
+            }
+            return false;
+        }
+    }
+
+    private void releaseEncoder() {
+        MediaCodec encoder = codec;
+        synchronized (freeInputs) {
+            codec = null;
+            freeInputCount = 0;
+        }
+        encoderHandler.post(() -> {
+            finishClip();
+            try {
+                encoder.stop();
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "El codificador ya estaba detenido", e);
+            }
+            encoder.release();
+            outputFormat = null;
+            ring.clear();
+        });
+    }
+
+    private int pollFreeInput() {
+        synchronized (freeInputs) {
+            return freeInputCount == 0 ? -1 : freeInputs[--freeInputCount];
+        }
+    }
+
+    // NV21 (VU intercalado) a la imagen de entrada del códec, respetando sus strides
+    private static void writeNv21(FrameBuffer frame, Image image) {
+        byte[] nv21 = frame.getData();
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        Image.Plane[] planes = image.getPlanes();
+
+        ByteBuffer y = planes[0].getBuffer();
+        int yRowStride = planes[0].getRowStride();
+        for (int row = 0; row < height; row++) {
+            y.position(row * yRowStride);
+            y.put(nv21, row * width, width);
+        }
+
+        ByteBuffer u = planes[1].getBuffer();
+        ByteBuffer v = planes[2].getBuffer();
+        int uvRowStride = planes[1].getRowStride();
+        int uvPixelStride = planes[1].getPixelStride();
+        int chromaOffset = width * height;
+        for (int row = 0; row < height / 2; row++) {
+            int src = chromaOffset + row * width;
+            int dst = row * uvRowStride;
+            for (int col = 0; col < width / 2; col++) {
+                v.put(dst, nv21[src]);
+                u.put(dst, nv21[src + 1]);
+                src += 2;
+                dst += uvPixelStride;
+            }
+        }
+    }
+
+    // Callback de un único códec; los avisos pendientes de uno ya sustituido se ignoran
+    private final class EncoderCallback extends MediaCodec.Callback {
+        private final MediaCodec encoder;
+
+        EncoderCallback(MediaCodec encoder) {
+            this.encoder = encoder;
+        }
+
+        private boolean isCurrent(MediaCodec mc) {
+            return mc == encoder && encoder == codec;
+        }
+
+        @Override
+        public void onInputBufferAvailable(@NonNull MediaCodec mc, int index) {
+            synchronized (freeInputs) {
+                if (isCurrent(mc) && freeInputCount < freeInputs.length) {
+                    freeInputs[freeInputCount++] = index;
+                }
+            }
+        }
+
+        @Override
+        public void onOutputBufferAvailable(@NonNull MediaCodec mc, int index,
+                                            @NonNull MediaCodec.BufferInfo info) {
+            if (!isCurrent(mc)) {
+                // Su liberación ya está encolada en este hilo y descarta el buffer
+                return;
+            }
+            ByteBuffer out = mc.getOutputBuffer(index);
+            boolean config = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+            if (out != null && !config && info.size > 0) {
+                out.limit(info.offset + info.size).position(info.offset);
+                onEncodedSample(mc, out, info);
+            }
+            mc.releaseOutputBuffer(index, false);
+        }
+
+        @Override
+        public void onError(@NonNull MediaCodec mc, @NonNull MediaCodec.CodecException e) {
+            if (!isCurrent(mc)) {
+                return;
+            }
+            Log.e(TAG, "Error del codificador: ", e);
+        }
+
+        @Override
+        public void onOutputFormatChanged(@NonNull MediaCodec mc, @NonNull MediaFormat format) {
+            if (isCurrent(mc)) {
+                outputFormat = format;
+            }
+        }
+    }
+
+    private void onEncodedSample(MediaCodec mc, ByteBuffer sample, MediaCodec.BufferInfo info) {
+        boolean keyframe = (info.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0;
+        if (triggerRequested && muxer == null && outputFormat != null) {
+            triggerRequested = false;
+            startClip(mc, info.presentationTimeUs);
+        }
+        if (muxer == null) {
+            ring.append(sample, info.presentationTimeUs,
+                    keyframe ? EncodedSampleRing.FLAG_KEYFRAME : 0, EncodedSampleRing.TRACK_VIDEO);
+            return;
+        }
+        if (waitingForKeyframe && !keyframe) {
+            return;
+        }
+        waitingForKeyframe = false;
+        writeSample(sample, info.presentationTimeUs, keyframe);
+        if (info.presentationTimeUs - clipTriggerUs >= liveUs) {
+            finishClip();
+        }
+    }
+
+    private void startClip(MediaCodec mc, long triggerUs) {
+        try {
+            openMuxer();
+        } catch (IOException | IllegalStateException e) {
+            Log.e(TAG, "No se pudo abrir el clip: ", e);
+            closeOutput(false);
+            return;
+        }
+        muxerTrack = muxer.addTrack(outputFormat);
+        muxer.setOrientationHint(rotationDegrees);
+        muxer.start();
+        clipTriggerUs = triggerUs;
+
+        // Volcar el pre-roll desde un fotograma clave para que el clip sea decodificable
+        int start = ring.findFlushStart(triggerUs - preRollUs);
+        if (start >= 0) {
+            for (int i = start; i < ring.size(); i++) {
+                if (ring.getTrack(i) == EncodedSampleRing.TRACK_VIDEO) {
+                    writeSample(ring.sampleView(i), ring.getPtsUs(i), ring.isKeyframe(i));
+                }
+            }
+            waitingForKeyframe = false;
+        } else {
+            // Sin fotograma clave en el anillo: pedir uno y esperar
+            waitingForKeyframe = true;
+            Bundle params = new Bundle();
+            params.putInt(MediaCodec.PARAMETER_KEY_REQUEST_SYNC_FRAME, 0);
+            mc.setParameters(params);
+        }
+        ring.clear();
+    }
+
+    private void writeSample(ByteBuffer sample, long ptsUs, boolean keyframe) {
+        muxInfo.set(sample.position(), sample.remaining(), ptsUs,
+                keyframe ? MediaCodec.BUFFER_FLAG_KEY_FRAME : 0);
+        muxer.writeSampleData(muxerTrack, sample, muxInfo);
+    }
+
+    private void openMuxer() throws IOException {
+        String name = new SimpleDateFormat(FILENAME_FORMAT, Locale.US)
+                .format(System.currentTimeMillis()) + "-preroll.mp4";
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            ContentValues values = new ContentValues();
+            values.put(MediaStore.MediaColumns.DISPLAY_NAME, name);
+            values.put(MediaStore.MediaColumns.MIME_TYPE, "video/mp4");
+            if (Build.VERSION.SDK_INT > Build.VERSION_CODES.P) {
+                values.put(MediaStore.Video.Media.RELATIVE_PATH, "Movies/CameraX-Video");
+                values.put(MediaStore.MediaColumns.IS_PENDING, 1);
+            } else {
+                MediaStoreSink.putLegacyPath(values, "Movies/CameraX-Video", name);
+            }
+            ContentResolver resolver = context.getContentResolver();
+            clipUri = resolver.insert(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, values);
+            if (clipUri == null) {
+                throw new IOException("MediaStore no creó el clip " + name);
+            }
+            clipDescriptor = resolver.openFileDescriptor(clipUri, "rw");
+            if (clipDescriptor == null) {
+                throw new IOException("No se pudo abrir " + clipUri);
+            }
+            muxer = new MediaMuxer(clipDescriptor.getFileDescriptor(),
+                    MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            clipLocation = clipUri.toString();
+        } else {
+            // MediaMuxer solo acepta descriptores desde API 26: carpeta propia de la app
+            File file = new File(context.getExternalFilesDir(Environment.DIRECTORY_MOVIES), name);
+            muxer = new MediaMuxer(file.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            clipLocation = file.getAbsolutePath();
+        }
+    }
+
+    private void finishClip() {
+        if (muxer == null) {
+            return;
+        }
+        boolean saved = true;
+        try {
+            muxer.stop();
+        } catch (IllegalStateException e) {
+            // Clip sin muestras: MediaMuxer no puede cerrarlo
+            Log.e(TAG, "Error al cerrar el clip: ", e);
+            saved = false;
+        }
+        closeOutput(saved);
+        if (saved) {
+            Log.d(TAG, "Clip con pre-roll guardado: " + clipLocation
+                    + " (" + ring.getEvictedCount() + " muestras desalojadas del anillo)");
+            listener.onClipSaved(clipLocation);
+        }
+    }
+
+    private void closeOutput(boolean publish) {
+        if (muxer != null) {
+            muxer.release();
+            muxer = null;
+        }
+        if (clipDescriptor != null) {
+            try {
+                clipDescriptor.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error al cerrar el descriptor del clip", e);
+            }
+            clipDescriptor = null;
+        }
+        if (clipUri != null) {
+            ContentResolver resolver = context.getContentResolver();
+            if (!publish) {
+                resolver.delete(clipUri, null, null);
+            } else if (Build.VERSION.SDK_INT > Build.VERSION_CODES.P) {
+                ContentValues values = new ContentValues();
+                values.put(MediaStore.MediaColumns.IS_PENDING, 0);
+                resolver.update(clipUri, values, null, null);
+            }
+            clipUri = null;
+        }
+    }
+
+    public void close() {
+        enabled = false;
+        if (codec != null) {
+            releaseEncoder();
+        }
+        encoderThread.quitSafely();
+    }
+}
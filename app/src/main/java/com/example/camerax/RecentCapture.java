@@ -0,0 +1,19 @@
+package com.example.camerax;
+
+import android.net.Uri;
+
+/** Una foto o vídeo de la tira de capturas recientes. */
+final class RecentCapture {
+    final Uri uri;
+    final boolean video;
+    // Segundos, como DATE_MODIFIED; ThumbnailCache.UNKNOWN_MODIFIED si aún no está indexada
+    final long modified;
+    final int orientationDegrees;
+
+    RecentCapture(Uri uri, boolean video, long modified, int orientationDegrees) {
+        this.uri = uri;
+        this.video = video;
+        this.modified = modified;
+        this.orientationDegrees = orientationDegrees;
+    }
+}
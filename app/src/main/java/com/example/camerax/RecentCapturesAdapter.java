@@ -0,0 +1,98 @@
+package com.example.camerax;
+
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tira horizontal de capturas recientes. Pide la página siguiente cuando se pinta
+ * uno de los últimos {@code prefetchDistance} elementos.
+ */
+final class RecentCapturesAdapter extends RecyclerView.Adapter<RecentCapturesAdapter.Holder> {
+
+    interface Listener {
+        void onCaptureClicked(RecentCapture item);
+
+        void onNeedMore();
+    }
+
+    static final class Holder extends RecyclerView.ViewHolder {
+        final ImageView image;
+
+        Holder(ImageView image) {
+            super(image);
+            this.image = image;
+        }
+    }
+
+    private final List<RecentCapture> items = new ArrayList<>();
+    private final ThumbnailLoader loader;
+    private final int sizePx;
+    private final int marginPx;
+    private final int prefetchDistance;
+    private final Listener listener;
+
+    RecentCapturesAdapter(ThumbnailLoader loader, int sizePx, int marginPx, int prefetchDistance,
+                          Listener listener) {
+        this.loader = loader;
+        this.sizePx = sizePx;
+        this.marginPx = marginPx;
+        this.prefetchDistance = prefetchDistance;
+        this.listener = listener;
+    }
+
+    // Captura nueva al principio de la tira
+    void addFirst(RecentCapture item) {
+        items.add(0, item);
+        notifyItemInserted(0);
+    }
+
+    void appendPage(List<RecentCapture> page) {
+        int start = items.size();
+        items.addAll(page);
+        notifyItemRangeInserted(start, page.size());
+    }
+
+    void clear() {
+        int size = items.size();
+        items.clear();
+        notifyItemRangeRemoved(0, size);
+    }
+
+    @NonNull
+    @Override
+    public Holder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ImageView image = new ImageView(parent.getContext());
+        RecyclerView.LayoutParams params = new RecyclerView.LayoutParams(sizePx, sizePx);
+        params.setMargins(marginPx, 0, marginPx, 0);
+        image.setLayoutParams(params);
+        image.setScaleType(ImageView.ScaleType.CENTER_CROP);
+        image.setBackgroundColor(0x55000000);
+        Holder holder = new Holder(image);
+        image.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                listener.onCaptureClicked(items.get(position));
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull Holder holder, int position) {
+        loader.load(items.get(position), holder.image);
+        if (position >= items.size() - prefetchDistance) {
+            listener.onNeedMore();
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+}
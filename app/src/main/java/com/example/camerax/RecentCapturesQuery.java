@@ -0,0 +1,98 @@
+package com.example.camerax;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consulta paginada de las fotos y vídeos de la app en MediaStore, de la más reciente
+ * a la más antigua. Desde Android 8 la página se pide con {@code QUERY_ARG_LIMIT} y
+ * {@code QUERY_ARG_OFFSET}; antes, con LIMIT/OFFSET en el orden, que es lo único que
+ * aceptan esas versiones.
+ *
+ * <p>Sin permiso de lectura MediaStore lanza {@link SecurityException}; la página
+ * fallida se devuelve como null para que la tira pueda reintentarlo más tarde.
+ */
+final class RecentCapturesQuery {
+    private static final String TAG = "RecentCaptures";
+    private static final Uri FILES_URI = MediaStore.Files.getContentUri("external");
+    private static final String[] PROJECTION = {
+            MediaStore.Files.FileColumns._ID,
+            MediaStore.Files.FileColumns.MEDIA_TYPE,
+            MediaStore.Files.FileColumns.DATE_MODIFIED,
+            MediaStore.Images.ImageColumns.ORIENTATION,
+    };
+    private static final String MEDIA_SELECTION =
+            MediaStore.Files.FileColumns.MEDIA_TYPE + " IN ("
+                    + MediaStore.Files.FileColumns.MEDIA_TYPE_IMAGE + ","
+                    + MediaStore.Files.FileColumns.MEDIA_TYPE_VIDEO + ")";
+    // Antes de Android 10 no hay RELATIVE_PATH: se filtra por la ruta absoluta en DATA,
+    // que MediaStoreSink.putLegacyPath coloca en las mismas carpetas
+    @SuppressWarnings("deprecation")
+    private static final String PATH_COLUMN = Build.VERSION.SDK_INT > Build.VERSION_CODES.P
+            ? MediaStore.MediaColumns.RELATIVE_PATH
+            : MediaStore.MediaColumns.DATA;
+    private static final String SELECTION = MEDIA_SELECTION
+            + " AND (" + PATH_COLUMN + " LIKE ? OR " + PATH_COLUMN + " LIKE ?)";
+    private static final String[] SELECTION_ARGS = Build.VERSION.SDK_INT > Build.VERSION_CODES.P
+            ? new String[]{"Pictures/CameraX-Image%", "Movies/CameraX-Video%"}
+            : new String[]{"%/Pictures/CameraX-Image/%", "%/Movies/CameraX-Video/%"};
+
+    private final ContentResolver resolver;
+
+    RecentCapturesQuery(ContentResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /** Hasta {@code limit} capturas a partir de {@code offset}, o null si falla la consulta. */
+    List<RecentCapture> loadPage(int offset, int limit) {
+        List<RecentCapture> page = new ArrayList<>(limit);
+        try (Cursor cursor = query(offset, limit)) {
+            if (cursor == null) {
+                return page;
+            }
+            int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns._ID);
+            int typeColumn = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.MEDIA_TYPE);
+            int modifiedColumn = cursor.getColumnIndexOrThrow(MediaStore.Files.FileColumns.DATE_MODIFIED);
+            int orientationColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.ImageColumns.ORIENTATION);
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(idColumn);
+                boolean video = cursor.getInt(typeColumn) == MediaStore.Files.FileColumns.MEDIA_TYPE_VIDEO;
+                Uri uri = ContentUris.withAppendedId(video
+                        ? MediaStore.Video.Media.EXTERNAL_CONTENT_URI
+                        : MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id);
+                page.add(new RecentCapture(uri, video, cursor.getLong(modifiedColumn),
+                        video ? 0 : cursor.getInt(orientationColumn)));
+            }
+        } catch (SecurityException e) {
+            Log.w(TAG, "Sin permiso para leer las capturas", e);
+            return null;
+        }
+        return page;
+    }
+
+    private Cursor query(int offset, int limit) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            Bundle args = new Bundle();
+            args.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, SELECTION);
+            args.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, SELECTION_ARGS);
+            args.putStringArray(ContentResolver.QUERY_ARG_SORT_COLUMNS,
+                    new String[]{MediaStore.Files.FileColumns.DATE_MODIFIED});
+            args.putInt(ContentResolver.QUERY_ARG_SORT_DIRECTION,
+                    ContentResolver.QUERY_SORT_DIRECTION_DESCENDING);
+            args.putInt(ContentResolver.QUERY_ARG_LIMIT, limit);
+            args.putInt(ContentResolver.QUERY_ARG_OFFSET, offset);
+            return resolver.query(FILES_URI, PROJECTION, args, null);
+        }
+        return resolver.query(FILES_URI, PROJECTION, SELECTION, SELECTION_ARGS,
+                MediaStore.Files.FileColumns.DATE_MODIFIED + " DESC LIMIT " + limit + " OFFSET " + offset);
+    }
+}
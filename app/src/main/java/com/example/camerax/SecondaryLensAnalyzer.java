@@ -0,0 +1,75 @@
+package com.example.camerax;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import java.util.function.Consumer;
+
+/**
+ * Análisis de la segunda lente del modo dual: su propio pool de buffers, su
+ * {@link FaceDetectionStage} (con pistas independientes de la lente principal) y su
+ * {@link AnalysisPipeline}. El detector es la vista de {@link SharedDetectorPool}
+ * de esta lente, de modo que las dos lentes se reparten el mismo cupo de detecciones.
+ *
+ * <p>Solo detecta y sigue rostros: la cascada de atributos, los recortes y el
+ * pre-roll siguen ligados a la lente principal. {@link #analyze} se llama desde el
+ * executor de análisis, directamente por CameraX en modo concurrente o desde el
+ * analizador principal cuando las lentes se multiplexan en el tiempo.
+ */
+final class SecondaryLensAnalyzer implements ImageAnalysis.Analyzer {
+    private static final int DOWNSCALE_FACTOR = 2;
+    private static final int POOL_CAPACITY = 3;
+    private static final int WORKER_THREADS = 1;
+    private static final int MAX_FRAMES_IN_FLIGHT = 2;
+
+    private final FrameBufferPool pool = new FrameBufferPool(POOL_CAPACITY);
+    private final YuvDownscaler downscaler =
+            new YuvDownscaler(pool, DOWNSCALE_FACTOR, FrameBuffer.FORMAT_NV21);
+    private final RawFrame rawFrame = new RawFrame();
+    private final FaceDetectionStage faceStage;
+    private final FrameResultMerger merger;
+    private final AnalysisPipeline<FrameBuffer> pipeline;
+
+    SecondaryLensAnalyzer(FaceDetectorBackend detector, PipelineMetrics metrics,
+                          Consumer<String> log, FrameResultMerger.Listener listener) {
+        faceStage = new FaceDetectionStage(detector, MAX_FRAMES_IN_FLIGHT, metrics,
+                Clock.SYSTEM, log);
+        pipeline = new AnalysisPipeline<>(WORKER_THREADS, MAX_FRAMES_IN_FLIGHT, pool::release);
+        merger = new FrameResultMerger(pipeline.register("faces", faceStage), listener);
+        pipeline.start(merger::merge);
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy imageProxy) {
+        ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+        rawFrame.set(planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                imageProxy.getWidth(), imageProxy.getHeight(),
+                imageProxy.getImageInfo().getRotationDegrees(),
+                imageProxy.getImageInfo().getTimestamp());
+        FrameBuffer frame = rawFrame.convert(downscaler);
+        imageProxy.close();
+        pipeline.submit(frame, frame.getTimestampNanos());
+    }
+
+    // Al entrar o salir del modo dual las pistas anteriores ya no valen
+    void reset() {
+        faceStage.reset();
+        merger.reset();
+    }
+
+    void shutdown() {
+        pipeline.shutdown();
+        faceStage.close();
+    }
+
+    long getSubmittedCount() {
+        return pipeline.getSubmittedCount();
+    }
+
+    long getDroppedCount() {
+        return pipeline.getDroppedCount();
+    }
+}
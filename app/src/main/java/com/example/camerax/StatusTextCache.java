@@ -0,0 +1,24 @@
+package com.example.camerax;
+
+import java.util.function.IntFunction;
+
+/**
+ * Textos de estado preformateados para los conteos más habituales, de modo que
+ * pintar el número de rostros no concatena cadenas en cada cambio.
+ */
+public final class StatusTextCache {
+    private final String[] cached;
+    private final IntFunction<String> formatter;
+
+    public StatusTextCache(int maxCached, IntFunction<String> formatter) {
+        this.formatter = formatter;
+        cached = new String[maxCached + 1];
+        for (int i = 0; i <= maxCached; i++) {
+            cached[i] = formatter.apply(i);
+        }
+    }
+
+    public String get(int count) {
+        return count >= 0 && count < cached.length ? cached[count] : formatter.apply(count);
+    }
+}
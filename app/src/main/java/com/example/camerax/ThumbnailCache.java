@@ -0,0 +1,218 @@
+package com.example.camerax;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché de miniaturas en dos niveles: una LRU en memoria limitada por bytes delante
+ * de una {@link ThumbnailDiskCache}.
+ *
+ * <p>La clave es la URI junto con su fecha de modificación en MediaStore, así que un
+ * fichero editado nunca reutiliza una miniatura vieja: la antigua simplemente deja
+ * de pedirse y acaba expulsada. Las miniaturas de capturas nuevas se guardan con
+ * {@link #putEager} antes de que MediaStore las indexe; la primera consulta con la
+ * fecha real las adopta y las escribe en disco.
+ *
+ * <p>{@link #getFromMemory} solo toca memoria y sirve desde el hilo principal;
+ * {@link #get} y {@link #put} pueden leer y escribir disco y van en segundo plano.
+ *
+ * @param <V> miniatura decodificada (p. ej. un {@code Bitmap})
+ */
+public final class ThumbnailCache<V> {
+    // Fecha de las miniaturas generadas al capturar, aún sin fecha de MediaStore
+    public static final long UNKNOWN_MODIFIED = -1L;
+
+    /** Convierte miniaturas a bytes para el disco y mide lo que ocupan en memoria. */
+    public interface Codec<V> {
+        byte[] encode(V value) throws IOException;
+
+        // null si los bytes no son una miniatura válida
+        V decode(byte[] data);
+
+        int sizeOf(V value);
+    }
+
+    private final Codec<V> codec;
+    private final ThumbnailDiskCache disk;
+    private final long maxMemoryBytes;
+    private final LinkedHashMap<String, V> memory = new LinkedHashMap<>(32, 0.75f, true);
+    private long memoryBytes;
+
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+    private long memoryEvictions;
+
+    /** @param disk segundo nivel, o null para usar solo memoria */
+    public ThumbnailCache(long maxMemoryBytes, ThumbnailDiskCache disk, Codec<V> codec) {
+        if (maxMemoryBytes <= 0) {
+            throw new IllegalArgumentException("El límite debe ser positivo: " + maxMemoryBytes);
+        }
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.disk = disk;
+        this.codec = codec;
+    }
+
+    static String key(String uri, long modified) {
+        return uri + '@' + modified;
+    }
+
+    /** Solo memoria; no bloquea en disco. */
+    public V getFromMemory(String uri, long modified) {
+        synchronized (memory) {
+            V value = memory.get(key(uri, modified));
+            if (value == null) {
+                value = memory.get(key(uri, UNKNOWN_MODIFIED));
+            }
+            if (value != null) {
+                memoryHits++;
+            }
+            return value;
+        }
+    }
+
+    /** Memoria, miniatura de captura pendiente de adoptar y disco, en ese orden; null si no está. */
+    public V get(String uri, long modified) {
+        String key = key(uri, modified);
+        V eager;
+        synchronized (memory) {
+            V value = memory.get(key);
+            if (value != null) {
+                memoryHits++;
+                return value;
+            }
+            eager = removeLocked(key(uri, UNKNOWN_MODIFIED));
+            if (eager != null) {
+                memoryHits++;
+                putLocked(key, eager);
+            }
+        }
+        if (eager != null) {
+            writeToDisk(key, eager);
+            return eager;
+        }
+
+        byte[] data = disk != null ? disk.get(key) : null;
+        V value = data != null ? codec.decode(data) : null;
+        synchronized (memory) {
+            if (value == null) {
+                if (data != null) {
+                    disk.remove(key);
+                }
+                misses++;
+                return null;
+            }
+            diskHits++;
+            putLocked(key, value);
+        }
+        return value;
+    }
+
+    /** Guarda una miniatura recién decodificada en ambos niveles. */
+    public void put(String uri, long modified, V value) {
+        String key = key(uri, modified);
+        synchronized (memory) {
+            putLocked(key, value);
+        }
+        writeToDisk(key, value);
+    }
+
+    /** Guarda en memoria la miniatura de una captura cuya fecha aún no se conoce. */
+    public void putEager(String uri, V value) {
+        synchronized (memory) {
+            putLocked(key(uri, UNKNOWN_MODIFIED), value);
+        }
+    }
+
+    private void writeToDisk(String key, V value) {
+        if (disk == null) {
+            return;
+        }
+        try {
+            byte[] data = codec.encode(value);
+            disk.put(key, data, data.length);
+        } catch (IOException e) {
+            // Sin disco la miniatura sigue en memoria; se volverá a generar si hace falta
+        }
+    }
+
+    private void putLocked(String key, V value) {
+        int size = codec.sizeOf(value);
+        removeLocked(key);
+        if (size > maxMemoryBytes) {
+            return;
+        }
+        memory.put(key, value);
+        memoryBytes += size;
+        Iterator<Map.Entry<String, V>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            V eldest = it.next().getValue();
+            memoryBytes -= codec.sizeOf(eldest);
+            it.remove();
+            memoryEvictions++;
+        }
+    }
+
+    private V removeLocked(String key) {
+        V previous = memory.remove(key);
+        if (previous != null) {
+            memoryBytes -= codec.sizeOf(previous);
+        }
+        return previous;
+    }
+
+    /** Vacía la memoria (p. ej. en {@code onTrimMemory}); el disco se conserva. */
+    public void trimMemory() {
+        synchronized (memory) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+    }
+
+    public long getMemoryBytes() {
+        synchronized (memory) {
+            return memoryBytes;
+        }
+    }
+
+    public int getMemoryEntryCount() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    public long getMemoryHitCount() {
+        synchronized (memory) {
+            return memoryHits;
+        }
+    }
+
+    public long getDiskHitCount() {
+        synchronized (memory) {
+            return diskHits;
+        }
+    }
+
+    public long getMissCount() {
+        synchronized (memory) {
+            return misses;
+        }
+    }
+
+    public long getMemoryEvictionCount() {
+        synchronized (memory) {
+            return memoryEvictions;
+        }
+    }
+
+    /** Factor de submuestreo (potencia de dos) para decodificar sin bajar de {@code targetSize}. */
+    public static int sampleSizeFor(int width, int height, int targetSize) {
+        int sampleSize = 1;
+        while (Math.min(width, height) / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.camerax;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Segundo nivel de {@link ThumbnailCache}: un fichero por miniatura en un directorio,
+ * limitado por bytes y con expulsión LRU.
+ *
+ * <p>El nombre de cada fichero es el SHA-1 de la clave. El orden de uso se guarda en
+ * un índice en memoria y en la fecha de modificación de los ficheros, de modo que al
+ * reabrir la caché se expulsan primero los menos usados. Las escrituras van a un
+ * temporal que se renombra, así que un cierre brusco nunca deja una miniatura a
+ * medias.
+ */
+public final class ThumbnailDiskCache {
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maxBytes;
+    // Nombre de fichero -> tamaño, en orden de uso
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeBytes;
+    private long evictions;
+
+    public ThumbnailDiskCache(File directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("El límite debe ser positivo: " + maxBytes);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear " + directory);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            // Del menos al más recientemente usado
+            Arrays.sort(files, (a, b) -> a.lastModified() != b.lastModified()
+                    ? Long.compare(a.lastModified(), b.lastModified())
+                    : a.getName().compareTo(b.getName()));
+            for (File file : files) {
+                if (file.getName().endsWith(TEMP_SUFFIX)) {
+                    file.delete();
+                } else if (file.isFile()) {
+                    index.put(file.getName(), file.length());
+                    sizeBytes += file.length();
+                }
+            }
+        }
+        trim();
+    }
+
+    /** Bytes de la miniatura, o null si no está. */
+    public synchronized byte[] get(String key) {
+        String name = fileName(key);
+        Long size = index.get(name);
+        if (size == null) {
+            return null;
+        }
+        File file = new File(directory, name);
+        byte[] data = new byte[(int) (long) size];
+        try (InputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) {
+                    throw new IOException("Fichero truncado");
+                }
+                read += n;
+            }
+        } catch (IOException e) {
+            // Borrado desde fuera o dañado: deja de contar
+            removeEntry(name);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return data;
+    }
+
+    public synchronized void put(String key, byte[] data, int length) throws IOException {
+        if (length > maxBytes) {
+            return;
+        }
+        String name = fileName(key);
+        File temp = new File(directory, name + TEMP_SUFFIX);
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(data, 0, length);
+        }
+        File file = new File(directory, name);
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("No se pudo guardar " + file);
+        }
+        Long previous = index.put(name, (long) length);
+        sizeBytes += length - (previous != null ? previous : 0L);
+        trim();
+    }
+
+    public synchronized void remove(String key) {
+        removeEntry(fileName(key));
+    }
+
+    private void removeEntry(String name) {
+        Long size = index.remove(name);
+        if (size != null) {
+            sizeBytes -= size;
+            new File(directory, name).delete();
+        }
+    }
+
+    // Expulsa los menos usados hasta volver al límite
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (sizeBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            sizeBytes -= eldest.getValue();
+            new File(directory, eldest.getKey()).delete();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 no disponible", e);
+        }
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return index.size();
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.camerax;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+import android.os.Handler;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+import android.widget.ImageView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+
+/**
+ * Carga las miniaturas de la tira de capturas a través de {@link ThumbnailCache}.
+ *
+ * <p>Un acierto en memoria se pinta en el acto; el resto se resuelve en el executor:
+ * disco y, si no está, decodificación. Las fotos se decodifican submuestreadas
+ * ({@code inSampleSize}) y se giran según su orientación; de los vídeos se extrae un
+ * fotograma ya escalado cuando la versión lo permite. La vista lleva como etiqueta
+ * la URI pedida, así que una vista reciclada no recibe una miniatura ajena.
+ */
+final class ThumbnailLoader {
+    private static final String TAG = "ThumbnailLoader";
+    private static final int DISK_JPEG_QUALITY = 85;
+
+    /** Bitmaps en disco como JPEG; en memoria cuentan sus bytes reservados. */
+    static final ThumbnailCache.Codec<Bitmap> BITMAP_CODEC = new ThumbnailCache.Codec<Bitmap>() {
+        @Override
+        public byte[] encode(Bitmap value) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+            if (!value.compress(Bitmap.CompressFormat.JPEG, DISK_JPEG_QUALITY, out)) {
+                throw new IOException("No se pudo comprimir la miniatura");
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        public Bitmap decode(byte[] data) {
+            return BitmapFactory.decodeByteArray(data, 0, data.length);
+        }
+
+        @Override
+        public int sizeOf(Bitmap value) {
+            return value.getAllocationByteCount();
+        }
+    };
+
+    private final ContentResolver resolver;
+    private final ThumbnailCache<Bitmap> cache;
+    private final Executor executor;
+    private final Handler mainHandler;
+    private final int sizePx;
+
+    ThumbnailLoader(ContentResolver resolver, ThumbnailCache<Bitmap> cache, Executor executor,
+                    Handler mainHandler, int sizePx) {
+        this.resolver = resolver;
+        this.cache = cache;
+        this.executor = executor;
+        this.mainHandler = mainHandler;
+        this.sizePx = sizePx;
+    }
+
+    // Solo desde el hilo principal
+    void load(RecentCapture item, ImageView view) {
+        view.setTag(item.uri);
+        String uri = item.uri.toString();
+        Bitmap cached = cache.getFromMemory(uri, item.modified);
+        view.setImageBitmap(cached);
+        if (cached != null) {
+            return;
+        }
+        executor.execute(() -> {
+            Bitmap bitmap = cache.get(uri, item.modified);
+            if (bitmap == null) {
+                bitmap = decode(item);
+                if (bitmap == null) {
+                    return;
+                }
+                cache.put(uri, item.modified, bitmap);
+            }
+            Bitmap result = bitmap;
+            mainHandler.post(() -> {
+                if (item.uri.equals(view.getTag())) {
+                    view.setImageBitmap(result);
+                }
+            });
+        });
+    }
+
+    private Bitmap decode(RecentCapture item) {
+        try {
+            return item.video ? decodeVideoFrame(item) : decodeImage(item);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "No se pudo generar la miniatura de " + item.uri, e);
+            return null;
+        }
+    }
+
+    private Bitmap decodeImage(RecentCapture item) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(item.uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = ThumbnailCache.sampleSizeFor(options.outWidth, options.outHeight, sizePx);
+        Bitmap bitmap;
+        try (InputStream in = resolver.openInputStream(item.uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null || item.orientationDegrees == 0) {
+            return bitmap;
+        }
+        Matrix rotation = new Matrix();
+        rotation.postRotate(item.orientationDegrees);
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(),
+                rotation, true);
+        if (rotated != bitmap) {
+            bitmap.recycle();
+        }
+        return rotated;
+    }
+
+    private Bitmap decodeVideoFrame(RecentCapture item) throws IOException {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try (ParcelFileDescriptor fd = resolver.openFileDescriptor(item.uri, "r")) {
+            if (fd == null) {
+                return null;
+            }
+            retriever.setDataSource(fd.getFileDescriptor());
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+                return retriever.getScaledFrameAtTime(0, MediaMetadataRetriever.OPTION_CLOSEST_SYNC,
+                        sizePx * 2, sizePx * 2);
+            }
+            Bitmap frame = retriever.getFrameAtTime(0, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+            if (frame == null) {
+                return null;
+            }
+            float scale = (float) sizePx / Math.min(frame.getWidth(), frame.getHeight());
+            if (scale >= 1f) {
+                return frame;
+            }
+            Bitmap scaled = Bitmap.createScaledBitmap(frame, Math.round(frame.getWidth() * scale),
+                    Math.round(frame.getHeight() * scale), true);
+            frame.recycle();
+            return scaled;
+        } finally {
+            try {
+                retriever.release();
+            } catch (IOException e) {
+                // No hay nada más que liberar
+            }
+        }
+    }
+}
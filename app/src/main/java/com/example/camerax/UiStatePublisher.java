@@ -0,0 +1,137 @@
+package com.example.camerax;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publica el estado visible (número de rostros y modo de la cámara) desde
+ * cualquier hilo hacia la interfaz con el mínimo tráfico posible.
+ *
+ * <p>El estado vive empaquetado en un único {@code AtomicLong}. Publicar un valor
+ * igual al actual no hace nada; si cambia, se pide como mucho un frame de pantalla
+ * a la vez ({@link FrameRequester}) y, cuando llega, {@link #onFrame()} pinta solo
+ * el último estado y solo si difiere de lo ya pintado. Publicar no reserva memoria.
+ */
+public final class UiStatePublisher {
+    public static final int STATUS_READY = 0;
+    public static final int STATUS_RECORDING = 1;
+
+    private static final long FACES_MASK = 0xFFFF_FFFFL;
+    private static final long NOT_RENDERED = -1L;
+
+    /** Pide que {@link #onFrame()} se llame en el hilo de UI en el próximo frame. */
+    public interface FrameRequester {
+        void requestFrame();
+    }
+
+    /** Pinta el estado; siempre en el hilo de UI. */
+    public interface Renderer {
+        void render(int faceCount, int status);
+    }
+
+    private final FrameRequester frameRequester;
+    private final Renderer renderer;
+    private final AtomicLong state = new AtomicLong(pack(0, STATUS_READY));
+    private final AtomicBoolean frameRequested = new AtomicBoolean();
+    // Solo se accede desde el hilo de UI
+    private long renderedState = NOT_RENDERED;
+
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong posted = new AtomicLong();
+    private final AtomicLong rendered = new AtomicLong();
+
+    public UiStatePublisher(FrameRequester frameRequester, Renderer renderer) {
+        this.frameRequester = frameRequester;
+        this.renderer = renderer;
+    }
+
+    public void setFaceCount(int faceCount) {
+        long current;
+        long next;
+        do {
+            current = state.get();
+            next = pack(faceCount, status(current));
+        } while (!state.compareAndSet(current, next));
+        onStateWritten(current, next);
+    }
+
+    public void setStatus(int status) {
+        long current;
+        long next;
+        do {
+            current = state.get();
+            next = pack(faces(current), status);
+        } while (!state.compareAndSet(current, next));
+        onStateWritten(current, next);
+    }
+
+    // Fuerza a repintar el estado actual, p. ej. tras reiniciar la cámara; hilo de UI
+    public void invalidate() {
+        renderedState = NOT_RENDERED;
+        requestFrameIfNeeded();
+    }
+
+    /** Llamado en el hilo de UI cuando llega el frame pedido. */
+    public void onFrame() {
+        frameRequested.set(false);
+        long current = state.get();
+        if (current == renderedState && renderedState != NOT_RENDERED) {
+            unchanged.incrementAndGet();
+            return;
+        }
+        renderedState = current;
+        rendered.incrementAndGet();
+        renderer.render(faces(current), status(current));
+    }
+
+    private void onStateWritten(long previous, long next) {
+        if (previous == next) {
+            unchanged.incrementAndGet();
+            return;
+        }
+        requestFrameIfNeeded();
+    }
+
+    private void requestFrameIfNeeded() {
+        if (frameRequested.compareAndSet(false, true)) {
+            posted.incrementAndGet();
+            frameRequester.requestFrame();
+        } else {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    public int getFaceCount() {
+        return faces(state.get());
+    }
+
+    public int getStatus() {
+        return status(state.get());
+    }
+
+    public long getPostedCount() {
+        return posted.get();
+    }
+
+    // Publicaciones sin frame nuevo: valor sin cambios o frame ya pendiente
+    public long getSuppressedCount() {
+        return unchanged.get() + coalesced.get();
+    }
+
+    public long getRenderedCount() {
+        return rendered.get();
+    }
+
+    private static long pack(int faceCount, int status) {
+        return ((long) status << 32) | (faceCount & FACES_MASK);
+    }
+
+    private static int faces(long packed) {
+        return (int) (packed & FACES_MASK);
+    }
+
+    private static int status(long packed) {
+        return (int) (packed >>> 32);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class BurstQueueTest {
+
+    private static BurstShot shot(int bytes) {
+        return new BurstShot(new byte[bytes], bytes, 0, 0L);
+    }
+
+    @Test
+    public void rejectsWhenBudgetIsFull() {
+        BurstQueue queue = new BurstQueue(100);
+        assertTrue(queue.offer(shot(60)));
+        assertTrue(queue.offer(shot(40)));
+        assertFalse(queue.offer(shot(1)));
+        assertEquals(1, queue.getRejectedCount());
+        assertEquals(100, queue.getUsedBytes());
+    }
+
+    @Test
+    public void budgetIsHeldUntilRelease() throws InterruptedException {
+        BurstQueue queue = new BurstQueue(100);
+        queue.offer(shot(80));
+        BurstShot taken = queue.take();
+        // La foto en escritura sigue ocupando presupuesto
+        assertFalse(queue.hasRoomFor(30));
+        queue.release(taken);
+        assertTrue(queue.hasRoomFor(30));
+        assertEquals(0, queue.getUsedBytes());
+    }
+
+    @Test
+    public void oversizedShotOnlyFitsAlone() {
+        BurstQueue queue = new BurstQueue(100);
+        assertTrue(queue.offer(shot(150)));
+        assertFalse(queue.offer(shot(150)));
+    }
+
+    @Test
+    public void takeBlocksUntilOfferAndEndsOnClose() throws InterruptedException {
+        BurstQueue queue = new BurstQueue(100);
+        AtomicReference<BurstShot> first = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            try {
+                first.set(queue.take());
+                assertNull(queue.take());
+                done.countDown();
+            } catch (InterruptedException ignored) {
+                // Fin de la prueba
+            }
+        });
+        consumer.start();
+        BurstShot offered = shot(10);
+        queue.offer(offered);
+        queue.close();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertSame(offered, first.get());
+        assertFalse(queue.offer(shot(10)));
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.Assert.*;
+
+public class BurstWriterTest {
+
+    // Destino en memoria con el mismo ciclo pendiente/publicado que MediaStore
+    private static class FakeSink implements MediaSink<Integer> {
+        final List<String> names = new ArrayList<>();
+        final Set<Integer> pendingEntries = new HashSet<>();
+        final Set<Integer> publishedEntries = new HashSet<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+        final Set<Integer> aborted = new HashSet<>();
+        long bytesWritten;
+        // Si existe, cada escritura consume un permiso: el test marca el ritmo del escritor
+        Semaphore writePermits;
+        int failWriteAt = -1;
+
+        @Override
+        public synchronized Integer insertPending(String displayName, String mimeType, int rotation) {
+            names.add(displayName);
+            int entry = names.size() - 1;
+            pendingEntries.add(entry);
+            return entry;
+        }
+
+        @Override
+        public void write(Integer entry, byte[] data, int length) throws IOException {
+            if (entry == failWriteAt) {
+                throw new IOException("fallo simulado");
+            }
+            if (writePermits != null) {
+                writePermits.acquireUninterruptibly();
+            }
+            synchronized (this) {
+                bytesWritten += length;
+            }
+        }
+
+        @Override
+        public synchronized void publish(List<Integer> entries) {
+            batchSizes.add(entries.size());
+            for (Integer entry : entries) {
+                assertTrue(pendingEntries.remove(entry));
+                publishedEntries.add(entry);
+            }
+        }
+
+        @Override
+        public synchronized void abort(Integer entry) {
+            pendingEntries.remove(entry);
+            aborted.add(entry);
+        }
+    }
+
+    private static BurstShot shot(int bytes) {
+        return new BurstShot(new byte[bytes], bytes, 90, 1_700_000_000_000L);
+    }
+
+    @Test
+    public void writesAndPublishesEveryShotInBatches() throws InterruptedException {
+        BurstQueue queue = new BurstQueue(1 << 20);
+        FakeSink sink = new FakeSink();
+        BurstWriter<Integer> writer = new BurstWriter<>(queue, sink, 4, Clock.SYSTEM, null);
+        // Encolar antes de arrancar para que los lotes se llenen
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.offer(shot(1000)));
+        }
+        writer.start();
+        writer.shutdown();
+        assertTrue(writer.awaitTermination(2000));
+
+        assertEquals(10, writer.getWrittenCount());
+        assertEquals(10, sink.publishedEntries.size());
+        assertTrue(sink.pendingEntries.isEmpty());
+        assertEquals(Arrays.asList(4, 4, 2), sink.batchSizes);
+        assertEquals(10_000, sink.bytesWritten);
+        assertEquals(0, queue.getUsedBytes());
+        // Nombres únicos aunque compartan milisegundo
+        assertEquals(10, new HashSet<>(sink.names).size());
+    }
+
+    @Test
+    public void failedWriteIsAbortedAndNotPublished() throws InterruptedException {
+        BurstQueue queue = new BurstQueue(1 << 20);
+        FakeSink sink = new FakeSink();
+        sink.failWriteAt = 1;
+        BurstWriter<Integer> writer = new BurstWriter<>(queue, sink, 8, Clock.SYSTEM, null);
+        for (int i = 0; i < 3; i++) {
+            queue.offer(shot(10));
+        }
+        writer.start();
+        writer.shutdown();
+        assertTrue(writer.awaitTermination(2000));
+
+        assertEquals(2, writer.getWrittenCount());
+        assertEquals(1, writer.getFailedCount());
+        assertTrue(sink.aborted.contains(1));
+        assertFalse(sink.publishedEntries.contains(1));
+        assertEquals(0, queue.getUsedBytes());
+    }
+
+    @Test
+    public void backpressureHoldsProducerWithinBudget() throws InterruptedException {
+        int shotBytes = 3 * 1024 * 1024;
+        BurstQueue queue = new BurstQueue(4L * shotBytes);
+        FakeSink sink = new FakeSink();
+        // El escritor solo avanza cuando el productor se queda sin hueco
+        sink.writePermits = new Semaphore(0);
+        Object lock = new Object();
+        BurstWriter<Integer> writer = new BurstWriter<>(queue, sink, 5, Clock.SYSTEM,
+                success -> {
+                    synchronized (lock) {
+                        lock.notifyAll();
+                    }
+                });
+        writer.start();
+
+        // Productor rápido: solo pide otra foto cuando cabe, como la ráfaga real
+        int shots = 60;
+        byte[] jpeg = new byte[shotBytes];
+        long maxUsed = 0;
+        int waits = 0;
+        for (int i = 0; i < shots; i++) {
+            synchronized (lock) {
+                if (!queue.hasRoomFor(shotBytes)) {
+                    // Un permiso por espera: el escritor libera exactamente una foto
+                    waits++;
+                    sink.writePermits.release();
+                }
+                while (!queue.hasRoomFor(shotBytes)) {
+                    lock.wait(10);
+                }
+            }
+            assertTrue(queue.offer(new BurstShot(jpeg, shotBytes, 0, i)));
+            maxUsed = Math.max(maxUsed, queue.getUsedBytes());
+        }
+        sink.writePermits.release(shots);
+        writer.shutdown();
+        assertTrue(writer.awaitTermination(5000));
+
+        assertEquals(shots, writer.getWrittenCount());
+        assertEquals(0, queue.getRejectedCount());
+        assertTrue(maxUsed <= queue.getMaxBytes());
+        // Tras llenar la cola con cuatro fotos, cada una esperó a que el escritor liberase otra
+        assertEquals(shots - 4, waits);
+        // Todo se publicó en lotes de como mucho cinco
+        int published = 0;
+        for (int size : sink.batchSizes) {
+            assertTrue(size <= 5);
+            published += size;
+        }
+        assertEquals(shots, published);
+        assertEquals(sink.batchSizes.size(), writer.getBatchCount());
+    }
+}
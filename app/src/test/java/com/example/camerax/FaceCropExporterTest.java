@@ -0,0 +1,113 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FaceCropExporterTest {
+
+    // Destino en memoria con el ciclo pendiente/publicado de MediaStore
+    private static class FakeSink implements MediaSink<Integer> {
+        final List<String> names = new ArrayList<>();
+        final List<Integer> lengths = new ArrayList<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+        final List<Integer> aborted = new ArrayList<>();
+
+        @Override
+        public synchronized Integer insertPending(String displayName, String mimeType, int rotation) {
+            assertEquals(FaceCropExporter.MIME_TYPE, mimeType);
+            names.add(displayName);
+            return names.size() - 1;
+        }
+
+        @Override
+        public synchronized void write(Integer entry, byte[] data, int length) {
+            lengths.add(length);
+        }
+
+        @Override
+        public synchronized void publish(List<Integer> entries) {
+            batchSizes.add(entries.size());
+        }
+
+        @Override
+        public synchronized void abort(Integer entry) {
+            aborted.add(entry);
+        }
+    }
+
+    private static FrameBuffer crop(int width, int height) {
+        FrameBuffer crop = new FrameBuffer(FrameBuffer.sizeOf(width, height, FrameBuffer.FORMAT_NV21));
+        crop.setFormat(width, height, FrameBuffer.FORMAT_NV21);
+        return crop;
+    }
+
+    // "Codifica" copiando el plano Y, para que el tamaño escrito dependa del recorte
+    private static void copyLuma(FrameBuffer crop, OutputStream out) throws IOException {
+        out.write(crop.getData(), 0, crop.getWidth() * crop.getHeight());
+    }
+
+    @Test
+    public void encodesWritesAndReleasesEveryCrop() throws InterruptedException {
+        FakeSink sink = new FakeSink();
+        List<FrameBuffer> released = new ArrayList<>();
+        FaceCropExporter<Integer> exporter = new FaceCropExporter<>(sink,
+                FaceCropExporterTest::copyLuma, 8, 3, released::add);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(exporter.submit(i, crop(64 + 2 * i, 64)));
+        }
+        exporter.start();
+        exporter.shutdown();
+        assertTrue(exporter.awaitTermination(2000));
+
+        assertEquals(5, exporter.getWrittenCount());
+        assertEquals(5, released.size());
+        assertEquals(List.of(3, 2), sink.batchSizes);
+        assertEquals(List.of(64 * 64, 66 * 64, 68 * 64, 70 * 64, 72 * 64), sink.lengths);
+        assertTrue(sink.names.get(4).startsWith("face-"));
+        assertTrue(sink.names.get(4).endsWith("-4"));
+    }
+
+    @Test
+    public void fullQueueRejectsAndLeavesCropWithCaller() throws InterruptedException {
+        FakeSink sink = new FakeSink();
+        List<FrameBuffer> released = new ArrayList<>();
+        FaceCropExporter<Integer> exporter = new FaceCropExporter<>(sink,
+                FaceCropExporterTest::copyLuma, 2, 4, released::add);
+        assertTrue(exporter.submit(1, crop(32, 32)));
+        assertTrue(exporter.submit(2, crop(32, 32)));
+        assertFalse(exporter.submit(3, crop(32, 32)));
+        assertEquals(1, exporter.getRejectedCount());
+
+        exporter.start();
+        exporter.shutdown();
+        assertTrue(exporter.awaitTermination(2000));
+        assertFalse(exporter.submit(4, crop(32, 32)));
+        assertEquals(2, released.size());
+        assertEquals(2, exporter.getWrittenCount());
+    }
+
+    @Test
+    public void encoderFailureIsCountedAndCropStillReleased() throws InterruptedException {
+        FakeSink sink = new FakeSink();
+        List<FrameBuffer> released = new ArrayList<>();
+        FaceCropExporter<Integer> exporter = new FaceCropExporter<>(sink, (crop, out) -> {
+            throw new IOException("fallo simulado");
+        }, 4, 4, released::add);
+        exporter.submit(1, crop(32, 32));
+        exporter.start();
+        exporter.shutdown();
+        assertTrue(exporter.awaitTermination(2000));
+
+        assertEquals(0, exporter.getWrittenCount());
+        assertEquals(1, exporter.getFailedCount());
+        assertEquals(1, released.size());
+        assertTrue(sink.names.isEmpty());
+        assertTrue(sink.batchSizes.isEmpty());
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.camerax;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ThumbnailCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Miniaturas como arrays de bytes: en disco tal cual, ocupan su longitud; vacía = dañada
+    private static final ThumbnailCache.Codec<byte[]> BYTES = new ThumbnailCache.Codec<byte[]>() {
+        @Override
+        public byte[] encode(byte[] value) {
+            return value;
+        }
+
+        @Override
+        public byte[] decode(byte[] data) {
+            return data.length > 0 ? data : null;
+        }
+
+        @Override
+        public int sizeOf(byte[] value) {
+            return value.length;
+        }
+    };
+
+    private static byte[] thumbnail(int size, int fill) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) fill);
+        return data;
+    }
+
+    @Test
+    public void memoryLevelEvictsLeastRecentlyUsedByBytes() {
+        ThumbnailCache<byte[]> cache = new ThumbnailCache<>(1000, null, BYTES);
+        cache.put("content://a", 1, thumbnail(400, 1));
+        cache.put("content://b", 1, thumbnail(400, 2));
+        // Usar 'a' la convierte en la más reciente: sale 'b'
+        assertNotNull(cache.getFromMemory("content://a", 1));
+        cache.put("content://c", 1, thumbnail(400, 3));
+
+        assertNotNull(cache.getFromMemory("content://a", 1));
+        assertNull(cache.getFromMemory("content://b", 1));
+        assertNotNull(cache.getFromMemory("content://c", 1));
+        assertEquals(800, cache.getMemoryBytes());
+        assertEquals(1, cache.getMemoryEvictionCount());
+
+        // Más grande que todo el nivel: no se guarda ni expulsa a nadie
+        cache.put("content://d", 1, thumbnail(2000, 4));
+        assertEquals(2, cache.getMemoryEntryCount());
+    }
+
+    @Test
+    public void replacingAnEntryKeepsByteCountExact() {
+        ThumbnailCache<byte[]> cache = new ThumbnailCache<>(1000, null, BYTES);
+        cache.put("content://a", 1, thumbnail(300, 1));
+        cache.put("content://a", 1, thumbnail(500, 1));
+        assertEquals(500, cache.getMemoryBytes());
+        assertEquals(1, cache.getMemoryEntryCount());
+    }
+
+    @Test
+    public void modifiedTimeIsPartOfTheKey() {
+        ThumbnailCache<byte[]> cache = new ThumbnailCache<>(1000, null, BYTES);
+        cache.put("content://a", 1, thumbnail(100, 1));
+        assertNull(cache.get("content://a", 2));
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void diskLevelServesMissesAfterMemoryIsTrimmed() throws Exception {
+        ThumbnailDiskCache disk = new ThumbnailDiskCache(folder.newFolder("thumbs"), 10_000);
+        ThumbnailCache<byte[]> cache = new ThumbnailCache<>(1000, disk, BYTES);
+        cache.put("content://a", 7, thumbnail(300, 9));
+        cache.trimMemory();
+
+        assertNull(cache.getFromMemory("content://a", 7));
+        byte[] value = cache.get("content://a", 7);
+        assertArrayEquals(thumbnail(300, 9), value);
+        assertEquals(1, cache.getDiskHitCount());
+        // Ya vuelve a estar en memoria
+        assertNotNull(cache.getFromMemory("content://a", 7));
+    }
+
+    @Test
+    public void eagerThumbnailIsAdoptedWithRealModifiedTime() throws Exception {
+        ThumbnailDiskCache disk = new ThumbnailDiskCache(folder.newFolder("thumbs"), 10_000);
+        ThumbnailCache<byte[]> cache = new ThumbnailCache<>(1000, disk, BYTES);
+        cache.putEager("content://new", thumbnail(200, 5));
+        // Antes de indexarse se encuentra con la fecha desconocida
+        assertNotNull(cache.getFromMemory("content://new", ThumbnailCache.UNKNOWN_MODIFIED));
+        assertEquals(0, disk.getEntryCount());
+
+        assertArrayEquals(thumbnail(200, 5), cache.get("content://new", 1234));
+        assertEquals(1, disk.getEntryCount());
+        assertEquals(1, cache.getMemoryEntryCount());
+        cache.trimMemory();
+        assertNotNull(cache.get("content://new", 1234));
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void diskLevelEvictsLeastRecentlyUsedAndSurvivesReopen() throws Exception {
+        File dir = folder.newFolder("thumbs");
+        ThumbnailDiskCache disk = new ThumbnailDiskCache(dir, 1000);
+        disk.put("a", thumbnail(400, 1), 400);
+        disk.put("b", thumbnail(400, 2), 400);
+        assertNotNull(disk.get("a"));
+        disk.put("c", thumbnail(400, 3), 400);
+
+        assertNotNull(disk.get("a"));
+        assertNull(disk.get("b"));
+        assertNotNull(disk.get("c"));
+        assertEquals(800, disk.getSizeBytes());
+        assertEquals(1, disk.getEvictionCount());
+        assertEquals(2, dir.listFiles().length);
+
+        // Al reabrir se reconstruye el índice desde el directorio
+        ThumbnailDiskCache reopened = new ThumbnailDiskCache(dir, 1000);
+        assertEquals(2, reopened.getEntryCount());
+        assertEquals(800, reopened.getSizeBytes());
+        assertArrayEquals(thumbnail(400, 3), reopened.get("c"));
+
+        // Con un límite menor se recorta al abrir
+        ThumbnailDiskCache smaller = new ThumbnailDiskCache(dir, 500);
+        assertEquals(1, smaller.getEntryCount());
+        assertTrue(smaller.getSizeBytes() <= 500);
+    }
+
+    @Test
+    public void damagedDiskEntryIsDroppedAsMiss() throws Exception {
+        ThumbnailDiskCache disk = new ThumbnailDiskCache(folder.newFolder("thumbs"), 10_000);
+        ThumbnailCache<byte[]> cache = new ThumbnailCache<>(1000, disk, BYTES);
+        disk.put(ThumbnailCache.key("content://a", 1), new byte[0], 0);
+        assertNull(cache.get("content://a", 1));
+        assertEquals(0, disk.getEntryCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void sampleSizeKeepsShortSideAboveTarget() {
+        assertEquals(1, ThumbnailCache.sampleSizeFor(200, 150, 128));
+        assertEquals(8, ThumbnailCache.sampleSizeFor(4000, 3000, 200));
+        assertEquals(16, ThumbnailCache.sampleSizeFor(4000, 3000, 128));
+        assertEquals(1, ThumbnailCache.sampleSizeFor(100, 100, 168));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.camerax;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class UiStatePublisherTest {
+    private int frameRequests;
+    private final List<String> renders = new ArrayList<>();
+    private UiStatePublisher publisher;
+
+    @Before
+    public void setUp() {
+        publisher = new UiStatePublisher(() -> frameRequests++,
+                (faces, status) -> renders.add(faces + "/" + status));
+    }
+
+    @Test
+    public void unchangedStateDoesNotRequestFrame() {
+        publisher.setFaceCount(0);
+        publisher.setStatus(UiStatePublisher.STATUS_READY);
+        assertEquals(0, frameRequests);
+        assertEquals(2, publisher.getSuppressedCount());
+    }
+
+    @Test
+    public void coalescesUpdatesUntilFrameArrives() {
+        publisher.setFaceCount(1);
+        publisher.setFaceCount(2);
+        publisher.setFaceCount(3);
+        assertEquals(1, frameRequests);
+        assertEquals(1, publisher.getPostedCount());
+
+        publisher.onFrame();
+        assertEquals(List.of("3/0"), renders);
+
+        publisher.setStatus(UiStatePublisher.STATUS_RECORDING);
+        assertEquals(2, frameRequests);
+        publisher.onFrame();
+        assertEquals("3/1", renders.get(1));
+    }
+
+    @Test
+    public void skipsRenderWhenStateReturnedToRenderedValue() {
+        publisher.setFaceCount(1);
+        publisher.onFrame();
+        publisher.setFaceCount(2);
+        publisher.setFaceCount(1);
+        publisher.onFrame();
+        assertEquals(1, renders.size());
+        assertEquals(1, publisher.getRenderedCount());
+    }
+
+    @Test
+    public void invalidateForcesRepaint() {
+        publisher.onFrame();
+        publisher.invalidate();
+        publisher.onFrame();
+        assertEquals(2, renders.size());
+    }
+
+    @Test
+    public void concurrentPublishersNeverLoseLatestState() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread faces = new Thread(() -> {
+            awaitQuietly(start);
+            for (int i = 0; i <= 10_000; i++) {
+                publisher.setFaceCount(i % 7);
+            }
+        });
+        Thread status = new Thread(() -> {
+            awaitQuietly(start);
+            for (int i = 0; i <= 10_000; i++) {
+                publisher.setStatus(i % 2);
+            }
+        });
+        faces.start();
+        status.start();
+        start.countDown();
+        faces.join(TimeUnit.SECONDS.toMillis(10));
+        status.join(TimeUnit.SECONDS.toMillis(10));
+
+        // 10000 % 7 == 4 y 10000 % 2 == 0
+        assertEquals(4, publisher.getFaceCount());
+        assertEquals(UiStatePublisher.STATUS_READY, publisher.getStatus());
+        assertEquals(20_002, publisher.getPostedCount() + publisher.getSuppressedCount());
+    }
+
+    @Test
+    public void statusTextCacheReusesInstances() {
+        StatusTextCache cache = new StatusTextCache(4, n -> "Rostros: " + n);
+        assertSame(cache.get(3), cache.get(3));
+        assertEquals("Rostros: 9", cache.get(9));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -21,4 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "CameraX"
 include(":app")
+include(":vision-core")
+include(":vision-bench")
  
\ No newline at end of file
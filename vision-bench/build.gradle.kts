@@ -0,0 +1,38 @@
+plugins {
+    java
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    implementation(project(":vision-core"))
+    implementation(libs.jmh.core)
+    annotationProcessor(libs.jmh.generator.annprocess)
+}
+
+// ./gradlew :vision-bench:jmh [-Pjmh.include=Regex]
+// Con -prof gc, "gc.alloc.rate.norm" son los bytes reservados por fotograma
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Ejecuta los benchmarks JMH del pipeline de visión"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val resultFile = layout.buildDirectory.file("reports/jmh/results.json")
+    outputs.upToDateWhen { false }
+    doFirst {
+        resultFile.get().asFile.parentFile.mkdirs()
+    }
+    args(
+        (project.findProperty("jmh.include") as String?) ?: ".*",
+        "-prof", "gc",
+        "-rf", "json",
+        "-rff", resultFile.get().asFile.absolutePath
+    )
+}
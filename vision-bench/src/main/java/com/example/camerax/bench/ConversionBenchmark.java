@@ -0,0 +1,63 @@
+package com.example.camerax.bench;
+
+import com.example.camerax.FrameBuffer;
+import com.example.camerax.FrameBufferPool;
+import com.example.camerax.RawFrame;
+import com.example.camerax.YuvDownscaler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión de un fotograma de cámara al buffer de análisis, como en
+ * {@code MainActivity.analyzeFaces}: reducción por {@code factor} y salida NV21 o solo
+ * luminancia. Una operación es un fotograma.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"1", "2"})
+    public int factor;
+
+    @Param({"NV21", "LUMA"})
+    public String format;
+
+    private FrameBufferPool pool;
+    private YuvDownscaler downscaler;
+    private RawFrame frame;
+
+    @Setup
+    public void setUp() {
+        int[] size = FrameFixtures.parseResolution(resolution);
+        frame = new FrameFixtures(size[0], size[1], 1, 90).frame(0);
+        pool = new FrameBufferPool(2);
+        downscaler = new YuvDownscaler(pool, factor,
+                "LUMA".equals(format) ? FrameBuffer.FORMAT_LUMA : FrameBuffer.FORMAT_NV21);
+    }
+
+    @Benchmark
+    public int convert() {
+        FrameBuffer buffer = frame.convert(downscaler);
+        int checksum = buffer.getData()[buffer.getWidth() * buffer.getHeight() / 2];
+        pool.release(buffer);
+        return checksum;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.camerax.bench;
+
+import com.example.camerax.FaceCropCollector;
+import com.example.camerax.FrameBuffer;
+import com.example.camerax.FrameBufferPool;
+import com.example.camerax.LaplacianSharpness;
+import com.example.camerax.YuvDownscaler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puntuación de miniaturas sobre el fotograma NV21 reducido por 2 que analiza la
+ * app: el núcleo de nitidez solo y la actualización completa del colector con un
+ * rostro centrado, que incluye el recorte cuando el candidato entra en el top-K.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FaceCropBenchmark {
+    private static final int FRAMES = 8;
+
+    // Lado del rostro en píxeles del fotograma analizado (640x360)
+    @Param({"64", "160", "320"})
+    public int faceSize;
+
+    private FrameBuffer[] frames;
+    private FaceCropCollector collector;
+    private final int[] ids = {1};
+    private final float[] box = new float[4];
+    private int left;
+    private int top;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        FrameFixtures fixtures = new FrameFixtures(1280, 720, FRAMES, 0);
+        FrameBufferPool pool = new FrameBufferPool(FRAMES);
+        YuvDownscaler downscaler = new YuvDownscaler(pool, 2, FrameBuffer.FORMAT_NV21);
+        frames = new FrameBuffer[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            frames[i] = fixtures.frame(i).convert(downscaler);
+        }
+        int width = frames[0].getWidth();
+        int height = frames[0].getHeight();
+        left = (width - faceSize) / 2;
+        top = (height - faceSize) / 2;
+        box[0] = left;
+        box[1] = top;
+        box[2] = left + faceSize;
+        box[3] = top + faceSize;
+        // Misma configuración que la app; las exportaciones se devuelven en el acto
+        collector = new FaceCropCollector(8, 3, 2, 0.3f,
+                (trackingId, crop, score) -> {
+                    collector.release(crop);
+                    return true;
+                });
+    }
+
+    @Benchmark
+    public float sharpness() {
+        FrameBuffer frame = frames[next];
+        next = (next + 1) % FRAMES;
+        return LaplacianSharpness.variance(frame.getData(), frame.getWidth(), left, top,
+                left + faceSize, top + faceSize, 1);
+    }
+
+    @Benchmark
+    public int collectorUpdate() {
+        FrameBuffer frame = frames[next];
+        next = (next + 1) % FRAMES;
+        collector.update(frame, ids, box, 1);
+        return collector.getOutstandingBuffers();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.camerax.bench;
+
+import com.example.camerax.FaceTrackStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estado de pistas por fotograma: actualizar cada pista con su detección y predecir
+ * las cajas del fotograma siguiente, como en un fotograma detectado seguido de uno
+ * seguido por pistas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FaceTrackingBenchmark {
+    private static final long FRAME_NANOS = 1_000_000_000L / FrameFixtures.FPS;
+
+    @Param({"1", "5", "10"})
+    public int faces;
+
+    private FaceTrackStore store;
+    private int[] ids;
+    private float[] boxes;
+    private long timestampNanos;
+
+    @Setup
+    public void setUp() {
+        store = new FaceTrackStore(10, 500_000_000L);
+        ids = new int[10];
+        boxes = new float[40];
+    }
+
+    @Benchmark
+    public int updateAndPredict() {
+        timestampNanos += FRAME_NANOS;
+        for (int i = 0; i < faces; i++) {
+            float x = (timestampNanos / FRAME_NANOS % 100) + i * 100f;
+            store.update(i, x, 50f, x + 80f, 130f, timestampNanos);
+        }
+        return store.predict(timestampNanos + FRAME_NANOS, ids, boxes);
+    }
+}
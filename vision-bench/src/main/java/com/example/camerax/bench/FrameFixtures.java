@@ -0,0 +1,96 @@
+package com.example.camerax.bench;
+
+import com.example.camerax.FrameSource;
+import com.example.camerax.RawFrame;
+import com.example.camerax.SyntheticFrameSource;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fotogramas YUV_420_888 precalculados para los benchmarks. Se copian de
+ * {@link SyntheticFrameSource} una sola vez en el setup, de modo que generar
+ * fotogramas no cuenta en las mediciones.
+ */
+final class FrameFixtures implements FrameSource {
+    static final int FPS = 30;
+    private static final long FRAME_INTERVAL_NANOS = 1_000_000_000L / FPS;
+
+    private final RawFrame[] frames;
+    private int framesPerRun;
+    private int emitted;
+    private int next;
+    private long timestampNanos;
+
+    /**
+     * @param count fotogramas distintos; se repiten en bucle con marcas de tiempo
+     *              siempre crecientes
+     */
+    FrameFixtures(int width, int height, int count, int rotationDegrees) {
+        frames = new RawFrame[count];
+        // Tramos cortos para que haya movimiento y quietud dentro del bucle
+        SyntheticFrameSource source = new SyntheticFrameSource(width, height, count, FPS,
+                rotationDegrees, Math.max(1, count / 4), 7L);
+        RawFrame scratch = new RawFrame();
+        for (int i = 0; i < count && source.next(scratch); i++) {
+            RawFrame copy = new RawFrame();
+            copy.set(copyOf(scratch.getYPlane()), scratch.getYRowStride(), scratch.getYPixelStride(),
+                    copyOf(scratch.getUPlane()), copyOf(scratch.getVPlane()),
+                    scratch.getUvRowStride(), scratch.getUvPixelStride(),
+                    scratch.getWidth(), scratch.getHeight(), scratch.getRotationDegrees(),
+                    scratch.getTimestampNanos());
+            frames[i] = copy;
+        }
+    }
+
+    private static ByteBuffer copyOf(ByteBuffer plane) {
+        ByteBuffer copy = ByteBuffer.allocateDirect(plane.remaining());
+        copy.put(plane.duplicate());
+        copy.flip();
+        return copy;
+    }
+
+    RawFrame frame(int index) {
+        return frames[index % frames.length];
+    }
+
+    int size() {
+        return frames.length;
+    }
+
+    /** Prepara la fuente para entregar {@code framesPerRun} fotogramas más. */
+    FrameFixtures run(int framesPerRun) {
+        this.framesPerRun = framesPerRun;
+        emitted = 0;
+        return this;
+    }
+
+    @Override
+    public boolean next(RawFrame frame) {
+        if (emitted >= framesPerRun) {
+            return false;
+        }
+        RawFrame source = frames[next];
+        next = (next + 1) % frames.length;
+        emitted++;
+        timestampNanos += FRAME_INTERVAL_NANOS;
+        frame.set(source.getYPlane(), source.getYRowStride(), source.getYPixelStride(),
+                source.getUPlane(), source.getVPlane(),
+                source.getUvRowStride(), source.getUvPixelStride(),
+                source.getWidth(), source.getHeight(), source.getRotationDegrees(), timestampNanos);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // Los buffers se recogen con el estado del benchmark
+    }
+
+    // "1280x720" -> {1280, 720}
+    static int[] parseResolution(String resolution) {
+        int x = resolution.indexOf('x');
+        return new int[] {
+                Integer.parseInt(resolution.substring(0, x)),
+                Integer.parseInt(resolution.substring(x + 1))
+        };
+    }
+}
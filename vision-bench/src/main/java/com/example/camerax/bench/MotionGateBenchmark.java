@@ -0,0 +1,64 @@
+package com.example.camerax.bench;
+
+import com.example.camerax.Clock;
+import com.example.camerax.FrameBuffer;
+import com.example.camerax.FrameBufferPool;
+import com.example.camerax.MotionGate;
+import com.example.camerax.YuvDownscaler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtro de movimiento sobre la luminancia reducida por 2, la que recibe en la app.
+ * Alterna entre fotogramas distintos para que cada llamada compare contra el anterior.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MotionGateBenchmark {
+    private static final int FRAMES = 8;
+
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    private FrameBuffer[] frames;
+    private MotionGate gate;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        int[] size = FrameFixtures.parseResolution(resolution);
+        FrameFixtures fixtures = new FrameFixtures(size[0], size[1], FRAMES, 0);
+        FrameBufferPool pool = new FrameBufferPool(FRAMES);
+        YuvDownscaler downscaler = new YuvDownscaler(pool, 2, FrameBuffer.FORMAT_LUMA);
+        frames = new FrameBuffer[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            // Los buffers no se devuelven al pool: se quedan fijos para todo el benchmark
+            frames[i] = fixtures.frame(i).convert(downscaler);
+        }
+        // Misma configuración que FaceDetectionStage
+        gate = new MotionGate(16, 9, 4, 6f, 30, Clock.SYSTEM);
+    }
+
+    @Benchmark
+    public boolean hasMotion() {
+        FrameBuffer frame = frames[next];
+        next = (next + 1) % FRAMES;
+        return gate.hasMotion(frame);
+    }
+}
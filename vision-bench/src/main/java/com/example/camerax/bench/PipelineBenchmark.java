@@ -0,0 +1,70 @@
+package com.example.camerax.bench;
+
+import com.example.camerax.ReplayClock;
+import com.example.camerax.ReplayHarness;
+import com.example.camerax.SyntheticFaceDetector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Camino completo de un fotograma con {@link ReplayHarness} a toda velocidad:
+ * conversión, pipeline, filtro de movimiento, planificador, detector sintético y
+ * pistas. Cada invocación reproduce {@link #FRAMES_PER_INVOCATION} fotogramas y JMH
+ * divide entre ellos, así que tanto el tiempo como {@code gc.alloc.rate.norm} son
+ * por fotograma.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+    static final int FRAMES_PER_INVOCATION = 30;
+    private static final int FIXTURE_FRAMES = 60;
+    // Latencias virtuales del detector, las mismas que en ReplayHarnessTest
+    private static final long ACCURATE_LATENCY_NANOS = 40_000_000L;
+    private static final long FAST_LATENCY_NANOS = 10_000_000L;
+
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    private FrameFixtures fixtures;
+    private ReplayHarness harness;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] size = FrameFixtures.parseResolution(resolution);
+        fixtures = new FrameFixtures(size[0], size[1], FIXTURE_FRAMES, 90);
+        ReplayClock clock = new ReplayClock();
+        harness = new ReplayHarness(ReplayHarness.PACING_FULL_SPEED,
+                new SyntheticFaceDetector(200, 2, clock, ACCURATE_LATENCY_NANOS, FAST_LATENCY_NANOS),
+                clock, 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        harness.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES_PER_INVOCATION)
+    public long replay() throws InterruptedException {
+        return harness.run(fixtures.run(FRAMES_PER_INVOCATION), null);
+    }
+}
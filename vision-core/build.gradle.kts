@@ -0,0 +1,18 @@
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+    // API de Java 11 y no la del JDK instalado, igual que el módulo app
+    options.release.set(11)
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,268 @@
+package com.example.camerax;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Reparte cada fotograma entre varias etapas de análisis que se ejecutan en
+ * paralelo sobre un pool acotado de hilos.
+ *
+ * <p>El fotograma se comparte con conteo de referencias y se libera exactamente una
+ * vez, cuando la última etapa lo suelta. Los resultados de cada etapa se combinan
+ * en un {@link FrameResult} que se entrega al listener cuando todas terminan. El
+ * número de fotogramas en vuelo está acotado: si no hay hueco, el fotograma se
+ * libera de inmediato y se cuenta como descartado. Los contextos por fotograma se
+ * reciclan, de modo que el envío no reserva memoria una vez caliente.
+ */
+public final class AnalysisPipeline<T> {
+
+    public interface Listener {
+        // Se invoca en el hilo que completa la última etapa; el resultado se recicla al volver
+        void onFrameResult(FrameResult result);
+    }
+
+    /** Identifica una etapa registrada y el tipo de su resultado. */
+    public static final class StageKey<R> {
+        final int index;
+        private final String name;
+
+        StageKey(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final int workerThreads;
+    private final int maxFramesInFlight;
+    private final Consumer<T> releaser;
+    private final List<StageSlot<T>> stages = new ArrayList<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    private ThreadPoolExecutor workers;
+    private ArrayBlockingQueue<InFlightFrame<T>> freeFrames;
+    private Listener listener;
+
+    public AnalysisPipeline(int workerThreads, int maxFramesInFlight, Consumer<T> releaser) {
+        if (workerThreads <= 0 || maxFramesInFlight <= 0) {
+            throw new IllegalArgumentException("workerThreads y maxFramesInFlight deben ser positivos");
+        }
+        this.workerThreads = workerThreads;
+        this.maxFramesInFlight = maxFramesInFlight;
+        this.releaser = releaser;
+    }
+
+    public synchronized <R> StageKey<R> register(String name, AnalysisStage<T, R> stage) {
+        if (workers != null) {
+            throw new IllegalStateException("No se pueden registrar etapas tras start()");
+        }
+        StageKey<R> key = new StageKey<>(stages.size(), name);
+        stages.add(new StageSlot<>(stage));
+        return key;
+    }
+
+    public synchronized void start(Listener listener) {
+        if (workers != null) {
+            throw new IllegalStateException("El pipeline ya está iniciado");
+        }
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("No hay etapas registradas");
+        }
+        this.listener = listener;
+        freeFrames = new ArrayBlockingQueue<>(maxFramesInFlight);
+        for (int i = 0; i < maxFramesInFlight; i++) {
+            freeFrames.add(new InFlightFrame<>(this));
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        // Cada etapa tiene como mucho una tarea pendiente, así que la cola nunca se desborda
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(stages.size()),
+                r -> new Thread(r, "analysis-stage-" + threadIndex.incrementAndGet()));
+    }
+
+    /**
+     * Envía un fotograma a todas las etapas. Devuelve false si se descartó por haber
+     * demasiados fotogramas en vuelo; en ambos casos el pipeline se encarga de
+     * liberarlo.
+     */
+    public boolean submit(T payload, long timestampNanos) {
+        InFlightFrame<T> frame = freeFrames.poll();
+        if (frame == null) {
+            dropped.incrementAndGet();
+            releaser.accept(payload);
+            return false;
+        }
+        submitted.incrementAndGet();
+        int stageCount = stages.size();
+        // Una referencia por etapa más la del propio envío mientras se reparte
+        frame.shared.reset(payload, timestampNanos, stageCount + 1);
+        frame.result.reset(timestampNanos);
+        frame.pendingStages.set(stageCount);
+        frame.outstanding.set(2);
+
+        for (int i = 0; i < stageCount; i++) {
+            StageSlot<T> slot = stages.get(i);
+            StageTask<T> task = frame.tasks[i];
+            task.done.set(false);
+            if (slot.busy.compareAndSet(false, true)) {
+                workers.execute(task);
+            } else {
+                slot.skipped.incrementAndGet();
+                frame.result.markSkipped(i);
+                task.finish(null, false);
+            }
+        }
+        frame.shared.release();
+        return true;
+    }
+
+    public void shutdown() {
+        ThreadPoolExecutor executor = workers;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return workers.awaitTermination(timeout, unit);
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getProcessedCount(StageKey<?> key) {
+        return stages.get(key.index).processed.get();
+    }
+
+    public long getSkippedCount(StageKey<?> key) {
+        return stages.get(key.index).skipped.get();
+    }
+
+    public long getErrorCount(StageKey<?> key) {
+        return stages.get(key.index).errors.get();
+    }
+
+    private void onStageFinished(InFlightFrame<T> frame) {
+        if (frame.pendingStages.decrementAndGet() == 0) {
+            completed.incrementAndGet();
+            try {
+                listener.onFrameResult(frame.result);
+            } finally {
+                // Aunque el listener falle, el contexto vuelve a estar disponible
+                frame.releaseHold();
+            }
+        }
+    }
+
+    private static final class StageSlot<T> {
+        final AnalysisStage<T, Object> stage;
+        final AtomicBoolean busy = new AtomicBoolean();
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+
+        @SuppressWarnings("unchecked")
+        StageSlot(AnalysisStage<T, ?> stage) {
+            this.stage = (AnalysisStage<T, Object>) stage;
+        }
+    }
+
+    // Contexto reciclable de un fotograma en vuelo
+    private static final class InFlightFrame<T> {
+        final AnalysisPipeline<T> pipeline;
+        final SharedFrame<T> shared;
+        final FrameResult result;
+        final StageTask<T>[] tasks;
+        final AtomicInteger pendingStages = new AtomicInteger();
+        // Se recicla cuando se ha entregado el resultado y se ha liberado el fotograma
+        final AtomicInteger outstanding = new AtomicInteger();
+
+        InFlightFrame(AnalysisPipeline<T> pipeline) {
+            this.pipeline = pipeline;
+            int stageCount = pipeline.stages.size();
+            shared = new SharedFrame<>(pipeline.releaser, this::releaseHold);
+            result = new FrameResult(stageCount);
+            tasks = newTaskArray(stageCount);
+            for (int i = 0; i < stageCount; i++) {
+                tasks[i] = new StageTask<>(this, pipeline.stages.get(i), i);
+            }
+        }
+
+        void releaseHold() {
+            if (outstanding.decrementAndGet() == 0) {
+                pipeline.freeFrames.offer(this);
+            }
+        }
+
+        // Los arrays genéricos no se pueden crear directamente; el array nunca sale de aquí
+        @SuppressWarnings("unchecked")
+        private static <T> StageTask<T>[] newTaskArray(int length) {
+            return (StageTask<T>[]) new StageTask<?>[length];
+        }
+    }
+
+    // Ejecución de una etapa sobre un fotograma; también actúa como su Completion
+    private static final class StageTask<T> implements Runnable, AnalysisStage.Completion<Object> {
+        final InFlightFrame<T> frame;
+        final StageSlot<T> slot;
+        final int index;
+        final AtomicBoolean done = new AtomicBoolean();
+
+        StageTask(InFlightFrame<T> frame, StageSlot<T> slot, int index) {
+            this.frame = frame;
+            this.slot = slot;
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            try {
+                slot.stage.analyze(frame.shared, this);
+            } catch (RuntimeException e) {
+                slot.errors.incrementAndGet();
+                if (!done.get()) {
+                    complete(null);
+                }
+            }
+        }
+
+        @Override
+        public void complete(Object result) {
+            slot.processed.incrementAndGet();
+            finish(result, true);
+        }
+
+        void finish(Object result, boolean ranStage) {
+            if (!done.compareAndSet(false, true)) {
+                throw new IllegalStateException("Etapa completada más de una vez");
+            }
+            frame.result.set(index, result);
+            if (ranStage) {
+                slot.busy.set(false);
+            }
+            frame.shared.release();
+            frame.pipeline.onStageFinished(frame);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.camerax;
+
+/**
+ * Etapa de análisis registrada en un {@link AnalysisPipeline}.
+ *
+ * <p>El pipeline nunca ejecuta la misma etapa de forma concurrente: si sigue
+ * ocupada con un fotograma anterior, el nuevo fotograma se le omite. La etapa debe
+ * llamar a {@link Completion#complete(Object)} exactamente una vez, desde cualquier
+ * hilo; a partir de ese momento solo puede usar el fotograma si lo retuvo.
+ */
+public interface AnalysisStage<T, R> {
+
+    void analyze(SharedFrame<T> frame, Completion<R> completion);
+
+    interface Completion<R> {
+        void complete(R result);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.camerax;
+
+/**
+ * Fuente de tiempo monotónica en nanosegundos. Se inyecta en la lógica de
+ * planificación para poder probarla en la JVM con un reloj controlado.
+ */
+public interface Clock {
+    Clock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
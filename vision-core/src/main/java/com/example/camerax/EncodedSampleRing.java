@@ -0,0 +1,172 @@
+package com.example.camerax;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Anillo de muestras codificadas (vídeo y audio) para la grabación con pre-roll.
+ *
+ * <p>Los bytes viven en un {@link ByteBuffer} directo de tamaño fijo y cada muestra
+ * ocupa una región contigua: si no cabe al final del buffer, se salta al principio.
+ * El índice son arrays primitivos en anillo (posición virtual, tamaño, pts y flags);
+ * al escribir se desalojan las muestras más antiguas cuyos bytes se pisan o cuando el
+ * índice está lleno. Ni {@link #append} ni {@link #sampleView} reservan memoria.
+ *
+ * <p>No es thread-safe: lo usa solo el hilo del codificador.
+ */
+public final class EncodedSampleRing {
+    public static final int FLAG_KEYFRAME = 1;
+    public static final int TRACK_VIDEO = 0;
+    public static final int TRACK_AUDIO = 1;
+
+    private final ByteBuffer data;
+    private final ByteBuffer readView;
+    private final int capacityBytes;
+
+    // Índice en anillo; las posiciones son virtuales (crecen sin volver a cero)
+    private final long[] positions;
+    private final int[] sizes;
+    private final long[] ptsUs;
+    private final byte[] flags;
+    private final byte[] tracks;
+    private int head;
+    private int count;
+    private long writePosition;
+    private long evicted;
+
+    public EncodedSampleRing(int capacityBytes, int maxSamples) {
+        if (capacityBytes <= 0 || maxSamples <= 0) {
+            throw new IllegalArgumentException("Capacidad inválida");
+        }
+        this.capacityBytes = capacityBytes;
+        data = ByteBuffer.allocateDirect(capacityBytes);
+        readView = data.duplicate();
+        positions = new long[maxSamples];
+        sizes = new int[maxSamples];
+        ptsUs = new long[maxSamples];
+        flags = new byte[maxSamples];
+        tracks = new byte[maxSamples];
+    }
+
+    /**
+     * Copia {@code src[position..limit)} como una muestra nueva. Devuelve false si la
+     * muestra es mayor que el anillo completo.
+     */
+    public boolean append(ByteBuffer src, long presentationUs, int sampleFlags, int track) {
+        int size = src.remaining();
+        if (size > capacityBytes) {
+            return false;
+        }
+        long start = writePosition;
+        int physical = (int) (start % capacityBytes);
+        if (physical + size > capacityBytes) {
+            // No se parten muestras: el hueco final queda sin usar
+            start += capacityBytes - physical;
+            physical = 0;
+        }
+        long end = start + size;
+        while (count > 0 && (positions[head] < end - capacityBytes || count == positions.length)) {
+            dropOldest();
+        }
+
+        data.limit(physical + size).position(physical);
+        data.put(src);
+        data.clear();
+
+        int slot = (head + count) % positions.length;
+        positions[slot] = start;
+        sizes[slot] = size;
+        ptsUs[slot] = presentationUs;
+        flags[slot] = (byte) sampleFlags;
+        tracks[slot] = (byte) track;
+        count++;
+        writePosition = end;
+        return true;
+    }
+
+    private void dropOldest() {
+        head = (head + 1) % positions.length;
+        count--;
+        evicted++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Muestra " + index + " de " + count);
+        }
+        return (head + index) % positions.length;
+    }
+
+    public long getPtsUs(int index) {
+        return ptsUs[slot(index)];
+    }
+
+    public int getSize(int index) {
+        return sizes[slot(index)];
+    }
+
+    public int getFlags(int index) {
+        return flags[slot(index)];
+    }
+
+    public int getTrack(int index) {
+        return tracks[slot(index)];
+    }
+
+    public boolean isKeyframe(int index) {
+        return (flags[slot(index)] & FLAG_KEYFRAME) != 0;
+    }
+
+    /**
+     * Vista de solo los bytes de la muestra. Se reutiliza el mismo objeto en cada
+     * llamada: vale hasta la siguiente llamada o el siguiente {@link #append}.
+     */
+    public ByteBuffer sampleView(int index) {
+        int slot = slot(index);
+        int physical = (int) (positions[slot] % capacityBytes);
+        readView.limit(physical + sizes[slot]).position(physical);
+        return readView;
+    }
+
+    /**
+     * Índice desde el que volcar el pre-roll: el último fotograma clave de vídeo con
+     * pts {@code <= startUs}, o el primero del anillo si todos son posteriores.
+     * Devuelve -1 si no hay ninguno.
+     */
+    public int findFlushStart(long startUs) {
+        int first = -1;
+        int lastBefore = -1;
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) % positions.length;
+            if (tracks[slot] != TRACK_VIDEO || (flags[slot] & FLAG_KEYFRAME) == 0) {
+                continue;
+            }
+            if (first < 0) {
+                first = i;
+            }
+            if (ptsUs[slot] <= startUs) {
+                lastBefore = i;
+            } else {
+                break;
+            }
+        }
+        return lastBefore >= 0 ? lastBefore : first;
+    }
+
+    public long getNewestPtsUs() {
+        return count == 0 ? Long.MIN_VALUE : ptsUs[(head + count - 1) % positions.length];
+    }
+
+    public long getEvictedCount() {
+        return evicted;
+    }
+
+    public void clear() {
+        head = 0;
+        count = 0;
+        writePosition = 0;
+    }
+}
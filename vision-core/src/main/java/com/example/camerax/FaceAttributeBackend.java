@@ -0,0 +1,26 @@
+package com.example.camerax;
+
+/**
+ * Segundo nivel de la cascada de {@link FaceDetectionStage}: un detector caro con
+ * puntos faciales y clasificación que se ejecuta sobre el recorte de un solo
+ * rostro. En la app es ML Kit en modo preciso ({@code MlKitFaceAttributeBackend}).
+ */
+public interface FaceAttributeBackend {
+
+    /** Resultado del análisis; puede llegar desde cualquier hilo. */
+    interface Callback {
+        // Probabilidades 0..1 del rostro principal del recorte; NaN si no se calcularon
+        void onAttributes(float smiling, float leftEyeOpen, float rightEyeOpen);
+
+        // Exactamente una vez por análisis; success es false si no se halló ningún rostro
+        void onComplete(boolean success);
+    }
+
+    /**
+     * Analiza un recorte NV21 centrado en un rostro. El buffer sigue siendo válido
+     * hasta {@link Callback#onComplete(boolean)}.
+     */
+    void analyze(FrameBuffer crop, Callback callback);
+
+    void close();
+}
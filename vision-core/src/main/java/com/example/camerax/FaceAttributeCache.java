@@ -0,0 +1,300 @@
+package com.example.camerax;
+
+import java.util.Arrays;
+
+/**
+ * Atributos (sonrisa y ojos abiertos) por tracking ID, para ejecutar el detector
+ * caro una vez por pista en lugar de en cada fotograma.
+ *
+ * <p>Una pista necesita análisis si es nueva o si su caja cambió mucho desde el
+ * último análisis (IoU por debajo de {@code refreshIou}). Ese fallo se cuenta una
+ * vez: mientras espera turno (otro análisis en curso) queda en cola y las consultas
+ * siguientes devuelven {@link #MISS_QUEUED}. Mientras se analiza queda pendiente y
+ * no se vuelve a pedir; los valores anteriores siguen disponibles. Cada consulta con
+ * {@link #check} cuenta como acierto (atributos vigentes) o fallo, y de ahí sale la
+ * tasa de aciertos.
+ *
+ * <p>Arrays primitivos de tamaño fijo; las pistas más antiguas se desalojan. Los
+ * métodos son sincronizados porque el detector responde en su propio hilo.
+ */
+public final class FaceAttributeCache {
+    public static final int ATTRIBUTE_COUNT = 3;
+    public static final int ATTR_SMILING = 0;
+    public static final int ATTR_LEFT_EYE_OPEN = 1;
+    public static final int ATTR_RIGHT_EYE_OPEN = 2;
+
+    // Resultado de check()
+    public static final int HIT = 0;
+    public static final int MISS_NEW = 1;
+    public static final int MISS_CHANGED = 2;
+    public static final int MISS_PENDING = 3;
+    // Ya contada como nueva o cambiada; sigue necesitando análisis
+    public static final int MISS_QUEUED = 4;
+
+    private final int capacity;
+    private final float refreshIou;
+    private final int[] ids;
+    // Caja con la que se calcularon los atributos vigentes
+    private final float[] boxes;
+    // Caja del análisis pendiente; pasa a 'boxes' solo si el análisis termina bien
+    private final float[] pendingBoxes;
+    private final float[] attributes;
+    private final boolean[] valid;
+    private final boolean[] pending;
+    // Necesita análisis pero aún no se ha pedido
+    private final boolean[] queued;
+    private final long[] lastUsedNanos;
+    private int count;
+
+    private long hits;
+    private long missesNew;
+    private long missesChanged;
+    private long missesPending;
+    private long missesQueued;
+    private long evictions;
+
+    public FaceAttributeCache(int capacity, float refreshIou) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity debe ser positiva: " + capacity);
+        }
+        this.capacity = capacity;
+        this.refreshIou = refreshIou;
+        ids = new int[capacity];
+        boxes = new float[capacity * 4];
+        pendingBoxes = new float[capacity * 4];
+        attributes = new float[capacity * ATTRIBUTE_COUNT];
+        valid = new boolean[capacity];
+        pending = new boolean[capacity];
+        queued = new boolean[capacity];
+        lastUsedNanos = new long[capacity];
+    }
+
+    /**
+     * Consulta la pista con su caja actual y cuenta el resultado: {@link #HIT}, o el
+     * motivo del fallo. {@link #MISS_NEW}, {@link #MISS_CHANGED} y {@link #MISS_QUEUED}
+     * piden análisis.
+     */
+    public synchronized int check(int trackingId, float left, float top, float right, float bottom,
+                                  long timestampNanos) {
+        int index = indexOf(trackingId);
+        if (index < 0) {
+            // Se recuerda en cola para no contarla como nueva en cada fotograma
+            index = slotFor(trackingId);
+            setBox(boxes, index, left, top, right, bottom);
+            lastUsedNanos[index] = timestampNanos;
+            queued[index] = true;
+            missesNew++;
+            return MISS_NEW;
+        }
+        lastUsedNanos[index] = timestampNanos;
+        if (pending[index]) {
+            missesPending++;
+            return MISS_PENDING;
+        }
+        boolean current = valid[index] && iou(index * 4, left, top, right, bottom) >= refreshIou;
+        if (current) {
+            // También si estaba en cola y la caja volvió a su sitio
+            queued[index] = false;
+            hits++;
+            return HIT;
+        }
+        if (queued[index]) {
+            missesQueued++;
+            return MISS_QUEUED;
+        }
+        queued[index] = true;
+        if (!valid[index]) {
+            missesNew++;
+            return MISS_NEW;
+        }
+        missesChanged++;
+        return MISS_CHANGED;
+    }
+
+    /** Marca la pista como pendiente de análisis con la caja que se va a analizar. */
+    public synchronized void markPending(int trackingId, float left, float top, float right,
+                                         float bottom, long timestampNanos) {
+        int index = indexOf(trackingId);
+        if (index < 0) {
+            index = slotFor(trackingId);
+        }
+        pending[index] = true;
+        queued[index] = false;
+        setBox(pendingBoxes, index, left, top, right, bottom);
+        lastUsedNanos[index] = timestampNanos;
+    }
+
+    /** Guarda el resultado del análisis pedido con {@link #markPending}. */
+    public synchronized void store(int trackingId, float smiling, float leftEyeOpen,
+                                   float rightEyeOpen) {
+        int index = indexOf(trackingId);
+        if (index < 0) {
+            // La pista se desalojó o caducó mientras se analizaba
+            return;
+        }
+        int base = index * ATTRIBUTE_COUNT;
+        attributes[base + ATTR_SMILING] = smiling;
+        attributes[base + ATTR_LEFT_EYE_OPEN] = leftEyeOpen;
+        attributes[base + ATTR_RIGHT_EYE_OPEN] = rightEyeOpen;
+        System.arraycopy(pendingBoxes, index * 4, boxes, index * 4, 4);
+        valid[index] = true;
+        pending[index] = false;
+    }
+
+    /**
+     * El análisis falló: los valores anteriores se conservan con la caja con la que se
+     * calcularon, y la pista queda en cola para volver a pedirse.
+     */
+    public synchronized void cancel(int trackingId) {
+        int index = indexOf(trackingId);
+        if (index >= 0) {
+            pending[index] = false;
+            if (!valid[index]) {
+                remove(index);
+            } else {
+                queued[index] = true;
+            }
+        }
+    }
+
+    /**
+     * Copia los atributos de la pista a {@code out} desde {@code offset}. Devuelve
+     * false y escribe NaN si aún no hay ninguno.
+     */
+    public synchronized boolean get(int trackingId, float[] out, int offset) {
+        int index = indexOf(trackingId);
+        if (index < 0 || !valid[index]) {
+            Arrays.fill(out, offset, offset + ATTRIBUTE_COUNT, Float.NaN);
+            return false;
+        }
+        System.arraycopy(attributes, index * ATTRIBUTE_COUNT, out, offset, ATTRIBUTE_COUNT);
+        return true;
+    }
+
+    /** Conserva solo las pistas de {@code liveIds} (las que siguen vivas). */
+    public synchronized void retain(int[] liveIds, int liveCount) {
+        int i = 0;
+        while (i < count) {
+            if (contains(liveIds, liveCount, ids[i])) {
+                i++;
+            } else {
+                remove(i);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        count = 0;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int indexOf(int trackingId) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == trackingId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Hueco para una pista nueva: el siguiente libre o el de uso más antiguo
+    private int slotFor(int trackingId) {
+        int index;
+        if (count < capacity) {
+            index = count++;
+        } else {
+            index = 0;
+            for (int i = 1; i < count; i++) {
+                if (lastUsedNanos[i] < lastUsedNanos[index]) {
+                    index = i;
+                }
+            }
+            evictions++;
+        }
+        ids[index] = trackingId;
+        valid[index] = false;
+        pending[index] = false;
+        queued[index] = false;
+        return index;
+    }
+
+    // Mueve la última entrada al hueco para mantener los arrays compactos
+    private void remove(int index) {
+        int last = --count;
+        if (index != last) {
+            ids[index] = ids[last];
+            System.arraycopy(boxes, last * 4, boxes, index * 4, 4);
+            System.arraycopy(pendingBoxes, last * 4, pendingBoxes, index * 4, 4);
+            System.arraycopy(attributes, last * ATTRIBUTE_COUNT, attributes,
+                    index * ATTRIBUTE_COUNT, ATTRIBUTE_COUNT);
+            valid[index] = valid[last];
+            pending[index] = pending[last];
+            queued[index] = queued[last];
+            lastUsedNanos[index] = lastUsedNanos[last];
+        }
+    }
+
+    private static void setBox(float[] target, int index, float left, float top, float right,
+                               float bottom) {
+        int base = index * 4;
+        target[base] = left;
+        target[base + 1] = top;
+        target[base + 2] = right;
+        target[base + 3] = bottom;
+    }
+
+    private float iou(int base, float left, float top, float right, float bottom) {
+        float interWidth = Math.min(right, boxes[base + 2]) - Math.max(left, boxes[base]);
+        float interHeight = Math.min(bottom, boxes[base + 3]) - Math.max(top, boxes[base + 1]);
+        if (interWidth <= 0 || interHeight <= 0) {
+            return 0f;
+        }
+        float intersection = interWidth * interHeight;
+        float union = (right - left) * (bottom - top)
+                + (boxes[base + 2] - boxes[base]) * (boxes[base + 3] - boxes[base + 1])
+                - intersection;
+        return union <= 0 ? 0f : intersection / union;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    // Fallos por pista nueva, por caja cambiada, por análisis en curso y en cola
+    public synchronized long getNewMissCount() {
+        return missesNew;
+    }
+
+    public synchronized long getChangedMissCount() {
+        return missesChanged;
+    }
+
+    public synchronized long getPendingMissCount() {
+        return missesPending;
+    }
+
+    public synchronized long getQueuedMissCount() {
+        return missesQueued;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized float getHitRate() {
+        long total = hits + missesNew + missesChanged + missesPending + missesQueued;
+        return total == 0 ? 0f : (float) hits / total;
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.camerax;
+
+/**
+ * Guarda, por pista de rostro, los {@code candidatesPerTrack} mejores recortes vistos
+ * en las detecciones y entrega el mejor cuando la pista termina.
+ *
+ * <p>Cada candidato se puntúa antes de copiarlo, sobre el fotograma completo:
+ * nitidez ({@link LaplacianSharpness} en la caja del rostro), tamaño y centrado. Solo
+ * los que entran en el top-K de su pista se recortan, a buffers de un pool propio.
+ * La memoria está acotada: entre candidatos guardados y recortes entregados nunca
+ * hay más de {@code maxTracks * candidatesPerTrack + maxExportsInFlight} buffers
+ * vivos; si se alcanza el límite los candidatos nuevos se descartan.
+ *
+ * <p>El {@link Listener} recibe el recorte y, si lo acepta, debe devolverlo con
+ * {@link #release(FrameBuffer)} cuando termine con él; si lo rechaza, el recorte
+ * vuelve al pool en el acto y no cuenta como exportado. Los métodos son
+ * sincronizados: las detecciones llegan desde los callbacks del detector y las
+ * devoluciones desde el hilo que exporta.
+ */
+public final class FaceCropCollector {
+    // La nitidez aporta la mitad de su peso con esta varianza del laplaciano
+    private static final float SHARPNESS_HALF_VARIANCE = 100f;
+    // Lado menor, en píxeles del fotograma analizado, a partir del cual el tamaño ya no resta
+    private static final int GOOD_FACE_PIXELS = 96;
+    // Muestras por lado al medir la nitidez; las caras grandes se submuestrean
+    private static final int SHARPNESS_SAMPLES_PER_SIDE = 128;
+
+    /**
+     * Recibe el mejor recorte de una pista terminada, orientado como el fotograma.
+     * Devuelve false si no se queda con él (p. ej. cola de exportación llena).
+     */
+    public interface Listener {
+        boolean onBestCrop(int trackingId, FrameBuffer crop, float score);
+    }
+
+    private final int maxTracks;
+    private final int candidatesPerTrack;
+    private final int maxBuffers;
+    private final float paddingRatio;
+    private final Listener listener;
+    private final FrameBufferPool pool;
+    private final FrameCropper cropper;
+
+    private final int[] trackIds;
+    private final int[] candidateCounts;
+    // candidatesPerTrack huecos por pista
+    private final FrameBuffer[] candidates;
+    private final float[] scores;
+    private int trackCount;
+    private int outstandingBuffers;
+    private final int[] faceBox = new int[4];
+    private final int[] cropBox = new int[4];
+
+    private long offered;
+    private long kept;
+    private long droppedForMemory;
+    private long exported;
+    private long rejected;
+
+    public FaceCropCollector(int maxTracks, int candidatesPerTrack, int maxExportsInFlight,
+                             float paddingRatio, Listener listener) {
+        if (maxTracks <= 0 || candidatesPerTrack <= 0 || maxExportsInFlight < 0) {
+            throw new IllegalArgumentException("Capacidades no válidas");
+        }
+        this.maxTracks = maxTracks;
+        this.candidatesPerTrack = candidatesPerTrack;
+        this.maxBuffers = maxTracks * candidatesPerTrack + maxExportsInFlight;
+        this.paddingRatio = paddingRatio;
+        this.listener = listener;
+        this.pool = new FrameBufferPool(maxBuffers);
+        this.cropper = new FrameCropper(pool);
+        trackIds = new int[maxTracks];
+        candidateCounts = new int[maxTracks];
+        candidates = new FrameBuffer[maxTracks * candidatesPerTrack];
+        scores = new float[maxTracks * candidatesPerTrack];
+    }
+
+    /**
+     * Procesa una detección: puntúa cada rostro (cajas derechas, 4 valores por pista)
+     * y guarda su recorte si entra en el top-K de la pista. Las pistas que no
+     * aparecen en {@code trackingIds} han terminado y entregan su mejor recorte.
+     */
+    public synchronized void update(FrameBuffer frame, int[] trackingIds, float[] boxes, int count) {
+        for (int i = 0; i < count; i++) {
+            offer(frame, trackingIds[i], boxes, i * 4);
+        }
+        int slot = 0;
+        while (slot < trackCount) {
+            if (contains(trackingIds, count, trackIds[slot])) {
+                slot++;
+            } else {
+                finish(slot);
+            }
+        }
+    }
+
+    /** Termina todas las pistas, p. ej. al cambiar de cámara o al cerrar. */
+    public synchronized void flush() {
+        while (trackCount > 0) {
+            finish(trackCount - 1);
+        }
+    }
+
+    /** Devuelve al pool un recorte entregado al {@link Listener}. */
+    public synchronized void release(FrameBuffer crop) {
+        pool.release(crop);
+        outstandingBuffers--;
+    }
+
+    private void offer(FrameBuffer frame, int trackingId, float[] boxes, int base) {
+        offered++;
+        int slot = slotOf(trackingId);
+        if (slot < 0) {
+            if (trackCount == maxTracks) {
+                return;
+            }
+            slot = trackCount++;
+            trackIds[slot] = trackingId;
+            candidateCounts[slot] = 0;
+        }
+
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        faceBox[0] = (int) boxes[base];
+        faceBox[1] = (int) boxes[base + 1];
+        faceBox[2] = (int) boxes[base + 2];
+        faceBox[3] = (int) boxes[base + 3];
+        RotationMath.uprightToBuffer(faceBox, width, height, frame.getRotationDegrees());
+        int left = Math.max(0, faceBox[0]);
+        int top = Math.max(0, faceBox[1]);
+        int right = Math.min(width, faceBox[2]);
+        int bottom = Math.min(height, faceBox[3]);
+        if (right <= left || bottom <= top) {
+            return;
+        }
+        int step = 1 + Math.max(right - left, bottom - top) / SHARPNESS_SAMPLES_PER_SIDE;
+        float sharpness = LaplacianSharpness.variance(frame.getData(), width, left, top,
+                right, bottom, step);
+        float score = score(sharpness, right - left, bottom - top,
+                (left + right) * 0.5f, (top + bottom) * 0.5f, width, height);
+
+        // Hueco libre o, con el top-K lleno, el peor si este candidato lo supera
+        int first = slot * candidatesPerTrack;
+        int target;
+        if (candidateCounts[slot] < candidatesPerTrack) {
+            if (outstandingBuffers == maxBuffers) {
+                droppedForMemory++;
+                return;
+            }
+            target = first + candidateCounts[slot]++;
+            outstandingBuffers++;
+        } else {
+            target = first;
+            for (int i = first + 1; i < first + candidatesPerTrack; i++) {
+                if (scores[i] < scores[target]) {
+                    target = i;
+                }
+            }
+            if (score <= scores[target]) {
+                return;
+            }
+            pool.release(candidates[target]);
+        }
+
+        RoiPlanner.cropAround(boxes[base], boxes[base + 1], boxes[base + 2], boxes[base + 3],
+                paddingRatio, width, height, frame.getRotationDegrees(), cropBox);
+        candidates[target] = cropper.crop(frame, cropBox);
+        scores[target] = score;
+        kept++;
+    }
+
+    /**
+     * Puntuación de un candidato entre 0 y 1: nitidez saturada, tamaño relativo a
+     * {@code GOOD_FACE_PIXELS} y centrado (un rostro en la esquina vale la mitad).
+     */
+    public static float score(float sharpnessVariance, int faceWidth, int faceHeight,
+                              float centerX, float centerY, int frameWidth, int frameHeight) {
+        float sharpness = sharpnessVariance / (sharpnessVariance + SHARPNESS_HALF_VARIANCE);
+        float size = Math.min(1f, (float) Math.min(faceWidth, faceHeight) / GOOD_FACE_PIXELS);
+        float dx = (centerX - frameWidth * 0.5f) / (frameWidth * 0.5f);
+        float dy = (centerY - frameHeight * 0.5f) / (frameHeight * 0.5f);
+        float distance = Math.min(1f, (float) Math.sqrt((dx * dx + dy * dy) * 0.5f));
+        float centering = 1f - 0.5f * distance;
+        return sharpness * size * centering;
+    }
+
+    // Entrega el mejor candidato, libera el resto y ocupa el hueco con la última pista
+    private void finish(int slot) {
+        int first = slot * candidatesPerTrack;
+        int count = candidateCounts[slot];
+        int best = -1;
+        for (int i = first; i < first + count; i++) {
+            if (best < 0 || scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        for (int i = first; i < first + count; i++) {
+            if (i != best) {
+                pool.release(candidates[i]);
+                outstandingBuffers--;
+            }
+        }
+        int trackingId = trackIds[slot];
+        FrameBuffer bestCrop = best >= 0 ? candidates[best] : null;
+        float bestScore = best >= 0 ? scores[best] : 0f;
+
+        int last = --trackCount;
+        int lastFirst = last * candidatesPerTrack;
+        if (slot != last) {
+            trackIds[slot] = trackIds[last];
+            candidateCounts[slot] = candidateCounts[last];
+            System.arraycopy(candidates, lastFirst, candidates, first, candidatesPerTrack);
+            System.arraycopy(scores, lastFirst, scores, first, candidatesPerTrack);
+        }
+        for (int i = lastFirst; i < lastFirst + candidatesPerTrack; i++) {
+            candidates[i] = null;
+        }
+
+        if (bestCrop != null) {
+            if (listener.onBestCrop(trackingId, bestCrop, bestScore)) {
+                exported++;
+            } else {
+                rejected++;
+                release(bestCrop);
+            }
+        }
+    }
+
+    private int slotOf(int trackingId) {
+        for (int i = 0; i < trackCount; i++) {
+            if (trackIds[i] == trackingId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean contains(int[] ids, int count, int id) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int getTrackCount() {
+        return trackCount;
+    }
+
+    // Buffers fuera del pool: candidatos guardados más recortes aún sin devolver
+    public synchronized int getOutstandingBuffers() {
+        return outstandingBuffers;
+    }
+
+    public synchronized long getOfferedCount() {
+        return offered;
+    }
+
+    public synchronized long getKeptCount() {
+        return kept;
+    }
+
+    public synchronized long getDroppedForMemoryCount() {
+        return droppedForMemory;
+    }
+
+    public synchronized long getExportedCount() {
+        return exported;
+    }
+
+    // Mejores recortes que el listener no aceptó
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.camerax;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Etapa del pipeline de análisis que detecta rostros con un {@link FaceDetectorBackend}.
+ *
+ * <p>Por cada fotograma aplica, en este orden, el filtro de movimiento (escena
+ * estática: se reutiliza el último resultado), el intervalo de detección y el
+ * planificador por latencia. Los fotogramas admitidos se retienen y se detectan de
+ * forma asíncrona, sobre una región de interés alrededor de las pistas cuando es
+ * posible; la etapa completa siempre de inmediato con las cajas predichas por
+ * {@link FaceTrackStore}, de modo que hay cajas en cada fotograma.
+ *
+ * <p>Con un {@link FaceAttributeBackend} la detección es una cascada: el detector
+ * rápido sigue los rostros y, tras cada detección, el detector de atributos analiza
+ * el recorte de como mucho una pista nueva o cuya caja cambió mucho. Los atributos
+ * se guardan por pista en {@link FaceAttributeCache} y se copian a cada resultado.
+ *
+ * <p>Con un {@link FaceCropCollector} cada detección ofrece además los rostros
+ * detectados como candidatos a miniatura, mientras el fotograma sigue retenido.
+ *
+ * <p>No depende de Android: con un detector sintético y un {@link Clock} de réplica
+ * se ejecuta igual en la JVM (véase {@link ReplayHarness}).
+ */
+public final class FaceDetectionStage implements AnalysisStage<FrameBuffer, FaceResult> {
+    // Tasa objetivo de análisis y tamaño de la ventana de latencias del planificador
+    private static final int TARGET_ANALYSIS_FPS = 15;
+    private static final int LATENCY_WINDOW_SIZE = 10;
+    // Con rostros en seguimiento solo se detecta cada N fotogramas; el resto se predice
+    private static final int DETECTION_INTERVAL_FRAMES = 3;
+    private static final int MAX_TRACKED_FACES = 8;
+    private static final long TRACK_TIMEOUT_NANOS = 1_000_000_000L;
+    // Detección por región de interés: barrido completo cada N detecciones para hallar rostros nuevos
+    private static final int ROI_FULL_SCAN_INTERVAL = 5;
+    private static final float ROI_PADDING_RATIO = 0.3f;
+    private static final float ROI_MAX_AREA_RATIO = 0.6f;
+    private static final int ROI_POOL_CAPACITY = 2;
+    // Filtro de movimiento: rejilla 16x9, una muestra de cada 4 píxeles y umbral en niveles de luma
+    private static final int MOTION_GRID_WIDTH = 16;
+    private static final int MOTION_GRID_HEIGHT = 9;
+    private static final int MOTION_SAMPLE_STEP = 4;
+    private static final float MOTION_THRESHOLD = 6f;
+    private static final int MOTION_MAX_CONSECUTIVE_SKIPS = 30;
+    // Cascada: se vuelve a analizar una pista si su caja solapa menos de esto con la analizada
+    private static final float ATTRIBUTE_REFRESH_IOU = 0.5f;
+    private static final float ATTRIBUTE_CROP_PADDING_RATIO = 0.25f;
+
+    // El planificador elige el modo del detector según la latencia medida
+    private final FaceDetectorBackend detector;
+    private final FrameScheduler<SharedFrame<FrameBuffer>> scheduler;
+
+    // Pistas de rostros para interpolar las cajas entre detecciones
+    private final FaceTrackStore trackStore =
+            new FaceTrackStore(MAX_TRACKED_FACES, TRACK_TIMEOUT_NANOS);
+    private final int[] predictedTrackIds = new int[MAX_TRACKED_FACES];
+    private final float[] predictedBoxes = new float[MAX_TRACKED_FACES * 4];
+
+    // Región de interés: los recortes usan su propio pool para no realocar los fotogramas completos
+    private final RoiPlanner roiPlanner =
+            new RoiPlanner(ROI_FULL_SCAN_INTERVAL, ROI_PADDING_RATIO, ROI_MAX_AREA_RATIO);
+    private final FrameBufferPool roiBufferPool = new FrameBufferPool(ROI_POOL_CAPACITY);
+    private final FrameCropper frameCropper = new FrameCropper(roiBufferPool);
+    private final int[] roiCrop = new int[4];
+    // Solo se usa en los callbacks del detector; nunca hay dos detecciones a la vez
+    private final int[] remappedBox = new int[4];
+
+    // Segundo nivel de la cascada (opcional) y su caché por pista
+    private final FaceAttributeBackend attributeDetector;
+    private final FaceAttributeCache attributeCache =
+            new FaceAttributeCache(MAX_TRACKED_FACES, ATTRIBUTE_REFRESH_IOU);
+    private final FrameBufferPool attributeBufferPool = new FrameBufferPool(1);
+    private final FrameCropper attributeCropper = new FrameCropper(attributeBufferPool);
+    private final int[] attributeCrop = new int[4];
+    private final AtomicBoolean attributeInFlight = new AtomicBoolean();
+
+    // Recortes del mejor fotograma de cada pista (opcional)
+    private volatile FaceCropCollector cropCollector;
+
+    // Evita ejecutar el detector sobre escenas estáticas reutilizando el último resultado
+    private final MotionGate motionGate;
+
+    // Resultados reciclados: uno por fotograma en vuelo más el último entregado
+    private final FaceResult[] results;
+    private final FaceResult lastResult = new FaceResult(MAX_TRACKED_FACES);
+    private int nextResult;
+    private long analyzedFrames;
+    private volatile boolean resetRequested;
+    private final PipelineMetrics metrics;
+    private final Consumer<String> log;
+
+    public FaceDetectionStage(FaceDetectorBackend detector, int maxFramesInFlight,
+                              PipelineMetrics metrics, Clock clock, Consumer<String> log) {
+        this(detector, null, maxFramesInFlight, metrics, clock, log);
+    }
+
+    /** @param attributeDetector segundo nivel de la cascada, o null para no usarla */
+    public FaceDetectionStage(FaceDetectorBackend detector, FaceAttributeBackend attributeDetector,
+                              int maxFramesInFlight, PipelineMetrics metrics, Clock clock,
+                              Consumer<String> log) {
+        this.detector = detector;
+        this.attributeDetector = attributeDetector;
+        this.metrics = metrics;
+        this.log = log;
+        this.scheduler = new FrameScheduler<>(this::detect, clock,
+                TARGET_ANALYSIS_FPS, LATENCY_WINDOW_SIZE);
+        this.motionGate = new MotionGate(MOTION_GRID_WIDTH, MOTION_GRID_HEIGHT,
+                MOTION_SAMPLE_STEP, MOTION_THRESHOLD, MOTION_MAX_CONSECUTIVE_SKIPS, clock);
+        results = new FaceResult[maxFramesInFlight];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new FaceResult(MAX_TRACKED_FACES);
+        }
+    }
+
+    @Override
+    public void analyze(SharedFrame<FrameBuffer> frame, Completion<FaceResult> completion) {
+        if (resetRequested) {
+            resetRequested = false;
+            motionGate.reset();
+            trackStore.clear();
+            attributeCache.clear();
+            FaceCropCollector collector = cropCollector;
+            if (collector != null) {
+                collector.flush();
+            }
+            lastResult.set(0, FaceResult.SOURCE_TRACKED, 0L, 0f);
+        }
+
+        FrameBuffer buffer = frame.get();
+        long timestampNanos = frame.getTimestampNanos();
+        FaceResult result = results[nextResult];
+        nextResult = (nextResult + 1) % results.length;
+
+        // Escena estática: se mantiene el último resultado de detección
+        boolean motion = motionGate.hasMotion(buffer);
+        float motionScore = motionGate.getLastScore();
+        if (!motion) {
+            result.copyFrom(lastResult);
+            result.set(lastResult.getCount(), FaceResult.SOURCE_REUSED, timestampNanos, motionScore);
+            completion.complete(result);
+            return;
+        }
+
+        // Mientras haya pistas vivas, solo se detecta cada N fotogramas
+        boolean detectionFrame = analyzedFrames++ % DETECTION_INTERVAL_FRAMES == 0;
+        if (detectionFrame || trackStore.size() == 0) {
+            scheduler.offer(frame);
+        }
+
+        int tracked = trackStore.predict(timestampNanos,
+                result.trackingIdArray(), result.boxArray());
+        int[] ids = result.trackingIdArray();
+        float[] attributes = result.attributeArray();
+        for (int i = 0; i < tracked; i++) {
+            attributeCache.get(ids[i], attributes, i * FaceAttributeCache.ATTRIBUTE_COUNT);
+        }
+        result.set(tracked, FaceResult.SOURCE_TRACKED, timestampNanos, motionScore);
+        lastResult.copyFrom(result);
+        completion.complete(result);
+    }
+
+    // Detección invocada por el planificador con el modo que corresponde a la latencia actual
+    private void detect(SharedFrame<FrameBuffer> shared, int mode, Runnable onComplete) {
+        FrameBuffer frame = shared.get();
+
+        // Con rostros en seguimiento basta con buscar alrededor de su posición predicha
+        int tracked = trackStore.predict(frame.getTimestampNanos(),
+                predictedTrackIds, predictedBoxes);
+        boolean useRoi = roiPlanner.plan(predictedBoxes, tracked, frame.getWidth(),
+                frame.getHeight(), frame.getRotationDegrees(), roiCrop);
+        FrameBuffer input = useRoi ? frameCropper.crop(frame, roiCrop) : frame;
+        int[] crop = useRoi ? roiCrop.clone() : null;
+        int frameWidth = frame.getWidth();
+        int frameHeight = frame.getHeight();
+        int rotationDegrees = frame.getRotationDegrees();
+        long timestampNanos = frame.getTimestampNanos();
+
+        long detectStartNanos = System.nanoTime();
+        // El fotograma debe seguir vivo hasta que el detector termine
+        shared.retain();
+        try {
+            detector.detect(input, mode, new FaceDetectorBackend.Callback() {
+                @Override
+                public void onFace(int trackingId, int left, int top, int right, int bottom) {
+                    // Alimentar las pistas para predecir en los fotogramas sin detección
+                    remappedBox[0] = left;
+                    remappedBox[1] = top;
+                    remappedBox[2] = right;
+                    remappedBox[3] = bottom;
+                    if (crop != null) {
+                        // Las cajas del recorte se pasan a coordenadas del fotograma completo
+                        RoiPlanner.mapToFrame(remappedBox, crop, frameWidth, frameHeight,
+                                rotationDegrees);
+                    }
+                    trackStore.update(trackingId, remappedBox[0], remappedBox[1],
+                            remappedBox[2], remappedBox[3], timestampNanos);
+                }
+
+                @Override
+                public void onComplete(boolean success) {
+                    if (success) {
+                        // Los rostros que el detector ya no encuentra dejan de seguirse
+                        trackStore.retainSeenAt(timestampNanos);
+                        // Sin otra detección en curso los arrays de predicción están libres
+                        int live = trackStore.predict(timestampNanos, predictedTrackIds, predictedBoxes);
+                        FaceCropCollector collector = cropCollector;
+                        if (collector != null) {
+                            collector.update(frame, predictedTrackIds, predictedBoxes, live);
+                        }
+                        if (attributeDetector != null) {
+                            requestAttributes(frame, live, timestampNanos);
+                        }
+                    }
+                    metrics.record(PipelineMetrics.STAGE_DETECTION, System.nanoTime() - detectStartNanos);
+                    // Importante: devolver los buffers y avisar al planificador
+                    if (useRoi) {
+                        roiBufferPool.release(input);
+                    }
+                    shared.release();
+                    onComplete.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            // El detector no llegó a empezar: no habrá onComplete que devuelva los buffers
+            if (useRoi) {
+                roiBufferPool.release(input);
+            }
+            shared.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Segundo nivel de la cascada, tras una detección correcta y con el fotograma aún
+     * retenido; {@code live} son las pistas vivas ya predichas. Consulta la caché para
+     * cada una y, si alguna necesita análisis y no hay otro en curso, analiza el
+     * recorte de la primera.
+     */
+    private void requestAttributes(FrameBuffer frame, int live, long timestampNanos) {
+        attributeCache.retain(predictedTrackIds, live);
+        int candidate = -1;
+        for (int i = 0; i < live; i++) {
+            int base = i * 4;
+            int state = attributeCache.check(predictedTrackIds[i], predictedBoxes[base],
+                    predictedBoxes[base + 1], predictedBoxes[base + 2], predictedBoxes[base + 3],
+                    timestampNanos);
+            if (candidate < 0 && state != FaceAttributeCache.HIT
+                    && state != FaceAttributeCache.MISS_PENDING) {
+                candidate = i;
+            }
+        }
+        if (candidate < 0 || !attributeInFlight.compareAndSet(false, true)) {
+            return;
+        }
+
+        int trackingId = predictedTrackIds[candidate];
+        int base = candidate * 4;
+        attributeCache.markPending(trackingId, predictedBoxes[base], predictedBoxes[base + 1],
+                predictedBoxes[base + 2], predictedBoxes[base + 3], timestampNanos);
+        RoiPlanner.cropAround(predictedBoxes[base], predictedBoxes[base + 1],
+                predictedBoxes[base + 2], predictedBoxes[base + 3], ATTRIBUTE_CROP_PADDING_RATIO,
+                frame.getWidth(), frame.getHeight(), frame.getRotationDegrees(), attributeCrop);
+        FrameBuffer crop = attributeCropper.crop(frame, attributeCrop);
+        attributeDetector.analyze(crop, new FaceAttributeBackend.Callback() {
+            private boolean stored;
+
+            @Override
+            public void onAttributes(float smiling, float leftEyeOpen, float rightEyeOpen) {
+                attributeCache.store(trackingId, smiling, leftEyeOpen, rightEyeOpen);
+                stored = true;
+            }
+
+            @Override
+            public void onComplete(boolean success) {
+                if (!stored) {
+                    attributeCache.cancel(trackingId);
+                }
+                attributeBufferPool.release(crop);
+                attributeInFlight.set(false);
+            }
+        });
+    }
+
+    // Descarta pistas y referencia de movimiento, p. ej. al cambiar de cámara
+    public void reset() {
+        trackStore.clear();
+        resetRequested = true;
+    }
+
+    /** Activa (o con null desactiva) la recogida de recortes en cada detección. */
+    public void setCropCollector(FaceCropCollector collector) {
+        cropCollector = collector;
+    }
+
+    public FrameScheduler<SharedFrame<FrameBuffer>> getScheduler() {
+        return scheduler;
+    }
+
+    public MotionGate getMotionGate() {
+        return motionGate;
+    }
+
+    public FaceAttributeCache getAttributeCache() {
+        return attributeCache;
+    }
+
+    public void close() {
+        log.accept("Filtro de movimiento: " + motionGate.getSkippedFrames() + "/"
+                + motionGate.getEvaluatedFrames() + " fotogramas omitidos, "
+                + motionGate.getAverageGateNanos() / 1000 + " us de media");
+        if (scheduler.getFailedCount() > 0) {
+            log.accept("Detecciones que fallaron al lanzarse: " + scheduler.getFailedCount());
+        }
+        if (attributeDetector != null) {
+            log.accept(String.format(Locale.US,
+                    "Caché de atributos: %.1f %% de aciertos (%d aciertos, %d nuevas, %d cambiadas, "
+                            + "%d en curso, %d en cola)",
+                    attributeCache.getHitRate() * 100f, attributeCache.getHitCount(),
+                    attributeCache.getNewMissCount(), attributeCache.getChangedMissCount(),
+                    attributeCache.getPendingMissCount(), attributeCache.getQueuedMissCount()));
+            attributeDetector.close();
+        }
+        detector.close();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.camerax;
+
+/**
+ * Detector de rostros que usa {@link FaceDetectionStage}. En la app es ML Kit
+ * ({@code MlKitFaceDetectorBackend}, en el módulo {@code app}); fuera de Android se
+ * sustituye por un detector sintético para reproducir el pipeline sin cámara.
+ */
+public interface FaceDetectorBackend {
+
+    /** Resultado de una detección; puede llegar desde cualquier hilo. */
+    interface Callback {
+        // Un rostro con tracking ID, en coordenadas derechas de la imagen de entrada
+        void onFace(int trackingId, int left, int top, int right, int bottom);
+
+        // Exactamente una vez por detección, después de todos los onFace
+        void onComplete(boolean success);
+    }
+
+    /**
+     * Detecta rostros en un fotograma NV21 con el modo de {@link FrameScheduler}. El
+     * buffer sigue siendo válido hasta {@link Callback#onComplete(boolean)}.
+     */
+    void detect(FrameBuffer input, int mode, Callback callback);
+
+    void close();
+}
@@ -0,0 +1,125 @@
+package com.example.camerax;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cola acotada sin bloqueos de registros de rostros (marca de tiempo, tracking ID,
+ * caja y origen) entre los hilos del pipeline y un único consumidor.
+ *
+ * <p>Los campos viven en arrays primitivos indexados por posición; cada hueco tiene
+ * una secuencia que indica si está libre o publicado. Un productor reserva con un
+ * solo CAS todos los huecos de un fotograma, de modo que sus rostros quedan
+ * contiguos aunque publiquen varios hilos a la vez. Si no hay sitio el fotograma se
+ * descarta entero y se cuenta: el productor nunca espera. Ni publicar ni drenar
+ * reservan memoria.
+ */
+public final class FaceRecordQueue {
+
+    /** Recibe los registros drenados; se invoca en el hilo consumidor. */
+    public interface Sink {
+        void accept(long timestampNanos, int trackingId, float left, float top,
+                    float right, float bottom, int source);
+    }
+
+    private final int mask;
+    private final long[] timestamps;
+    private final int[] trackingIds;
+    private final float[] boxes;
+    private final int[] sources;
+    // Secuencia == posición: libre para escribir; posición + 1: publicado
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    // Solo la toca el consumidor
+    private long head;
+
+    public FaceRecordQueue(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("La capacidad debe ser potencia de dos: " + capacity);
+        }
+        mask = capacity - 1;
+        timestamps = new long[capacity];
+        trackingIds = new int[capacity];
+        boxes = new float[capacity * 4];
+        sources = new int[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Publica todos los rostros de {@code result}; seguro desde cualquier hilo.
+     * Devuelve false si no cabían y se descartó el fotograma.
+     */
+    public boolean offer(FaceResult result) {
+        int count = result.getCount();
+        if (count == 0) {
+            return true;
+        }
+        if (count > mask + 1) {
+            droppedFrames.incrementAndGet();
+            return false;
+        }
+        long start;
+        while (true) {
+            start = tail.get();
+            long last = start + count - 1;
+            // El consumidor libera en orden: si el último hueco está libre, lo están todos
+            long sequence = sequences.get((int) (last & mask));
+            if (sequence < last) {
+                droppedFrames.incrementAndGet();
+                return false;
+            }
+            if (sequence == last && tail.compareAndSet(start, start + count)) {
+                break;
+            }
+        }
+        long timestampNanos = result.getTimestampNanos();
+        int source = result.getSource();
+        for (int i = 0; i < count; i++) {
+            long position = start + i;
+            int slot = (int) (position & mask);
+            timestamps[slot] = timestampNanos;
+            trackingIds[slot] = result.getTrackingId(i);
+            int base = slot * 4;
+            boxes[base] = result.getBox(i, 0);
+            boxes[base + 1] = result.getBox(i, 1);
+            boxes[base + 2] = result.getBox(i, 2);
+            boxes[base + 3] = result.getBox(i, 3);
+            sources[slot] = source;
+            sequences.lazySet(slot, position + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Entrega al sink hasta {@code max} registros publicados, en orden; solo desde el
+     * hilo consumidor. Devuelve cuántos se entregaron.
+     */
+    public int drain(Sink sink, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) (head & mask);
+            if (sequences.get(slot) != head + 1) {
+                break;
+            }
+            int base = slot * 4;
+            sink.accept(timestamps[slot], trackingIds[slot], boxes[base], boxes[base + 1],
+                    boxes[base + 2], boxes[base + 3], sources[slot]);
+            sequences.lazySet(slot, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    public long getDroppedFrameCount() {
+        return droppedFrames.get();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.camerax;
+
+/**
+ * Rostros de un fotograma: tracking ID y caja (coordenadas derechas del fotograma
+ * reducido) de cada uno, junto con el origen del resultado. Las instancias se
+ * reciclan; copiar lo necesario antes de soltar el resultado.
+ */
+public final class FaceResult {
+    // Cajas de las pistas vivas, predichas para la marca de tiempo del fotograma
+    public static final int SOURCE_TRACKED = 0;
+    // Escena estática: se reutilizó el último resultado
+    public static final int SOURCE_REUSED = 1;
+
+    private final int[] trackingIds;
+    private final float[] boxes;
+    // Atributos de la caché de la cascada, FaceAttributeCache.ATTRIBUTE_COUNT por rostro
+    private final float[] attributes;
+    private int count;
+    private int source;
+    private long timestampNanos;
+    private float motionScore;
+
+    public FaceResult(int capacity) {
+        trackingIds = new int[capacity];
+        boxes = new float[capacity * 4];
+        attributes = new float[capacity * FaceAttributeCache.ATTRIBUTE_COUNT];
+    }
+
+    public int getCapacity() {
+        return trackingIds.length;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public float getMotionScore() {
+        return motionScore;
+    }
+
+    public int getTrackingId(int index) {
+        return trackingIds[index];
+    }
+
+    // Borde 0..3 (left, top, right, bottom) de la caja del rostro 'index'
+    public float getBox(int index, int edge) {
+        return boxes[index * 4 + edge];
+    }
+
+    // Probabilidades 0..1 del rostro 'index'; NaN mientras no se hayan analizado
+    public float getSmilingProbability(int index) {
+        return attributes[index * FaceAttributeCache.ATTRIBUTE_COUNT + FaceAttributeCache.ATTR_SMILING];
+    }
+
+    public float getLeftEyeOpenProbability(int index) {
+        return attributes[index * FaceAttributeCache.ATTRIBUTE_COUNT + FaceAttributeCache.ATTR_LEFT_EYE_OPEN];
+    }
+
+    public float getRightEyeOpenProbability(int index) {
+        return attributes[index * FaceAttributeCache.ATTRIBUTE_COUNT + FaceAttributeCache.ATTR_RIGHT_EYE_OPEN];
+    }
+
+    // Arrays internos para rellenar sin copias, p. ej. con FaceTrackStore.predict
+    int[] trackingIdArray() {
+        return trackingIds;
+    }
+
+    float[] boxArray() {
+        return boxes;
+    }
+
+    float[] attributeArray() {
+        return attributes;
+    }
+
+    public void set(int count, int source, long timestampNanos, float motionScore) {
+        this.count = Math.min(count, trackingIds.length);
+        this.source = source;
+        this.timestampNanos = timestampNanos;
+        this.motionScore = motionScore;
+    }
+
+    public void copyFrom(FaceResult other) {
+        int n = Math.min(other.count, trackingIds.length);
+        System.arraycopy(other.trackingIds, 0, trackingIds, 0, n);
+        System.arraycopy(other.boxes, 0, boxes, 0, n * 4);
+        System.arraycopy(other.attributes, 0, attributes, 0, n * FaceAttributeCache.ATTRIBUTE_COUNT);
+        count = n;
+        source = other.source;
+        timestampNanos = other.timestampNanos;
+        motionScore = other.motionScore;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.camerax;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Traspaso sin bloqueos de los rostros de cada fotograma desde los hilos del pipeline
+ * a un único hilo publicador, que es el solo productor de un {@link FaceResultStream}.
+ *
+ * <p>Anillo acotado de {@link FaceResult} preasignados con una secuencia por hueco,
+ * como {@link FaceRecordQueue}: un productor reserva su hueco con un CAS, copia el
+ * resultado y lo marca publicado. Si no hay sitio el resultado se descarta y se
+ * cuenta; el productor nunca espera a otro ni reserva memoria. El drenaje se encarga
+ * al executor serie como una única tarea pendiente.
+ */
+public final class FaceResultHandoff {
+
+    private final FaceResultStream stream;
+    private final Executor executor;
+    private final int mask;
+    private final FaceResult[] slots;
+    // Secuencia == posición: libre para escribir; posición + 1: publicado
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final Runnable drainTask = this::drain;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    // Solo la toca el hilo publicador
+    private long head;
+
+    /**
+     * @param capacity resultados pendientes como máximo; potencia de dos
+     * @param executor executor serie: una tarea a la vez, siempre en el mismo orden
+     */
+    public FaceResultHandoff(int capacity, FaceResultStream stream, Executor executor) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("La capacidad debe ser potencia de dos: " + capacity);
+        }
+        this.stream = stream;
+        this.executor = executor;
+        mask = capacity - 1;
+        slots = new FaceResult[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new FaceResult(stream.getMaxFaces());
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Copia {@code faces} para publicarlo en el hilo publicador; seguro desde cualquier
+     * hilo. Devuelve false si no cabía y se descartó.
+     */
+    public boolean offer(FaceResult faces) {
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int) (position & mask);
+            long sequence = sequences.get(slot);
+            if (sequence < position) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            // Mayor que la posición: otro productor ya reservó este hueco; reintentar
+            if (sequence == position && tail.compareAndSet(position, position + 1)) {
+                break;
+            }
+        }
+        slots[slot].copyFrom(faces);
+        sequences.lazySet(slot, position + 1);
+        schedule();
+        return true;
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            // Executor cerrado: lo pendiente se publica en el próximo intento
+            rejected.incrementAndGet();
+            scheduled.set(false);
+        }
+    }
+
+    // En el executor serie; como mucho una ejecución a la vez
+    private void drain() {
+        while (true) {
+            publishPending();
+            scheduled.set(false);
+            // Lo copiado entre la última lectura y soltar la marca se publica aquí
+            if (!hasPending() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void publishPending() {
+        while (true) {
+            int slot = (int) (head & mask);
+            if (sequences.get(slot) != head + 1) {
+                return;
+            }
+            stream.publish(slots[slot]);
+            sequences.lazySet(slot, head + mask + 1);
+            head++;
+        }
+    }
+
+    private boolean hasPending() {
+        return sequences.get((int) (head & mask)) == head + 1;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    // Resultados descartados por encontrar el anillo lleno
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+}
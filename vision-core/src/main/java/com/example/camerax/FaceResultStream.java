@@ -0,0 +1,294 @@
+package com.example.camerax;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publica los rostros de cada fotograma a varios suscriptores, cada uno con su
+ * propio {@link Executor} y su política de contrapresión.
+ *
+ * <p>{@link #publish} no reserva memoria: copia el resultado a un
+ * {@link FaceResult} preasignado de cada suscripción y, si hace falta, encarga al
+ * executor del suscriptor una única tarea de entrega. Un suscriptor lento solo
+ * pierde resultados según su política; nunca retrasa el hilo de análisis.
+ *
+ * <ul>
+ *   <li>{@link #POLICY_LATEST}: solo el más reciente; los no leídos se sustituyen.</li>
+ *   <li>{@link #POLICY_QUEUE}: cola acotada en orden; si está llena se descarta el nuevo.</li>
+ *   <li>{@link #POLICY_SAMPLED}: como el más reciente, pero como mucho uno por intervalo.</li>
+ * </ul>
+ *
+ * <p>{@link #publish} es de un solo productor y no espera nunca: cada suscripción usa
+ * estructuras de un productor y un consumidor. El pipeline completa fotogramas en
+ * varios hilos, así que no publica directamente: se los entrega a un
+ * {@link FaceResultHandoff}, que los publica desde su único hilo. El traspaso no
+ * garantiza el orden de las marcas de tiempo; los que llegan desordenados se descartan.
+ */
+public final class FaceResultStream {
+    public static final int POLICY_LATEST = 0;
+    public static final int POLICY_QUEUE = 1;
+    public static final int POLICY_SAMPLED = 2;
+
+    /** Recibe los rostros en el executor de la suscripción; {@code faces} se recicla al volver. */
+    public interface Subscriber {
+        void onFaces(FaceResult faces);
+    }
+
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    private final int maxFaces;
+    // Copia en escritura: publicar recorre el array sin reservar memoria
+    private volatile Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+    // Solo la toca el hilo publicador
+    private long lastTimestampNanos = Long.MIN_VALUE;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong outOfOrder = new AtomicLong();
+
+    /** @param maxFaces rostros por resultado que se copian a los suscriptores */
+    public FaceResultStream(int maxFaces) {
+        if (maxFaces <= 0) {
+            throw new IllegalArgumentException("maxFaces debe ser positivo: " + maxFaces);
+        }
+        this.maxFaces = maxFaces;
+    }
+
+    /** Solo el resultado más reciente. */
+    public Subscription subscribeLatest(Executor executor, Subscriber subscriber) {
+        return add(new Subscription(this, POLICY_LATEST, 0, 0L, executor, subscriber));
+    }
+
+    /** Todos en orden mientras quepan en {@code capacity} resultados pendientes. */
+    public Subscription subscribeQueue(int capacity, Executor executor, Subscriber subscriber) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva: " + capacity);
+        }
+        return add(new Subscription(this, POLICY_QUEUE, capacity, 0L, executor, subscriber));
+    }
+
+    /** El más reciente, como mucho uno cada {@code intervalNanos} de marca de tiempo del fotograma. */
+    public Subscription subscribeSampled(long intervalNanos, Executor executor, Subscriber subscriber) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("Intervalo no válido: " + intervalNanos);
+        }
+        return add(new Subscription(this, POLICY_SAMPLED, 0, intervalNanos, executor, subscriber));
+    }
+
+    private synchronized Subscription add(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        Subscription[] next = new Subscription[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = subscription;
+        subscriptions = next;
+        return subscription;
+    }
+
+    private synchronized void remove(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                Subscription[] next = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                subscriptions = next;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Entrega {@code faces} a todos los suscriptores; solo desde un único hilo
+     * publicador (el de {@link FaceResultHandoff}). Devuelve false si se descartó por
+     * llegar desordenado.
+     */
+    public boolean publish(FaceResult faces) {
+        long timestampNanos = faces.getTimestampNanos();
+        if (timestampNanos <= lastTimestampNanos) {
+            outOfOrder.incrementAndGet();
+            return false;
+        }
+        lastTimestampNanos = timestampNanos;
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(faces);
+        }
+        published.incrementAndGet();
+        return true;
+    }
+
+    public int getMaxFaces() {
+        return maxFaces;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.length;
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    public long getOutOfOrderCount() {
+        return outOfOrder.get();
+    }
+
+    /** Suscripción activa; {@link #cancel()} deja de entregar resultados. */
+    public static final class Subscription {
+        // Índice del búfer intermedio de la política "más reciente" y marca de no leído
+        private static final int INDEX_MASK = 3;
+        private static final int FRESH = 4;
+
+        private final FaceResultStream stream;
+        private final int policy;
+        private final long intervalNanos;
+        private final Executor executor;
+        private final Subscriber subscriber;
+        private final FaceResult[] slots;
+        private final Runnable drainTask = this::drain;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        // Más reciente: triple búfer; el productor escribe en 'back', el consumidor lee 'front'
+        private int back;
+        private final AtomicInteger middle = new AtomicInteger();
+        private int front;
+        private long lastOfferedNanos = Long.MIN_VALUE;
+
+        // Cola: anillo de un productor y un consumidor
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong superseded = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong sampledOut = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        Subscription(FaceResultStream stream, int policy, int capacity, long intervalNanos,
+                     Executor executor, Subscriber subscriber) {
+            this.stream = stream;
+            this.policy = policy;
+            this.intervalNanos = intervalNanos;
+            this.executor = executor;
+            this.subscriber = subscriber;
+            slots = new FaceResult[policy == POLICY_QUEUE ? capacity : 3];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = new FaceResult(stream.maxFaces);
+            }
+            if (policy != POLICY_QUEUE) {
+                back = 0;
+                middle.set(1);
+                front = 2;
+            }
+        }
+
+        // Solo desde el hilo publicador
+        void offer(FaceResult faces) {
+            if (cancelled) {
+                return;
+            }
+            if (policy == POLICY_QUEUE) {
+                long t = tail.get();
+                if (t - head.get() == slots.length) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                slots[(int) (t % slots.length)].copyFrom(faces);
+                tail.lazySet(t + 1);
+            } else {
+                long timestampNanos = faces.getTimestampNanos();
+                if (policy == POLICY_SAMPLED && lastOfferedNanos != Long.MIN_VALUE
+                        && timestampNanos - lastOfferedNanos < intervalNanos) {
+                    sampledOut.incrementAndGet();
+                    return;
+                }
+                lastOfferedNanos = timestampNanos;
+                slots[back].copyFrom(faces);
+                int previous = middle.getAndSet(back | FRESH);
+                if ((previous & FRESH) != 0) {
+                    superseded.incrementAndGet();
+                }
+                back = previous & INDEX_MASK;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                // Executor cerrado: el resultado queda pendiente para un próximo intento
+                rejected.incrementAndGet();
+                scheduled.set(false);
+            }
+        }
+
+        // En el executor del suscriptor; como mucho una ejecución a la vez
+        private void drain() {
+            while (true) {
+                deliverPending();
+                scheduled.set(false);
+                // Lo publicado entre la última lectura y soltar la marca se entrega aquí
+                if (cancelled || !hasPending() || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        private void deliverPending() {
+            if (policy == POLICY_QUEUE) {
+                long h = head.get();
+                long t = tail.get();
+                for (; h < t && !cancelled; h++) {
+                    subscriber.onFaces(slots[(int) (h % slots.length)]);
+                    delivered.incrementAndGet();
+                    head.lazySet(h + 1);
+                }
+            } else if ((middle.get() & FRESH) != 0 && !cancelled) {
+                front = middle.getAndSet(front) & INDEX_MASK;
+                subscriber.onFaces(slots[front]);
+                delivered.incrementAndGet();
+            }
+        }
+
+        private boolean hasPending() {
+            return policy == POLICY_QUEUE ? head.get() != tail.get() : (middle.get() & FRESH) != 0;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            stream.remove(this);
+        }
+
+        public int getPolicy() {
+            return policy;
+        }
+
+        public long getDeliveredCount() {
+            return delivered.get();
+        }
+
+        // Más reciente / muestreo: resultados sustituidos por otro antes de leerlos
+        public long getSupersededCount() {
+            return superseded.get();
+        }
+
+        // Cola: resultados descartados por estar llena
+        public long getDroppedCount() {
+            return dropped.get();
+        }
+
+        // Muestreo: resultados dentro del intervalo que no se ofrecieron
+        public long getSampledOutCount() {
+            return sampledOut.get();
+        }
+
+        public long getRejectedCount() {
+            return rejected.get();
+        }
+    }
+}
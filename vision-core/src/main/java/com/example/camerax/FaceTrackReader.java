@@ -0,0 +1,207 @@
+package com.example.camerax;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Lector del fichero lateral de rostros escrito por {@link FaceTrackWriter}.
+ *
+ * <p>El fichero se proyecta en memoria y los registros se leen por posición, sin
+ * copiarlos. {@link #seek} localiza una marca de tiempo en O(log n): búsqueda
+ * binaria en el índice disperso y después dentro del tramo de registros que
+ * delimita. Si el fichero no tiene índice (la grabación no se cerró bien), se
+ * descarta el último registro incompleto y se busca sobre todos los registros.
+ *
+ * <p>Las marcas de tiempo de los registros son del sensor; {@link #toWallClockMillis}
+ * las pasa a hora de pared con el ancla de la cabecera. Los ficheros de la versión 1
+ * no tienen ancla y solo conservan la hora de pared del inicio.
+ */
+public final class FaceTrackReader implements Closeable {
+    private static final int OFFSET_TRACKING_ID = 8;
+    private static final int OFFSET_BOX = 12;
+    private static final int OFFSET_SOURCE = 28;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer map;
+    private final int headerBytes;
+    private final long wallClockMillis;
+    private final long anchorSensorNanos;
+    private final int recordBytes;
+    private final int indexInterval;
+    private final int recordCount;
+    private final int indexOffset;
+    private final int indexEntries;
+
+    public FaceTrackReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            long length = file.length();
+            if (length < FaceTrackWriter.HEADER_BYTES_V1 || length > Integer.MAX_VALUE) {
+                throw new IOException("Tamaño de fichero de rostros inválido: " + length);
+            }
+            map = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt(0) != FaceTrackWriter.MAGIC) {
+                throw new IOException("No es un fichero de rostros: " + path);
+            }
+            int version = map.getInt(4);
+            if (version == FaceTrackWriter.VERSION) {
+                if (length < FaceTrackWriter.HEADER_BYTES) {
+                    throw new IOException("Cabecera incompleta en " + path);
+                }
+                headerBytes = FaceTrackWriter.HEADER_BYTES;
+                anchorSensorNanos = map.getLong(24);
+            } else if (version == 1) {
+                headerBytes = FaceTrackWriter.HEADER_BYTES_V1;
+                anchorSensorNanos = FaceTrackWriter.NO_SENSOR_ANCHOR;
+            } else {
+                throw new IOException("Versión no soportada: " + version);
+            }
+            wallClockMillis = map.getLong(16);
+            recordBytes = map.getInt(8);
+            indexInterval = map.getInt(12);
+            if (recordBytes < FaceTrackWriter.RECORD_BYTES || indexInterval <= 0) {
+                throw new IOException("Cabecera corrupta en " + path);
+            }
+
+            int footer = (int) length - FaceTrackWriter.FOOTER_BYTES;
+            boolean indexed = footer >= headerBytes
+                    && map.getInt(footer + 12) == FaceTrackWriter.FOOTER_MAGIC;
+            if (indexed) {
+                indexOffset = (int) map.getLong(footer);
+                indexEntries = map.getInt(footer + 8);
+                recordCount = (indexOffset - headerBytes) / recordBytes;
+            } else {
+                indexOffset = -1;
+                indexEntries = 0;
+                recordCount = ((int) length - headerBytes) / recordBytes;
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public boolean hasIndex() {
+        return indexOffset >= 0;
+    }
+
+    public int getIndexInterval() {
+        return indexInterval;
+    }
+
+    // Hora de pared en ms del ancla (versión 1: del inicio de la grabación)
+    public long getWallClockMillis() {
+        return wallClockMillis;
+    }
+
+    public boolean hasClockAnchor() {
+        return anchorSensorNanos != FaceTrackWriter.NO_SENSOR_ANCHOR;
+    }
+
+    // Marca de tiempo del sensor que corresponde a {@link #getWallClockMillis()}
+    public long getAnchorSensorNanos() {
+        return anchorSensorNanos;
+    }
+
+    /** Hora de pared en ms de una marca del sensor; requiere {@link #hasClockAnchor()}. */
+    public long toWallClockMillis(long sensorNanos) {
+        if (!hasClockAnchor()) {
+            throw new IllegalStateException("El fichero no tiene ancla de reloj");
+        }
+        return wallClockMillis + Math.floorDiv(sensorNanos - anchorSensorNanos, 1_000_000L);
+    }
+
+    public long getTimestampNanos(int record) {
+        return map.getLong(position(record));
+    }
+
+    public int getTrackingId(int record) {
+        return map.getInt(position(record) + OFFSET_TRACKING_ID);
+    }
+
+    // Borde 0..3 (left, top, right, bottom) de la caja del registro
+    public float getBox(int record, int edge) {
+        return map.getFloat(position(record) + OFFSET_BOX + edge * 4);
+    }
+
+    public int getSource(int record) {
+        return map.getInt(position(record) + OFFSET_SOURCE);
+    }
+
+    /**
+     * Primer registro con marca de tiempo {@code >= timestampNanos}, o
+     * {@link #getRecordCount()} si todos son anteriores.
+     */
+    public int seek(long timestampNanos) {
+        int low = 0;
+        int high = recordCount;
+        if (indexEntries > 0) {
+            // Última entrada estrictamente anterior: su tramo contiene el resultado
+            int entry = lastIndexEntryBefore(timestampNanos);
+            if (entry >= 0) {
+                low = indexRecord(entry);
+                if (entry + 1 < indexEntries) {
+                    high = indexRecord(entry + 1);
+                }
+            } else {
+                return 0;
+            }
+        }
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getTimestampNanos(mid) < timestampNanos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int lastIndexEntryBefore(long timestampNanos) {
+        int low = 0;
+        int high = indexEntries - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (indexTimestamp(mid) < timestampNanos) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private long indexTimestamp(int entry) {
+        return map.getLong(indexOffset + entry * FaceTrackWriter.INDEX_ENTRY_BYTES);
+    }
+
+    private int indexRecord(int entry) {
+        return (int) map.getLong(indexOffset + entry * FaceTrackWriter.INDEX_ENTRY_BYTES + 8);
+    }
+
+    private int position(int record) {
+        if (record < 0 || record >= recordCount) {
+            throw new IndexOutOfBoundsException("Registro " + record + " de " + recordCount);
+        }
+        return headerBytes + record * recordBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // La proyección sigue válida hasta que la recoja el GC; el descriptor se cierra ya
+        file.close();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.camerax;
+
+/**
+ * Almacén de pistas de rostros indexadas por el tracking ID de ML Kit.
+ *
+ * <p>Guarda la última caja y la velocidad de cada borde en arrays primitivos de
+ * capacidad fija, y predice la caja de cada pista en fotogramas sin detección con
+ * un modelo de velocidad constante. La velocidad se suaviza exponencialmente para
+ * amortiguar el ruido de la detección. Las pistas sin actualizar durante más del
+ * timeout caducan. Los métodos son sincronizados: las actualizaciones llegan desde
+ * los callbacks del detector y las predicciones desde el hilo de análisis.
+ */
+public final class FaceTrackStore {
+    // Peso de la velocidad instantánea frente a la acumulada
+    private static final float DEFAULT_VELOCITY_SMOOTHING = 0.6f;
+
+    private final int capacity;
+    private final long timeoutNanos;
+    private final float velocitySmoothing;
+    private final int[] ids;
+    private final long[] lastSeenNanos;
+    private final int[] updateCounts;
+    // 4 valores por pista: left, top, right, bottom
+    private final float[] boxes;
+    // Velocidad de cada borde en píxeles por segundo
+    private final float[] velocities;
+    private int count;
+
+    public FaceTrackStore(int capacity, long timeoutNanos) {
+        this(capacity, timeoutNanos, DEFAULT_VELOCITY_SMOOTHING);
+    }
+
+    public FaceTrackStore(int capacity, long timeoutNanos, float velocitySmoothing) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity debe ser positiva: " + capacity);
+        }
+        this.capacity = capacity;
+        this.timeoutNanos = timeoutNanos;
+        this.velocitySmoothing = velocitySmoothing;
+        ids = new int[capacity];
+        lastSeenNanos = new long[capacity];
+        updateCounts = new int[capacity];
+        boxes = new float[capacity * 4];
+        velocities = new float[capacity * 4];
+    }
+
+    /** Registra una detección de la pista {@code trackingId} en el instante dado. */
+    public synchronized void update(int trackingId, float left, float top, float right, float bottom,
+                                    long timestampNanos) {
+        int index = indexOf(trackingId);
+        if (index < 0) {
+            index = count < capacity ? count++ : oldestIndex();
+            ids[index] = trackingId;
+            updateCounts[index] = 0;
+        }
+
+        int base = index * 4;
+        long dtNanos = timestampNanos - lastSeenNanos[index];
+        if (updateCounts[index] > 0 && dtNanos > 0) {
+            float dtSeconds = dtNanos / 1e9f;
+            // La primera velocidad medida se toma tal cual; las siguientes se suavizan
+            float alpha = updateCounts[index] == 1 ? 1f : velocitySmoothing;
+            updateVelocity(base, left, dtSeconds, alpha);
+            updateVelocity(base + 1, top, dtSeconds, alpha);
+            updateVelocity(base + 2, right, dtSeconds, alpha);
+            updateVelocity(base + 3, bottom, dtSeconds, alpha);
+        } else if (updateCounts[index] == 0) {
+            velocities[base] = 0f;
+            velocities[base + 1] = 0f;
+            velocities[base + 2] = 0f;
+            velocities[base + 3] = 0f;
+        }
+
+        boxes[base] = left;
+        boxes[base + 1] = top;
+        boxes[base + 2] = right;
+        boxes[base + 3] = bottom;
+        lastSeenNanos[index] = timestampNanos;
+        updateCounts[index]++;
+    }
+
+    private void updateVelocity(int slot, float value, float dtSeconds, float alpha) {
+        float instant = (value - boxes[slot]) / dtSeconds;
+        velocities[slot] = alpha * instant + (1f - alpha) * velocities[slot];
+    }
+
+    /**
+     * Elimina las pistas caducadas y escribe en los arrays de salida la caja
+     * predicha de cada pista viva. Devuelve el número de pistas escritas, limitado
+     * por el tamaño de {@code outIds}; {@code outBoxes} necesita 4 valores por pista.
+     */
+    public synchronized int predict(long timestampNanos, int[] outIds, float[] outBoxes) {
+        expire(timestampNanos);
+        int written = Math.min(count, Math.min(outIds.length, outBoxes.length / 4));
+        for (int i = 0; i < written; i++) {
+            int base = i * 4;
+            long dtNanos = Math.max(0L, timestampNanos - lastSeenNanos[i]);
+            float dtSeconds = dtNanos / 1e9f;
+            outIds[i] = ids[i];
+            outBoxes[base] = boxes[base] + velocities[base] * dtSeconds;
+            outBoxes[base + 1] = boxes[base + 1] + velocities[base + 1] * dtSeconds;
+            outBoxes[base + 2] = boxes[base + 2] + velocities[base + 2] * dtSeconds;
+            outBoxes[base + 3] = boxes[base + 3] + velocities[base + 3] * dtSeconds;
+        }
+        return written;
+    }
+
+    /** Elimina las pistas que no se han actualizado desde hace más del timeout. */
+    public synchronized void expire(long timestampNanos) {
+        int i = 0;
+        while (i < count) {
+            if (timestampNanos - lastSeenNanos[i] > timeoutNanos) {
+                moveTrack(--count, i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Elimina las pistas que no se vieron en la detección del instante dado. Sirve
+     * para descartar enseguida los rostros que el detector dejó de encontrar.
+     */
+    public synchronized void retainSeenAt(long timestampNanos) {
+        int i = 0;
+        while (i < count) {
+            if (lastSeenNanos[i] < timestampNanos) {
+                moveTrack(--count, i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+    }
+
+    private int indexOf(int trackingId) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == trackingId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int oldestIndex() {
+        int oldest = 0;
+        for (int i = 1; i < count; i++) {
+            if (lastSeenNanos[i] < lastSeenNanos[oldest]) {
+                oldest = i;
+            }
+        }
+        return oldest;
+    }
+
+    // Copia la pista 'from' sobre 'to' (borrado por intercambio con la última)
+    private void moveTrack(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        ids[to] = ids[from];
+        lastSeenNanos[to] = lastSeenNanos[from];
+        updateCounts[to] = updateCounts[from];
+        System.arraycopy(boxes, from * 4, boxes, to * 4, 4);
+        System.arraycopy(velocities, from * 4, velocities, to * 4, 4);
+    }
+}
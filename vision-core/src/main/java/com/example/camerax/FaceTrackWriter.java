@@ -0,0 +1,348 @@
+package com.example.camerax;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Escribe el fichero lateral de rostros de una grabación: cada rostro de cada
+ * fotograma como un registro de ancho fijo, en un hilo propio.
+ *
+ * <p>Los hilos del pipeline publican con {@link #offer} en una
+ * {@link FaceRecordQueue} sin bloqueos; el hilo escritor la drena cada
+ * {@code flushIntervalMillis} y añade los registros al fichero por un
+ * {@link FileChannel}. Los fotogramas que llegan con una marca de tiempo anterior a
+ * la última escrita se descartan, de modo que el fichero queda ordenado por tiempo.
+ * Cada grabación tiene su cola y su hilo; el hilo de una grabación nueva espera a
+ * que el anterior cierre su fichero, así que {@link #start} nunca bloquea.
+ *
+ * <p>Los registros llevan la marca de tiempo del sensor, cuyo origen no es el reloj
+ * de pared. La cabecera guarda un ancla: la hora de pared al ofrecer el primer
+ * fotograma y la marca de tiempo del sensor de ese fotograma (con el retraso del
+ * análisis entre ambas, decenas de ms). {@link FaceTrackReader#toWallClockMillis}
+ * la usa para situar cada registro en el tiempo.
+ *
+ * <p>Formato (little-endian): cabecera de {@link #HEADER_BYTES} ({@code int} magia,
+ * {@code int} versión, {@code int} bytes por registro, {@code int} registros entre
+ * entradas del índice, {@code long} hora de pared en ms, {@code long} marca de tiempo
+ * del sensor en ns de ese mismo instante o {@link #NO_SENSOR_ANCHOR}); registros de
+ * {@link #RECORD_BYTES} ({@code long} marca de tiempo del sensor en ns, {@code int}
+ * tracking ID, cuatro {@code float} left, top, right, bottom en coordenadas del
+ * fotograma de análisis, {@code int} origen de {@link FaceResult}); al cerrar, el
+ * índice disperso ({@code long} marca de tiempo, {@code long} número de registro)
+ * y un pie de {@link #FOOTER_BYTES} ({@code long} offset del índice, {@code int}
+ * entradas, {@code int} magia). Un fichero sin pie (cierre abrupto) sigue siendo
+ * legible: {@link FaceTrackReader} busca entonces sobre los registros.
+ */
+public final class FaceTrackWriter {
+    public static final int MAGIC = 0x4B525446; // "FTRK"
+    public static final int FOOTER_MAGIC = 0x58444946; // "FIDX"
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8 + 8;
+    // La versión 1 no tenía marca de tiempo del sensor en la cabecera
+    public static final int HEADER_BYTES_V1 = 4 + 4 + 4 + 4 + 8;
+    // Sin ancla: no se ofreció ningún fotograma
+    public static final long NO_SENSOR_ANCHOR = Long.MIN_VALUE;
+    public static final int RECORD_BYTES = 8 + 4 + 4 * 4 + 4;
+    public static final int INDEX_ENTRY_BYTES = 8 + 8;
+    public static final int FOOTER_BYTES = 8 + 4 + 4;
+    public static final int DEFAULT_INDEX_INTERVAL = 256;
+
+    // Registros por escritura al canal
+    private static final int WRITE_BATCH_RECORDS = 256;
+
+    private final int queueCapacity;
+    private final int indexInterval;
+    private final long flushIntervalNanos;
+    private final Consumer<String> log;
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(WRITE_BATCH_RECORDS * RECORD_BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer header = ByteBuffer.allocate(Math.max(HEADER_BYTES, FOOTER_BYTES))
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private final FaceRecordQueue.Sink sink = this::append;
+
+    private volatile Session session;
+    private volatile long written;
+    private volatile long outOfOrder;
+    private volatile long droppedBefore;
+    private volatile Thread thread;
+
+    // Estado del hilo escritor; los hilos de grabaciones sucesivas no se solapan
+    private Session active;
+    private boolean headerAnchored;
+    private FileChannel channel;
+    private long recordCount;
+    private long lastTimestampNanos;
+    private long[] indexEntries = new long[64];
+    private int indexSize;
+
+    public FaceTrackWriter(int queueCapacity, int indexInterval, long flushIntervalMillis,
+                           Consumer<String> log) {
+        if (indexInterval <= 0) {
+            throw new IllegalArgumentException("Intervalo de índice inválido: " + indexInterval);
+        }
+        this.queueCapacity = queueCapacity;
+        this.indexInterval = indexInterval;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.log = log;
+    }
+
+    /**
+     * Empieza un fichero nuevo sin esperar: si el anterior aún se está cerrando, es el
+     * hilo escritor nuevo quien espera a que termine. Llamar desde un solo hilo (el
+     * principal).
+     */
+    public synchronized void start(File file) {
+        stop();
+        Session previous = session;
+        if (previous != null) {
+            droppedBefore += previous.queue.getDroppedFrameCount();
+        }
+        Thread previousThread = thread;
+        Session next = new Session(file, new FaceRecordQueue(queueCapacity));
+        session = next;
+        thread = new Thread(() -> run(next, previousThread), "face-track-writer");
+        thread.start();
+    }
+
+    /** Deja de admitir fotogramas; el hilo escribe lo pendiente y cierra el fichero. */
+    public void stop() {
+        Session s = session;
+        if (s != null) {
+            s.recording = false;
+        }
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t == null) {
+            return true;
+        }
+        t.join(timeoutMillis);
+        return !t.isAlive();
+    }
+
+    public boolean isRecording() {
+        Session s = session;
+        return s != null && s.recording;
+    }
+
+    /** Publica los rostros del fotograma; no bloquea ni reserva memoria. */
+    public boolean offer(FaceResult result) {
+        Session s = session;
+        if (s == null || !s.recording) {
+            return false;
+        }
+        if (!s.anchored) {
+            s.anchor(result.getTimestampNanos());
+        }
+        return s.queue.offer(result);
+    }
+
+    private void run(Session s, Thread previous) {
+        if (previous != null) {
+            try {
+                previous.join();
+            } catch (InterruptedException e) {
+                s.recording = false;
+                log.accept("Interrumpido antes de escribir " + s.file);
+                return;
+            }
+        }
+        active = s;
+        headerAnchored = false;
+        recordCount = 0;
+        lastTimestampNanos = Long.MIN_VALUE;
+        indexSize = 0;
+        try {
+            // FileOutputStream: java.nio.file requiere API 26
+            channel = new FileOutputStream(s.file).getChannel();
+            writeHeader();
+            while (s.recording) {
+                drainAll();
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+            drainAll();
+            writeIndex();
+        } catch (IOException e) {
+            // Sin fichero no tiene sentido seguir encolando
+            s.recording = false;
+            log.accept("No se pudo escribir " + s.file + ": " + e.getMessage());
+        } finally {
+            closeChannel();
+            active = null;
+        }
+    }
+
+    private void drainAll() throws IOException {
+        // El ancla se fija antes de encolar el primer fotograma: ya es visible aquí
+        if (!headerAnchored && active.anchored) {
+            writeHeader();
+        }
+        FaceRecordQueue queue = active.queue;
+        while (queue.drain(sink, WRITE_BATCH_RECORDS - batch.position() / RECORD_BYTES) > 0) {
+            if (!batch.hasRemaining()) {
+                flushBatch();
+            }
+        }
+        flushBatch();
+    }
+
+    private void append(long timestampNanos, int trackingId, float left, float top,
+                        float right, float bottom, int source) {
+        if (timestampNanos < lastTimestampNanos) {
+            outOfOrder++;
+            return;
+        }
+        lastTimestampNanos = timestampNanos;
+        if (recordCount % indexInterval == 0) {
+            addIndexEntry(timestampNanos, recordCount);
+        }
+        batch.putLong(timestampNanos);
+        batch.putInt(trackingId);
+        batch.putFloat(left);
+        batch.putFloat(top);
+        batch.putFloat(right);
+        batch.putFloat(bottom);
+        batch.putInt(source);
+        recordCount++;
+    }
+
+    private void addIndexEntry(long timestampNanos, long recordIndex) {
+        if (indexSize * 2 + 2 > indexEntries.length) {
+            indexEntries = Arrays.copyOf(indexEntries, indexEntries.length * 2);
+        }
+        indexEntries[indexSize * 2] = timestampNanos;
+        indexEntries[indexSize * 2 + 1] = recordIndex;
+        indexSize++;
+    }
+
+    private void flushBatch() throws IOException {
+        int records = batch.position() / RECORD_BYTES;
+        batch.flip();
+        writeRaw(batch);
+        written += records;
+    }
+
+    // Al abrir, sin ancla si aún no hay fotogramas; se reescribe en su sitio al llegar
+    private void writeHeader() throws IOException {
+        long wallMillis;
+        long sensorNanos;
+        synchronized (active) {
+            headerAnchored = active.anchored;
+            wallMillis = headerAnchored ? active.anchorWallMillis : System.currentTimeMillis();
+            sensorNanos = headerAnchored ? active.anchorSensorNanos : NO_SENSOR_ANCHOR;
+        }
+        header.clear();
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(RECORD_BYTES);
+        header.putInt(indexInterval);
+        header.putLong(wallMillis);
+        header.putLong(sensorNanos);
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        header.clear();
+        if (channel.position() < HEADER_BYTES) {
+            channel.position(HEADER_BYTES);
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        long indexOffset = HEADER_BYTES + recordCount * RECORD_BYTES;
+        for (int i = 0; i < indexSize; i++) {
+            if (!batch.hasRemaining()) {
+                batch.flip();
+                writeRaw(batch);
+            }
+            batch.putLong(indexEntries[i * 2]);
+            batch.putLong(indexEntries[i * 2 + 1]);
+        }
+        batch.flip();
+        writeRaw(batch);
+        header.clear();
+        header.putLong(indexOffset);
+        header.putInt(indexSize);
+        header.putInt(FOOTER_MAGIC);
+        writeFully(header);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeRaw(buffer);
+    }
+
+    private void writeRaw(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nada más que hacer al cerrar
+            }
+            channel = null;
+        }
+    }
+
+    public long getWrittenCount() {
+        return written;
+    }
+
+    // Fotogramas descartados por cola llena, sumando todas las grabaciones
+    public long getDroppedFrameCount() {
+        Session s = session;
+        return droppedBefore + (s != null ? s.queue.getDroppedFrameCount() : 0);
+    }
+
+    // Registros descartados por llegar con una marca de tiempo anterior a la última
+    public long getOutOfOrderCount() {
+        return outOfOrder;
+    }
+
+    // Una grabación: su fichero, su cola y el ancla entre reloj de pared y del sensor
+    private static final class Session {
+        final File file;
+        final FaceRecordQueue queue;
+        volatile boolean recording = true;
+        volatile boolean anchored;
+        long anchorWallMillis;
+        long anchorSensorNanos;
+
+        Session(File file, FaceRecordQueue queue) {
+            this.file = file;
+            this.queue = queue;
+        }
+
+        // Solo el primer fotograma ofrecido; los productores pueden ser varios
+        synchronized void anchor(long sensorNanos) {
+            if (!anchored) {
+                anchorWallMillis = System.currentTimeMillis();
+                anchorSensorNanos = sensorNanos;
+                anchored = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.camerax;
+
+import java.util.function.Consumer;
+
+/**
+ * Reparte un número acotado de trabajadores entre varios flujos de fotogramas (p. ej.
+ * la cámara trasera y la frontal en el modo dual) con turno rotatorio.
+ *
+ * <p>Cada flujo tiene un único hueco pendiente que guarda solo el fotograma más
+ * reciente: si llega otro antes de despacharlo, el anterior se entrega a
+ * {@code dropper} y cuenta como sustituido. Cada flujo tiene como mucho un fotograma
+ * en curso y en total hay como mucho {@code maxConcurrent}. Al quedar libre un
+ * trabajador se despacha el siguiente flujo con fotograma pendiente a partir del
+ * último servido, de modo que un flujo rápido no deja sin turno a uno lento: la
+ * espera de un fotograma pendiente está acotada por una ronda de trabajos.
+ *
+ * <p>{@link #offer(int, Object)} puede llamarse desde varios hilos; la finalización
+ * puede llegar desde cualquier hilo, también de forma síncrona dentro de
+ * {@link Worker#process}. El trabajador se invoca siempre fuera del cerrojo.
+ */
+public final class FairStreamScheduler<F> {
+
+    /** Trabajo asíncrono; debe invocar {@code onComplete} exactamente una vez. */
+    public interface Worker<F> {
+        void process(int stream, F frame, Runnable onComplete);
+    }
+
+    private final Worker<F> worker;
+    private final Consumer<F> dropper;
+    private final Clock clock;
+    private final int maxConcurrent;
+
+    // Estado por flujo, protegido por 'this'
+    private final Object[] pending;
+    private final long[] pendingSinceNanos;
+    private final boolean[] busy;
+    private final Runnable[] completions;
+    private int inFlight;
+    private int nextStream;
+    private int peakInFlight;
+
+    private final long[] offered;
+    private final long[] replaced;
+    private final long[] dispatched;
+    private final long[] completed;
+    private final long[] maxWaitNanos;
+
+    public FairStreamScheduler(int streamCount, int maxConcurrent, Worker<F> worker,
+                               Consumer<F> dropper, Clock clock) {
+        if (streamCount <= 0) {
+            throw new IllegalArgumentException("streamCount debe ser positivo: " + streamCount);
+        }
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent debe ser positivo: " + maxConcurrent);
+        }
+        this.worker = worker;
+        this.dropper = dropper;
+        this.clock = clock;
+        this.maxConcurrent = maxConcurrent;
+        pending = new Object[streamCount];
+        pendingSinceNanos = new long[streamCount];
+        busy = new boolean[streamCount];
+        completions = new Runnable[streamCount];
+        for (int i = 0; i < streamCount; i++) {
+            int stream = i;
+            completions[i] = () -> onComplete(stream);
+        }
+        offered = new long[streamCount];
+        replaced = new long[streamCount];
+        dispatched = new long[streamCount];
+        completed = new long[streamCount];
+        maxWaitNanos = new long[streamCount];
+    }
+
+    /** Deja el fotograma en el hueco del flujo; el planificador pasa a ser su dueño. */
+    public void offer(int stream, F frame) {
+        F previous;
+        synchronized (this) {
+            offered[stream]++;
+            previous = takePending(stream);
+            if (previous != null) {
+                replaced[stream]++;
+            }
+            pending[stream] = frame;
+            pendingSinceNanos[stream] = clock.nanoTime();
+        }
+        if (previous != null) {
+            dropper.accept(previous);
+        }
+        dispatch();
+    }
+
+    /** Suelta los fotogramas pendientes de todos los flujos; los que están en curso siguen. */
+    public void clear() {
+        for (int stream = 0; stream < pending.length; stream++) {
+            F previous;
+            synchronized (this) {
+                previous = takePending(stream);
+            }
+            if (previous != null) {
+                dropper.accept(previous);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private F takePending(int stream) {
+        F frame = (F) pending[stream];
+        pending[stream] = null;
+        return frame;
+    }
+
+    private void onComplete(int stream) {
+        synchronized (this) {
+            busy[stream] = false;
+            inFlight--;
+            completed[stream]++;
+        }
+        dispatch();
+    }
+
+    // Despacha mientras haya trabajadores libres y flujos con fotograma pendiente
+    private void dispatch() {
+        while (true) {
+            int stream;
+            F frame;
+            synchronized (this) {
+                if (inFlight >= maxConcurrent) {
+                    return;
+                }
+                stream = nextReadyStream();
+                if (stream < 0) {
+                    return;
+                }
+                frame = takePending(stream);
+                busy[stream] = true;
+                inFlight++;
+                peakInFlight = Math.max(peakInFlight, inFlight);
+                dispatched[stream]++;
+                maxWaitNanos[stream] = Math.max(maxWaitNanos[stream],
+                        clock.nanoTime() - pendingSinceNanos[stream]);
+                nextStream = (stream + 1) % pending.length;
+            }
+            worker.process(stream, frame, completions[stream]);
+        }
+    }
+
+    // Primer flujo libre con fotograma pendiente a partir del turno actual, o -1
+    private int nextReadyStream() {
+        for (int i = 0; i < pending.length; i++) {
+            int stream = (nextStream + i) % pending.length;
+            if (pending[stream] != null && !busy[stream]) {
+                return stream;
+            }
+        }
+        return -1;
+    }
+
+    public int getStreamCount() {
+        return pending.length;
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    public synchronized int getPeakInFlightCount() {
+        return peakInFlight;
+    }
+
+    public synchronized long getOfferedCount(int stream) {
+        return offered[stream];
+    }
+
+    public synchronized long getReplacedCount(int stream) {
+        return replaced[stream];
+    }
+
+    public synchronized long getDispatchedCount(int stream) {
+        return dispatched[stream];
+    }
+
+    public synchronized long getCompletedCount(int stream) {
+        return completed[stream];
+    }
+
+    // Mayor espera observada entre la llegada de un fotograma y su despacho
+    public synchronized long getMaxWaitNanos(int stream) {
+        return maxWaitNanos[stream];
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.camerax;
+
+/**
+ * Buffer de fotograma reutilizable. Contiene los bytes de una imagen en formato
+ * solo-luma o NV21 junto con sus dimensiones. Las instancias las entrega y recicla
+ * {@link FrameBufferPool}; no se deben conservar después de liberarlas.
+ */
+public final class FrameBuffer {
+    public static final int FORMAT_LUMA = 1;
+    public static final int FORMAT_NV21 = 2;
+
+    private byte[] data;
+    private int width;
+    private int height;
+    private int format;
+    private long timestampNanos;
+    private int rotationDegrees;
+
+    FrameBuffer(int size) {
+        data = new byte[size];
+    }
+
+    // Solo realoca si cambia el tamaño (p. ej. al cambiar de resolución)
+    void ensureSize(int size) {
+        if (data.length != size) {
+            data = new byte[size];
+        }
+    }
+
+    void setFormat(int width, int height, int format) {
+        this.width = width;
+        this.height = height;
+        this.format = format;
+    }
+
+    // Metadatos del fotograma original (marca de tiempo del sensor y rotación a aplicar)
+    public void setMetadata(long timestampNanos, int rotationDegrees) {
+        this.timestampNanos = timestampNanos;
+        this.rotationDegrees = rotationDegrees;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    // Tamaño en bytes de una imagen con el formato y dimensiones dados
+    public static int sizeOf(int width, int height, int format) {
+        int lumaSize = width * height;
+        return format == FORMAT_NV21 ? lumaSize + lumaSize / 2 : lumaSize;
+    }
+}
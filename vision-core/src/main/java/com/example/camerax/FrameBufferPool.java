@@ -0,0 +1,47 @@
+package com.example.camerax;
+
+/**
+ * Pool acotado de {@link FrameBuffer}. Una vez caliente, {@link #acquire(int)} y
+ * {@link #release(FrameBuffer)} no reservan memoria: los buffers se guardan en una
+ * pila de tamaño fijo y solo se crean nuevos cuando el pool está vacío.
+ */
+public final class FrameBufferPool {
+    private final FrameBuffer[] free;
+    private int freeCount;
+    private long misses;
+
+    public FrameBufferPool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity debe ser positiva: " + capacity);
+        }
+        free = new FrameBuffer[capacity];
+    }
+
+    // Devuelve un buffer de exactamente 'size' bytes
+    public synchronized FrameBuffer acquire(int size) {
+        if (freeCount == 0) {
+            misses++;
+            return new FrameBuffer(size);
+        }
+        FrameBuffer buffer = free[--freeCount];
+        free[freeCount] = null;
+        buffer.ensureSize(size);
+        return buffer;
+    }
+
+    // Los buffers que exceden la capacidad se descartan para el GC
+    public synchronized void release(FrameBuffer buffer) {
+        if (buffer != null && freeCount < free.length) {
+            free[freeCount++] = buffer;
+        }
+    }
+
+    public synchronized int getFreeCount() {
+        return freeCount;
+    }
+
+    // Número de veces que hubo que crear un buffer nuevo
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
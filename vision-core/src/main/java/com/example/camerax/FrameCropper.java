@@ -0,0 +1,51 @@
+package com.example.camerax;
+
+/**
+ * Recorta una región de un {@link FrameBuffer} NV21 o solo-luma a un buffer del
+ * pool. La región debe estar en coordenadas del buffer y, para NV21, alineada a
+ * píxeles pares (ver {@link RoiPlanner}).
+ */
+public final class FrameCropper {
+    private final FrameBufferPool pool;
+
+    public FrameCropper(FrameBufferPool pool) {
+        this.pool = pool;
+    }
+
+    public FrameBuffer crop(FrameBuffer source, int[] crop) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int format = source.getFormat();
+        int left = crop[0], top = crop[1];
+        int cropWidth = crop[2] - left;
+        int cropHeight = crop[3] - top;
+        if (left < 0 || top < 0 || crop[2] > width || crop[3] > height
+                || cropWidth <= 0 || cropHeight <= 0) {
+            throw new IllegalArgumentException("Recorte fuera del fotograma");
+        }
+        if (format == FrameBuffer.FORMAT_NV21
+                && ((left | top | cropWidth | cropHeight) & 1) != 0) {
+            throw new IllegalArgumentException("El recorte NV21 debe estar alineado a pares");
+        }
+
+        FrameBuffer target = pool.acquire(FrameBuffer.sizeOf(cropWidth, cropHeight, format));
+        target.setFormat(cropWidth, cropHeight, format);
+        target.setMetadata(source.getTimestampNanos(), source.getRotationDegrees());
+        byte[] src = source.getData();
+        byte[] dst = target.getData();
+
+        for (int row = 0; row < cropHeight; row++) {
+            System.arraycopy(src, (top + row) * width + left, dst, row * cropWidth, cropWidth);
+        }
+        if (format == FrameBuffer.FORMAT_NV21) {
+            // Cada fila de croma VU ocupa 'width' bytes y cubre dos filas de luma
+            int srcChroma = width * height;
+            int dstChroma = cropWidth * cropHeight;
+            for (int row = 0; row < cropHeight / 2; row++) {
+                System.arraycopy(src, srcChroma + (top / 2 + row) * width + left,
+                        dst, dstChroma + row * cropWidth, cropWidth);
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.camerax;
+
+/**
+ * Infiere fotogramas perdidos (p. ej. descartados por
+ * {@code STRATEGY_KEEP_ONLY_LATEST}) a partir de huecos entre marcas de tiempo del
+ * sensor. El intervalo esperado es una media exponencial de los intervalos
+ * normales; un hueco de más de 1,5 intervalos cuenta como
+ * {@code round(hueco / intervalo) - 1} fotogramas perdidos.
+ *
+ * <p>Un cambio sostenido de la tasa (p. ej. la exposición automática baja de 30 a
+ * 15 fps con poca luz) haría que cada intervalo pareciera un hueco. Por eso se guarda
+ * la mediana de los últimos {@value #WINDOW} intervalos: si supera 1,5 veces el
+ * intervalo esperado, la tasa cambió y la mediana pasa a ser la nueva referencia; los
+ * huecos de la ventana se vuelven a contar contra ella, de modo que la transición no
+ * deja pérdidas fantasma en {@link #getDroppedCount()}. Una bajada de la tasa la
+ * absorbe la media exponencial, porque intervalos más cortos nunca son huecos.
+ *
+ * <p>Un único hilo llama a {@link #onFrame(long)} y {@link #reset()}; desde otros
+ * hilos, {@link #requestReset()} lo aplaza al siguiente fotograma. Los contadores
+ * pueden leerse desde cualquiera.
+ */
+public final class FrameDropDetector {
+    private static final double GAP_RATIO = 1.5;
+    private static final double SMOOTHING = 0.1;
+    static final int WINDOW = 15;
+
+    private long lastTimestampNanos = Long.MIN_VALUE;
+    private double expectedIntervalNanos;
+    // Ventana circular de intervalos y de las pérdidas contadas por cada uno
+    private final long[] intervals = new long[WINDOW];
+    private final int[] counted = new int[WINDOW];
+    private final long[] sorted = new long[WINDOW];
+    private int windowSize;
+    private int windowNext;
+    private volatile long frames;
+    private volatile long dropped;
+    private volatile long rebaselines;
+    private volatile boolean resetRequested;
+
+    /**
+     * Registra un fotograma y devuelve cuántos se perdieron desde el anterior. Al
+     * cambiar de referencia devuelve el recuento corregido de este intervalo.
+     */
+    public int onFrame(long timestampNanos) {
+        if (resetRequested) {
+            resetRequested = false;
+            reset();
+        }
+        frames++;
+        if (lastTimestampNanos == Long.MIN_VALUE) {
+            lastTimestampNanos = timestampNanos;
+            return 0;
+        }
+        long interval = timestampNanos - lastTimestampNanos;
+        lastTimestampNanos = timestampNanos;
+        if (interval <= 0) {
+            return 0;
+        }
+        if (expectedIntervalNanos == 0) {
+            expectedIntervalNanos = interval;
+            remember(interval, 0);
+            return 0;
+        }
+        int missing = missing(interval, expectedIntervalNanos);
+        int slot = remember(interval, missing);
+        if (missing == 0) {
+            expectedIntervalNanos += SMOOTHING * (interval - expectedIntervalNanos);
+            return 0;
+        }
+        dropped += missing;
+        if (windowSize == WINDOW) {
+            long median = median();
+            if (median > expectedIntervalNanos * GAP_RATIO) {
+                rebaseline(median);
+                return counted[slot];
+            }
+        }
+        return missing;
+    }
+
+    private static int missing(long interval, double expected) {
+        if (interval <= expected * GAP_RATIO) {
+            return 0;
+        }
+        return (int) Math.round(interval / expected) - 1;
+    }
+
+    private int remember(long interval, int missing) {
+        int slot = windowNext;
+        intervals[slot] = interval;
+        counted[slot] = missing;
+        windowNext = (slot + 1) % WINDOW;
+        windowSize = Math.min(windowSize + 1, WINDOW);
+        return slot;
+    }
+
+    // Mediana de la ventana llena; ordenación por inserción sobre una copia reutilizada
+    private long median() {
+        for (int i = 0; i < WINDOW; i++) {
+            long value = intervals[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j] > value) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = value;
+        }
+        return sorted[WINDOW / 2];
+    }
+
+    // Nueva referencia: las pérdidas de la ventana se recuentan contra ella
+    private void rebaseline(long median) {
+        long correction = 0;
+        for (int i = 0; i < WINDOW; i++) {
+            int recount = missing(intervals[i], median);
+            correction += recount - counted[i];
+            counted[i] = recount;
+        }
+        dropped += correction;
+        expectedIntervalNanos = median;
+        rebaselines++;
+    }
+
+    public void reset() {
+        lastTimestampNanos = Long.MIN_VALUE;
+        expectedIntervalNanos = 0;
+        windowSize = 0;
+        windowNext = 0;
+    }
+
+    /**
+     * Olvida la referencia en el próximo {@link #onFrame(long)}, p. ej. al aplicar un
+     * nivel de calidad nuevo: la tasa y el hueco de la revinculación no son pérdidas.
+     */
+    public void requestReset() {
+        resetRequested = true;
+    }
+
+    public long getFrameCount() {
+        return frames;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    public long getExpectedIntervalNanos() {
+        return (long) expectedIntervalNanos;
+    }
+
+    // Veces que un cambio sostenido de la tasa movió la referencia
+    public long getRebaselineCount() {
+        return rebaselines;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.camerax;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Graba los fotogramas de análisis sin convertir en un contenedor que después
+ * reproduce {@link FrameReplaySource}.
+ *
+ * <p>En el hilo de análisis, {@link #record} solo copia los planos a uno de los
+ * buffers directos preasignados y lo entrega al hilo escritor; si no queda buffer
+ * libre el fotograma se descarta y se cuenta, de modo que grabar nunca frena al
+ * analizador más que una copia.
+ *
+ * <p>Formato (little-endian): cabecera de {@link #FILE_HEADER_BYTES} ({@code int}
+ * magia, {@code int} versión, {@code long} hora de pared en ms) y, por fotograma,
+ * una cabecera de {@link #FRAME_HEADER_BYTES} ({@code long} marca de tiempo del
+ * sensor en ns, {@code int} ancho, alto y rotación, {@code int} row y pixel stride
+ * de Y, {@code int} row y pixel stride de U/V, {@code int} bytes de Y, U y V)
+ * seguida de los bytes de los planos Y, U y V tal como los entregó la cámara,
+ * padding incluido.
+ */
+public final class FrameRecorder {
+    public static final int MAGIC = 0x534D5246; // "FRMS"
+    public static final int VERSION = 1;
+    public static final int FILE_HEADER_BYTES = 4 + 4 + 8;
+    public static final int FRAME_HEADER_BYTES = 8 + 10 * 4;
+
+    // Espera del escritor entre comprobaciones de parada
+    private static final long POLL_MILLIS = 50L;
+
+    private final ArrayBlockingQueue<ByteBuffer> freeBuffers;
+    private final ArrayBlockingQueue<ByteBuffer> filledBuffers;
+    private final Consumer<String> log;
+    private final ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+    private volatile boolean recording;
+    private volatile long recorded;
+    private volatile long dropped;
+    private volatile Thread thread;
+
+    public FrameRecorder(int bufferCount, Consumer<String> log) {
+        if (bufferCount <= 0) {
+            throw new IllegalArgumentException("Se necesita al menos un buffer");
+        }
+        freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        filledBuffers = new ArrayBlockingQueue<>(bufferCount);
+        // Los buffers crecen al tamaño del primer fotograma que reciben
+        for (int i = 0; i < bufferCount; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(0));
+        }
+        this.log = log;
+    }
+
+    /** Empieza un fichero nuevo; llamar desde un solo hilo. */
+    public synchronized void start(File file) throws InterruptedException {
+        if (recording) {
+            stop();
+        }
+        if (thread != null) {
+            thread.join();
+        }
+        // Buffers que se llenaron cuando el escritor anterior ya había terminado
+        filledBuffers.drainTo(freeBuffers);
+        recording = true;
+        thread = new Thread(() -> run(file), "frame-recorder");
+        thread.start();
+    }
+
+    /** Deja de admitir fotogramas; el hilo escribe lo pendiente y cierra el fichero. */
+    public void stop() {
+        recording = false;
+    }
+
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        Thread t = thread;
+        if (t == null) {
+            return true;
+        }
+        t.join(timeoutMillis);
+        return !t.isAlive();
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Copia el fotograma y lo encola para escribirlo; no bloquea. Los planos de
+     * {@code frame} no se modifican. Devuelve false si no se grabó.
+     */
+    public boolean record(RawFrame frame) {
+        if (!recording) {
+            return false;
+        }
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            dropped++;
+            return false;
+        }
+        ByteBuffer y = frame.getYPlane();
+        ByteBuffer u = frame.getUPlane();
+        ByteBuffer v = frame.getVPlane();
+        int needed = FRAME_HEADER_BYTES + y.remaining() + u.remaining() + v.remaining();
+        if (buffer.capacity() < needed) {
+            // Solo al principio o si cambia la resolución
+            buffer = ByteBuffer.allocateDirect(needed);
+        }
+        buffer.clear();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(frame.getTimestampNanos());
+        buffer.putInt(frame.getWidth());
+        buffer.putInt(frame.getHeight());
+        buffer.putInt(frame.getRotationDegrees());
+        buffer.putInt(frame.getYRowStride());
+        buffer.putInt(frame.getYPixelStride());
+        buffer.putInt(frame.getUvRowStride());
+        buffer.putInt(frame.getUvPixelStride());
+        buffer.putInt(y.remaining());
+        buffer.putInt(u.remaining());
+        buffer.putInt(v.remaining());
+        copyPlane(y, buffer);
+        copyPlane(u, buffer);
+        copyPlane(v, buffer);
+        buffer.flip();
+        filledBuffers.offer(buffer);
+        return true;
+    }
+
+    private static void copyPlane(ByteBuffer plane, ByteBuffer out) {
+        int position = plane.position();
+        out.put(plane);
+        plane.position(position);
+    }
+
+    private void run(File file) {
+        FileChannel channel = null;
+        try {
+            // FileOutputStream: java.nio.file requiere API 26
+            channel = new FileOutputStream(file).getChannel();
+            fileHeader.clear();
+            fileHeader.putInt(MAGIC);
+            fileHeader.putInt(VERSION);
+            fileHeader.putLong(System.currentTimeMillis());
+            fileHeader.flip();
+            writeFully(channel, fileHeader);
+            while (true) {
+                ByteBuffer buffer = filledBuffers.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (buffer == null) {
+                    if (!recording) {
+                        break;
+                    }
+                    continue;
+                }
+                try {
+                    writeFully(channel, buffer);
+                    recorded++;
+                } finally {
+                    freeBuffers.offer(buffer);
+                }
+            }
+        } catch (IOException e) {
+            recording = false;
+            log.accept("No se pudieron grabar fotogramas en " + file + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            recording = false;
+            Thread.currentThread().interrupt();
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Nada más que hacer al cerrar
+                }
+            }
+            filledBuffers.drainTo(freeBuffers);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public long getRecordedCount() {
+        return recorded;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+}
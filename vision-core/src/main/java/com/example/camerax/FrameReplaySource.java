@@ -0,0 +1,178 @@
+package com.example.camerax;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reproduce un contenedor de {@link FrameRecorder}.
+ *
+ * <p>Al abrir se leen solo las cabeceras de los fotogramas y el fichero se proyecta
+ * en memoria por segmentos de como mucho {@link #MAX_SEGMENT_BYTES}, cortados en
+ * límites de fotograma. Cada plano es una vista de la proyección creada al abrir,
+ * así que {@link #next} no copia ni reserva memoria. Con {@code preload} las páginas
+ * se cargan al abrir para que la E/S de disco no se mezcle con las mediciones. Un
+ * último fotograma incompleto (grabación interrumpida) se ignora.
+ */
+public final class FrameReplaySource implements FrameSource {
+    public static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final RandomAccessFile file;
+    private final int frameCount;
+    private final long[] timestamps;
+    // 7 enteros por fotograma: ancho, alto, rotación y los cuatro strides
+    private final int[] geometry;
+    private final ByteBuffer[] yPlanes;
+    private final ByteBuffer[] uPlanes;
+    private final ByteBuffer[] vPlanes;
+    private int next;
+
+    public FrameReplaySource(File path, boolean preload) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long length = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(FrameRecorder.FRAME_HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            readAt(channel, header, 0, FrameRecorder.FILE_HEADER_BYTES);
+            if (header.getInt(0) != FrameRecorder.MAGIC) {
+                throw new IOException("No es un contenedor de fotogramas: " + path);
+            }
+            if (header.getInt(4) != FrameRecorder.VERSION) {
+                throw new IOException("Versión no soportada: " + header.getInt(4));
+            }
+
+            // Primera pasada: cabeceras y posición de cada fotograma
+            int capacity = 64;
+            long[] offsets = new long[capacity];
+            long[] stamps = new long[capacity];
+            int[] geo = new int[capacity * 7];
+            int[] sizes = new int[capacity * 3];
+            int count = 0;
+            long position = FrameRecorder.FILE_HEADER_BYTES;
+            while (position + FrameRecorder.FRAME_HEADER_BYTES <= length) {
+                readAt(channel, header, position, FrameRecorder.FRAME_HEADER_BYTES);
+                long planeBytes = (long) header.getInt(36) + header.getInt(40) + header.getInt(44);
+                long recordBytes = FrameRecorder.FRAME_HEADER_BYTES + planeBytes;
+                if (position + recordBytes > length) {
+                    break;
+                }
+                if (recordBytes > MAX_SEGMENT_BYTES) {
+                    throw new IOException("Fotograma demasiado grande: " + recordBytes + " bytes");
+                }
+                if (count == capacity) {
+                    capacity *= 2;
+                    offsets = Arrays.copyOf(offsets, capacity);
+                    stamps = Arrays.copyOf(stamps, capacity);
+                    geo = Arrays.copyOf(geo, capacity * 7);
+                    sizes = Arrays.copyOf(sizes, capacity * 3);
+                }
+                offsets[count] = position;
+                stamps[count] = header.getLong(0);
+                for (int i = 0; i < 7; i++) {
+                    geo[count * 7 + i] = header.getInt(8 + i * 4);
+                }
+                for (int i = 0; i < 3; i++) {
+                    sizes[count * 3 + i] = header.getInt(36 + i * 4);
+                }
+                count++;
+                position += recordBytes;
+            }
+
+            frameCount = count;
+            timestamps = Arrays.copyOf(stamps, count);
+            geometry = Arrays.copyOf(geo, count * 7);
+            yPlanes = new ByteBuffer[count];
+            uPlanes = new ByteBuffer[count];
+            vPlanes = new ByteBuffer[count];
+
+            // Segunda pasada: proyectar por segmentos y crear las vistas de los planos
+            int first = 0;
+            while (first < count) {
+                long segmentStart = offsets[first];
+                int last = first;
+                while (last + 1 < count
+                        && recordEnd(offsets, sizes, last + 1) - segmentStart <= MAX_SEGMENT_BYTES) {
+                    last++;
+                }
+                long segmentEnd = recordEnd(offsets, sizes, last);
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                        segmentStart, segmentEnd - segmentStart);
+                if (preload) {
+                    segment.load();
+                }
+                for (int i = first; i <= last; i++) {
+                    int planeStart = (int) (offsets[i] - segmentStart) + FrameRecorder.FRAME_HEADER_BYTES;
+                    int ySize = sizes[i * 3];
+                    int uSize = sizes[i * 3 + 1];
+                    int vSize = sizes[i * 3 + 2];
+                    yPlanes[i] = slice(segment, planeStart, ySize);
+                    uPlanes[i] = slice(segment, planeStart + ySize, uSize);
+                    vPlanes[i] = slice(segment, planeStart + ySize + uSize, vSize);
+                }
+                first = last + 1;
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static long recordEnd(long[] offsets, int[] sizes, int frame) {
+        return offsets[frame] + FrameRecorder.FRAME_HEADER_BYTES
+                + sizes[frame * 3] + sizes[frame * 3 + 1] + sizes[frame * 3 + 2];
+    }
+
+    private static ByteBuffer slice(ByteBuffer segment, int start, int size) {
+        ByteBuffer view = segment.duplicate();
+        view.limit(start + size).position(start);
+        return view.slice();
+    }
+
+    private static void readAt(FileChannel channel, ByteBuffer buffer, long position, int bytes)
+            throws IOException {
+        buffer.clear().limit(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Fin de fichero inesperado");
+            }
+        }
+    }
+
+    @Override
+    public boolean next(RawFrame frame) {
+        if (next >= frameCount) {
+            return false;
+        }
+        int i = next++;
+        int g = i * 7;
+        frame.set(yPlanes[i], geometry[g + 3], geometry[g + 4],
+                uPlanes[i], vPlanes[i], geometry[g + 5], geometry[g + 6],
+                geometry[g], geometry[g + 1], geometry[g + 2], timestamps[i]);
+        return true;
+    }
+
+    // Vuelve al primer fotograma, p. ej. para repetir una medición
+    public void rewind() {
+        next = 0;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public long getTimestampNanos(int frame) {
+        return timestamps[frame];
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Las proyecciones siguen válidas hasta que las recoja el GC
+        file.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.camerax;
+
+/**
+ * Resultados combinados de todas las etapas para un fotograma. Las instancias se
+ * reciclan: solo son válidas durante la llamada a
+ * {@link AnalysisPipeline.Listener#onFrameResult(FrameResult)}.
+ */
+public final class FrameResult {
+    private final Object[] results;
+    private final boolean[] skipped;
+    private long timestampNanos;
+
+    FrameResult(int stageCount) {
+        results = new Object[stageCount];
+        skipped = new boolean[stageCount];
+    }
+
+    void reset(long timestampNanos) {
+        this.timestampNanos = timestampNanos;
+        for (int i = 0; i < results.length; i++) {
+            results[i] = null;
+            skipped[i] = false;
+        }
+    }
+
+    void set(int stageIndex, Object result) {
+        results[stageIndex] = result;
+    }
+
+    void markSkipped(int stageIndex) {
+        skipped[stageIndex] = true;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    // Resultado de la etapa, o null si se omitió o falló
+    @SuppressWarnings("unchecked")
+    public <R> R get(AnalysisPipeline.StageKey<R> key) {
+        return (R) results[key.index];
+    }
+
+    public boolean isSkipped(AnalysisPipeline.StageKey<?> key) {
+        return skipped[key.index];
+    }
+}
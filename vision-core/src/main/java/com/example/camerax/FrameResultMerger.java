@@ -0,0 +1,60 @@
+package com.example.camerax;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Traduce el {@link FrameResult} de cada fotograma a lo que necesita la app: los
+ * rostros del fotograma, el conteo actual y si aparecieron rostros tras una escena
+ * vacía.
+ *
+ * <p>El pipeline puede completar fotogramas en varios hilos a la vez; el paso de
+ * "sin rostros" a "con rostros" se decide con un único {@code getAndSet}, así que
+ * solo uno de ellos lo notifica.
+ */
+public final class FrameResultMerger {
+
+    /** Recibe los rostros de cada fotograma; {@code faces} se recicla al volver. */
+    public interface Listener {
+        void onFaces(FaceResult faces, boolean appeared);
+    }
+
+    private final AnalysisPipeline.StageKey<FaceResult> faceKey;
+    private final Listener listener;
+    private final AtomicInteger faceCount = new AtomicInteger();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public FrameResultMerger(AnalysisPipeline.StageKey<FaceResult> faceKey, Listener listener) {
+        this.faceKey = faceKey;
+        this.listener = listener;
+    }
+
+    /**
+     * Para usar como {@link AnalysisPipeline.Listener}. Devuelve false si la etapa de
+     * rostros no produjo resultado (seguía ocupada con un fotograma anterior).
+     */
+    public boolean merge(FrameResult result) {
+        FaceResult faces = result.get(faceKey);
+        if (faces == null) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        int count = faces.getCount();
+        int previous = faceCount.getAndSet(count);
+        listener.onFaces(faces, count > 0 && previous == 0);
+        return true;
+    }
+
+    // Rostros del último fotograma combinado; se puede leer desde cualquier hilo
+    public int getFaceCount() {
+        return faceCount.get();
+    }
+
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    public void reset() {
+        faceCount.set(0);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.camerax;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Planificador entre el analizador de CameraX y el detector de rostros.
+ *
+ * <p>Admite como mucho una detección en curso y un fotograma por intervalo de la
+ * tasa objetivo; el resto se descarta para que el productor libere el fotograma de
+ * inmediato. Mide la latencia de cada detección con una ventana móvil y, si la
+ * media supera el presupuesto de tiempo por fotograma, cambia al modo rápido.
+ * Tras un tiempo en modo rápido con holgura vuelve a probar el modo preciso.
+ * {@link #setFastOnly(boolean)} impone el modo rápido desde fuera (p. ej. por
+ * temperatura); al liberarlo, el modo preciso vuelve por la misma prueba.
+ *
+ * <p>{@link #offer(Object)} se llama desde el hilo de análisis; la finalización
+ * puede llegar desde cualquier hilo.
+ */
+public final class FrameScheduler<F> {
+    public static final int MODE_ACCURATE = 0;
+    public static final int MODE_FAST = 1;
+
+    // Fracción del presupuesto por debajo de la cual el modo rápido va sobrado
+    private static final double FAST_HEADROOM_RATIO = 0.5;
+    private static final long DEFAULT_PROBE_INTERVAL_NANOS = 5_000_000_000L;
+
+    /**
+     * Detector asíncrono; debe invocar {@code onComplete} exactamente una vez, salvo si
+     * lanza una excepción al llamarlo, en cuyo caso no debe invocarlo.
+     */
+    public interface Detector<F> {
+        void detect(F frame, int mode, Runnable onComplete);
+    }
+
+    private final Detector<F> detector;
+    private final Clock clock;
+    private final long frameIntervalNanos;
+    private final long probeIntervalNanos;
+    private final LatencyWindow latencies;
+    private final AtomicBoolean inFlight = new AtomicBoolean();
+    private final Runnable completion = this::onDetectionComplete;
+
+    private volatile int mode = MODE_ACCURATE;
+    private volatile boolean fastOnly;
+    private long lastAdmitNanos = Long.MIN_VALUE;
+    private long detectionStartNanos;
+    private long modeSinceNanos;
+
+    private volatile long admitted;
+    private volatile long skippedBusy;
+    private volatile long skippedBudget;
+    private volatile long failed;
+    private volatile long lastLatencyNanos;
+    private volatile long averageLatencyNanos;
+
+    public FrameScheduler(Detector<F> detector, Clock clock, int targetFps, int windowSize) {
+        this(detector, clock, targetFps, windowSize, DEFAULT_PROBE_INTERVAL_NANOS);
+    }
+
+    public FrameScheduler(Detector<F> detector, Clock clock, int targetFps, int windowSize,
+                          long probeIntervalNanos) {
+        if (targetFps <= 0) {
+            throw new IllegalArgumentException("targetFps debe ser positivo: " + targetFps);
+        }
+        this.detector = detector;
+        this.clock = clock;
+        this.frameIntervalNanos = 1_000_000_000L / targetFps;
+        this.probeIntervalNanos = probeIntervalNanos;
+        this.latencies = new LatencyWindow(windowSize);
+        this.modeSinceNanos = clock.nanoTime();
+    }
+
+    /**
+     * Ofrece un fotograma al detector. Devuelve false si se descarta o si el detector
+     * falla al lanzarse, en cuyo caso el llamador sigue siendo dueño del fotograma y
+     * debe liberarlo.
+     */
+    public boolean offer(F frame) {
+        long now = clock.nanoTime();
+        if (lastAdmitNanos != Long.MIN_VALUE && now - lastAdmitNanos < frameIntervalNanos) {
+            skippedBudget++;
+            return false;
+        }
+        if (!inFlight.compareAndSet(false, true)) {
+            skippedBusy++;
+            return false;
+        }
+        lastAdmitNanos = now;
+        detectionStartNanos = now;
+        admitted++;
+        try {
+            detector.detect(frame, fastOnly ? MODE_FAST : mode, completion);
+        } catch (RuntimeException e) {
+            // Sin finalización no volvería a admitirse ninguna detección
+            failed++;
+            inFlight.set(false);
+            return false;
+        }
+        return true;
+    }
+
+    private void onDetectionComplete() {
+        long now = clock.nanoTime();
+        long latency = now - detectionStartNanos;
+        lastLatencyNanos = latency;
+        latencies.add(latency);
+        averageLatencyNanos = latencies.average();
+        updateMode(now);
+        inFlight.set(false);
+    }
+
+    private void updateMode(long now) {
+        if (fastOnly) {
+            if (mode != MODE_FAST) {
+                switchMode(MODE_FAST, now);
+            }
+            return;
+        }
+        if (!latencies.isFull()) {
+            return;
+        }
+        long average = latencies.average();
+        if (mode == MODE_ACCURATE && average > frameIntervalNanos) {
+            switchMode(MODE_FAST, now);
+        } else if (mode == MODE_FAST
+                && now - modeSinceNanos >= probeIntervalNanos
+                && average < frameIntervalNanos * FAST_HEADROOM_RATIO) {
+            switchMode(MODE_ACCURATE, now);
+        }
+    }
+
+    private void switchMode(int newMode, long now) {
+        mode = newMode;
+        modeSinceNanos = now;
+        // Las latencias del modo anterior no sirven para evaluar el nuevo
+        latencies.clear();
+    }
+
+    public int getMode() {
+        return fastOnly ? MODE_FAST : mode;
+    }
+
+    public void setFastOnly(boolean fastOnly) {
+        this.fastOnly = fastOnly;
+    }
+
+    public boolean isFastOnly() {
+        return fastOnly;
+    }
+
+    public boolean isBusy() {
+        return inFlight.get();
+    }
+
+    public long getFrameIntervalNanos() {
+        return frameIntervalNanos;
+    }
+
+    public long getAdmittedCount() {
+        return admitted;
+    }
+
+    public long getSkippedBusyCount() {
+        return skippedBusy;
+    }
+
+    public long getSkippedBudgetCount() {
+        return skippedBudget;
+    }
+
+    // Detecciones admitidas cuyo detector lanzó una excepción antes de empezar
+    public long getFailedCount() {
+        return failed;
+    }
+
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    // Media de la ventana de latencias; se mantiene al cambiar de modo hasta la siguiente medida
+    public long getAverageLatencyNanos() {
+        return averageLatencyNanos;
+    }
+}
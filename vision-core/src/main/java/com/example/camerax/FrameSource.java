@@ -0,0 +1,17 @@
+package com.example.camerax;
+
+import java.io.Closeable;
+
+/**
+ * Fuente de fotogramas sin cámara para reproducir el pipeline de análisis: un
+ * fichero grabado ({@link FrameReplaySource}) o fotogramas generados
+ * ({@link SyntheticFrameSource}).
+ */
+public interface FrameSource extends Closeable {
+
+    /**
+     * Rellena {@code frame} con el siguiente fotograma. Devuelve false al terminar.
+     * Los planos valen hasta la siguiente llamada.
+     */
+    boolean next(RawFrame frame);
+}
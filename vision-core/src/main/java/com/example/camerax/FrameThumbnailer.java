@@ -0,0 +1,106 @@
+package com.example.camerax;
+
+/**
+ * Miniatura ARGB derecha de un {@link FrameBuffer}, tomando un píxel de cada
+ * {@code step} en cada eje y aplicando la rotación del fotograma al muestrear. Sirve
+ * para tener la miniatura de una captura nueva a partir del fotograma de análisis,
+ * sin decodificar la foto guardada. Reutiliza su array de salida.
+ */
+public final class FrameThumbnailer {
+    private final int[] pixels;
+    private int width;
+    private int height;
+
+    /** @param maxPixels tamaño del array de salida; limita el de la miniatura */
+    public FrameThumbnailer(int maxPixels) {
+        pixels = new int[maxPixels];
+    }
+
+    /**
+     * Convierte el fotograma a una miniatura cuyo lado menor es al menos
+     * {@code targetSize} (o el del fotograma, si es menor). Devuelve false si no cabe
+     * en el array de salida.
+     */
+    public boolean convert(FrameBuffer frame, int targetSize) {
+        int bufferWidth = frame.getWidth();
+        int bufferHeight = frame.getHeight();
+        int rotation = frame.getRotationDegrees();
+        int uprightWidth = RotationMath.uprightWidth(bufferWidth, bufferHeight, rotation);
+        int uprightHeight = RotationMath.uprightHeight(bufferWidth, bufferHeight, rotation);
+        int step = Math.max(1, Math.min(uprightWidth, uprightHeight) / targetSize);
+        int outWidth = uprightWidth / step;
+        int outHeight = uprightHeight / step;
+        if ((long) outWidth * outHeight > pixels.length) {
+            return false;
+        }
+        width = outWidth;
+        height = outHeight;
+
+        byte[] data = frame.getData();
+        boolean color = frame.getFormat() == FrameBuffer.FORMAT_NV21;
+        int chromaOffset = bufferWidth * bufferHeight;
+        int normalized = ((rotation % 360) + 360) % 360;
+        int out = 0;
+        for (int oy = 0; oy < outHeight; oy++) {
+            int uy = oy * step;
+            for (int ox = 0; ox < outWidth; ox++) {
+                int ux = ox * step;
+                int bx;
+                int by;
+                switch (normalized) {
+                    case 90:
+                        bx = uy;
+                        by = bufferHeight - 1 - ux;
+                        break;
+                    case 180:
+                        bx = bufferWidth - 1 - ux;
+                        by = bufferHeight - 1 - uy;
+                        break;
+                    case 270:
+                        bx = bufferWidth - 1 - uy;
+                        by = ux;
+                        break;
+                    default:
+                        bx = ux;
+                        by = uy;
+                        break;
+                }
+                int y = data[by * bufferWidth + bx] & 0xFF;
+                if (color) {
+                    int chroma = chromaOffset + (by >> 1) * bufferWidth + (bx & ~1);
+                    int v = (data[chroma] & 0xFF) - 128;
+                    int u = (data[chroma + 1] & 0xFF) - 128;
+                    pixels[out++] = argb(y, u, v);
+                } else {
+                    pixels[out++] = 0xFF000000 | (y << 16) | (y << 8) | y;
+                }
+            }
+        }
+        return true;
+    }
+
+    // BT.601 de rango completo en coma fija (x1024)
+    private static int argb(int y, int u, int v) {
+        int r = clamp(y + ((1436 * v) >> 10));
+        int g = clamp(y - ((352 * u + 731 * v) >> 10));
+        int b = clamp(y + ((1815 * u) >> 10));
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(value, 255);
+    }
+
+    // Válidos hasta la siguiente conversión
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.camerax;
+
+/**
+ * Nitidez de una región del plano Y como varianza del laplaciano de 4 vecinos. Un
+ * rostro movido o desenfocado tiene pocos bordes y su laplaciano se concentra en
+ * torno a cero; uno nítido da una varianza alta.
+ */
+public final class LaplacianSharpness {
+
+    private LaplacianSharpness() {
+    }
+
+    /**
+     * Varianza del laplaciano en el rectángulo [left, right) x [top, bottom) de un
+     * plano de luma de ancho {@code stride}, con los vecinos a {@code step} píxeles y
+     * una muestra de cada {@code step} en cada eje. Devuelve 0 si la región es
+     * demasiado pequeña para tener vecinos.
+     */
+    public static float variance(byte[] luma, int stride, int left, int top, int right,
+                                 int bottom, int step) {
+        if (step < 1) {
+            throw new IllegalArgumentException("step debe ser positivo: " + step);
+        }
+        long sum = 0;
+        long sumSquares = 0;
+        int samples = 0;
+        int rowStep = step * stride;
+        for (int y = top + step; y < bottom - step; y += step) {
+            int center = y * stride + left + step;
+            int end = y * stride + right - step;
+            for (; center < end; center += step) {
+                int laplacian = 4 * (luma[center] & 0xFF)
+                        - (luma[center - step] & 0xFF) - (luma[center + step] & 0xFF)
+                        - (luma[center - rowStep] & 0xFF) - (luma[center + rowStep] & 0xFF);
+                sum += laplacian;
+                sumSquares += laplacian * laplacian;
+                samples++;
+            }
+        }
+        if (samples == 0) {
+            return 0f;
+        }
+        double mean = (double) sum / samples;
+        return (float) ((double) sumSquares / samples - mean * mean);
+    }
+}
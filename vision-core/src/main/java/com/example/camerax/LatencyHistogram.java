@@ -0,0 +1,105 @@
+package com.example.camerax;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias con intervalos fijos y registro sin bloqueos.
+ *
+ * <p>Los límites crecen geométricamente (x1.3) desde 1 µs hasta ~15 s, lo que da un
+ * error relativo inferior al 30 % en los percentiles. Registrar solo toca contadores
+ * atómicos: no bloquea ni reserva memoria, por lo que puede usarse desde cualquier
+ * hilo del pipeline.
+ */
+public final class LatencyHistogram {
+    static final int BUCKET_COUNT = 64;
+    private static final double GROWTH = 1.3;
+    private static final long FIRST_BOUND_NANOS = 1_000L;
+    // Límite superior (exclusivo) de cada intervalo; el último recoge el desbordamiento
+    private static final long[] UPPER_BOUNDS = new long[BUCKET_COUNT];
+
+    static {
+        double bound = FIRST_BOUND_NANOS;
+        for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+            UPPER_BOUNDS[i] = (long) bound;
+            bound *= GROWTH;
+        }
+        UPPER_BOUNDS[BUCKET_COUNT - 1] = Long.MAX_VALUE;
+    }
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucketFor(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long currentMax;
+        while (nanos > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, nanos)) {
+                break;
+            }
+        }
+    }
+
+    static int bucketFor(long nanos) {
+        int low = 0;
+        int high = BUCKET_COUNT - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (nanos < UPPER_BOUNDS[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public long getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * Percentil aproximado (0 < p <= 100), como límite superior del intervalo que lo
+     * contiene acotado por el máximo observado. Devuelve 0 si no hay muestras.
+     */
+    public long percentileNanos(double p) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(p / 100.0 * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(UPPER_BOUNDS[i], max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.camerax;
+
+/**
+ * Media móvil de las últimas N latencias, en nanosegundos. Usa un anillo de
+ * {@code long} preasignado; no es thread-safe.
+ */
+public final class LatencyWindow {
+    private final long[] samples;
+    private int next;
+    private int count;
+    private long sum;
+
+    public LatencyWindow(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size debe ser positivo: " + size);
+        }
+        samples = new long[size];
+    }
+
+    public void add(long latencyNanos) {
+        if (count == samples.length) {
+            sum -= samples[next];
+        } else {
+            count++;
+        }
+        samples[next] = latencyNanos;
+        sum += latencyNanos;
+        next = (next + 1) % samples.length;
+    }
+
+    public long average() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isFull() {
+        return count == samples.length;
+    }
+
+    public void clear() {
+        next = 0;
+        count = 0;
+        sum = 0;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.camerax;
+
+/**
+ * Multiplexado en el tiempo de varias lentes para dispositivos sin cámaras
+ * concurrentes: una sola lente vinculada que rota cada {@code sliceNanos}.
+ *
+ * <p>{@link #tick()} se llama periódicamente desde el hilo principal y avisa al
+ * {@link Listener} cuando toca cambiar de lente para que la app la revincule. Tras
+ * cada cambio {@link #accept(int)} descarta durante {@code settleNanos} los
+ * fotogramas (exposición y enfoque aún convergiendo, o fotogramas rezagados de la
+ * lente anterior) y siempre los de una lente que no es la activa. El tiempo llega
+ * por {@link Clock}, de modo que la rotación se prueba en la JVM sin cámara.
+ */
+public final class LensMultiplexer {
+
+    /** Recibe cada cambio de lente activa; se invoca dentro de {@link #tick()}. */
+    public interface Listener {
+        void onLensSwitch(int previous, int current);
+    }
+
+    private final int lensCount;
+    private final long sliceNanos;
+    private final long settleNanos;
+    private final Clock clock;
+    private final Listener listener;
+
+    private volatile int activeLens;
+    private volatile long switchedAtNanos;
+
+    private volatile long switches;
+    private volatile long accepted;
+    private volatile long rejectedInactive;
+    private volatile long rejectedSettling;
+
+    public LensMultiplexer(int lensCount, long sliceNanos, long settleNanos, Clock clock,
+                           Listener listener) {
+        if (lensCount <= 0) {
+            throw new IllegalArgumentException("lensCount debe ser positivo: " + lensCount);
+        }
+        if (settleNanos >= sliceNanos) {
+            throw new IllegalArgumentException("La estabilización (" + settleNanos
+                    + " ns) debe ser menor que el turno (" + sliceNanos + " ns)");
+        }
+        this.lensCount = lensCount;
+        this.sliceNanos = sliceNanos;
+        this.settleNanos = settleNanos;
+        this.clock = clock;
+        this.listener = listener;
+        this.switchedAtNanos = clock.nanoTime();
+    }
+
+    /** Pasa a la siguiente lente si se agotó el turno. Devuelve la lente activa. */
+    public int tick() {
+        long now = clock.nanoTime();
+        int current = activeLens;
+        if (lensCount == 1 || now - switchedAtNanos < sliceNanos) {
+            return current;
+        }
+        int next = (current + 1) % lensCount;
+        activeLens = next;
+        switchedAtNanos = now;
+        switches++;
+        listener.onLensSwitch(current, next);
+        return next;
+    }
+
+    /** Vuelve a empezar el turno de la lente activa, p. ej. tras revincular la cámara. */
+    public void restartSlice() {
+        switchedAtNanos = clock.nanoTime();
+    }
+
+    /**
+     * Indica si un fotograma de {@code lens} debe analizarse. Se llama desde el hilo
+     * de análisis; si devuelve false el llamador lo libera.
+     */
+    public boolean accept(int lens) {
+        if (lens != activeLens) {
+            rejectedInactive++;
+            return false;
+        }
+        if (clock.nanoTime() - switchedAtNanos < settleNanos) {
+            rejectedSettling++;
+            return false;
+        }
+        accepted++;
+        return true;
+    }
+
+    public int getActiveLens() {
+        return activeLens;
+    }
+
+    public long getSwitchCount() {
+        return switches;
+    }
+
+    public long getAcceptedCount() {
+        return accepted;
+    }
+
+    public long getRejectedInactiveCount() {
+        return rejectedInactive;
+    }
+
+    public long getRejectedSettlingCount() {
+        return rejectedSettling;
+    }
+}
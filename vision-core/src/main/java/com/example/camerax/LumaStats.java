@@ -0,0 +1,68 @@
+package com.example.camerax;
+
+/**
+ * Estadísticas de brillo de un fotograma: media, histograma de luma y fracción de
+ * píxeles sub/sobreexpuestos. Las instancias las recicla {@link LumaStatsStage}.
+ */
+public final class LumaStats {
+    public static final int HISTOGRAM_BINS = 64;
+    // Niveles por debajo/encima de los cuales un píxel se considera sub/sobreexpuesto
+    private static final int UNDEREXPOSED_LEVEL = 16;
+    private static final int OVEREXPOSED_LEVEL = 240;
+
+    private final int[] histogram = new int[HISTOGRAM_BINS];
+    private float mean;
+    private float underexposedFraction;
+    private float overexposedFraction;
+    private long timestampNanos;
+
+    // Calcula las estadísticas sobre una muestra de cada 'step' píxeles del plano Y
+    void compute(byte[] luma, int width, int height, int step, long timestampNanos) {
+        this.timestampNanos = timestampNanos;
+        for (int i = 0; i < HISTOGRAM_BINS; i++) {
+            histogram[i] = 0;
+        }
+        long sum = 0;
+        int samples = 0;
+        int under = 0;
+        int over = 0;
+        for (int y = 0; y < height; y += step) {
+            int rowOffset = y * width;
+            for (int x = 0; x < width; x += step) {
+                int value = luma[rowOffset + x] & 0xFF;
+                histogram[value >> 2]++;
+                sum += value;
+                samples++;
+                if (value < UNDEREXPOSED_LEVEL) {
+                    under++;
+                } else if (value > OVEREXPOSED_LEVEL) {
+                    over++;
+                }
+            }
+        }
+        mean = samples == 0 ? 0f : (float) sum / samples;
+        underexposedFraction = samples == 0 ? 0f : (float) under / samples;
+        overexposedFraction = samples == 0 ? 0f : (float) over / samples;
+    }
+
+    public float getMean() {
+        return mean;
+    }
+
+    // Histograma de 64 intervalos de 4 niveles; no modificar
+    public int[] getHistogram() {
+        return histogram;
+    }
+
+    public float getUnderexposedFraction() {
+        return underexposedFraction;
+    }
+
+    public float getOverexposedFraction() {
+        return overexposedFraction;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+}
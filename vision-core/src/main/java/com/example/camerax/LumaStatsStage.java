@@ -0,0 +1,29 @@
+package com.example.camerax;
+
+/**
+ * Etapa que calcula {@link LumaStats} sobre el plano Y de cada fotograma. Recicla
+ * un anillo de resultados con tantas entradas como fotogramas pueda haber en vuelo.
+ */
+public final class LumaStatsStage implements AnalysisStage<FrameBuffer, LumaStats> {
+    private final LumaStats[] ring;
+    private final int sampleStep;
+    private int next;
+
+    public LumaStatsStage(int maxFramesInFlight, int sampleStep) {
+        ring = new LumaStats[maxFramesInFlight];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new LumaStats();
+        }
+        this.sampleStep = sampleStep;
+    }
+
+    @Override
+    public void analyze(SharedFrame<FrameBuffer> frame, Completion<LumaStats> completion) {
+        FrameBuffer buffer = frame.get();
+        LumaStats stats = ring[next];
+        next = (next + 1) % ring.length;
+        stats.compute(buffer.getData(), buffer.getWidth(), buffer.getHeight(), sampleStep,
+                frame.getTimestampNanos());
+        completion.complete(stats);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.camerax;
+
+import java.util.Arrays;
+
+/**
+ * Filtro previo a la detección que descarta escenas estáticas.
+ *
+ * <p>Divide el plano Y en una rejilla de bloques y suma una muestra de cada
+ * {@code sampleStep} píxeles por bloque en un {@code int[]} preasignado. La
+ * diferencia absoluta media de cada bloque con el fotograma anterior (en niveles
+ * de luma) se compara con el umbral: si ningún bloque lo supera, no hay
+ * movimiento y puede reutilizarse el último resultado de detección. Cada
+ * {@code maxConsecutiveSkips} fotogramas estáticos se fuerza una evaluación
+ * positiva para refrescar el resultado. No es thread-safe.
+ */
+public final class MotionGate {
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int sampleStep;
+    private final float threshold;
+    private final int maxConsecutiveSkips;
+    private final Clock clock;
+
+    private int[] currentSums;
+    private int[] previousSums;
+    private int[] sampleCounts;
+    private boolean hasPrevious;
+    private int frameWidth;
+    private int frameHeight;
+    private int consecutiveSkips;
+    private float lastScore;
+
+    private long evaluatedFrames;
+    private long skippedFrames;
+    private long totalGateNanos;
+
+    public MotionGate(int gridWidth, int gridHeight, int sampleStep, float threshold,
+                      int maxConsecutiveSkips, Clock clock) {
+        if (gridWidth <= 0 || gridHeight <= 0 || sampleStep <= 0) {
+            throw new IllegalArgumentException("Rejilla o paso de muestreo no válidos");
+        }
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.sampleStep = sampleStep;
+        this.threshold = threshold;
+        this.maxConsecutiveSkips = maxConsecutiveSkips;
+        this.clock = clock;
+        currentSums = new int[gridWidth * gridHeight];
+        previousSums = new int[gridWidth * gridHeight];
+        sampleCounts = new int[gridWidth * gridHeight];
+    }
+
+    /** Evalúa el plano Y (primeros {@code width * height} bytes) de un fotograma. */
+    public boolean hasMotion(FrameBuffer frame) {
+        return hasMotion(frame.getData(), frame.getWidth(), frame.getHeight());
+    }
+
+    public boolean hasMotion(byte[] luma, int width, int height) {
+        long start = clock.nanoTime();
+        if (width != frameWidth || height != frameHeight) {
+            frameWidth = width;
+            frameHeight = height;
+            hasPrevious = false;
+            countSamples(width, height);
+        }
+
+        computeBlockSums(luma, width, height, currentSums);
+        float score = hasPrevious ? maxBlockDifference() : Float.MAX_VALUE;
+        lastScore = score;
+
+        // Intercambiar los arrays: el fotograma actual pasa a ser la referencia
+        int[] swap = previousSums;
+        previousSums = currentSums;
+        currentSums = swap;
+        hasPrevious = true;
+
+        boolean motion = score >= threshold || consecutiveSkips >= maxConsecutiveSkips;
+        if (motion) {
+            consecutiveSkips = 0;
+        } else {
+            consecutiveSkips++;
+            skippedFrames++;
+        }
+        evaluatedFrames++;
+        totalGateNanos += clock.nanoTime() - start;
+        return motion;
+    }
+
+    // Kernel: suma de muestras por bloque con submuestreo de 'sampleStep'
+    void computeBlockSums(byte[] luma, int width, int height, int[] sums) {
+        Arrays.fill(sums, 0);
+        int step = sampleStep;
+        for (int y = 0; y < height; y += step) {
+            int blockRow = y * gridHeight / height * gridWidth;
+            int rowOffset = y * width;
+            for (int x = 0; x < width; x += step) {
+                sums[blockRow + x * gridWidth / width] += luma[rowOffset + x] & 0xFF;
+            }
+        }
+    }
+
+    private void countSamples(int width, int height) {
+        Arrays.fill(sampleCounts, 0);
+        for (int y = 0; y < height; y += sampleStep) {
+            int blockRow = y * gridHeight / height * gridWidth;
+            for (int x = 0; x < width; x += sampleStep) {
+                sampleCounts[blockRow + x * gridWidth / width]++;
+            }
+        }
+    }
+
+    private float maxBlockDifference() {
+        float max = 0f;
+        for (int i = 0; i < currentSums.length; i++) {
+            int samples = sampleCounts[i];
+            if (samples == 0) {
+                continue;
+            }
+            float diff = (float) Math.abs(currentSums[i] - previousSums[i]) / samples;
+            if (diff > max) {
+                max = diff;
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        hasPrevious = false;
+        consecutiveSkips = 0;
+    }
+
+    // Diferencia máxima por bloque del último fotograma, en niveles de luma
+    public float getLastScore() {
+        return lastScore;
+    }
+
+    public long getEvaluatedFrames() {
+        return evaluatedFrames;
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    public long getAverageGateNanos() {
+        return evaluatedFrames == 0 ? 0 : totalGateNanos / evaluatedFrames;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.camerax;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Métricas del pipeline de cámara: un {@link LatencyHistogram} por etapa y el
+ * detector de fotogramas perdidos. Registrar es seguro desde cualquier hilo y no
+ * reserva memoria; los volcados se hacen aparte con {@link #appendSummary} y
+ * {@link #writeRecord}.
+ *
+ * <p>Formato compacto (little-endian) de cada registro escrito por
+ * {@link #writeRecord}: {@code long} hora de pared en ms, {@code int} número de
+ * etapas, {@code long} fotogramas, {@code long} perdidos y, por etapa,
+ * {@code long} muestras seguido de p50, p95, p99 y máximo como {@code int} en µs.
+ */
+public final class PipelineMetrics {
+    public static final int STAGE_FRAME_INTERVAL = 0;
+    public static final int STAGE_CONVERSION = 1;
+    public static final int STAGE_DETECTION = 2;
+    public static final int STAGE_IMAGE_CLOSE = 3;
+    public static final int STAGE_PHOTO_CAPTURE = 4;
+    public static final int STAGE_RECORDING_START = 5;
+    public static final int STAGE_RECORDING_FINALIZE = 6;
+    public static final int STAGE_FIRST_FRAME_COLD = 7;
+    public static final int STAGE_FIRST_FRAME_SWITCH = 8;
+    public static final int STAGE_COUNT = 9;
+
+    private static final String[] STAGE_NAMES = {
+            "intervalo", "conversion", "deteccion", "close",
+            "foto", "inicio_video", "fin_video", "primer_frame_frio", "primer_frame_cambio"
+    };
+
+    public static final int RECORD_HEADER_BYTES = 8 + 4 + 8 + 8;
+    public static final int RECORD_STAGE_BYTES = 8 + 4 * 4;
+    public static final int RECORD_BYTES = RECORD_HEADER_BYTES + STAGE_COUNT * RECORD_STAGE_BYTES;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGE_COUNT];
+    private final FrameDropDetector dropDetector = new FrameDropDetector();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private long lastArrivalNanos = Long.MIN_VALUE;
+
+    public PipelineMetrics() {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(int stage, long nanos) {
+        histograms[stage].record(nanos);
+    }
+
+    /** Llegada de un fotograma al analizador; solo desde el hilo de análisis. */
+    public void onFrameArrived(long sensorTimestampNanos, long arrivalNanos) {
+        dropDetector.onFrame(sensorTimestampNanos);
+        if (lastArrivalNanos != Long.MIN_VALUE) {
+            histograms[STAGE_FRAME_INTERVAL].record(arrivalNanos - lastArrivalNanos);
+        }
+        lastArrivalNanos = arrivalNanos;
+    }
+
+    public LatencyHistogram histogram(int stage) {
+        return histograms[stage];
+    }
+
+    public FrameDropDetector getDropDetector() {
+        return dropDetector;
+    }
+
+    public static String stageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    // Resumen legible de una línea; pensado para logcat
+    public void appendSummary(StringBuilder out) {
+        out.append("fotogramas=").append(dropDetector.getFrameCount())
+                .append(" perdidos=").append(dropDetector.getDroppedCount());
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            LatencyHistogram h = histograms[i];
+            if (h.getCount() == 0) {
+                continue;
+            }
+            out.append(' ').append(STAGE_NAMES[i])
+                    .append("[n=").append(h.getCount())
+                    .append(" p50=").append(micros(h.percentileNanos(50)))
+                    .append(" p95=").append(micros(h.percentileNanos(95)))
+                    .append(" p99=").append(micros(h.percentileNanos(99)))
+                    .append(" max=").append(micros(h.getMaxNanos()))
+                    .append("us]");
+        }
+    }
+
+    /** Añade un registro compacto al canal; no es thread-safe entre volcados. */
+    public synchronized void writeRecord(FileChannel channel, long wallClockMillis) throws IOException {
+        record.clear();
+        record.putLong(wallClockMillis);
+        record.putInt(STAGE_COUNT);
+        record.putLong(dropDetector.getFrameCount());
+        record.putLong(dropDetector.getDroppedCount());
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            LatencyHistogram h = histograms[i];
+            record.putLong(h.getCount());
+            record.putInt(micros(h.percentileNanos(50)));
+            record.putInt(micros(h.percentileNanos(95)));
+            record.putInt(micros(h.percentileNanos(99)));
+            record.putInt(micros(h.getMaxNanos()));
+        }
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    private static int micros(long nanos) {
+        return (int) Math.min(Integer.MAX_VALUE, nanos / 1_000L);
+    }
+}
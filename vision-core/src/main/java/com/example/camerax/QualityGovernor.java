@@ -0,0 +1,197 @@
+package com.example.camerax;
+
+/**
+ * Elige el {@link QualityTier} de la sesión a partir de la latencia de análisis, la
+ * tasa de fotogramas perdidos y el estado térmico del dispositivo.
+ *
+ * <p>El estado térmico fija un nivel mínimo y se aplica de inmediato. La carga solo
+ * baja un nivel si la sobrecarga se mantiene durante {@code downgradeAfterNanos} y
+ * solo sube uno si hay holgura durante {@code upgradeAfterNanos}, mucho más largo;
+ * al arrancar y tras cada cambio se esperan {@code minDwellNanos} sin evaluar la
+ * carga, para que los fotogramas perdidos al (re)vincular la cámara no cuenten. Así
+ * el nivel no oscila entre dos valores vecinos.
+ *
+ * <p>{@link #evaluate()} se llama periódicamente desde un único hilo; las señales
+ * llegan por {@link Signals} y el tiempo por {@link Clock}, de modo que la máquina
+ * de estados se prueba en la JVM sin cámara.
+ */
+public final class QualityGovernor {
+    // Mismos valores que PowerManager.THERMAL_STATUS_*
+    public static final int THERMAL_NONE = 0;
+    public static final int THERMAL_LIGHT = 1;
+    public static final int THERMAL_MODERATE = 2;
+    public static final int THERMAL_SEVERE = 3;
+    public static final int THERMAL_CRITICAL = 4;
+    public static final int THERMAL_EMERGENCY = 5;
+    public static final int THERMAL_SHUTDOWN = 6;
+
+    // Sobrecarga: latencia por encima del presupuesto o más de un 10 % de pérdidas
+    private static final double OVERLOAD_LATENCY_RATIO = 1.0;
+    private static final double OVERLOAD_DROP_RATE = 0.10;
+    // Holgura: latencia por debajo de la mitad del presupuesto y pérdidas casi nulas
+    private static final double HEADROOM_LATENCY_RATIO = 0.5;
+    private static final double HEADROOM_DROP_RATE = 0.02;
+
+    public static final long DEFAULT_DOWNGRADE_AFTER_NANOS = 3_000_000_000L;
+    public static final long DEFAULT_UPGRADE_AFTER_NANOS = 20_000_000_000L;
+    public static final long DEFAULT_MIN_DWELL_NANOS = 5_000_000_000L;
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /** Entradas del gobernador; se leen una vez por evaluación. */
+    public interface Signals {
+        // Latencia media reciente del análisis en ns; 0 si aún no hay medidas
+        long getAnalysisLatencyNanos();
+
+        // Contadores acumulados de fotogramas recibidos y perdidos
+        long getFrameCount();
+
+        long getDroppedFrameCount();
+
+        // Uno de THERMAL_*
+        int getThermalStatus();
+    }
+
+    /** Recibe cada cambio de nivel con la máscara {@code QualityTier.CHANGED_*}. */
+    public interface Listener {
+        void onTierChanged(QualityTier previous, QualityTier current, int changes);
+    }
+
+    private final QualityTier[] tiers;
+    private final Signals signals;
+    private final Clock clock;
+    private final Listener listener;
+    private final long latencyBudgetNanos;
+    private final long downgradeAfterNanos;
+    private final long upgradeAfterNanos;
+    private final long minDwellNanos;
+
+    private volatile int tierIndex;
+    private long lastChangeNanos;
+    private long overloadSinceNanos = NEVER;
+    private long headroomSinceNanos = NEVER;
+    private long lastFrames;
+    private long lastDropped;
+    private volatile float lastDropRate;
+    private volatile long changes;
+
+    public QualityGovernor(QualityTier[] tiers, Signals signals, Clock clock,
+                           long latencyBudgetNanos, Listener listener) {
+        this(tiers, signals, clock, latencyBudgetNanos, DEFAULT_DOWNGRADE_AFTER_NANOS,
+                DEFAULT_UPGRADE_AFTER_NANOS, DEFAULT_MIN_DWELL_NANOS, listener);
+    }
+
+    public QualityGovernor(QualityTier[] tiers, Signals signals, Clock clock,
+                           long latencyBudgetNanos, long downgradeAfterNanos,
+                           long upgradeAfterNanos, long minDwellNanos, Listener listener) {
+        if (tiers.length == 0) {
+            throw new IllegalArgumentException("Se necesita al menos un nivel");
+        }
+        if (latencyBudgetNanos <= 0) {
+            throw new IllegalArgumentException("Presupuesto de latencia no válido: " + latencyBudgetNanos);
+        }
+        this.tiers = tiers.clone();
+        this.signals = signals;
+        this.clock = clock;
+        this.listener = listener;
+        this.latencyBudgetNanos = latencyBudgetNanos;
+        this.downgradeAfterNanos = downgradeAfterNanos;
+        this.upgradeAfterNanos = upgradeAfterNanos;
+        this.minDwellNanos = minDwellNanos;
+        this.lastChangeNanos = clock.nanoTime();
+        this.lastFrames = signals.getFrameCount();
+        this.lastDropped = signals.getDroppedFrameCount();
+    }
+
+    /** Lee las señales, decide el nivel y notifica si cambia. Devuelve el nivel actual. */
+    public QualityTier evaluate() {
+        long now = clock.nanoTime();
+        int current = tierIndex;
+        int floor = thermalFloor(signals.getThermalStatus());
+
+        // Pérdidas desde la evaluación anterior
+        long frames = signals.getFrameCount();
+        long dropped = signals.getDroppedFrameCount();
+        long newFrames = frames - lastFrames;
+        long newDropped = dropped - lastDropped;
+        lastFrames = frames;
+        lastDropped = dropped;
+        boolean sampled = newFrames + newDropped > 0;
+        float dropRate = sampled ? (float) newDropped / (newFrames + newDropped) : 0f;
+        lastDropRate = dropRate;
+
+        if (floor > current) {
+            // El calor no espera: se baja directamente al nivel que permite
+            return changeTo(floor, now);
+        }
+        if (now - lastChangeNanos < minDwellNanos) {
+            return tiers[current];
+        }
+
+        long latency = signals.getAnalysisLatencyNanos();
+        boolean overloaded = latency > latencyBudgetNanos * OVERLOAD_LATENCY_RATIO
+                || (sampled && dropRate > OVERLOAD_DROP_RATE);
+        boolean headroom = latency > 0 && sampled
+                && latency < latencyBudgetNanos * HEADROOM_LATENCY_RATIO
+                && dropRate < HEADROOM_DROP_RATE;
+        overloadSinceNanos = overloaded ? since(overloadSinceNanos, now) : NEVER;
+        headroomSinceNanos = headroom ? since(headroomSinceNanos, now) : NEVER;
+
+        if (overloaded && current < tiers.length - 1
+                && now - overloadSinceNanos >= downgradeAfterNanos) {
+            return changeTo(current + 1, now);
+        }
+        if (headroom && current > floor
+                && now - headroomSinceNanos >= upgradeAfterNanos) {
+            return changeTo(current - 1, now);
+        }
+        return tiers[current];
+    }
+
+    private static long since(long sinceNanos, long now) {
+        return sinceNanos == NEVER ? now : sinceNanos;
+    }
+
+    // Nivel mínimo según el estado térmico, limitado al último nivel definido
+    private int thermalFloor(int thermalStatus) {
+        int floor;
+        if (thermalStatus >= THERMAL_SEVERE) {
+            floor = tiers.length - 1;
+        } else if (thermalStatus == THERMAL_MODERATE) {
+            floor = 2;
+        } else if (thermalStatus == THERMAL_LIGHT) {
+            floor = 1;
+        } else {
+            floor = 0;
+        }
+        return Math.min(floor, tiers.length - 1);
+    }
+
+    private QualityTier changeTo(int index, long now) {
+        QualityTier previous = tiers[tierIndex];
+        QualityTier next = tiers[index];
+        tierIndex = index;
+        lastChangeNanos = now;
+        overloadSinceNanos = NEVER;
+        headroomSinceNanos = NEVER;
+        changes++;
+        listener.onTierChanged(previous, next, previous.changesTo(next));
+        return next;
+    }
+
+    public QualityTier getTier() {
+        return tiers[tierIndex];
+    }
+
+    public int getTierIndex() {
+        return tierIndex;
+    }
+
+    public float getLastDropRate() {
+        return lastDropRate;
+    }
+
+    public long getChangeCount() {
+        return changes;
+    }
+}
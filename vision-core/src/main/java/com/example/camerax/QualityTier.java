@@ -0,0 +1,99 @@
+package com.example.camerax;
+
+/**
+ * Nivel de calidad de la sesión de cámara que elige {@link QualityGovernor}:
+ * resolución de análisis, calidad del grabador, modo de captura de fotos y si el
+ * detector queda limitado al modo rápido.
+ *
+ * <p>Los valores son independientes de CameraX; la app los traduce a
+ * {@code Quality}, {@code ImageCapture.CAPTURE_MODE_*} y {@link FrameScheduler}.
+ */
+public final class QualityTier {
+    // Calidad del grabador, de mayor a menor; la app usa la inferior como respaldo
+    public static final int VIDEO_HIGHEST = 0;
+    public static final int VIDEO_FHD = 1;
+    public static final int VIDEO_HD = 2;
+    public static final int VIDEO_SD = 3;
+
+    // Mismos valores que ImageCapture.CAPTURE_MODE_MAXIMIZE_QUALITY / MINIMIZE_LATENCY
+    public static final int CAPTURE_MAXIMIZE_QUALITY = 0;
+    public static final int CAPTURE_MINIMIZE_LATENCY = 1;
+
+    // Casos de uso afectados por un cambio de nivel (máscara de bits)
+    public static final int CHANGED_ANALYSIS = 1;
+    public static final int CHANGED_VIDEO = 1 << 1;
+    public static final int CHANGED_CAPTURE = 1 << 2;
+    public static final int CHANGED_DETECTOR = 1 << 3;
+
+    /** Niveles por defecto, del más exigente al más ligero. */
+    public static final QualityTier[] DEFAULT_TIERS = {
+            new QualityTier("alta", 1280, 720, VIDEO_HIGHEST, CAPTURE_MAXIMIZE_QUALITY, false),
+            new QualityTier("equilibrada", 1280, 720, VIDEO_FHD, CAPTURE_MINIMIZE_LATENCY, false),
+            new QualityTier("reducida", 640, 480, VIDEO_HD, CAPTURE_MINIMIZE_LATENCY, true),
+            new QualityTier("mínima", 640, 480, VIDEO_SD, CAPTURE_MINIMIZE_LATENCY, true),
+    };
+
+    private final String name;
+    private final int analysisWidth;
+    private final int analysisHeight;
+    private final int videoQuality;
+    private final int captureMode;
+    private final boolean fastDetectorOnly;
+
+    public QualityTier(String name, int analysisWidth, int analysisHeight, int videoQuality,
+                       int captureMode, boolean fastDetectorOnly) {
+        this.name = name;
+        this.analysisWidth = analysisWidth;
+        this.analysisHeight = analysisHeight;
+        this.videoQuality = videoQuality;
+        this.captureMode = captureMode;
+        this.fastDetectorOnly = fastDetectorOnly;
+    }
+
+    /** Casos de uso que hay que reconfigurar para pasar de este nivel a {@code other}. */
+    public int changesTo(QualityTier other) {
+        int changes = 0;
+        if (analysisWidth != other.analysisWidth || analysisHeight != other.analysisHeight) {
+            changes |= CHANGED_ANALYSIS;
+        }
+        if (videoQuality != other.videoQuality) {
+            changes |= CHANGED_VIDEO;
+        }
+        if (captureMode != other.captureMode) {
+            changes |= CHANGED_CAPTURE;
+        }
+        if (fastDetectorOnly != other.fastDetectorOnly) {
+            changes |= CHANGED_DETECTOR;
+        }
+        return changes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAnalysisWidth() {
+        return analysisWidth;
+    }
+
+    public int getAnalysisHeight() {
+        return analysisHeight;
+    }
+
+    public int getVideoQuality() {
+        return videoQuality;
+    }
+
+    public int getCaptureMode() {
+        return captureMode;
+    }
+
+    public boolean isFastDetectorOnly() {
+        return fastDetectorOnly;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + analysisWidth + "x" + analysisHeight + ")";
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.camerax;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fotograma YUV_420_888 sin convertir: los tres planos con sus strides, la rotación
+ * y la marca de tiempo del sensor. Es un contenedor mutable que se rellena en cada
+ * fotograma (desde un {@code ImageProxy} o un {@link FrameSource}); los planos solo
+ * son válidos hasta el siguiente relleno.
+ */
+public final class RawFrame {
+    private ByteBuffer yPlane;
+    private ByteBuffer uPlane;
+    private ByteBuffer vPlane;
+    private int yRowStride;
+    private int yPixelStride;
+    private int uvRowStride;
+    private int uvPixelStride;
+    private int width;
+    private int height;
+    private int rotationDegrees;
+    private long timestampNanos;
+
+    public void set(ByteBuffer yPlane, int yRowStride, int yPixelStride,
+                    ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+                    int width, int height, int rotationDegrees, long timestampNanos) {
+        this.yPlane = yPlane;
+        this.yRowStride = yRowStride;
+        this.yPixelStride = yPixelStride;
+        this.uPlane = uPlane;
+        this.vPlane = vPlane;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.width = width;
+        this.height = height;
+        this.rotationDegrees = rotationDegrees;
+        this.timestampNanos = timestampNanos;
+    }
+
+    /** Convierte con el mismo camino que los fotogramas de la cámara. */
+    public FrameBuffer convert(YuvDownscaler downscaler) {
+        FrameBuffer frame = downscaler.convert(yPlane, yRowStride, yPixelStride,
+                uPlane, vPlane, uvRowStride, uvPixelStride, width, height);
+        frame.setMetadata(timestampNanos, rotationDegrees);
+        return frame;
+    }
+
+    public ByteBuffer getYPlane() {
+        return yPlane;
+    }
+
+    public ByteBuffer getUPlane() {
+        return uPlane;
+    }
+
+    public ByteBuffer getVPlane() {
+        return vPlane;
+    }
+
+    public int getYRowStride() {
+        return yRowStride;
+    }
+
+    public int getYPixelStride() {
+        return yPixelStride;
+    }
+
+    public int getUvRowStride() {
+        return uvRowStride;
+    }
+
+    public int getUvPixelStride() {
+        return uvPixelStride;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.camerax;
+
+/**
+ * Reloj virtual para reproducir el pipeline a toda velocidad: el tiempo avanza con
+ * las marcas de tiempo de los fotogramas y con la latencia simulada del detector,
+ * no con el reloj real, así que dos réplicas del mismo material dan el mismo
+ * resultado.
+ */
+public final class ReplayClock implements Clock {
+    private volatile long nowNanos;
+
+    @Override
+    public long nanoTime() {
+        return nowNanos;
+    }
+
+    // El tiempo nunca retrocede
+    public void advanceTo(long nanos) {
+        if (nanos > nowNanos) {
+            nowNanos = nanos;
+        }
+    }
+
+    public void advance(long nanos) {
+        nowNanos += nanos;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.camerax;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reproduce fotogramas de un {@link FrameSource} fuera de la cámara por el mismo
+ * camino que la app: conversión con {@link YuvDownscaler} y
+ * {@link FaceDetectionStage} (filtro de movimiento, planificador, región de interés
+ * y pistas) dentro de un {@link AnalysisPipeline}.
+ *
+ * <p>{@link #PACING_FULL_SPEED} usa un {@link ReplayClock} que avanza con las marcas
+ * de tiempo grabadas y espera el resultado de cada fotograma antes de enviar el
+ * siguiente: con un detector síncrono la réplica es determinista y va tan rápido
+ * como la CPU permita. {@link #PACING_RECORDED} usa el reloj del sistema, respeta el
+ * intervalo grabado y envía sin esperar, como en directo, así que el pipeline puede
+ * descartar fotogramas igual que con la cámara.
+ */
+public final class ReplayHarness {
+    public static final int PACING_FULL_SPEED = 0;
+    public static final int PACING_RECORDED = 1;
+
+    // Mismo reparto que la app en modo grabado; en réplica rápida un único hilo
+    private static final int LIVE_WORKER_THREADS = 2;
+    private static final int MAX_FRAMES_IN_FLIGHT = 2;
+    private static final int FRAME_POOL_CAPACITY = 3;
+    private static final long DRAIN_TIMEOUT_MILLIS = 10_000L;
+
+    /** Recibe el resultado de cada fotograma analizado; el resultado se recicla al volver. */
+    public interface Listener {
+        void onFrame(long timestampNanos, FaceResult faces);
+    }
+
+    private final int pacing;
+    private final ReplayClock replayClock;
+    private final FrameBufferPool pool = new FrameBufferPool(FRAME_POOL_CAPACITY);
+    private final YuvDownscaler downscaler;
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private final FaceDetectionStage faceStage;
+    private final AnalysisPipeline<FrameBuffer> pipeline;
+    private final AnalysisPipeline.StageKey<FaceResult> faceKey;
+    private final Semaphore frameDone = new Semaphore(0);
+    private final RawFrame raw = new RawFrame();
+    private volatile Listener listener;
+
+    /**
+     * @param clock reloj virtual que el detector sintético puede avanzar; obligatorio
+     *              con {@link #PACING_FULL_SPEED} e ignorado con {@link #PACING_RECORDED}
+     */
+    public ReplayHarness(int pacing, FaceDetectorBackend detector, ReplayClock clock,
+                         int downscaleFactor) {
+        this(pacing, detector, null, clock, downscaleFactor);
+    }
+
+    /** Con {@code attributeDetector} se reproduce también la cascada de atributos. */
+    public ReplayHarness(int pacing, FaceDetectorBackend detector,
+                         FaceAttributeBackend attributeDetector, ReplayClock clock,
+                         int downscaleFactor) {
+        if (pacing == PACING_FULL_SPEED && clock == null) {
+            throw new IllegalArgumentException("La réplica a toda velocidad necesita un ReplayClock");
+        }
+        this.pacing = pacing;
+        this.replayClock = pacing == PACING_FULL_SPEED ? clock : null;
+        downscaler = new YuvDownscaler(pool, downscaleFactor, FrameBuffer.FORMAT_NV21);
+        faceStage = new FaceDetectionStage(detector, attributeDetector, MAX_FRAMES_IN_FLIGHT,
+                metrics, replayClock != null ? replayClock : Clock.SYSTEM, line -> { });
+        int workers = pacing == PACING_FULL_SPEED ? 1 : LIVE_WORKER_THREADS;
+        pipeline = new AnalysisPipeline<>(workers, MAX_FRAMES_IN_FLIGHT, pool::release);
+        faceKey = pipeline.register("faces", faceStage);
+        pipeline.start(this::onFrameResult);
+    }
+
+    private void onFrameResult(FrameResult result) {
+        Listener l = listener;
+        if (l != null) {
+            l.onFrame(result.getTimestampNanos(), result.get(faceKey));
+        }
+        if (pacing == PACING_FULL_SPEED) {
+            frameDone.release();
+        }
+    }
+
+    /**
+     * Reproduce todos los fotogramas de la fuente y espera a que se analicen.
+     * Devuelve el tiempo real transcurrido en ns.
+     */
+    public long run(FrameSource source, Listener listener) throws InterruptedException {
+        this.listener = listener;
+        long startNanos = System.nanoTime();
+        long firstTimestamp = Long.MIN_VALUE;
+        while (source.next(raw)) {
+            long timestamp = raw.getTimestampNanos();
+            if (firstTimestamp == Long.MIN_VALUE) {
+                firstTimestamp = timestamp;
+            }
+            if (pacing == PACING_RECORDED) {
+                waitUntil(startNanos + (timestamp - firstTimestamp));
+            } else {
+                replayClock.advanceTo(timestamp);
+            }
+
+            long arrivalNanos = System.nanoTime();
+            metrics.onFrameArrived(timestamp, arrivalNanos);
+            FrameBuffer frame = raw.convert(downscaler);
+            metrics.record(PipelineMetrics.STAGE_CONVERSION, System.nanoTime() - arrivalNanos);
+            boolean submitted = pipeline.submit(frame, timestamp);
+            if (submitted && pacing == PACING_FULL_SPEED) {
+                frameDone.acquire();
+            }
+        }
+        awaitIdle();
+        this.listener = null;
+        return System.nanoTime() - startNanos;
+    }
+
+    private static void waitUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    // Espera a que terminen los fotogramas enviados sin esperar (modo grabado)
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MILLIS);
+        while (pipeline.getCompletedCount() < pipeline.getSubmittedCount()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("El pipeline no terminó a tiempo");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public FaceDetectionStage getFaceStage() {
+        return faceStage;
+    }
+
+    public AnalysisPipeline<FrameBuffer> getPipeline() {
+        return pipeline;
+    }
+
+    public FrameBufferPool getPool() {
+        return pool;
+    }
+
+    public void close() throws InterruptedException {
+        pipeline.shutdown();
+        pipeline.awaitTermination(DRAIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        faceStage.close();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.camerax;
+
+/**
+ * Decide si una detección se limita a una región de interés alrededor de los
+ * rostros conocidos o recorre el fotograma completo, y hace la aritmética de
+ * recorte y reproyección.
+ *
+ * <p>La región es la unión de las cajas conocidas (en coordenadas derechas)
+ * ampliada por un margen, pasada a coordenadas del buffer y alineada a píxeles
+ * pares para poder recortar el croma NV21. Cada {@code fullScanInterval}
+ * detecciones, o si la región ocupa casi todo el fotograma, se hace un barrido
+ * completo para encontrar rostros nuevos. No es thread-safe.
+ */
+public final class RoiPlanner {
+    // Tamaño mínimo del recorte; el detector no encuentra rostros en regiones diminutas
+    private static final int MIN_CROP_SIZE = 64;
+
+    private final int fullScanInterval;
+    private final float paddingRatio;
+    private final float maxAreaRatio;
+    private long detections;
+    private long roiDetections;
+
+    public RoiPlanner(int fullScanInterval, float paddingRatio, float maxAreaRatio) {
+        if (fullScanInterval <= 0) {
+            throw new IllegalArgumentException("fullScanInterval debe ser positivo: " + fullScanInterval);
+        }
+        this.fullScanInterval = fullScanInterval;
+        this.paddingRatio = paddingRatio;
+        this.maxAreaRatio = maxAreaRatio;
+    }
+
+    /**
+     * Planifica la siguiente detección. {@code uprightBoxes} contiene 4 valores por
+     * caja en coordenadas derechas. Devuelve true si debe usarse la región de
+     * interés, escrita en {@code outCrop} en coordenadas del buffer; false si toca
+     * barrido completo.
+     */
+    public boolean plan(float[] uprightBoxes, int boxCount, int bufferWidth, int bufferHeight,
+                        int rotationDegrees, int[] outCrop) {
+        boolean fullScan = detections++ % fullScanInterval == 0;
+        if (fullScan || boxCount == 0) {
+            return false;
+        }
+
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+        for (int i = 0; i < boxCount; i++) {
+            int base = i * 4;
+            left = Math.min(left, uprightBoxes[base]);
+            top = Math.min(top, uprightBoxes[base + 1]);
+            right = Math.max(right, uprightBoxes[base + 2]);
+            bottom = Math.max(bottom, uprightBoxes[base + 3]);
+        }
+        cropAround(left, top, right, bottom, paddingRatio, bufferWidth, bufferHeight,
+                rotationDegrees, outCrop);
+
+        long cropArea = (long) (outCrop[2] - outCrop[0]) * (outCrop[3] - outCrop[1]);
+        if (cropArea > maxAreaRatio * bufferWidth * bufferHeight) {
+            return false;
+        }
+        roiDetections++;
+        return true;
+    }
+
+    /**
+     * Recorte en coordenadas del buffer alrededor de una sola caja derecha, ampliada
+     * por {@code paddingRatio} y alineado como los de {@link #plan}.
+     */
+    public static void cropAround(float left, float top, float right, float bottom,
+                                  float paddingRatio, int bufferWidth, int bufferHeight,
+                                  int rotationDegrees, int[] outCrop) {
+        float padding = paddingRatio * Math.max(right - left, bottom - top);
+        outCrop[0] = (int) Math.floor(left - padding);
+        outCrop[1] = (int) Math.floor(top - padding);
+        outCrop[2] = (int) Math.ceil(right + padding);
+        outCrop[3] = (int) Math.ceil(bottom + padding);
+        RotationMath.uprightToBuffer(outCrop, bufferWidth, bufferHeight, rotationDegrees);
+        clampAndAlign(outCrop, bufferWidth, bufferHeight);
+    }
+
+    // Recorta al fotograma, alinea a pares y garantiza el tamaño mínimo
+    static void clampAndAlign(int[] crop, int bufferWidth, int bufferHeight) {
+        int minWidth = Math.min(MIN_CROP_SIZE, bufferWidth & ~1);
+        int minHeight = Math.min(MIN_CROP_SIZE, bufferHeight & ~1);
+        clampAxis(crop, 0, 2, bufferWidth & ~1, minWidth);
+        clampAxis(crop, 1, 3, bufferHeight & ~1, minHeight);
+    }
+
+    private static void clampAxis(int[] crop, int lo, int hi, int limit, int minSize) {
+        int start = Math.max(0, crop[lo]) & ~1;
+        int end = Math.min(limit, (crop[hi] + 1) & ~1);
+        if (end - start < minSize) {
+            int center = (start + end) / 2;
+            start = Math.max(0, (center - minSize / 2) & ~1);
+            end = start + minSize;
+            if (end > limit) {
+                end = limit;
+                start = end - minSize;
+            }
+        }
+        crop[lo] = start;
+        crop[hi] = end;
+    }
+
+    /**
+     * Reproyecta in situ una caja detectada en el recorte (coordenadas derechas del
+     * recorte) a coordenadas derechas del fotograma completo.
+     */
+    public static void mapToFrame(int[] rect, int[] crop, int bufferWidth, int bufferHeight,
+                                  int rotationDegrees) {
+        int cropWidth = crop[2] - crop[0];
+        int cropHeight = crop[3] - crop[1];
+        RotationMath.uprightToBuffer(rect, cropWidth, cropHeight, rotationDegrees);
+        rect[0] += crop[0];
+        rect[1] += crop[1];
+        rect[2] += crop[0];
+        rect[3] += crop[1];
+        RotationMath.bufferToUpright(rect, bufferWidth, bufferHeight, rotationDegrees);
+    }
+
+    public long getDetectionCount() {
+        return detections;
+    }
+
+    public long getRoiDetectionCount() {
+        return roiDetections;
+    }
+}
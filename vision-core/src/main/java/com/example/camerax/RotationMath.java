@@ -0,0 +1,78 @@
+package com.example.camerax;
+
+/**
+ * Conversión de rectángulos entre las coordenadas del buffer (orientación del
+ * sensor) y las coordenadas "derechas" que devuelve ML Kit tras aplicar
+ * {@code getRotationDegrees()}. Los rectángulos son {@code int[4]} con
+ * left, top, right, bottom y bordes en coordenadas continuas.
+ */
+public final class RotationMath {
+
+    private RotationMath() {
+    }
+
+    // Ancho de la imagen una vez rotada
+    public static int uprightWidth(int bufferWidth, int bufferHeight, int rotationDegrees) {
+        return isTransposed(rotationDegrees) ? bufferHeight : bufferWidth;
+    }
+
+    public static int uprightHeight(int bufferWidth, int bufferHeight, int rotationDegrees) {
+        return isTransposed(rotationDegrees) ? bufferWidth : bufferHeight;
+    }
+
+    public static boolean isTransposed(int rotationDegrees) {
+        return normalize(rotationDegrees) % 180 != 0;
+    }
+
+    /** Convierte un rectángulo del buffer a coordenadas derechas, in situ. */
+    public static void bufferToUpright(int[] rect, int bufferWidth, int bufferHeight,
+                                       int rotationDegrees) {
+        int left = rect[0], top = rect[1], right = rect[2], bottom = rect[3];
+        switch (normalize(rotationDegrees)) {
+            case 90:
+                set(rect, bufferHeight - bottom, left, bufferHeight - top, right);
+                break;
+            case 180:
+                set(rect, bufferWidth - right, bufferHeight - bottom,
+                        bufferWidth - left, bufferHeight - top);
+                break;
+            case 270:
+                set(rect, top, bufferWidth - right, bottom, bufferWidth - left);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** Convierte un rectángulo en coordenadas derechas al buffer, in situ. */
+    public static void uprightToBuffer(int[] rect, int bufferWidth, int bufferHeight,
+                                       int rotationDegrees) {
+        int left = rect[0], top = rect[1], right = rect[2], bottom = rect[3];
+        switch (normalize(rotationDegrees)) {
+            case 90:
+                set(rect, top, bufferHeight - right, bottom, bufferHeight - left);
+                break;
+            case 180:
+                set(rect, bufferWidth - right, bufferHeight - bottom,
+                        bufferWidth - left, bufferHeight - top);
+                break;
+            case 270:
+                set(rect, bufferWidth - bottom, left, bufferWidth - top, right);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void set(int[] rect, int left, int top, int right, int bottom) {
+        rect[0] = left;
+        rect[1] = top;
+        rect[2] = right;
+        rect[3] = bottom;
+    }
+
+    private static int normalize(int rotationDegrees) {
+        int r = rotationDegrees % 360;
+        return r < 0 ? r + 360 : r;
+    }
+}
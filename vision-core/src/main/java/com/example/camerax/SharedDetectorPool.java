@@ -0,0 +1,136 @@
+package com.example.camerax;
+
+/**
+ * Detectores de rostros de varias lentes que comparten un número acotado de
+ * detecciones en curso, repartidas con {@link FairStreamScheduler}.
+ *
+ * <p>Cada lente conserva su propio {@link FaceDetectorBackend}: el seguimiento de ML
+ * Kit guarda estado entre fotogramas y mezclar dos cámaras en un mismo cliente
+ * rompería los tracking ID. Lo que se comparte es el cupo de detecciones simultáneas,
+ * que es lo que cuesta CPU/GPU. {@link #lens(int)} devuelve la vista de cada lente
+ * para su {@link FaceDetectionStage}; el tiempo de espera por el cupo cuenta en la
+ * latencia que mide el planificador de la etapa, que así degrada al modo rápido si
+ * la otra lente lo acapara.
+ *
+ * <p>{@link FrameScheduler} admite una detección por etapa, así que cada lente tiene
+ * un único pedido reutilizable. Un segundo {@code detect} de la misma lente antes de
+ * terminar el primero se rechaza con {@code onComplete(false)}.
+ */
+public final class SharedDetectorPool {
+
+    private final FaceDetectorBackend[] backends;
+    private final Request[] requests;
+    private final FaceDetectorBackend[] views;
+    private final FairStreamScheduler<Request> scheduler;
+    private volatile long rejected;
+    private volatile long failed;
+
+    public SharedDetectorPool(FaceDetectorBackend[] backends, int maxConcurrent, Clock clock) {
+        this.backends = backends.clone();
+        requests = new Request[backends.length];
+        views = new FaceDetectorBackend[backends.length];
+        for (int i = 0; i < backends.length; i++) {
+            requests[i] = new Request();
+            views[i] = new LensView(i);
+        }
+        scheduler = new FairStreamScheduler<>(backends.length, maxConcurrent,
+                this::process, request -> request.finish(false), clock);
+    }
+
+    /** Detector de la lente {@code index}; {@code close()} sobre la vista no hace nada. */
+    public FaceDetectorBackend lens(int index) {
+        return views[index];
+    }
+
+    private void process(int lens, Request request, Runnable onComplete) {
+        request.done = onComplete;
+        try {
+            backends[lens].detect(request.frame, request.mode, request);
+        } catch (RuntimeException e) {
+            // Sin onComplete del backend quedarían ocupados el cupo y el pedido de la lente
+            failed++;
+            request.onComplete(false);
+        }
+    }
+
+    /** Cierra los detectores de todas las lentes. */
+    public void close() {
+        scheduler.clear();
+        for (FaceDetectorBackend backend : backends) {
+            backend.close();
+        }
+    }
+
+    public FairStreamScheduler<?> getScheduler() {
+        return scheduler;
+    }
+
+    public long getRejectedCount() {
+        return rejected;
+    }
+
+    // Detecciones cuyo backend lanzó una excepción antes de empezar
+    public long getFailedCount() {
+        return failed;
+    }
+
+    private final class LensView implements FaceDetectorBackend {
+        private final int lens;
+
+        LensView(int lens) {
+            this.lens = lens;
+        }
+
+        @Override
+        public void detect(FrameBuffer input, int mode, Callback callback) {
+            Request request = requests[lens];
+            synchronized (request) {
+                if (request.target != null) {
+                    rejected++;
+                    callback.onComplete(false);
+                    return;
+                }
+                request.frame = input;
+                request.mode = mode;
+                request.target = callback;
+            }
+            scheduler.offer(lens, request);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Pedido de una lente; reenvía el resultado y libera el cupo al terminar
+    private static final class Request implements FaceDetectorBackend.Callback {
+        FrameBuffer frame;
+        int mode;
+        FaceDetectorBackend.Callback target;
+        Runnable done;
+
+        @Override
+        public void onFace(int trackingId, int left, int top, int right, int bottom) {
+            target.onFace(trackingId, left, top, right, bottom);
+        }
+
+        @Override
+        public void onComplete(boolean success) {
+            Runnable onDone = done;
+            done = null;
+            finish(success);
+            // El cupo se libera después de entregar, cuando la etapa ya soltó el pedido
+            onDone.run();
+        }
+
+        void finish(boolean success) {
+            FaceDetectorBackend.Callback callback;
+            synchronized (this) {
+                callback = target;
+                target = null;
+                frame = null;
+            }
+            callback.onComplete(success);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.camerax;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Fotograma compartido con conteo de referencias. Cada etapa del pipeline tiene una
+ * referencia que se suelta al completar; una etapa que necesite el fotograma más
+ * allá de su finalización puede llamar a {@link #retain()} y después a
+ * {@link #release()}. Cuando se suelta la última referencia se ejecuta la acción de
+ * liberación (cerrar el {@code ImageProxy} o devolver el buffer al pool)
+ * exactamente una vez.
+ */
+public final class SharedFrame<T> {
+    private final AtomicInteger refs = new AtomicInteger();
+    private final Consumer<T> releaser;
+    private final Runnable onReleased;
+    private T payload;
+    private long timestampNanos;
+
+    SharedFrame(Consumer<T> releaser, Runnable onReleased) {
+        this.releaser = releaser;
+        this.onReleased = onReleased;
+    }
+
+    void reset(T payload, long timestampNanos, int initialRefs) {
+        this.payload = payload;
+        this.timestampNanos = timestampNanos;
+        refs.set(initialRefs);
+    }
+
+    public T get() {
+        return payload;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public void retain() {
+        int current;
+        do {
+            current = refs.get();
+            if (current <= 0) {
+                throw new IllegalStateException("El fotograma ya fue liberado");
+            }
+        } while (!refs.compareAndSet(current, current + 1));
+    }
+
+    public void release() {
+        int remaining = refs.decrementAndGet();
+        if (remaining == 0) {
+            T released = payload;
+            payload = null;
+            releaser.accept(released);
+            onReleased.run();
+        } else if (remaining < 0) {
+            throw new IllegalStateException("release() llamado más veces que retain()");
+        }
+    }
+
+    int refCount() {
+        return refs.get();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.camerax;
+
+/**
+ * Detector sintético para reproducir el pipeline en la JVM: devuelve como único
+ * "rostro" la caja de los píxeles de luma por encima de un umbral (p. ej. el
+ * cuadrado de {@link SyntheticFrameSource}). Responde de forma síncrona; si se le
+ * da un {@link ReplayClock}, avanza el reloj con la latencia simulada de cada modo.
+ */
+public final class SyntheticFaceDetector implements FaceDetectorBackend {
+    public static final int TRACKING_ID = 1;
+
+    private final int threshold;
+    private final int sampleStep;
+    private final ReplayClock clock;
+    private final long accurateLatencyNanos;
+    private final long fastLatencyNanos;
+    private final int[] box = new int[4];
+    private long detections;
+
+    public SyntheticFaceDetector(int threshold, int sampleStep, ReplayClock clock,
+                                 long accurateLatencyNanos, long fastLatencyNanos) {
+        this.threshold = threshold;
+        this.sampleStep = Math.max(1, sampleStep);
+        this.clock = clock;
+        this.accurateLatencyNanos = accurateLatencyNanos;
+        this.fastLatencyNanos = fastLatencyNanos;
+    }
+
+    @Override
+    public void detect(FrameBuffer input, int mode, Callback callback) {
+        detections++;
+        if (clock != null) {
+            clock.advance(mode == FrameScheduler.MODE_FAST ? fastLatencyNanos : accurateLatencyNanos);
+        }
+        if (findBrightBox(input.getData(), input.getWidth(), input.getHeight())) {
+            // El detector real devuelve cajas en coordenadas derechas
+            RotationMath.bufferToUpright(box, input.getWidth(), input.getHeight(),
+                    input.getRotationDegrees());
+            callback.onFace(TRACKING_ID, box[0], box[1], box[2], box[3]);
+        }
+        callback.onComplete(true);
+    }
+
+    private boolean findBrightBox(byte[] luma, int width, int height) {
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = -1;
+        int bottom = -1;
+        for (int y = 0; y < height; y += sampleStep) {
+            int row = y * width;
+            for (int x = 0; x < width; x += sampleStep) {
+                if ((luma[row + x] & 0xFF) >= threshold) {
+                    if (x < left) {
+                        left = x;
+                    }
+                    if (x > right) {
+                        right = x;
+                    }
+                    if (y < top) {
+                        top = y;
+                    }
+                    bottom = y;
+                }
+            }
+        }
+        if (right < 0) {
+            return false;
+        }
+        box[0] = left;
+        box[1] = top;
+        box[2] = right + 1;
+        box[3] = bottom + 1;
+        return true;
+    }
+
+    public long getDetectionCount() {
+        return detections;
+    }
+
+    @Override
+    public void close() {
+        // Sin recursos nativos
+    }
+}
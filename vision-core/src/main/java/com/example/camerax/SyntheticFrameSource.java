@@ -0,0 +1,138 @@
+package com.example.camerax;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Fotogramas YUV_420_888 generados de forma determinista: fondo gris con ruido leve
+ * y un cuadrado claro que se desplaza en tramos alternos de movimiento y quietud,
+ * para ejercitar el filtro de movimiento y el seguimiento. El croma es semiplanar
+ * (pixel stride 2, como en la mayoría de cámaras) y las filas llevan padding.
+ *
+ * <p>El ruido se precalcula en unos pocos fondos que se alternan, de modo que
+ * generar un fotograma cuesta una copia y el relleno del cuadrado.
+ */
+public final class SyntheticFrameSource implements FrameSource {
+    // Padding al final de cada fila, como los buffers de cámara alineados
+    private static final int ROW_PADDING = 32;
+    private static final int BACKGROUND_VARIANTS = 4;
+    private static final byte SQUARE_LUMA = (byte) 230;
+    private static final int MOVE_STEP_PIXELS = 6;
+
+    private final int width;
+    private final int height;
+    private final int frameCount;
+    private final long frameIntervalNanos;
+    private final int rotationDegrees;
+    private final int phaseFrames;
+    private final int squareSize;
+    private final int yRowStride;
+    private final int uvRowStride;
+    private final byte[][] backgrounds;
+    private final ByteBuffer yPlane;
+    private final ByteBuffer chromaPlane;
+    private final ByteBuffer uPlane;
+    private final ByteBuffer vPlane;
+    private final byte[] squareRow;
+    private int next;
+    private int squareX;
+    private int direction = 1;
+
+    /**
+     * @param phaseFrames fotogramas de cada tramo: el cuadrado se mueve durante uno y
+     *                    se queda quieto durante el siguiente
+     */
+    public SyntheticFrameSource(int width, int height, int frameCount, int fps,
+                                int rotationDegrees, int phaseFrames, long seed) {
+        if (width < 16 || height < 16 || (width & 1) != 0 || (height & 1) != 0) {
+            throw new IllegalArgumentException("Dimensiones no válidas: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.frameCount = frameCount;
+        this.frameIntervalNanos = 1_000_000_000L / fps;
+        this.rotationDegrees = rotationDegrees;
+        this.phaseFrames = Math.max(1, phaseFrames);
+        this.squareSize = height / 4;
+        this.yRowStride = width + ROW_PADDING;
+        this.uvRowStride = width + ROW_PADDING;
+
+        Random random = new Random(seed);
+        int ySize = yRowStride * height;
+        backgrounds = new byte[BACKGROUND_VARIANTS][ySize];
+        for (byte[] background : backgrounds) {
+            for (int i = 0; i < ySize; i++) {
+                background[i] = (byte) (96 + random.nextInt(5) - 2);
+            }
+        }
+        squareRow = new byte[squareSize];
+        Arrays.fill(squareRow, SQUARE_LUMA);
+
+        yPlane = ByteBuffer.allocateDirect(ySize);
+        // U y V comparten buffer intercalado (NV12): V empieza un byte después que U
+        int chromaSize = uvRowStride * (height / 2);
+        chromaPlane = ByteBuffer.allocateDirect(chromaSize);
+        for (int i = 0; i < chromaSize; i++) {
+            chromaPlane.put(i, (byte) (128 + (i & 1) * 8));
+        }
+        uPlane = slice(chromaPlane, 0, chromaSize - 1);
+        vPlane = slice(chromaPlane, 1, chromaSize - 1);
+        squareX = width / 8;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int start, int size) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(start + size).position(start);
+        return view.slice();
+    }
+
+    @Override
+    public boolean next(RawFrame frame) {
+        if (next >= frameCount) {
+            return false;
+        }
+        int index = next++;
+        if ((index / phaseFrames) % 2 == 0 && index > 0) {
+            squareX += direction * MOVE_STEP_PIXELS;
+            if (squareX < 0 || squareX + squareSize > width) {
+                direction = -direction;
+                squareX += 2 * direction * MOVE_STEP_PIXELS;
+            }
+        }
+
+        yPlane.clear();
+        yPlane.put(backgrounds[index % BACKGROUND_VARIANTS]);
+        int top = getSquareTop();
+        for (int row = top; row < top + squareSize; row++) {
+            yPlane.position(row * yRowStride + squareX);
+            yPlane.put(squareRow);
+        }
+        yPlane.clear();
+
+        frame.set(yPlane, yRowStride, 1, uPlane, vPlane, uvRowStride, 2,
+                width, height, rotationDegrees, index * frameIntervalNanos);
+        return true;
+    }
+
+    // Caja del cuadrado en el último fotograma, en coordenadas del buffer
+    public void getSquareBox(int[] rect) {
+        rect[0] = squareX;
+        rect[1] = getSquareTop();
+        rect[2] = squareX + squareSize;
+        rect[3] = getSquareTop() + squareSize;
+    }
+
+    private int getSquareTop() {
+        return (height - squareSize) / 2;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public void close() {
+        // Nada que liberar: los buffers son de la propia fuente
+    }
+}
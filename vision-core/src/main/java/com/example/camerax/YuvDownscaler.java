@@ -0,0 +1,119 @@
+package com.example.camerax;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Convierte planos YUV_420_888 a una imagen reducida solo-luma o NV21 escrita en
+ * buffers de un {@link FrameBufferPool}. Respeta el row stride y pixel stride de
+ * cada plano, por lo que acepta tanto layouts planares como semiplanares.
+ *
+ * <p>La luma se reduce promediando bloques de factor x factor píxeles; el croma
+ * se muestrea por vecino más cercano. No reserva memoria por fotograma.
+ */
+public final class YuvDownscaler {
+    private final FrameBufferPool pool;
+    private final int factor;
+    private final int format;
+
+    public YuvDownscaler(FrameBufferPool pool, int factor, int format) {
+        if (factor < 1) {
+            throw new IllegalArgumentException("factor debe ser >= 1: " + factor);
+        }
+        if (format != FrameBuffer.FORMAT_LUMA && format != FrameBuffer.FORMAT_NV21) {
+            throw new IllegalArgumentException("Formato no soportado: " + format);
+        }
+        this.pool = pool;
+        this.factor = factor;
+        this.format = format;
+    }
+
+    public int getFactor() {
+        return factor;
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    public int outputWidth(int width) {
+        int out = width / factor;
+        // NV21 requiere dimensiones pares para el submuestreo 2x2 del croma
+        return format == FrameBuffer.FORMAT_NV21 ? out & ~1 : out;
+    }
+
+    public int outputHeight(int height) {
+        int out = height / factor;
+        return format == FrameBuffer.FORMAT_NV21 ? out & ~1 : out;
+    }
+
+    /**
+     * Convierte un fotograma. Los planos U y V pueden ser null si el formato es
+     * solo-luma. El buffer devuelto debe devolverse al pool con
+     * {@link FrameBufferPool#release(FrameBuffer)}.
+     */
+    public FrameBuffer convert(ByteBuffer yPlane, int yRowStride, int yPixelStride,
+                               ByteBuffer uPlane, ByteBuffer vPlane,
+                               int uvRowStride, int uvPixelStride,
+                               int width, int height) {
+        int outWidth = outputWidth(width);
+        int outHeight = outputHeight(height);
+        if (outWidth <= 0 || outHeight <= 0) {
+            throw new IllegalArgumentException(
+                    "Fotograma demasiado pequeño para factor " + factor + ": " + width + "x" + height);
+        }
+
+        FrameBuffer buffer = pool.acquire(FrameBuffer.sizeOf(outWidth, outHeight, format));
+        buffer.setFormat(outWidth, outHeight, format);
+        byte[] out = buffer.getData();
+
+        downscaleLuma(yPlane, yRowStride, yPixelStride, out, outWidth, outHeight);
+        if (format == FrameBuffer.FORMAT_NV21) {
+            interleaveChroma(uPlane, vPlane, uvRowStride, uvPixelStride,
+                    out, outWidth * outHeight, outWidth / 2, outHeight / 2);
+        }
+        return buffer;
+    }
+
+    private void downscaleLuma(ByteBuffer yPlane, int rowStride, int pixelStride,
+                               byte[] out, int outWidth, int outHeight) {
+        int f = factor;
+        int area = f * f;
+        int half = area / 2;
+        int dst = 0;
+        for (int oy = 0; oy < outHeight; oy++) {
+            int rowBase = oy * f * rowStride;
+            for (int ox = 0; ox < outWidth; ox++) {
+                int colBase = rowBase + ox * f * pixelStride;
+                if (f == 1) {
+                    out[dst++] = yPlane.get(colBase);
+                    continue;
+                }
+                int sum = 0;
+                for (int dy = 0; dy < f; dy++) {
+                    int index = colBase + dy * rowStride;
+                    for (int dx = 0; dx < f; dx++) {
+                        sum += yPlane.get(index) & 0xFF;
+                        index += pixelStride;
+                    }
+                }
+                out[dst++] = (byte) ((sum + half) / area);
+            }
+        }
+    }
+
+    private void interleaveChroma(ByteBuffer uPlane, ByteBuffer vPlane,
+                                  int rowStride, int pixelStride,
+                                  byte[] out, int offset, int chromaWidth, int chromaHeight) {
+        int f = factor;
+        int dst = offset;
+        for (int cy = 0; cy < chromaHeight; cy++) {
+            int rowBase = cy * f * rowStride;
+            for (int cx = 0; cx < chromaWidth; cx++) {
+                int index = rowBase + cx * f * pixelStride;
+                // NV21 intercala V antes que U
+                out[dst++] = vPlane.get(index);
+                out[dst++] = uPlane.get(index);
+            }
+        }
+    }
+}
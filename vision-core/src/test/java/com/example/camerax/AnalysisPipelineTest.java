@@ -0,0 +1,277 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class AnalysisPipelineTest {
+
+    // Payload que registra cuántas veces se liberó
+    private static final class Frame {
+        final int id;
+        final AtomicInteger releases = new AtomicInteger();
+
+        Frame(int id) {
+            this.id = id;
+        }
+    }
+
+    @Test
+    public void mergesResultsFromAllStagesAndReleasesOnce() throws Exception {
+        AtomicInteger releases = new AtomicInteger();
+        AnalysisPipeline<Frame> pipeline = new AnalysisPipeline<>(2, 1, f -> {
+            f.releases.incrementAndGet();
+            releases.incrementAndGet();
+        });
+        AnalysisPipeline.StageKey<Integer> idKey =
+                pipeline.register("id", (frame, completion) -> completion.complete(frame.get().id));
+        AnalysisPipeline.StageKey<String> nameKey =
+                pipeline.register("name", (frame, completion) -> completion.complete("f" + frame.get().id));
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicLong timestamp = new AtomicLong();
+        AtomicInteger id = new AtomicInteger();
+        AtomicBoolean named = new AtomicBoolean();
+        pipeline.start(result -> {
+            timestamp.set(result.getTimestampNanos());
+            id.set(result.get(idKey));
+            named.set("f7".equals(result.get(nameKey)));
+            done.countDown();
+        });
+
+        Frame frame = new Frame(7);
+        assertTrue(pipeline.submit(frame, 123L));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pipeline.shutdown();
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(123L, timestamp.get());
+        assertEquals(7, id.get());
+        assertTrue(named.get());
+        assertEquals(1, frame.releases.get());
+        assertEquals(1, releases.get());
+    }
+
+    @Test
+    public void retainedFrameIsReleasedByTheLastHolder() throws Exception {
+        AtomicReferenceHolder<SharedFrame<Frame>> held = new AtomicReferenceHolder<>();
+        AnalysisPipeline<Frame> pipeline = new AnalysisPipeline<>(1, 2, f -> f.releases.incrementAndGet());
+        pipeline.register("async", (frame, completion) -> {
+            frame.retain();
+            held.value = frame;
+            completion.complete(null);
+        });
+        CountDownLatch done = new CountDownLatch(1);
+        pipeline.start(result -> done.countDown());
+
+        Frame frame = new Frame(1);
+        pipeline.submit(frame, 0L);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, frame.releases.get());
+
+        held.value.release();
+        assertEquals(1, frame.releases.get());
+        pipeline.shutdown();
+    }
+
+    private static final class AtomicReferenceHolder<V> {
+        volatile V value;
+    }
+
+    @Test
+    public void dropsFramesWhenTooManyInFlight() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        AnalysisPipeline<Frame> pipeline = new AnalysisPipeline<>(1, 1, f -> f.releases.incrementAndGet());
+        pipeline.register("slow", (frame, completion) -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completion.complete(null);
+        });
+        pipeline.start(result -> { });
+
+        Frame first = new Frame(1);
+        Frame second = new Frame(2);
+        assertTrue(pipeline.submit(first, 0L));
+        assertFalse(pipeline.submit(second, 1L));
+        assertEquals(1, second.releases.get());
+        assertEquals(1, pipeline.getDroppedCount());
+
+        unblock.countDown();
+        pipeline.shutdown();
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, first.releases.get());
+    }
+
+    @Test
+    public void busyStageIsSkippedWithoutBlockingOthers() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(2);
+        AnalysisPipeline<Frame> pipeline = new AnalysisPipeline<>(2, 2, f -> f.releases.incrementAndGet());
+        AnalysisPipeline.StageKey<Object> slowKey = pipeline.register("slow", (frame, completion) -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completion.complete(null);
+        });
+        AnalysisPipeline.StageKey<Object> fastKey = pipeline.register("fast", (frame, completion) -> {
+            completion.complete(null);
+            fastDone.countDown();
+        });
+        CountDownLatch results = new CountDownLatch(2);
+        AtomicBoolean secondSkippedSlow = new AtomicBoolean();
+        pipeline.start(result -> {
+            if (result.getTimestampNanos() == 2L) {
+                secondSkippedSlow.set(result.isSkipped(slowKey) && !result.isSkipped(fastKey));
+            }
+            results.countDown();
+        });
+
+        // La etapa lenta queda ocupada desde el primer envío hasta que se desbloquea;
+        // la rápida debe haber terminado el primer fotograma antes del segundo envío
+        pipeline.submit(new Frame(1), 1L);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (fastDone.getCount() == 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        pipeline.submit(new Frame(2), 2L);
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        unblock.countDown();
+        assertTrue(results.await(5, TimeUnit.SECONDS));
+        assertTrue(secondSkippedSlow.get());
+        assertEquals(1, pipeline.getSkippedCount(slowKey));
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void throwingStageCompletesWithNull() throws Exception {
+        AnalysisPipeline<Frame> pipeline = new AnalysisPipeline<>(1, 1, f -> f.releases.incrementAndGet());
+        AnalysisPipeline.StageKey<Object> key = pipeline.register("boom", (frame, completion) -> {
+            throw new IllegalStateException("fallo");
+        });
+        CountDownLatch done = new CountDownLatch(1);
+        pipeline.start(result -> done.countDown());
+        Frame frame = new Frame(1);
+        pipeline.submit(frame, 0L);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pipeline.shutdown();
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, pipeline.getErrorCount(key));
+        assertEquals(1, frame.releases.get());
+    }
+
+    @Test
+    public void throwingListenerStillRecyclesTheFrame() throws Exception {
+        AnalysisPipeline<Frame> pipeline = new AnalysisPipeline<>(1, 1, f -> f.releases.incrementAndGet());
+        pipeline.register("id", (frame, completion) -> completion.complete(frame.get().id));
+        CountDownLatch delivered = new CountDownLatch(2);
+        pipeline.start(result -> {
+            delivered.countDown();
+            throw new IllegalStateException("fallo del listener");
+        });
+        Frame first = new Frame(1);
+        assertTrue(pipeline.submit(first, 0L));
+
+        // Con un único contexto, el segundo envío solo se acepta si el primero se recicló
+        Frame second = new Frame(2);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!pipeline.submit(second, 1L) && System.currentTimeMillis() < deadline) {
+            second = new Frame(2);
+            Thread.sleep(1);
+        }
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        pipeline.shutdown();
+        assertTrue(pipeline.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, pipeline.getCompletedCount());
+        assertEquals(1, first.releases.get());
+        assertEquals(1, second.releases.get());
+    }
+
+    @Test
+    public void concurrencyStressReleasesEveryFrameExactlyOnce() throws Exception {
+        int frames = 20_000;
+        ConcurrentHashMap<Integer, Frame> all = new ConcurrentHashMap<>();
+        AtomicInteger delivered = new AtomicInteger();
+        AnalysisPipeline<Frame> pipeline = new AnalysisPipeline<>(4, 3, f -> f.releases.incrementAndGet());
+        ExecutorService async = Executors.newFixedThreadPool(3);
+        Random random = new Random(5);
+
+        for (int s = 0; s < 4; s++) {
+            boolean asynchronous = s % 2 == 0;
+            pipeline.register("stage" + s, (frame, completion) -> {
+                if (asynchronous) {
+                    // Completa desde otro hilo con el fotograma retenido
+                    frame.retain();
+                    async.execute(() -> {
+                        completion.complete(frame.get().id);
+                        frame.release();
+                    });
+                } else {
+                    completion.complete(frame.get().id);
+                }
+            });
+        }
+        pipeline.start(result -> delivered.incrementAndGet());
+
+        for (int i = 0; i < frames; i++) {
+            Frame frame = new Frame(i);
+            all.put(i, frame);
+            pipeline.submit(frame, i);
+            if (random.nextInt(50) == 0) {
+                Thread.yield();
+            }
+        }
+        pipeline.shutdown();
+        assertTrue(pipeline.awaitTermination(10, TimeUnit.SECONDS));
+        async.shutdown();
+        assertTrue(async.awaitTermination(10, TimeUnit.SECONDS));
+        // Las liberaciones asíncronas pueden llegar justo después de terminar los workers
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (delivered.get() < pipeline.getSubmittedCount() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        for (Frame frame : all.values()) {
+            assertEquals("Fotograma " + frame.id, 1, frame.releases.get());
+        }
+        assertEquals(frames, pipeline.getSubmittedCount() + pipeline.getDroppedCount());
+        assertEquals(pipeline.getSubmittedCount(), delivered.get());
+        assertTrue(pipeline.getSubmittedCount() > 0);
+    }
+
+    @Test
+    public void lumaStatsStageComputesMeanAndHistogram() {
+        FrameBufferPool pool = new FrameBufferPool(1);
+        FrameBuffer buffer = pool.acquire(FrameBuffer.sizeOf(4, 2, FrameBuffer.FORMAT_LUMA));
+        buffer.setFormat(4, 2, FrameBuffer.FORMAT_LUMA);
+        byte[] data = buffer.getData();
+        for (int i = 0; i < 4; i++) {
+            data[i] = 0;
+            data[4 + i] = (byte) 255;
+        }
+        SharedFrame<FrameBuffer> frame = new SharedFrame<>(pool::release, () -> { });
+        frame.reset(buffer, 9L, 1);
+        LumaStats[] out = new LumaStats[1];
+
+        new LumaStatsStage(1, 1).analyze(frame, result -> out[0] = result);
+
+        assertEquals(127.5f, out[0].getMean(), 0.001f);
+        assertEquals(4, out[0].getHistogram()[0]);
+        assertEquals(4, out[0].getHistogram()[63]);
+        assertEquals(0.5f, out[0].getOverexposedFraction(), 0.001f);
+        assertEquals(9L, out[0].getTimestampNanos());
+    }
+}
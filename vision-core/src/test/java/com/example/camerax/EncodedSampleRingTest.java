@@ -0,0 +1,164 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class EncodedSampleRingTest {
+
+    // Muestra sintética: todos sus bytes valen el id, para comprobar que no se pisan
+    private static ByteBuffer sample(int size, int id) {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put(i, (byte) id);
+        }
+        return buffer;
+    }
+
+    private static void assertSampleBytes(EncodedSampleRing ring, int index, int id) {
+        ByteBuffer view = ring.sampleView(index);
+        assertEquals(ring.getSize(index), view.remaining());
+        while (view.hasRemaining()) {
+            assertEquals(id, view.get());
+        }
+    }
+
+    @Test
+    public void keepsSamplesInOrderWithMetadata() {
+        EncodedSampleRing ring = new EncodedSampleRing(100, 8);
+        ring.append(sample(10, 1), 1_000, EncodedSampleRing.FLAG_KEYFRAME, EncodedSampleRing.TRACK_VIDEO);
+        ring.append(sample(5, 2), 1_500, 0, EncodedSampleRing.TRACK_AUDIO);
+        ring.append(sample(20, 3), 2_000, 0, EncodedSampleRing.TRACK_VIDEO);
+
+        assertEquals(3, ring.size());
+        assertTrue(ring.isKeyframe(0));
+        assertFalse(ring.isKeyframe(2));
+        assertEquals(EncodedSampleRing.TRACK_AUDIO, ring.getTrack(1));
+        assertEquals(1_500, ring.getPtsUs(1));
+        assertEquals(2_000, ring.getNewestPtsUs());
+        assertSampleBytes(ring, 0, 1);
+        assertSampleBytes(ring, 1, 2);
+        assertSampleBytes(ring, 2, 3);
+    }
+
+    @Test
+    public void wrapAroundEvictsOnlyOverwrittenSamples() {
+        EncodedSampleRing ring = new EncodedSampleRing(100, 16);
+        for (int id = 1; id <= 3; id++) {
+            ring.append(sample(30, id), id * 1_000L, 0, EncodedSampleRing.TRACK_VIDEO);
+        }
+        // 30 bytes no caben en los 10 del final: va al principio y pisa solo la primera
+        ring.append(sample(30, 4), 4_000, 0, EncodedSampleRing.TRACK_VIDEO);
+
+        assertEquals(3, ring.size());
+        assertEquals(1, ring.getEvictedCount());
+        assertEquals(2_000, ring.getPtsUs(0));
+        assertSampleBytes(ring, 0, 2);
+        assertSampleBytes(ring, 1, 3);
+        assertSampleBytes(ring, 2, 4);
+    }
+
+    @Test
+    public void fullIndexEvictsOldestEvenWithFreeBytes() {
+        EncodedSampleRing ring = new EncodedSampleRing(1_000, 4);
+        for (int id = 1; id <= 6; id++) {
+            ring.append(sample(10, id), id, 0, EncodedSampleRing.TRACK_VIDEO);
+        }
+        assertEquals(4, ring.size());
+        assertEquals(2, ring.getEvictedCount());
+        assertEquals(3, ring.getPtsUs(0));
+        assertSampleBytes(ring, 3, 6);
+    }
+
+    @Test
+    public void rejectsSampleLargerThanRing() {
+        EncodedSampleRing ring = new EncodedSampleRing(16, 4);
+        ring.append(sample(8, 1), 0, 0, EncodedSampleRing.TRACK_VIDEO);
+        assertFalse(ring.append(sample(17, 2), 1, 0, EncodedSampleRing.TRACK_VIDEO));
+        assertEquals(1, ring.size());
+    }
+
+    @Test
+    public void flushStartsAtLastVideoKeyframeBeforePreRoll() {
+        EncodedSampleRing ring = new EncodedSampleRing(10_000, 128);
+        // Vídeo a 100 ms con clave cada 10 fotogramas, audio intercalado marcado como "clave"
+        for (int i = 0; i < 40; i++) {
+            int flags = i % 10 == 0 ? EncodedSampleRing.FLAG_KEYFRAME : 0;
+            ring.append(sample(10, i), i * 100_000L, flags, EncodedSampleRing.TRACK_VIDEO);
+            ring.append(sample(4, i), i * 100_000L + 50_000L,
+                    EncodedSampleRing.FLAG_KEYFRAME, EncodedSampleRing.TRACK_AUDIO);
+        }
+
+        int start = ring.findFlushStart(2_500_000L);
+        assertEquals(EncodedSampleRing.TRACK_VIDEO, ring.getTrack(start));
+        assertTrue(ring.isKeyframe(start));
+        assertEquals(2_000_000L, ring.getPtsUs(start));
+
+        // Pre-roll anterior al anillo: el primer fotograma clave disponible
+        start = ring.findFlushStart(-1L);
+        assertEquals(0L, ring.getPtsUs(start));
+    }
+
+    @Test
+    public void flushStartSkipsPartialGopAfterWrap() {
+        EncodedSampleRing ring = new EncodedSampleRing(200, 64);
+        for (int i = 0; i < 30; i++) {
+            int flags = i % 8 == 0 ? EncodedSampleRing.FLAG_KEYFRAME : 0;
+            ring.append(sample(20, i), i, flags, EncodedSampleRing.TRACK_VIDEO);
+        }
+        // Quedan los fotogramas 20..29; la primera clave retenida es la 24
+        assertEquals(20, ring.getPtsUs(0));
+        assertEquals(24, ring.getPtsUs(ring.findFlushStart(0)));
+        assertEquals(24, ring.getPtsUs(ring.findFlushStart(27)));
+    }
+
+    @Test
+    public void noKeyframeReturnsMinusOne() {
+        EncodedSampleRing ring = new EncodedSampleRing(100, 8);
+        assertEquals(-1, ring.findFlushStart(0));
+        ring.append(sample(10, 1), 0, 0, EncodedSampleRing.TRACK_VIDEO);
+        assertEquals(-1, ring.findFlushStart(0));
+    }
+
+    @Test
+    public void clearEmptiesRing() {
+        EncodedSampleRing ring = new EncodedSampleRing(100, 8);
+        ring.append(sample(10, 1), 0, EncodedSampleRing.FLAG_KEYFRAME, EncodedSampleRing.TRACK_VIDEO);
+        ring.clear();
+        assertEquals(0, ring.size());
+        assertEquals(Long.MIN_VALUE, ring.getNewestPtsUs());
+        ring.append(sample(10, 2), 5, 0, EncodedSampleRing.TRACK_VIDEO);
+        assertSampleBytes(ring, 0, 2);
+    }
+
+    @Test
+    public void appendAndReadDoNotAllocate() {
+        EncodedSampleRing ring = new EncodedSampleRing(64 * 1024, 256);
+        ByteBuffer src = ByteBuffer.allocateDirect(1_500);
+        // Calentamiento: el anillo da varias vueltas antes de medir
+        for (int i = 0; i < 2_000; i++) {
+            src.clear();
+            ring.append(src, i, 0, EncodedSampleRing.TRACK_VIDEO);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long checksum = 0;
+        for (int i = 0; i < 10_000; i++) {
+            src.clear();
+            ring.append(src, i, (i & 31) == 0 ? EncodedSampleRing.FLAG_KEYFRAME : 0,
+                    EncodedSampleRing.TRACK_VIDEO);
+            checksum += ring.sampleView(ring.size() - 1).remaining();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(10_000L * 1_500, checksum);
+        // Una reserva por muestra serían >= 160 KB; el margen cubre la medición y el JIT
+        assertTrue("Bytes reservados: " + allocated, allocated < 16 * 1024);
+    }
+}
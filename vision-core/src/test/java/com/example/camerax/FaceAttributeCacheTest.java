@@ -0,0 +1,108 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FaceAttributeCacheTest {
+
+    @Test
+    public void newTrackMissesUntilStored() {
+        FaceAttributeCache cache = new FaceAttributeCache(4, 0.5f);
+        assertEquals(FaceAttributeCache.MISS_NEW, cache.check(7, 0, 0, 10, 10, 0L));
+        cache.markPending(7, 0, 0, 10, 10, 0L);
+        // Mientras se analiza no se vuelve a pedir
+        assertEquals(FaceAttributeCache.MISS_PENDING, cache.check(7, 0, 0, 10, 10, 1L));
+
+        cache.store(7, 0.9f, 0.8f, 0.7f);
+        assertEquals(FaceAttributeCache.HIT, cache.check(7, 1, 1, 11, 11, 2L));
+        float[] out = new float[4];
+        assertTrue(cache.get(7, out, 1));
+        assertEquals(0.9f, out[1], 0f);
+        assertEquals(0.7f, out[3], 0f);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1f / 3f, cache.getHitRate(), 1e-6f);
+    }
+
+    @Test
+    public void largeBoxChangeRequestsRefreshButKeepsOldValues() {
+        FaceAttributeCache cache = new FaceAttributeCache(4, 0.5f);
+        cache.markPending(1, 0, 0, 10, 10, 0L);
+        cache.store(1, 0.2f, 1f, 1f);
+        // Desplazada 5 px: IoU 50/150 = 0,33
+        assertEquals(FaceAttributeCache.MISS_CHANGED, cache.check(1, 5, 0, 15, 10, 1L));
+        cache.markPending(1, 5, 0, 15, 10, 1L);
+        float[] out = new float[3];
+        assertTrue(cache.get(1, out, 0));
+        assertEquals(0.2f, out[0], 0f);
+        assertEquals(1, cache.getChangedMissCount());
+    }
+
+    @Test
+    public void trackWaitingForTurnIsCountedOnceThenQueued() {
+        FaceAttributeCache cache = new FaceAttributeCache(4, 0.5f);
+        // Otro análisis ocupa el detector: la pista espera varios fotogramas
+        assertEquals(FaceAttributeCache.MISS_NEW, cache.check(5, 0, 0, 10, 10, 0L));
+        assertEquals(FaceAttributeCache.MISS_QUEUED, cache.check(5, 1, 0, 11, 10, 1L));
+        assertEquals(FaceAttributeCache.MISS_QUEUED, cache.check(5, 2, 0, 12, 10, 2L));
+        assertEquals(1, cache.getNewMissCount());
+        assertEquals(2, cache.getQueuedMissCount());
+
+        cache.markPending(5, 2, 0, 12, 10, 2L);
+        assertEquals(FaceAttributeCache.MISS_PENDING, cache.check(5, 2, 0, 12, 10, 3L));
+        cache.store(5, 0.5f, 0.5f, 0.5f);
+        // Una pista cambiada que espera turno tampoco se cuenta dos veces
+        assertEquals(FaceAttributeCache.MISS_CHANGED, cache.check(5, 8, 0, 18, 10, 4L));
+        assertEquals(FaceAttributeCache.MISS_QUEUED, cache.check(5, 9, 0, 19, 10, 5L));
+        // Si la caja vuelve a su sitio, los atributos vuelven a valer
+        assertEquals(FaceAttributeCache.HIT, cache.check(5, 2, 0, 12, 10, 6L));
+        assertEquals(FaceAttributeCache.MISS_CHANGED, cache.check(5, 8, 0, 18, 10, 7L));
+        assertEquals(1, cache.getNewMissCount());
+        assertEquals(2, cache.getChangedMissCount());
+        assertEquals(3, cache.getQueuedMissCount());
+    }
+
+    @Test
+    public void failedAnalysisCanBeRetried() {
+        FaceAttributeCache cache = new FaceAttributeCache(4, 0.5f);
+        cache.markPending(3, 0, 0, 10, 10, 0L);
+        cache.cancel(3);
+        assertEquals(FaceAttributeCache.MISS_NEW, cache.check(3, 0, 0, 10, 10, 1L));
+        float[] out = new float[3];
+        assertFalse(cache.get(3, out, 0));
+        assertTrue(Float.isNaN(out[0]));
+    }
+
+    @Test
+    public void failedRefreshKeepsOldBoxAndRetries() {
+        FaceAttributeCache cache = new FaceAttributeCache(4, 0.5f);
+        cache.markPending(1, 0, 0, 10, 10, 0L);
+        cache.store(1, 0.2f, 1f, 1f);
+        assertEquals(FaceAttributeCache.MISS_CHANGED, cache.check(1, 5, 0, 15, 10, 1L));
+        cache.markPending(1, 5, 0, 15, 10, 1L);
+        cache.cancel(1);
+        // Los atributos siguen siendo los de la caja antigua: la pista sigue necesitando análisis
+        assertEquals(FaceAttributeCache.MISS_QUEUED, cache.check(1, 5, 0, 15, 10, 2L));
+        assertEquals(1, cache.getChangedMissCount());
+        float[] out = new float[3];
+        assertTrue(cache.get(1, out, 0));
+        assertEquals(0.2f, out[0], 0f);
+        // Si la cara vuelve a la caja antigua, los atributos vuelven a valer
+        assertEquals(FaceAttributeCache.HIT, cache.check(1, 0, 0, 10, 10, 3L));
+    }
+
+    @Test
+    public void retainDropsDeadTracksAndFullCacheEvictsLeastRecentlyUsed() {
+        FaceAttributeCache cache = new FaceAttributeCache(2, 0.5f);
+        cache.markPending(1, 0, 0, 10, 10, 0L);
+        cache.markPending(2, 0, 0, 10, 10, 5L);
+        cache.markPending(3, 0, 0, 10, 10, 6L);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(FaceAttributeCache.MISS_NEW, cache.check(1, 0, 0, 10, 10, 7L));
+
+        cache.retain(new int[] {3, 9}, 2);
+        assertEquals(1, cache.size());
+        assertEquals(FaceAttributeCache.MISS_NEW, cache.check(2, 0, 0, 10, 10, 8L));
+        assertEquals(FaceAttributeCache.MISS_PENDING, cache.check(3, 0, 0, 10, 10, 8L));
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FaceCropCollectorTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+
+    private final List<FrameBuffer> crops = new ArrayList<>();
+    private final List<Integer> cropIds = new ArrayList<>();
+
+    // Fondo gris y, en la caja del rostro, un damero de 2 px con el contraste dado
+    private static FrameBuffer frame(long timestampNanos, int left, int top, int size, int contrast) {
+        FrameBuffer frame = new FrameBuffer(FrameBuffer.sizeOf(WIDTH, HEIGHT, FrameBuffer.FORMAT_NV21));
+        frame.setFormat(WIDTH, HEIGHT, FrameBuffer.FORMAT_NV21);
+        frame.setMetadata(timestampNanos, 0);
+        byte[] data = frame.getData();
+        Arrays.fill(data, (byte) 128);
+        for (int y = top; y < top + size; y++) {
+            for (int x = left; x < left + size; x++) {
+                boolean light = ((x / 2) + (y / 2)) % 2 == 0;
+                data[y * WIDTH + x] = (byte) (128 + (light ? contrast : -contrast) / 2);
+            }
+        }
+        return frame;
+    }
+
+    // El listener rechaza los recortes mientras 'rejectExports' esté activo
+    private boolean rejectExports;
+
+    private FaceCropCollector newCollector(int maxTracks, int candidates, int exports) {
+        return new FaceCropCollector(maxTracks, candidates, exports, 0.25f, (id, crop, score) -> {
+            if (rejectExports) {
+                return false;
+            }
+            cropIds.add(id);
+            crops.add(crop);
+            return true;
+        });
+    }
+
+    private static void update(FaceCropCollector collector, FrameBuffer frame, int... idsAndBoxes) {
+        int count = idsAndBoxes.length / 5;
+        int[] ids = new int[count];
+        float[] boxes = new float[count * 4];
+        for (int i = 0; i < count; i++) {
+            ids[i] = idsAndBoxes[i * 5];
+            for (int j = 0; j < 4; j++) {
+                boxes[i * 4 + j] = idsAndBoxes[i * 5 + 1 + j];
+            }
+        }
+        collector.update(frame, ids, boxes, count);
+    }
+
+    @Test
+    public void sharpnessGrowsWithEdgeContrast() {
+        FrameBuffer flat = frame(0, 200, 100, 100, 0);
+        FrameBuffer soft = frame(0, 200, 100, 100, 10);
+        FrameBuffer sharp = frame(0, 200, 100, 100, 120);
+        float flatScore = LaplacianSharpness.variance(flat.getData(), WIDTH, 200, 100, 300, 200, 1);
+        float softScore = LaplacianSharpness.variance(soft.getData(), WIDTH, 200, 100, 300, 200, 1);
+        float sharpScore = LaplacianSharpness.variance(sharp.getData(), WIDTH, 200, 100, 300, 200, 1);
+        assertEquals(0f, flatScore, 1e-6f);
+        assertTrue(softScore > 0f);
+        assertTrue(sharpScore > 50 * softScore);
+        // Una región sin vecinos no tiene laplaciano
+        assertEquals(0f, LaplacianSharpness.variance(sharp.getData(), WIDTH, 200, 100, 202, 102, 1), 0f);
+    }
+
+    @Test
+    public void scorePrefersLargeCenteredFaces() {
+        float centered = FaceCropCollector.score(500f, 100, 100, WIDTH / 2f, HEIGHT / 2f, WIDTH, HEIGHT);
+        float corner = FaceCropCollector.score(500f, 100, 100, 50, 50, WIDTH, HEIGHT);
+        float small = FaceCropCollector.score(500f, 40, 40, WIDTH / 2f, HEIGHT / 2f, WIDTH, HEIGHT);
+        float blurry = FaceCropCollector.score(20f, 100, 100, WIDTH / 2f, HEIGHT / 2f, WIDTH, HEIGHT);
+        assertTrue(centered > corner);
+        assertTrue(centered > small);
+        assertTrue(centered > blurry);
+        assertTrue(corner >= centered * 0.5f);
+    }
+
+    @Test
+    public void exportsSharpestCropWhenTrackEnds() {
+        FaceCropCollector collector = newCollector(4, 2, 2);
+        int[] contrasts = {10, 40, 120, 20, 60, 5};
+        for (int i = 0; i < contrasts.length; i++) {
+            update(collector, frame(i + 1, 200, 100, 100, contrasts[i]), 7, 200, 100, 300, 200);
+        }
+        assertTrue(crops.isEmpty());
+        // Solo los dos mejores siguen guardados
+        assertEquals(2, collector.getOutstandingBuffers());
+
+        update(collector, frame(7, 0, 0, 0, 0));
+        assertEquals(List.of(7), cropIds);
+        FrameBuffer best = crops.get(0);
+        assertEquals(3, best.getTimestampNanos());
+        // Caja de 100 px con un 25 % de margen por lado, ampliada a bordes pares
+        assertEquals(152, best.getWidth());
+        assertEquals(152, best.getHeight());
+        assertEquals(1, collector.getOutstandingBuffers());
+        collector.release(best);
+        assertEquals(0, collector.getOutstandingBuffers());
+        assertEquals(0, collector.getTrackCount());
+    }
+
+    @Test
+    public void tracksEndIndependently() {
+        FaceCropCollector collector = newCollector(4, 2, 2);
+        update(collector, frame(1, 100, 100, 80, 60), 1, 100, 100, 180, 180, 2, 400, 100, 480, 180);
+        update(collector, frame(2, 100, 100, 80, 60), 2, 400, 100, 480, 180);
+        assertEquals(List.of(1), cropIds);
+        assertEquals(1, collector.getTrackCount());
+        collector.flush();
+        assertEquals(List.of(1, 2), cropIds);
+        assertEquals(2, collector.getExportedCount());
+    }
+
+    @Test
+    public void rejectedCropIsReclaimedAndNotCountedAsExported() {
+        FaceCropCollector collector = newCollector(4, 2, 2);
+        rejectExports = true;
+        update(collector, frame(1, 100, 100, 80, 60), 1, 100, 100, 180, 180);
+        collector.flush();
+        assertEquals(0, collector.getExportedCount());
+        assertEquals(1, collector.getRejectedCount());
+        assertEquals(0, collector.getOutstandingBuffers());
+
+        rejectExports = false;
+        update(collector, frame(2, 100, 100, 80, 60), 2, 100, 100, 180, 180);
+        collector.flush();
+        assertEquals(1, collector.getExportedCount());
+        assertEquals(List.of(2), cropIds);
+    }
+
+    @Test
+    public void memoryStaysBoundedWhenExportsAreNotReturned() {
+        // 2 pistas x 2 candidatos + 1 exportación en curso
+        FaceCropCollector collector = newCollector(2, 2, 1);
+        for (int track = 0; track < 10; track++) {
+            update(collector, frame(track * 2, 200, 100, 100, 80), track, 200, 100, 300, 200);
+            update(collector, frame(track * 2 + 1, 200, 100, 100, 90), track, 200, 100, 300, 200);
+            assertTrue(collector.getOutstandingBuffers() <= 5);
+        }
+        collector.flush();
+        assertTrue(collector.getOutstandingBuffers() <= 5);
+        assertTrue(collector.getDroppedForMemoryCount() > 0);
+
+        // Al devolver los recortes vuelve a haber sitio
+        for (FrameBuffer crop : crops) {
+            collector.release(crop);
+        }
+        assertEquals(0, collector.getOutstandingBuffers());
+        long kept = collector.getKeptCount();
+        update(collector, frame(100, 200, 100, 100, 80), 42, 200, 100, 300, 200);
+        assertEquals(kept + 1, collector.getKeptCount());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FaceResultHandoffTest {
+
+    // Executor manual: las tareas solo se ejecutan al llamar a runAll
+    private static final class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    // Un rostro cuyo tracking ID y borde izquierdo son el número de fotograma
+    private static void fill(FaceResult faces, int index) {
+        faces.trackingIdArray()[0] = index;
+        faces.boxArray()[0] = index;
+        faces.set(1, FaceResult.SOURCE_TRACKED, index, 0f);
+    }
+
+    @Test
+    public void publishesInOrderOnTheExecutorAndDropsWhenFull() {
+        FaceResultStream stream = new FaceResultStream(4);
+        ManualExecutor publisher = new ManualExecutor();
+        FaceResultHandoff handoff = new FaceResultHandoff(4, stream, publisher);
+        List<Integer> seen = new ArrayList<>();
+        stream.subscribeQueue(16, Runnable::run, f -> seen.add(f.getTrackingId(0)));
+        FaceResult faces = new FaceResult(4);
+        for (int i = 1; i <= 6; i++) {
+            fill(faces, i);
+            assertEquals(i <= 4, handoff.offer(faces));
+        }
+        // Nada se publica en el hilo del productor; una sola tarea de drenaje pendiente
+        assertTrue(seen.isEmpty());
+        assertEquals(1, publisher.tasks.size());
+        assertEquals(2, handoff.getDroppedCount());
+
+        publisher.runAll();
+        assertEquals(List.of(1, 2, 3, 4), seen);
+        // Los huecos drenados se reutilizan
+        fill(faces, 7);
+        assertTrue(handoff.offer(faces));
+        publisher.runAll();
+        assertEquals(List.of(1, 2, 3, 4, 7), seen);
+        assertEquals(5, stream.getPublishedCount());
+    }
+
+    @Test
+    public void concurrentProducersPublishFromASingleThread() throws InterruptedException {
+        FaceResultStream stream = new FaceResultStream(4);
+        ExecutorService publisher = Executors.newSingleThreadExecutor();
+        ExecutorService consumer = Executors.newSingleThreadExecutor();
+        FaceResultHandoff handoff = new FaceResultHandoff(16_384, stream, publisher);
+        Set<Thread> publishingThreads = new HashSet<>();
+        List<String> errors = new ArrayList<>();
+        // Executor directo: el suscriptor corre en el hilo que publica
+        stream.subscribeLatest(Runnable::run, f -> publishingThreads.add(Thread.currentThread()));
+        FaceResultStream.Subscription queue = stream.subscribeQueue(16_384, consumer, f -> {
+            // Cada resultado es coherente: la caja empieza en el tracking ID
+            if (f.getBox(0, 0) != f.getTrackingId(0)) {
+                errors.add(f.getTrackingId(0) + " vs " + f.getBox(0, 0));
+            }
+        });
+        int threads = 2;
+        Thread[] producers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            producers[t] = new Thread(() -> {
+                FaceResult own = new FaceResult(4);
+                for (int i = 0; i < 5_000; i++) {
+                    fill(own, i * threads + offset + 1);
+                    handoff.offer(own);
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join(5_000);
+        }
+        publisher.shutdown();
+        assertTrue(publisher.awaitTermination(5, TimeUnit.SECONDS));
+        consumer.shutdown();
+        assertTrue(consumer.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(1, publishingThreads.size());
+        assertTrue(errors.toString(), errors.isEmpty());
+        // Con el anillo sin llenar no se pierde nada; solo se descartan los desordenados
+        assertEquals(0, handoff.getDroppedCount());
+        assertEquals(10_000, stream.getPublishedCount() + stream.getOutOfOrderCount());
+        assertEquals(0, queue.getDroppedCount());
+        assertEquals(stream.getPublishedCount(), queue.getDeliveredCount());
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FaceResultStreamTest {
+    private static final long MS = 1_000_000L;
+
+    // Executor manual: las tareas solo se ejecutan al llamar a runAll
+    private static final class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private final FaceResult faces = new FaceResult(4);
+
+    // Un rostro cuyo tracking ID es el número de fotograma
+    private FaceResult frame(int index) {
+        faces.trackingIdArray()[0] = index;
+        float[] boxes = faces.boxArray();
+        boxes[0] = index;
+        boxes[1] = 10;
+        boxes[2] = index + 50;
+        boxes[3] = 60;
+        faces.set(1, FaceResult.SOURCE_TRACKED, index * 33 * MS, 0f);
+        return faces;
+    }
+
+    @Test
+    public void latestOnlyDeliversNewestAndCountsSuperseded() {
+        FaceResultStream stream = new FaceResultStream(4);
+        ManualExecutor executor = new ManualExecutor();
+        List<Integer> seen = new ArrayList<>();
+        FaceResultStream.Subscription subscription = stream.subscribeLatest(executor,
+                f -> seen.add(f.getTrackingId(0)));
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(stream.publish(frame(i)));
+        }
+        // Una sola tarea pendiente por mucho que se publique
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(List.of(5), seen);
+        assertEquals(4, subscription.getSupersededCount());
+
+        stream.publish(frame(6));
+        executor.runAll();
+        assertEquals(List.of(5, 6), seen);
+        assertEquals(2, subscription.getDeliveredCount());
+    }
+
+    @Test
+    public void boundedQueueKeepsOrderAndDropsWhenFull() {
+        FaceResultStream stream = new FaceResultStream(4);
+        ManualExecutor executor = new ManualExecutor();
+        List<Integer> seen = new ArrayList<>();
+        List<Float> lefts = new ArrayList<>();
+        FaceResultStream.Subscription subscription = stream.subscribeQueue(3, executor, f -> {
+            seen.add(f.getTrackingId(0));
+            lefts.add(f.getBox(0, 0));
+        });
+        for (int i = 1; i <= 5; i++) {
+            stream.publish(frame(i));
+        }
+        executor.runAll();
+        assertEquals(List.of(1, 2, 3), seen);
+        assertEquals(List.of(1f, 2f, 3f), lefts);
+        assertEquals(2, subscription.getDroppedCount());
+
+        stream.publish(frame(6));
+        executor.runAll();
+        assertEquals(List.of(1, 2, 3, 6), seen);
+    }
+
+    @Test
+    public void sampledDeliversAtMostOnePerInterval() {
+        FaceResultStream stream = new FaceResultStream(4);
+        List<Integer> seen = new ArrayList<>();
+        FaceResultStream.Subscription subscription = stream.subscribeSampled(100 * MS, Runnable::run,
+                f -> seen.add(f.getTrackingId(0)));
+        // Fotogramas cada 33 ms durante 10 fotogramas
+        for (int i = 0; i < 10; i++) {
+            stream.publish(frame(i + 1));
+        }
+        assertEquals(List.of(1, 5, 9), seen);
+        assertEquals(7, subscription.getSampledOutCount());
+    }
+
+    @Test
+    public void outOfOrderAndCancelledResultsAreNotDelivered() {
+        FaceResultStream stream = new FaceResultStream(4);
+        List<Integer> seen = new ArrayList<>();
+        FaceResultStream.Subscription subscription = stream.subscribeQueue(8, Runnable::run,
+                f -> seen.add(f.getTrackingId(0)));
+        stream.publish(frame(2));
+        assertFalse(stream.publish(frame(1)));
+        assertEquals(1, stream.getOutOfOrderCount());
+
+        subscription.cancel();
+        assertEquals(0, stream.getSubscriberCount());
+        stream.publish(frame(3));
+        assertEquals(List.of(2), seen);
+    }
+
+    @Test
+    public void slowSubscriberNeverBlocksPublisher() throws InterruptedException {
+        FaceResultStream stream = new FaceResultStream(4);
+        ExecutorService slowExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService fastExecutor = Executors.newSingleThreadExecutor();
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+        FaceResultStream.Subscription slow = stream.subscribeQueue(4, slowExecutor, f -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<Integer> fastSeen = new ArrayList<>();
+        stream.subscribeQueue(1024, fastExecutor, f -> {
+            synchronized (fastSeen) {
+                fastSeen.add(f.getTrackingId(0));
+            }
+            if (f.getTrackingId(0) == 500) {
+                fastDone.countDown();
+            }
+        });
+
+        long start = System.nanoTime();
+        for (int i = 1; i <= 500; i++) {
+            assertTrue(stream.publish(frame(i)));
+        }
+        long elapsedMillis = (System.nanoTime() - start) / MS;
+        // Con el suscriptor lento bloqueado, publicar sigue siendo inmediato
+        assertTrue("Publicar tardó " + elapsedMillis + " ms", elapsedMillis < 1_000);
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        synchronized (fastSeen) {
+            assertEquals(500, fastSeen.size());
+        }
+        // El lento retiene uno en curso y la cola llena; el resto se descarta
+        assertTrue(slow.getDroppedCount() >= 500 - 5);
+
+        unblock.countDown();
+        slowExecutor.shutdown();
+        fastExecutor.shutdown();
+        assertTrue(slowExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(fastExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
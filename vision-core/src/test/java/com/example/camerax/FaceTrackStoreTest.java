@@ -0,0 +1,114 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FaceTrackStoreTest {
+    private static final long FRAME_NANOS = 33_333_333L;
+    private static final long TIMEOUT_NANOS = 500_000_000L;
+
+    private final int[] ids = new int[8];
+    private final float[] boxes = new float[32];
+
+    // Caja de 80x80 cuyo origen sigue la función de movimiento dada
+    private static float[] boxAt(float x, float y) {
+        return new float[] {x, y, x + 80f, y + 80f};
+    }
+
+    private static float maxEdgeError(float[] expected, float[] actual) {
+        float error = 0f;
+        for (int i = 0; i < 4; i++) {
+            error = Math.max(error, Math.abs(expected[i] - actual[i]));
+        }
+        return error;
+    }
+
+    // Simula N fotogramas detectando cada 'interval'; devuelve el error medio de predicción
+    private float scriptedMotionError(int interval, float noise, boolean accelerate) {
+        FaceTrackStore store = new FaceTrackStore(4, TIMEOUT_NANOS);
+        Random random = new Random(42);
+        float totalError = 0f;
+        int predicted = 0;
+        for (int frame = 0; frame < 300; frame++) {
+            long ts = frame * FRAME_NANOS;
+            float t = frame / 30f;
+            float vx = accelerate ? 60f + 40f * t : 90f;
+            float[] truth = boxAt(100f + vx * t, 50f - 30f * t);
+            if (frame % interval == 0) {
+                store.update(7, truth[0] + noise * (float) random.nextGaussian(),
+                        truth[1] + noise * (float) random.nextGaussian(),
+                        truth[2] + noise * (float) random.nextGaussian(),
+                        truth[3] + noise * (float) random.nextGaussian(), ts);
+            } else if (frame > interval * 2) {
+                assertEquals(1, store.predict(ts, ids, boxes));
+                assertEquals(7, ids[0]);
+                totalError += maxEdgeError(truth, new float[] {boxes[0], boxes[1], boxes[2], boxes[3]});
+                predicted++;
+            }
+        }
+        return totalError / predicted;
+    }
+
+    @Test
+    public void constantVelocityMotionIsPredictedExactly() {
+        assertTrue(scriptedMotionError(3, 0f, false) < 0.01f);
+    }
+
+    @Test
+    public void predictionErrorStaysBoundedWithNoiseAndAcceleration() {
+        float noisy = scriptedMotionError(3, 1.5f, false);
+        float accelerating = scriptedMotionError(3, 0f, true);
+        assertTrue("Error con ruido: " + noisy, noisy < 4f);
+        assertTrue("Error con aceleración: " + accelerating, accelerating < 2f);
+        // Detectar con menos frecuencia degrada la predicción de forma gradual
+        assertTrue(scriptedMotionError(6, 0f, true) < 5f);
+    }
+
+    @Test
+    public void newTrackPredictsLastBoxWithoutVelocity() {
+        FaceTrackStore store = new FaceTrackStore(4, TIMEOUT_NANOS);
+        store.update(1, 10f, 20f, 30f, 40f, 0L);
+        assertEquals(1, store.predict(FRAME_NANOS, ids, boxes));
+        assertEquals(10f, boxes[0], 0f);
+        assertEquals(40f, boxes[3], 0f);
+    }
+
+    @Test
+    public void tracksExpireAfterTimeout() {
+        FaceTrackStore store = new FaceTrackStore(4, TIMEOUT_NANOS);
+        store.update(1, 0f, 0f, 10f, 10f, 0L);
+        store.update(2, 0f, 0f, 10f, 10f, 400_000_000L);
+
+        assertEquals(1, store.predict(600_000_000L, ids, boxes));
+        assertEquals(2, ids[0]);
+        store.expire(1_000_000_000L);
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void retainSeenAtDropsTracksMissingFromLatestDetection() {
+        FaceTrackStore store = new FaceTrackStore(4, TIMEOUT_NANOS);
+        store.update(1, 0f, 0f, 10f, 10f, 0L);
+        store.update(2, 0f, 0f, 10f, 10f, 0L);
+        store.update(2, 1f, 0f, 11f, 10f, FRAME_NANOS);
+
+        store.retainSeenAt(FRAME_NANOS);
+
+        assertEquals(1, store.predict(FRAME_NANOS, ids, boxes));
+        assertEquals(2, ids[0]);
+    }
+
+    @Test
+    public void fullStoreReplacesOldestTrack() {
+        FaceTrackStore store = new FaceTrackStore(2, TIMEOUT_NANOS);
+        store.update(1, 0f, 0f, 1f, 1f, 0L);
+        store.update(2, 0f, 0f, 1f, 1f, 10L);
+        store.update(3, 0f, 0f, 1f, 1f, 20L);
+
+        assertEquals(2, store.predict(20L, ids, boxes));
+        assertTrue((ids[0] == 3 && ids[1] == 2) || (ids[0] == 2 && ids[1] == 3));
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.camerax;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class FaceTrackWriterTest {
+    private static final long FRAME_NANOS = 33_333_333L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // El escritor solo registra errores: cualquier mensaje hace fallar el test
+    private static final Consumer<String> NO_LOG = message -> fail(message);
+
+    // Fotograma con 'faces' rostros de IDs 0..faces-1 y cajas derivadas del índice
+    private static FaceResult frame(FaceResult result, int frameIndex, int faces) {
+        for (int i = 0; i < faces; i++) {
+            result.trackingIdArray()[i] = i;
+            float[] boxes = result.boxArray();
+            boxes[i * 4] = frameIndex;
+            boxes[i * 4 + 1] = i;
+            boxes[i * 4 + 2] = frameIndex + 10;
+            boxes[i * 4 + 3] = i + 10;
+        }
+        result.set(faces, FaceResult.SOURCE_TRACKED, frameIndex * FRAME_NANOS, 0f);
+        return result;
+    }
+
+    private File record(int frames, int facesPerFrame, int indexInterval) throws Exception {
+        File file = folder.newFile("track.faces");
+        FaceTrackWriter writer = new FaceTrackWriter(1024, indexInterval, 1, NO_LOG);
+        writer.start(file);
+        FaceResult result = new FaceResult(8);
+        for (int i = 0; i < frames; i++) {
+            while (!writer.offer(frame(result, i, facesPerFrame))) {
+                // Cola llena: el test espera al escritor en lugar de perder datos
+                Thread.sleep(1);
+            }
+        }
+        writer.stop();
+        assertTrue(writer.awaitTermination(5_000));
+        assertEquals((long) frames * facesPerFrame, writer.getWrittenCount());
+        return file;
+    }
+
+    @Test
+    public void recordsRoundTripThroughReader() throws Exception {
+        File file = record(100, 3, 16);
+        try (FaceTrackReader reader = new FaceTrackReader(file)) {
+            assertTrue(reader.hasIndex());
+            assertEquals(300, reader.getRecordCount());
+            // Registro 3*50+2: fotograma 50, rostro 2
+            int r = 152;
+            assertEquals(50 * FRAME_NANOS, reader.getTimestampNanos(r));
+            assertEquals(2, reader.getTrackingId(r));
+            assertEquals(50f, reader.getBox(r, 0), 0f);
+            assertEquals(2f, reader.getBox(r, 1), 0f);
+            assertEquals(60f, reader.getBox(r, 2), 0f);
+            assertEquals(12f, reader.getBox(r, 3), 0f);
+            assertEquals(FaceResult.SOURCE_TRACKED, reader.getSource(r));
+        }
+    }
+
+    @Test
+    public void headerAnchorsSensorClockToWallClock() throws Exception {
+        long before = System.currentTimeMillis();
+        File file = record(100, 1, 16);
+        long after = System.currentTimeMillis();
+        try (FaceTrackReader reader = new FaceTrackReader(file)) {
+            // El ancla es el primer fotograma ofrecido (marca del sensor 0)
+            assertTrue(reader.hasClockAnchor());
+            assertEquals(0L, reader.getAnchorSensorNanos());
+            long anchor = reader.getWallClockMillis();
+            assertTrue(anchor >= before && anchor <= after);
+            assertEquals(anchor + 1_666, reader.toWallClockMillis(reader.getTimestampNanos(50)));
+        }
+    }
+
+    @Test
+    public void recordingWithoutFramesHasNoAnchor() throws Exception {
+        File file = record(0, 1, 16);
+        try (FaceTrackReader reader = new FaceTrackReader(file)) {
+            assertFalse(reader.hasClockAnchor());
+            assertEquals(0, reader.getRecordCount());
+        }
+    }
+
+    @Test
+    public void restartDoesNotWaitAndKeepsFilesApart() throws Exception {
+        File first = folder.newFile("first.faces");
+        File second = folder.newFile("second.faces");
+        FaceTrackWriter writer = new FaceTrackWriter(1024, 16, 1, NO_LOG);
+        FaceResult result = new FaceResult(8);
+        writer.start(first);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(writer.offer(frame(result, i, 1)));
+        }
+        // Sin stop ni espera: la segunda grabación empieza al instante
+        writer.start(second);
+        for (int i = 100; i < 120; i++) {
+            assertTrue(writer.offer(frame(result, i, 1)));
+        }
+        writer.stop();
+        assertTrue(writer.awaitTermination(5_000));
+
+        try (FaceTrackReader reader = new FaceTrackReader(first)) {
+            assertEquals(10, reader.getRecordCount());
+            assertEquals(0L, reader.getAnchorSensorNanos());
+        }
+        try (FaceTrackReader reader = new FaceTrackReader(second)) {
+            assertEquals(20, reader.getRecordCount());
+            assertEquals(100 * FRAME_NANOS, reader.getTimestampNanos(0));
+            assertEquals(100 * FRAME_NANOS, reader.getAnchorSensorNanos());
+        }
+        assertEquals(30, writer.getWrittenCount());
+    }
+
+    @Test
+    public void readsVersionOneFilesWithoutAnchor() throws Exception {
+        File file = folder.newFile("v1.faces");
+        ByteBuffer buffer = ByteBuffer.allocate(FaceTrackWriter.HEADER_BYTES_V1
+                + 2 * FaceTrackWriter.RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(FaceTrackWriter.MAGIC).putInt(1)
+                .putInt(FaceTrackWriter.RECORD_BYTES).putInt(16).putLong(1_700_000_000_000L);
+        for (int i = 0; i < 2; i++) {
+            buffer.putLong(i * FRAME_NANOS).putInt(7)
+                    .putFloat(1f).putFloat(2f).putFloat(3f).putFloat(4f)
+                    .putInt(FaceResult.SOURCE_TRACKED);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write(buffer.array());
+        }
+        try (FaceTrackReader reader = new FaceTrackReader(file)) {
+            assertFalse(reader.hasClockAnchor());
+            assertEquals(1_700_000_000_000L, reader.getWallClockMillis());
+            assertEquals(2, reader.getRecordCount());
+            assertEquals(FRAME_NANOS, reader.getTimestampNanos(1));
+            assertEquals(7, reader.getTrackingId(1));
+        }
+    }
+
+    @Test
+    public void seekFindsFirstRecordAtOrAfterTimestamp() throws Exception {
+        File file = record(1_000, 2, 16);
+        try (FaceTrackReader reader = new FaceTrackReader(file)) {
+            assertEquals(0, reader.seek(Long.MIN_VALUE));
+            assertEquals(0, reader.seek(0));
+            // Exactamente en un fotograma: su primer rostro
+            assertEquals(2 * 417, reader.seek(417 * FRAME_NANOS));
+            // Entre dos fotogramas: el siguiente
+            assertEquals(2 * 418, reader.seek(417 * FRAME_NANOS + 1));
+            // En el límite de un tramo del índice (16 registros = 8 fotogramas)
+            assertEquals(2 * 8, reader.seek(8 * FRAME_NANOS));
+            assertEquals(2_000, reader.seek(1_000 * FRAME_NANOS));
+        }
+    }
+
+    @Test
+    public void fileWithoutFooterIsStillSearchable() throws Exception {
+        File file = record(200, 1, 32);
+        // Simula un cierre abrupto: sin índice ni pie y con medio registro al final
+        long records = FaceTrackWriter.HEADER_BYTES + 200L * FaceTrackWriter.RECORD_BYTES;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(records + FaceTrackWriter.RECORD_BYTES / 2);
+        }
+        try (FaceTrackReader reader = new FaceTrackReader(file)) {
+            assertFalse(reader.hasIndex());
+            assertEquals(200, reader.getRecordCount());
+            assertEquals(123, reader.seek(123 * FRAME_NANOS - 5));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignFiles() throws Exception {
+        File file = folder.newFile("other.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write(new byte[64]);
+        }
+        new FaceTrackReader(file).close();
+    }
+
+    @Test
+    public void offerIsIgnoredWhenNotRecording() {
+        FaceTrackWriter writer = new FaceTrackWriter(16, 4, 1, NO_LOG);
+        assertFalse(writer.offer(frame(new FaceResult(2), 0, 1)));
+    }
+
+    @Test
+    public void fullQueueDropsWholeFrames() {
+        FaceRecordQueue queue = new FaceRecordQueue(8);
+        FaceResult result = new FaceResult(8);
+        assertTrue(queue.offer(frame(result, 0, 3)));
+        assertTrue(queue.offer(frame(result, 1, 3)));
+        // Quedan 2 huecos: el fotograma de 3 no entra y no deja registros sueltos
+        assertFalse(queue.offer(frame(result, 2, 3)));
+        assertEquals(1, queue.getDroppedFrameCount());
+
+        long[] timestamps = new long[8];
+        int[] count = new int[1];
+        queue.drain((ts, id, l, t, r, b, s) -> timestamps[count[0]++] = ts, Integer.MAX_VALUE);
+        assertEquals(6, count[0]);
+        assertEquals(FRAME_NANOS, timestamps[5]);
+        // Tras drenar vuelve a haber sitio
+        assertTrue(queue.offer(frame(result, 3, 3)));
+    }
+
+    @Test
+    public void concurrentProducersKeepFramesContiguous() throws Exception {
+        FaceRecordQueue queue = new FaceRecordQueue(1 << 14);
+        int producers = 4;
+        int framesPerProducer = 1_000;
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                FaceResult result = new FaceResult(4);
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < framesPerProducer; i++) {
+                    // Marca de tiempo única por productor y fotograma
+                    queue.offer(frame(result, producer * framesPerProducer + i, 4));
+                }
+            });
+            threads[p].start();
+        }
+        go.countDown();
+        for (Thread t : threads) {
+            t.join(TimeUnit.SECONDS.toMillis(5));
+        }
+
+        long[] previous = {Long.MIN_VALUE};
+        int[] run = {0};
+        int[] total = {0};
+        queue.drain((ts, id, l, t, r, b, s) -> {
+            // Los 4 rostros de un fotograma llegan seguidos y en orden
+            if (ts != previous[0]) {
+                assertTrue(run[0] == 0 || run[0] == 4);
+                run[0] = 0;
+                previous[0] = ts;
+            }
+            assertEquals(run[0], id);
+            run[0]++;
+            total[0]++;
+        }, Integer.MAX_VALUE);
+        assertEquals(producers * framesPerProducer * 4, total[0]);
+        assertEquals(0, queue.getDroppedFrameCount());
+    }
+}
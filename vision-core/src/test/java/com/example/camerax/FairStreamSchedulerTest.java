@@ -0,0 +1,153 @@
+package com.example.camerax;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FairStreamSchedulerTest {
+    private static final long MS = 1_000_000L;
+    private static final int BACK = 0;
+    private static final int FRONT = 1;
+
+    // Detector falso: cada trabajo termina 'latency' después de empezar
+    private final class FakeWorker implements FairStreamScheduler.Worker<int[]> {
+        final List<Runnable> completions = new ArrayList<>();
+        final List<Long> finishAt = new ArrayList<>();
+        final List<String> order = new ArrayList<>();
+        long latency = 50 * MS;
+
+        @Override
+        public void process(int stream, int[] frame, Runnable onComplete) {
+            order.add(stream + ":" + frame[0]);
+            completions.add(onComplete);
+            finishAt.add(now + latency);
+        }
+
+        // Termina los trabajos vencidos en el instante actual
+        void advance() {
+            for (int i = 0; i < completions.size(); ) {
+                if (finishAt.get(i) <= now) {
+                    Runnable done = completions.remove(i);
+                    finishAt.remove(i);
+                    done.run();
+                } else {
+                    i++;
+                }
+            }
+        }
+    }
+
+    private long now;
+    private FakeWorker worker;
+    private final List<int[]> dropped = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        worker = new FakeWorker();
+    }
+
+    private FairStreamScheduler<int[]> scheduler(int maxConcurrent) {
+        return new FairStreamScheduler<>(2, maxConcurrent, worker, dropped::add, () -> now);
+    }
+
+    // Dos fuentes a ritmos distintos durante 'millis' ms, en pasos de 1 ms
+    private void run(FairStreamScheduler<int[]> scheduler, long millis, int backFps, int frontFps) {
+        long backPeriod = 1_000 / backFps;
+        long frontPeriod = 1_000 / frontFps;
+        int backFrame = 0;
+        int frontFrame = 0;
+        for (long t = 0; t < millis; t++) {
+            now = t * MS;
+            worker.advance();
+            if (t % backPeriod == 0) {
+                scheduler.offer(BACK, new int[]{backFrame++});
+            }
+            if (t % frontPeriod == 0) {
+                scheduler.offer(FRONT, new int[]{frontFrame++});
+            }
+        }
+    }
+
+    @Test
+    public void slowStreamIsNotStarvedByFastOne() {
+        FairStreamScheduler<int[]> scheduler = scheduler(1);
+        // Trasera a 30 fps, frontal a 10 fps, un único detector de 50 ms
+        run(scheduler, 10_000, 30, 10);
+
+        // La frontal nunca pierde fotogramas y espera como mucho una detección
+        assertEquals(0, scheduler.getReplacedCount(FRONT));
+        assertTrue(scheduler.getDispatchedCount(FRONT) >= scheduler.getOfferedCount(FRONT) - 1);
+        assertTrue(scheduler.getMaxWaitNanos(FRONT) <= 50 * MS);
+        // La trasera se queda con el resto del detector: 20 fps en total entre las dos
+        long total = scheduler.getCompletedCount(BACK) + scheduler.getCompletedCount(FRONT);
+        assertTrue(total >= 199);
+        assertTrue(scheduler.getCompletedCount(BACK) > scheduler.getCompletedCount(FRONT));
+        assertEquals(1, scheduler.getPeakInFlightCount());
+    }
+
+    @Test
+    public void equalRatesAlternateTurns() {
+        FairStreamScheduler<int[]> scheduler = scheduler(1);
+        run(scheduler, 2_000, 30, 30);
+        long back = scheduler.getDispatchedCount(BACK);
+        long front = scheduler.getDispatchedCount(FRONT);
+        assertTrue(Math.abs(back - front) <= 1);
+        // Nunca dos turnos seguidos del mismo flujo mientras el otro espera
+        for (int i = 1; i < worker.order.size(); i++) {
+            assertNotEquals(worker.order.get(i).charAt(0), worker.order.get(i - 1).charAt(0));
+        }
+    }
+
+    @Test
+    public void everyFrameIsEitherProcessedOrDropped() {
+        FairStreamScheduler<int[]> scheduler = scheduler(1);
+        run(scheduler, 3_000, 30, 10);
+        // Se sueltan los pendientes y se dejan terminar los trabajos en curso
+        scheduler.clear();
+        now += 200 * MS;
+        worker.advance();
+        // Lo sustituido y lo pendiente al limpiar vuelve al dueño; nada se pierde
+        long offered = scheduler.getOfferedCount(BACK) + scheduler.getOfferedCount(FRONT);
+        long completed = scheduler.getCompletedCount(BACK) + scheduler.getCompletedCount(FRONT);
+        assertEquals(offered, completed + dropped.size());
+        assertEquals(0, scheduler.getInFlightCount());
+    }
+
+    @Test
+    public void concurrencyIsBoundedAndEachStreamHasOneInFlight() {
+        FairStreamScheduler<int[]> scheduler = new FairStreamScheduler<>(3, 2, worker,
+                dropped::add, () -> now);
+        for (int i = 0; i < 5; i++) {
+            scheduler.offer(0, new int[]{i});
+            scheduler.offer(1, new int[]{i});
+            scheduler.offer(2, new int[]{i});
+        }
+        assertEquals(2, scheduler.getInFlightCount());
+        // Cada flujo en curso o pendiente conserva solo su último fotograma
+        assertEquals(List.of("0:0", "1:0"), worker.order);
+        now = 50 * MS;
+        worker.advance();
+        assertEquals(List.of("0:0", "1:0", "2:4", "0:4"), worker.order);
+        assertEquals(2, scheduler.getPeakInFlightCount());
+    }
+
+    @Test
+    public void synchronousCompletionKeepsDispatching() {
+        List<String> order = new ArrayList<>();
+        FairStreamScheduler<int[]> scheduler = new FairStreamScheduler<>(2, 1,
+                (stream, frame, onComplete) -> {
+                    order.add(stream + ":" + frame[0]);
+                    onComplete.run();
+                }, dropped::add, () -> now);
+        scheduler.offer(BACK, new int[]{0});
+        scheduler.offer(FRONT, new int[]{0});
+        scheduler.offer(BACK, new int[]{1});
+        assertEquals(List.of("0:0", "1:0", "0:1"), order);
+        assertEquals(0, scheduler.getInFlightCount());
+        assertTrue(dropped.isEmpty());
+    }
+}
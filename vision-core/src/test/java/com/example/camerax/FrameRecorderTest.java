@@ -0,0 +1,110 @@
+package com.example.camerax;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class FrameRecorderTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File recordSynthetic(int frames, int rotation) throws Exception {
+        File file = folder.newFile("capture.frames");
+        FrameRecorder recorder = new FrameRecorder(frames, message -> fail(message));
+        recorder.start(file);
+        SyntheticFrameSource source = new SyntheticFrameSource(WIDTH, HEIGHT, frames, 30, rotation, 5, 1L);
+        RawFrame raw = new RawFrame();
+        while (source.next(raw)) {
+            assertTrue(recorder.record(raw));
+        }
+        recorder.stop();
+        assertTrue(recorder.awaitTermination(5_000));
+        assertEquals(frames, recorder.getRecordedCount());
+        return file;
+    }
+
+    private static byte[] bytes(ByteBuffer plane) {
+        ByteBuffer view = plane.duplicate();
+        byte[] out = new byte[view.remaining()];
+        view.get(out);
+        return out;
+    }
+
+    @Test
+    public void replayReturnsRecordedPlanesAndMetadata() throws Exception {
+        File file = recordSynthetic(12, 90);
+        SyntheticFrameSource expected = new SyntheticFrameSource(WIDTH, HEIGHT, 12, 30, 90, 5, 1L);
+        RawFrame original = new RawFrame();
+        RawFrame replayed = new RawFrame();
+        try (FrameReplaySource replay = new FrameReplaySource(file, true)) {
+            assertEquals(12, replay.getFrameCount());
+            while (expected.next(original)) {
+                assertTrue(replay.next(replayed));
+                assertEquals(original.getTimestampNanos(), replayed.getTimestampNanos());
+                assertEquals(90, replayed.getRotationDegrees());
+                assertEquals(WIDTH, replayed.getWidth());
+                assertEquals(original.getYRowStride(), replayed.getYRowStride());
+                assertEquals(original.getUvPixelStride(), replayed.getUvPixelStride());
+                assertArrayEquals(bytes(original.getYPlane()), bytes(replayed.getYPlane()));
+                assertArrayEquals(bytes(original.getUPlane()), bytes(replayed.getUPlane()));
+                assertArrayEquals(bytes(original.getVPlane()), bytes(replayed.getVPlane()));
+            }
+            assertFalse(replay.next(replayed));
+
+            replay.rewind();
+            assertTrue(replay.next(replayed));
+            assertEquals(0L, replayed.getTimestampNanos());
+        }
+    }
+
+    @Test
+    public void truncatedLastFrameIsIgnored() throws Exception {
+        File file = recordSynthetic(5, 0);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        try (FrameReplaySource replay = new FrameReplaySource(file, false)) {
+            assertEquals(4, replay.getFrameCount());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignFiles() throws Exception {
+        File file = folder.newFile("other.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write(new byte[64]);
+        }
+        new FrameReplaySource(file, false).close();
+    }
+
+    @Test
+    public void recordIsIgnoredWhenNotStarted() {
+        FrameRecorder recorder = new FrameRecorder(1, message -> fail(message));
+        assertFalse(recorder.record(new RawFrame()));
+    }
+
+    @Test
+    public void recordingDoesNotMoveSourcePlanes() throws Exception {
+        File file = folder.newFile("capture.frames");
+        FrameRecorder recorder = new FrameRecorder(2, message -> fail(message));
+        recorder.start(file);
+        SyntheticFrameSource source = new SyntheticFrameSource(WIDTH, HEIGHT, 1, 30, 0, 5, 1L);
+        RawFrame raw = new RawFrame();
+        source.next(raw);
+        int position = raw.getYPlane().position();
+        recorder.record(raw);
+        assertEquals(position, raw.getYPlane().position());
+        recorder.stop();
+        assertTrue(recorder.awaitTermination(5_000));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.camerax;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FrameResultMergerTest {
+    private final AnalysisPipeline.StageKey<FaceResult> faceKey = new AnalysisPipeline.StageKey<>(0, "faces");
+    private final List<String> events = new ArrayList<>();
+    private FrameResultMerger merger;
+
+    @Before
+    public void setUp() {
+        merger = new FrameResultMerger(faceKey,
+                (faces, appeared) -> events.add(faces.getCount() + (appeared ? " aparecen" : "")));
+    }
+
+    private static FrameResult frame(int faces) {
+        FrameResult result = new FrameResult(1);
+        result.reset(0L);
+        if (faces >= 0) {
+            FaceResult faceResult = new FaceResult(4);
+            faceResult.set(faces, FaceResult.SOURCE_TRACKED, 0L, 0f);
+            result.set(0, faceResult);
+        } else {
+            result.markSkipped(0);
+        }
+        return result;
+    }
+
+    @Test
+    public void notifiesAppearanceOnlyAfterEmptyScene() {
+        assertTrue(merger.merge(frame(0)));
+        assertTrue(merger.merge(frame(1)));
+        assertTrue(merger.merge(frame(2)));
+        assertTrue(merger.merge(frame(0)));
+        assertTrue(merger.merge(frame(1)));
+        assertEquals(List.of("0", "1 aparecen", "2", "0", "1 aparecen"), events);
+        assertEquals(1, merger.getFaceCount());
+    }
+
+    @Test
+    public void skippedFramesKeepLastCount() {
+        merger.merge(frame(2));
+        assertFalse(merger.merge(frame(-1)));
+        assertEquals(2, merger.getFaceCount());
+        assertEquals(1, merger.getSkippedCount());
+        assertEquals(List.of("2 aparecen"), events);
+    }
+
+    @Test
+    public void resetMakesNextFaceAnAppearance() {
+        merger.merge(frame(1));
+        merger.reset();
+        merger.merge(frame(1));
+        assertEquals(List.of("1 aparecen", "1 aparecen"), events);
+    }
+
+    @Test
+    public void concurrentFramesReportEachAppearanceOnce() throws Exception {
+        AtomicInteger appearances = new AtomicInteger();
+        FrameResultMerger shared = new FrameResultMerger(faceKey, (faces, appeared) -> {
+            if (appeared) {
+                appearances.incrementAndGet();
+            }
+        });
+        FrameResult withFaces = frame(1);
+        int threads = 4;
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1_000; i++) {
+                    shared.merge(withFaces);
+                }
+            });
+            workers[t].start();
+        }
+        go.countDown();
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // La escena nunca vuelve a quedar vacía: un único aviso
+        assertEquals(1, appearances.get());
+    }
+}
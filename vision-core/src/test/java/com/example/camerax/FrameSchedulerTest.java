@@ -0,0 +1,171 @@
+package com.example.camerax;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameSchedulerTest {
+    private static final long MS = 1_000_000L;
+
+    private static final class FakeClock implements Clock {
+        long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    // Detector falso que retiene la finalización hasta que el test la dispara
+    private static final class FakeDetector implements FrameScheduler.Detector<String> {
+        Runnable pending;
+        int lastMode = -1;
+        int calls;
+        // Si no es null, detect la lanza sin invocar la finalización
+        RuntimeException failure;
+
+        @Override
+        public void detect(String frame, int mode, Runnable onComplete) {
+            calls++;
+            lastMode = mode;
+            if (failure != null) {
+                throw failure;
+            }
+            pending = onComplete;
+        }
+
+        void complete() {
+            Runnable r = pending;
+            pending = null;
+            r.run();
+        }
+    }
+
+    private FakeClock clock;
+    private FakeDetector detector;
+    private FrameScheduler<String> scheduler;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        detector = new FakeDetector();
+        // 10 fps -> 100 ms de presupuesto; ventana de 3 muestras; sondeo a los 1000 ms
+        scheduler = new FrameScheduler<>(detector, clock, 10, 3, 1000 * MS);
+    }
+
+    // Ejecuta una detección completa con la latencia dada, avanzando el reloj
+    private void runDetection(long latencyMs) {
+        assertTrue(scheduler.offer("frame"));
+        clock.now += latencyMs * MS;
+        detector.complete();
+        clock.now += Math.max(0, 100 - latencyMs) * MS;
+    }
+
+    @Test
+    public void skipsFramesWhileDetectionInFlight() {
+        assertTrue(scheduler.offer("a"));
+        clock.now += 150 * MS;
+        assertFalse(scheduler.offer("b"));
+        assertEquals(1, scheduler.getSkippedBusyCount());
+
+        detector.complete();
+        assertTrue(scheduler.offer("c"));
+        assertEquals(2, detector.calls);
+    }
+
+    @Test
+    public void throwingDetectorFreesTheSlotAndIsCounted() {
+        detector.failure = new IllegalArgumentException("imagen no válida");
+        assertFalse(scheduler.offer("a"));
+        assertEquals(1, scheduler.getFailedCount());
+        assertFalse(scheduler.isBusy());
+
+        // La siguiente detección se admite en cuanto lo permite el intervalo
+        detector.failure = null;
+        clock.now += 100 * MS;
+        assertTrue(scheduler.offer("b"));
+        assertEquals(2, detector.calls);
+        assertEquals(0, scheduler.getSkippedBusyCount());
+    }
+
+    @Test
+    public void enforcesTargetFrameInterval() {
+        assertTrue(scheduler.offer("a"));
+        detector.complete();
+        clock.now += 40 * MS;
+        assertFalse(scheduler.offer("b"));
+        assertEquals(1, scheduler.getSkippedBudgetCount());
+        clock.now += 60 * MS;
+        assertTrue(scheduler.offer("c"));
+    }
+
+    @Test
+    public void switchesToFastModeWhenOverBudget() {
+        runDetection(150);
+        runDetection(150);
+        assertEquals(FrameScheduler.MODE_ACCURATE, scheduler.getMode());
+        runDetection(150);
+        assertEquals(FrameScheduler.MODE_FAST, scheduler.getMode());
+
+        assertTrue(scheduler.offer("next"));
+        assertEquals(FrameScheduler.MODE_FAST, detector.lastMode);
+    }
+
+    @Test
+    public void staysAccurateWithinBudget() {
+        for (int i = 0; i < 10; i++) {
+            runDetection(80);
+        }
+        assertEquals(FrameScheduler.MODE_ACCURATE, scheduler.getMode());
+    }
+
+    @Test
+    public void probesAccurateModeAfterIntervalWithHeadroom() {
+        for (int i = 0; i < 3; i++) {
+            runDetection(150);
+        }
+        assertEquals(FrameScheduler.MODE_FAST, scheduler.getMode());
+
+        // Con holgura pero antes del intervalo de sondeo se mantiene en modo rápido
+        for (int i = 0; i < 3; i++) {
+            runDetection(20);
+        }
+        assertEquals(FrameScheduler.MODE_FAST, scheduler.getMode());
+
+        clock.now += 1000 * MS;
+        runDetection(20);
+        assertEquals(FrameScheduler.MODE_ACCURATE, scheduler.getMode());
+    }
+
+    @Test
+    public void fastOnlyOverridesModeUntilReleased() {
+        scheduler.setFastOnly(true);
+        assertTrue(scheduler.offer("a"));
+        assertEquals(FrameScheduler.MODE_FAST, detector.lastMode);
+        clock.now += 20 * MS;
+        detector.complete();
+        assertEquals(FrameScheduler.MODE_FAST, scheduler.getMode());
+
+        // Al liberarlo sigue en rápido hasta que la prueba de holgura lo devuelve a preciso
+        scheduler.setFastOnly(false);
+        clock.now += 80 * MS;
+        runDetection(20);
+        assertEquals(FrameScheduler.MODE_FAST, scheduler.getMode());
+        clock.now += 1000 * MS;
+        runDetection(20);
+        runDetection(20);
+        assertEquals(FrameScheduler.MODE_ACCURATE, scheduler.getMode());
+        assertEquals(20 * MS, scheduler.getAverageLatencyNanos());
+    }
+
+    @Test
+    public void latencyWindowKeepsMovingAverage() {
+        LatencyWindow window = new LatencyWindow(2);
+        window.add(10);
+        window.add(20);
+        window.add(40);
+        assertEquals(30, window.average());
+        assertTrue(window.isFull());
+    }
+}
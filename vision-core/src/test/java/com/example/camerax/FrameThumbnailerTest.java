@@ -0,0 +1,64 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FrameThumbnailerTest {
+
+    // Luma = 10 * x + y en cada píxel y croma neutra, para reconocer de dónde sale cada muestra
+    private static FrameBuffer gradient(int width, int height, int rotationDegrees) {
+        FrameBuffer frame = new FrameBuffer(FrameBuffer.sizeOf(width, height, FrameBuffer.FORMAT_NV21));
+        frame.setFormat(width, height, FrameBuffer.FORMAT_NV21);
+        frame.setMetadata(0L, rotationDegrees);
+        byte[] data = frame.getData();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                data[y * width + x] = (byte) (10 * x + y);
+            }
+        }
+        Arrays.fill(data, width * height, data.length, (byte) 128);
+        return frame;
+    }
+
+    private static int luma(FrameThumbnailer thumbnailer, int x, int y) {
+        return thumbnailer.getPixels()[y * thumbnailer.getWidth() + x] & 0xFF;
+    }
+
+    @Test
+    public void subsamplesToTargetShortSide() {
+        FrameThumbnailer thumbnailer = new FrameThumbnailer(64);
+        assertTrue(thumbnailer.convert(gradient(16, 8, 0), 4));
+        assertEquals(8, thumbnailer.getWidth());
+        assertEquals(4, thumbnailer.getHeight());
+        // Un píxel de cada dos: (1, 1) de la miniatura es (2, 2) del fotograma
+        assertEquals(22, luma(thumbnailer, 1, 1));
+        // Croma neutra: gris opaco
+        assertEquals(0xFF161616, thumbnailer.getPixels()[thumbnailer.getWidth() + 1]);
+    }
+
+    @Test
+    public void appliesRotationWhileSampling() {
+        FrameThumbnailer thumbnailer = new FrameThumbnailer(64);
+        assertTrue(thumbnailer.convert(gradient(8, 4, 90), 4));
+        // 90 grados: la miniatura es vertical y su esquina superior izquierda es la
+        // inferior izquierda del buffer
+        assertEquals(4, thumbnailer.getWidth());
+        assertEquals(8, thumbnailer.getHeight());
+        assertEquals(3, luma(thumbnailer, 0, 0));
+        assertEquals(70, luma(thumbnailer, 3, 7));
+
+        assertTrue(thumbnailer.convert(gradient(8, 4, 180), 4));
+        assertEquals(73, luma(thumbnailer, 0, 0));
+        assertTrue(thumbnailer.convert(gradient(8, 4, 270), 4));
+        assertEquals(70, luma(thumbnailer, 0, 0));
+    }
+
+    @Test
+    public void refusesThumbnailsLargerThanItsBuffer() {
+        FrameThumbnailer thumbnailer = new FrameThumbnailer(16);
+        assertFalse(thumbnailer.convert(gradient(16, 8, 0), 8));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.percentileNanos(99));
+        assertEquals(0, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void percentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1..1000 ms uniforme
+        for (int ms = 1; ms <= 1000; ms++) {
+            histogram.record(ms * 1_000_000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertWithin(500_000_000L, histogram.percentileNanos(50));
+        assertWithin(950_000_000L, histogram.percentileNanos(95));
+        assertWithin(990_000_000L, histogram.percentileNanos(99));
+        assertEquals(1_000_000_000L, histogram.getMaxNanos());
+        assertEquals(500_500_000L, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void percentileNeverExceedsMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_234_567L);
+        assertEquals(1_234_567L, histogram.percentileNanos(99));
+    }
+
+    @Test
+    public void bucketsAreMonotonic() {
+        int previous = 0;
+        for (long nanos = 0; nanos < 20_000_000_000L; nanos = nanos * 2 + 1) {
+            int bucket = LatencyHistogram.bucketFor(nanos);
+            assertTrue(bucket >= previous);
+            assertTrue(bucket < LatencyHistogram.BUCKET_COUNT);
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketFor(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 4;
+        int perThread = 50_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            long value = (t + 1) * 1_000_000L;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(value);
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(threads * perThread, histogram.getCount());
+        assertEquals(4_000_000L, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5_000_000L);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("esperado ~" + expected + " pero fue " + actual,
+                actual >= expected && actual <= expected * 1.3);
+    }
+}
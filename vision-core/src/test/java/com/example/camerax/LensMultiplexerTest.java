@@ -0,0 +1,88 @@
+package com.example.camerax;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LensMultiplexerTest {
+    private static final long MS = 1_000_000L;
+    private static final int BACK = 0;
+    private static final int FRONT = 1;
+
+    private long now;
+    private final List<String> switches = new ArrayList<>();
+    private LensMultiplexer multiplexer;
+
+    @Before
+    public void setUp() {
+        // Turnos de 2 s con 300 ms de estabilización tras cada cambio
+        multiplexer = new LensMultiplexer(2, 2_000 * MS, 300 * MS, () -> now,
+                (previous, current) -> switches.add(previous + ">" + current));
+    }
+
+    @Test
+    public void rotatesLensesEverySlice() {
+        for (now = 0; now < 9_000 * MS; now += 100 * MS) {
+            multiplexer.tick();
+        }
+        assertEquals(List.of("0>1", "1>0", "0>1", "1>0"), switches);
+        assertEquals(BACK, multiplexer.getActiveLens());
+    }
+
+    @Test
+    public void framesOfInactiveLensOrWhileSettlingAreRejected() {
+        now = 500 * MS;
+        assertTrue(multiplexer.accept(BACK));
+        assertFalse(multiplexer.accept(FRONT));
+
+        now = 2_000 * MS;
+        assertEquals(FRONT, multiplexer.tick());
+        // Un fotograma rezagado de la trasera y los primeros de la frontal se descartan
+        assertFalse(multiplexer.accept(BACK));
+        now += 299 * MS;
+        assertFalse(multiplexer.accept(FRONT));
+        now += MS;
+        assertTrue(multiplexer.accept(FRONT));
+
+        assertEquals(2, multiplexer.getAcceptedCount());
+        assertEquals(2, multiplexer.getRejectedInactiveCount());
+        assertEquals(1, multiplexer.getRejectedSettlingCount());
+    }
+
+    @Test
+    public void fakeSourcesAtDifferentRatesShareTimeEvenly() {
+        // Trasera a 30 fps y frontal a 15 fps; solo entrega la lente vinculada
+        long[] accepted = new long[2];
+        for (long t = 0; t < 20_000; t++) {
+            now = t * MS;
+            int active = multiplexer.tick();
+            int fps = active == BACK ? 30 : 15;
+            if (t % (1_000 / fps) == 0 && multiplexer.accept(active)) {
+                accepted[active]++;
+            }
+        }
+        assertEquals(9, multiplexer.getSwitchCount());
+        // Cada lente tiene 10 s, de los que 1,5 s (5 estabilizaciones) no cuentan
+        assertEquals(8_500 * 30 / 1_000, accepted[BACK], 5);
+        assertEquals(8_500 * 15 / 1_000, accepted[FRONT], 5);
+    }
+
+    @Test
+    public void restartSliceDelaysNextSwitch() {
+        now = 1_900 * MS;
+        multiplexer.restartSlice();
+        now = 3_000 * MS;
+        assertEquals(BACK, multiplexer.tick());
+        now = 3_900 * MS;
+        assertEquals(FRONT, multiplexer.tick());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void settleMustFitInSlice() {
+        new LensMultiplexer(2, 100 * MS, 100 * MS, () -> now, (previous, current) -> { });
+    }
+}
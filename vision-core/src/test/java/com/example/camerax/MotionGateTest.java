@@ -0,0 +1,86 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+
+    private static MotionGate newGate(int maxConsecutiveSkips) {
+        return new MotionGate(16, 9, 4, 6f, maxConsecutiveSkips, Clock.SYSTEM);
+    }
+
+    // Fondo gris con ruido leve y un cuadrado claro de 60x60 en (x, y)
+    private static byte[] frameWithSquare(int squareX, int squareY, Random noise) {
+        byte[] luma = new byte[WIDTH * HEIGHT];
+        for (int i = 0; i < luma.length; i++) {
+            luma[i] = (byte) (80 + (noise != null ? noise.nextInt(5) - 2 : 0));
+        }
+        for (int y = squareY; y < squareY + 60; y++) {
+            Arrays.fill(luma, y * WIDTH + squareX, y * WIDTH + squareX + 60, (byte) 220);
+        }
+        return luma;
+    }
+
+    @Test
+    public void firstFrameAlwaysHasMotion() {
+        assertTrue(newGate(100).hasMotion(frameWithSquare(10, 10, null), WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void staticNoisySceneIsSkipped() {
+        MotionGate gate = newGate(100);
+        Random noise = new Random(1);
+        gate.hasMotion(frameWithSquare(100, 100, noise), WIDTH, HEIGHT);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(gate.hasMotion(frameWithSquare(100, 100, noise), WIDTH, HEIGHT));
+        }
+        assertEquals(10, gate.getSkippedFrames());
+        assertEquals(11, gate.getEvaluatedFrames());
+        assertTrue(gate.getLastScore() < 6f);
+    }
+
+    @Test
+    public void movingObjectIsDetected() {
+        MotionGate gate = newGate(100);
+        gate.hasMotion(frameWithSquare(100, 100, null), WIDTH, HEIGHT);
+        assertTrue(gate.hasMotion(frameWithSquare(130, 100, null), WIDTH, HEIGHT));
+        assertTrue(gate.getLastScore() >= 6f);
+    }
+
+    @Test
+    public void forcesRefreshAfterMaxConsecutiveSkips() {
+        MotionGate gate = newGate(3);
+        byte[] still = frameWithSquare(100, 100, null);
+        gate.hasMotion(still, WIDTH, HEIGHT);
+        assertFalse(gate.hasMotion(still, WIDTH, HEIGHT));
+        assertFalse(gate.hasMotion(still, WIDTH, HEIGHT));
+        assertFalse(gate.hasMotion(still, WIDTH, HEIGHT));
+        assertTrue(gate.hasMotion(still, WIDTH, HEIGHT));
+        assertFalse(gate.hasMotion(still, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void resolutionChangeResetsReference() {
+        MotionGate gate = newGate(100);
+        gate.hasMotion(new byte[WIDTH * HEIGHT], WIDTH, HEIGHT);
+        assertTrue(gate.hasMotion(new byte[320 * 180], 320, 180));
+        assertFalse(gate.hasMotion(new byte[320 * 180], 320, 180));
+    }
+
+    @Test
+    public void blockSumsCoverEveryBlock() {
+        MotionGate gate = new MotionGate(4, 2, 2, 1f, 10, Clock.SYSTEM);
+        byte[] luma = new byte[8 * 4];
+        Arrays.fill(luma, (byte) 1);
+        int[] sums = new int[8];
+        gate.computeBlockSums(luma, 8, 4, sums);
+        // Bloques de 2x2 muestreados cada 2 píxeles: una muestra por bloque
+        assertArrayEquals(new int[] {1, 1, 1, 1, 1, 1, 1, 1}, sums);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.camerax;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class PipelineMetricsTest {
+    private static final long FRAME_NANOS = 33_333_333L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void steadyFramesAreNotDrops() {
+        FrameDropDetector detector = new FrameDropDetector();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, detector.onFrame(i * FRAME_NANOS + (i % 2) * 1_000_000L));
+        }
+        assertEquals(100, detector.getFrameCount());
+        assertEquals(0, detector.getDroppedCount());
+    }
+
+    @Test
+    public void gapsCountMissingFrames() {
+        FrameDropDetector detector = new FrameDropDetector();
+        long ts = 0;
+        for (int i = 0; i < 10; i++) {
+            detector.onFrame(ts += FRAME_NANOS);
+        }
+        // Saltan dos fotogramas y luego uno
+        assertEquals(2, detector.onFrame(ts += 3 * FRAME_NANOS));
+        assertEquals(0, detector.onFrame(ts += FRAME_NANOS));
+        assertEquals(1, detector.onFrame(ts += 2 * FRAME_NANOS));
+        assertEquals(3, detector.getDroppedCount());
+        // Los huecos no desvían el intervalo esperado
+        assertEquals(FRAME_NANOS, detector.getExpectedIntervalNanos(), 1000);
+    }
+
+    @Test
+    public void sustainedRateChangeMovesBaselineWithoutPhantomDrops() {
+        FrameDropDetector detector = new FrameDropDetector();
+        long ts = 0;
+        for (int i = 0; i < 30; i++) {
+            detector.onFrame(ts += FRAME_NANOS);
+        }
+        // La exposición automática baja a 15 fps y se queda ahí
+        for (int i = 0; i < 100; i++) {
+            detector.onFrame(ts += 2 * FRAME_NANOS);
+        }
+        assertEquals(1, detector.getRebaselineCount());
+        assertEquals(0, detector.getDroppedCount());
+        assertEquals(2 * FRAME_NANOS, detector.getExpectedIntervalNanos(), 1000);
+        // Los huecos reales se cuentan contra la nueva referencia
+        assertEquals(1, detector.onFrame(ts += 4 * FRAME_NANOS));
+        assertEquals(1, detector.getDroppedCount());
+    }
+
+    @Test
+    public void requestedResetIgnoresRebindGapAndLearnsNewRate() {
+        FrameDropDetector detector = new FrameDropDetector();
+        long ts = 0;
+        for (int i = 0; i < 30; i++) {
+            detector.onFrame(ts += FRAME_NANOS);
+        }
+        // Cambio de nivel: medio segundo sin fotogramas y luego 24 fps
+        detector.requestReset();
+        ts += 500_000_000L;
+        long slower = 41_666_666L;
+        for (int i = 0; i < 30; i++) {
+            assertEquals(0, detector.onFrame(ts += slower));
+        }
+        assertEquals(0, detector.getDroppedCount());
+        assertEquals(slower, detector.getExpectedIntervalNanos(), 1000);
+    }
+
+    @Test
+    public void sporadicGapsDoNotMoveBaseline() {
+        FrameDropDetector detector = new FrameDropDetector();
+        long ts = 0;
+        for (int i = 0; i < 200; i++) {
+            // Un hueco de un fotograma cada cuatro: menos de la mitad de la ventana
+            detector.onFrame(ts += (i % 4 == 3 ? 2 : 1) * FRAME_NANOS);
+        }
+        assertEquals(0, detector.getRebaselineCount());
+        assertEquals(50, detector.getDroppedCount());
+        assertEquals(FRAME_NANOS, detector.getExpectedIntervalNanos(), 1000);
+    }
+
+    @Test
+    public void arrivalsFeedIntervalHistogram() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        for (int i = 0; i < 5; i++) {
+            metrics.onFrameArrived(i * FRAME_NANOS, i * FRAME_NANOS);
+        }
+        assertEquals(4, metrics.histogram(PipelineMetrics.STAGE_FRAME_INTERVAL).getCount());
+        assertEquals(5, metrics.getDropDetector().getFrameCount());
+    }
+
+    @Test
+    public void summaryListsOnlyStagesWithSamples() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(PipelineMetrics.STAGE_DETECTION, 20_000_000L);
+        StringBuilder out = new StringBuilder();
+        metrics.appendSummary(out);
+        String summary = out.toString();
+        assertTrue(summary.contains("deteccion[n=1"));
+        assertFalse(summary.contains("conversion"));
+    }
+
+    @Test
+    public void writesFixedSizeRecords() throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(PipelineMetrics.STAGE_CONVERSION, 2_000_000L);
+        File file = folder.newFile("metrics.bin");
+        try (FileChannel channel = new FileOutputStream(file, true).getChannel()) {
+            metrics.writeRecord(channel, 1234L);
+            metrics.writeRecord(channel, 5678L);
+        }
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertEquals(2 * PipelineMetrics.RECORD_BYTES, bytes.length);
+        ByteBuffer in = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        in.position(PipelineMetrics.RECORD_BYTES);
+        assertEquals(5678L, in.getLong());
+        assertEquals(PipelineMetrics.STAGE_COUNT, in.getInt());
+        in.getLong();
+        in.getLong();
+        in.position(in.position() + PipelineMetrics.STAGE_CONVERSION * PipelineMetrics.RECORD_STAGE_BYTES);
+        assertEquals(1L, in.getLong());
+        assertEquals(2000, in.getInt(), 2000 * 0.3);
+    }
+}
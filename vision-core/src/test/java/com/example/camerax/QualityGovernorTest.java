@@ -0,0 +1,207 @@
+package com.example.camerax;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QualityGovernorTest {
+    private static final long MS = 1_000_000L;
+    private static final long SECOND = 1_000 * MS;
+    // Presupuesto de 66 ms: holgura por debajo de 33 ms
+    private static final long BUDGET = 66 * MS;
+
+    private static final class FakeSignals implements QualityGovernor.Signals {
+        long latency;
+        long frames;
+        long dropped;
+        int thermal = QualityGovernor.THERMAL_NONE;
+
+        @Override
+        public long getAnalysisLatencyNanos() {
+            return latency;
+        }
+
+        @Override
+        public long getFrameCount() {
+            return frames;
+        }
+
+        @Override
+        public long getDroppedFrameCount() {
+            return dropped;
+        }
+
+        @Override
+        public int getThermalStatus() {
+            return thermal;
+        }
+    }
+
+    private long now;
+    private FakeSignals signals;
+    private QualityGovernor governor;
+    private final List<String> changes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        signals = new FakeSignals();
+        // Bajar tras 3 s de sobrecarga, subir tras 10 s de holgura, 2 s de espera tras cada cambio
+        governor = new QualityGovernor(QualityTier.DEFAULT_TIERS, signals, () -> now, BUDGET,
+                3 * SECOND, 10 * SECOND, 2 * SECOND,
+                (previous, current, mask) -> changes.add(previous.getName() + ">" + current.getName() + ":" + mask));
+    }
+
+    // Un segundo a 30 fps con la latencia y las pérdidas dadas, y una evaluación al final
+    private QualityTier second(long latencyMs, int droppedFrames) {
+        now += SECOND;
+        signals.latency = latencyMs * MS;
+        signals.frames += 30 - droppedFrames;
+        signals.dropped += droppedFrames;
+        return governor.evaluate();
+    }
+
+    private void seconds(int count, long latencyMs, int droppedFrames) {
+        for (int i = 0; i < count; i++) {
+            second(latencyMs, droppedFrames);
+        }
+    }
+
+    @Test
+    public void staysAtTopTierWhileHealthy() {
+        seconds(60, 20, 0);
+        assertEquals(0, governor.getTierIndex());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void sustainedOverloadDowngradesOneTierAtATime() {
+        // Los 2 primeros segundos son de espera (arranque); la sobrecarga cuenta desde el
+        // segundo 2 y a los 3 s baja
+        seconds(4, 100, 0);
+        assertEquals(0, governor.getTierIndex());
+        second(100, 0);
+        assertEquals(1, governor.getTierIndex());
+        // Durante la espera tras el cambio no se evalúa la carga
+        seconds(2, 100, 0);
+        assertEquals(1, governor.getTierIndex());
+        seconds(4, 100, 0);
+        assertEquals(2, governor.getTierIndex());
+        assertEquals(2, changes.size());
+    }
+
+    @Test
+    public void dropRateAloneCountsAsOverload() {
+        // 6 de 30 fotogramas perdidos (20 %) con latencia sobrada
+        seconds(5, 10, 6);
+        assertEquals(1, governor.getTierIndex());
+        assertEquals(0.2f, governor.getLastDropRate(), 1e-6f);
+    }
+
+    @Test
+    public void shortSpikesDoNotDowngrade() {
+        for (int i = 0; i < 20; i++) {
+            seconds(2, 100, 0);
+            second(20, 0);
+        }
+        assertEquals(0, governor.getTierIndex());
+    }
+
+    @Test
+    public void upgradeNeedsLongHeadroomSoTiersDoNotOscillate() {
+        seconds(5, 100, 0);
+        assertEquals(1, governor.getTierIndex());
+        // Latencia dentro del presupuesto pero sin holgura: no sube
+        seconds(30, 50, 0);
+        assertEquals(1, governor.getTierIndex());
+        // Con holgura sube tras la espera y 10 s sostenidos
+        seconds(10, 20, 0);
+        assertEquals(1, governor.getTierIndex());
+        second(20, 0);
+        assertEquals(0, governor.getTierIndex());
+        assertEquals(2, changes.size());
+    }
+
+    @Test
+    public void thermalStatusAppliesFloorImmediately() {
+        signals.thermal = QualityGovernor.THERMAL_MODERATE;
+        second(20, 0);
+        assertEquals(2, governor.getTierIndex());
+        // Del nivel alto al reducido cambian los cuatro casos de uso
+        int all = QualityTier.CHANGED_ANALYSIS | QualityTier.CHANGED_VIDEO
+                | QualityTier.CHANGED_CAPTURE | QualityTier.CHANGED_DETECTOR;
+        assertEquals("alta>reducida:" + all, changes.get(0));
+
+        signals.thermal = QualityGovernor.THERMAL_CRITICAL;
+        second(20, 0);
+        assertEquals(QualityTier.DEFAULT_TIERS.length - 1, governor.getTierIndex());
+    }
+
+    @Test
+    public void recoveryFromThermalFloorIsGradual() {
+        signals.thermal = QualityGovernor.THERMAL_SEVERE;
+        second(20, 0);
+        assertEquals(3, governor.getTierIndex());
+        signals.thermal = QualityGovernor.THERMAL_LIGHT;
+        seconds(10, 20, 0);
+        assertEquals(3, governor.getTierIndex());
+        seconds(2, 20, 0);
+        assertEquals(2, governor.getTierIndex());
+        // No pasa del mínimo que impone el estado térmico
+        seconds(60, 20, 0);
+        assertEquals(1, governor.getTierIndex());
+    }
+
+    @Test
+    public void sustainedFrameRateDropIsNotOverload() {
+        // Señales de pérdidas de un FrameDropDetector real: la exposición baja a 15 fps
+        FrameDropDetector detector = new FrameDropDetector();
+        QualityGovernor.Signals detectorSignals = new QualityGovernor.Signals() {
+            @Override
+            public long getAnalysisLatencyNanos() {
+                return 20 * MS;
+            }
+
+            @Override
+            public long getFrameCount() {
+                return detector.getFrameCount();
+            }
+
+            @Override
+            public long getDroppedFrameCount() {
+                return detector.getDroppedCount();
+            }
+
+            @Override
+            public int getThermalStatus() {
+                return QualityGovernor.THERMAL_NONE;
+            }
+        };
+        QualityGovernor detectorGovernor = new QualityGovernor(QualityTier.DEFAULT_TIERS,
+                detectorSignals, () -> now, BUDGET, 3 * SECOND, 10 * SECOND, 2 * SECOND,
+                (previous, current, mask) -> changes.add(previous.getName() + ">" + current.getName()));
+        long ts = 0;
+        for (int second = 0; second < 60; second++) {
+            int fps = second < 10 ? 30 : 15;
+            for (int i = 0; i < fps; i++) {
+                detector.onFrame(ts += SECOND / fps);
+            }
+            now += SECOND;
+            detectorGovernor.evaluate();
+        }
+        assertEquals(0, detectorGovernor.getTierIndex());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void changeMaskOnlyListsAffectedUseCases() {
+        QualityTier[] tiers = QualityTier.DEFAULT_TIERS;
+        assertEquals(QualityTier.CHANGED_VIDEO | QualityTier.CHANGED_CAPTURE,
+                tiers[0].changesTo(tiers[1]));
+        assertEquals(QualityTier.CHANGED_VIDEO, tiers[2].changesTo(tiers[3]));
+        assertEquals(0, tiers[1].changesTo(tiers[1]));
+    }
+}
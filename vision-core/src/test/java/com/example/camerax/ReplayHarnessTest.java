@@ -0,0 +1,188 @@
+package com.example.camerax;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReplayHarnessTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int FRAMES = 120;
+    private static final long ACCURATE_LATENCY_NANOS = 40_000_000L;
+    private static final long FAST_LATENCY_NANOS = 10_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SyntheticFrameSource synthetic(int frames) {
+        return new SyntheticFrameSource(WIDTH, HEIGHT, frames, 30, 0, 20, 42L);
+    }
+
+    private static ReplayHarness fullSpeedHarness() {
+        ReplayClock clock = new ReplayClock();
+        return new ReplayHarness(ReplayHarness.PACING_FULL_SPEED,
+                new SyntheticFaceDetector(200, 1, clock, ACCURATE_LATENCY_NANOS, FAST_LATENCY_NANOS),
+                clock, 2);
+    }
+
+    // Una línea por fotograma con el número de rostros y sus cajas
+    private static List<String> replay(ReplayHarness harness, FrameSource source) throws Exception {
+        List<String> trace = new ArrayList<>();
+        harness.run(source, (timestamp, faces) -> {
+            StringBuilder line = new StringBuilder().append(timestamp);
+            if (faces == null) {
+                line.append(" omitido");
+            } else {
+                line.append(" n=").append(faces.getCount()).append(" src=").append(faces.getSource());
+                for (int i = 0; i < faces.getCount(); i++) {
+                    line.append(" [").append(faces.getTrackingId(i));
+                    for (int edge = 0; edge < 4; edge++) {
+                        line.append(' ').append(faces.getBox(i, edge));
+                    }
+                    line.append(']');
+                }
+            }
+            trace.add(line.toString());
+        });
+        harness.close();
+        return trace;
+    }
+
+    @Test
+    public void fullSpeedReplayIsDeterministic() throws Exception {
+        List<String> first = replay(fullSpeedHarness(), synthetic(FRAMES));
+        List<String> second = replay(fullSpeedHarness(), synthetic(FRAMES));
+        assertEquals(FRAMES, first.size());
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void recordedFramesReplayLikeTheSyntheticSource() throws Exception {
+        File file = folder.newFile("synthetic.frames");
+        FrameRecorder recorder = new FrameRecorder(FRAMES, message -> fail(message));
+        recorder.start(file);
+        SyntheticFrameSource source = synthetic(FRAMES);
+        RawFrame raw = new RawFrame();
+        while (source.next(raw)) {
+            recorder.record(raw);
+        }
+        recorder.stop();
+        assertTrue(recorder.awaitTermination(5_000));
+
+        List<String> direct = replay(fullSpeedHarness(), synthetic(FRAMES));
+        try (FrameReplaySource replay = new FrameReplaySource(file, true)) {
+            assertEquals(direct, replay(fullSpeedHarness(), replay));
+        }
+    }
+
+    @Test
+    public void tracksTheSyntheticSquareAndSkipsStaticFrames() throws Exception {
+        ReplayHarness harness = fullSpeedHarness();
+        SyntheticFrameSource source = synthetic(FRAMES);
+        int[] withFaces = new int[1];
+        harness.run(source, (timestamp, faces) -> {
+            if (faces != null && faces.getCount() > 0) {
+                withFaces[0]++;
+            }
+        });
+
+        // Tras la primera detección el cuadrado se sigue en todos los fotogramas
+        assertTrue("Fotogramas con rostro: " + withFaces[0], withFaces[0] >= FRAMES - 5);
+        // Los tramos quietos pasan por el filtro de movimiento sin detectar
+        assertTrue(harness.getFaceStage().getMotionGate().getSkippedFrames() > 0);
+        assertTrue(harness.getFaceStage().getScheduler().getAdmittedCount() < FRAMES);
+        assertEquals(0, harness.getPipeline().getDroppedCount());
+        harness.close();
+    }
+
+    @Test
+    public void recordedCadenceFollowsTimestamps() throws Exception {
+        ReplayHarness harness = new ReplayHarness(ReplayHarness.PACING_RECORDED,
+                new SyntheticFaceDetector(200, 1, null, 0, 0), null, 2);
+        // 10 fotogramas a 30 fps: ~300 ms entre el primero y el último
+        long elapsed = harness.run(synthetic(10), (timestamp, faces) -> { });
+        harness.close();
+        assertTrue("Transcurrido: " + elapsed, elapsed >= 9 * 33_000_000L);
+        assertEquals(10, harness.getMetrics().getDropDetector().getFrameCount());
+    }
+
+    // Coste de la réplica completa a 640x480 en ns/fotograma
+    // Segundo nivel síncrono: comprueba que el recorte contiene el cuadrado
+    private static final class FakeAttributeBackend implements FaceAttributeBackend {
+        int calls;
+        int cropsWithoutSquare;
+
+        @Override
+        public void analyze(FrameBuffer crop, Callback callback) {
+            calls++;
+            byte[] luma = crop.getData();
+            int center = (crop.getHeight() / 2) * crop.getWidth() + crop.getWidth() / 2;
+            if ((luma[center] & 0xFF) < 200) {
+                cropsWithoutSquare++;
+            }
+            callback.onAttributes(0.75f, 1f, 0.5f);
+            callback.onComplete(true);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void cascadeAnalyzesAttributesOnlyForNewOrMovedTracks() throws Exception {
+        ReplayClock clock = new ReplayClock();
+        FakeAttributeBackend attributes = new FakeAttributeBackend();
+        ReplayHarness harness = new ReplayHarness(ReplayHarness.PACING_FULL_SPEED,
+                new SyntheticFaceDetector(200, 1, clock, ACCURATE_LATENCY_NANOS, FAST_LATENCY_NANOS),
+                attributes, clock, 2);
+        int[] withAttributes = {0};
+        harness.run(synthetic(FRAMES), (timestamp, faces) -> {
+            if (faces != null && faces.getCount() > 0 && !Float.isNaN(faces.getSmilingProbability(0))) {
+                assertEquals(0.75f, faces.getSmilingProbability(0), 0f);
+                assertEquals(0.5f, faces.getRightEyeOpenProbability(0), 0f);
+                withAttributes[0]++;
+            }
+        });
+        harness.close();
+
+        FaceAttributeCache cache = harness.getFaceStage().getAttributeCache();
+        long detections = harness.getFaceStage().getScheduler().getAdmittedCount();
+        // Una vez para la pista nueva y de nuevo solo cuando el cuadrado se ha desplazado
+        assertTrue(attributes.calls >= 2);
+        assertTrue(attributes.calls < detections);
+        assertEquals(0, attributes.cropsWithoutSquare);
+        assertEquals(1, cache.getNewMissCount());
+        assertTrue(cache.getHitCount() > 0);
+        assertTrue(withAttributes[0] > FRAMES / 2);
+    }
+
+    // El coste por fotograma lo mide PipelineBenchmark; aquí solo se cuenta
+    @Test
+    public void fullSpeedReplayOfRotatedHdFramesCompletesEveryFrame() throws Exception {
+        ReplayClock clock = new ReplayClock();
+        ReplayHarness harness = new ReplayHarness(ReplayHarness.PACING_FULL_SPEED,
+                new SyntheticFaceDetector(200, 2, clock, ACCURATE_LATENCY_NANOS, FAST_LATENCY_NANOS),
+                clock, 2);
+        int frames = 300;
+        int[] withFaces = {0};
+        harness.run(new SyntheticFrameSource(1280, 720, frames, 30, 90, 30, 7L),
+                (timestamp, faces) -> {
+                    if (faces != null && faces.getCount() > 0) {
+                        withFaces[0]++;
+                    }
+                });
+        harness.close();
+        assertEquals(frames, harness.getPipeline().getSubmittedCount());
+        assertEquals(0, harness.getPipeline().getDroppedCount());
+        assertEquals(frames, harness.getPipeline().getCompletedCount());
+        assertTrue(harness.getFaceStage().getScheduler().getAdmittedCount() > 0);
+        assertTrue(withFaces[0] > frames / 2);
+    }
+}
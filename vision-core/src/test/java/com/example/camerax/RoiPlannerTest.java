@@ -0,0 +1,122 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RoiPlannerTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+    private static final int[] ROTATIONS = {0, 90, 180, 270};
+
+    @Test
+    public void rotationRoundTripIsIdentity() {
+        for (int rotation : ROTATIONS) {
+            int[] rect = {10, 20, 110, 70};
+            RotationMath.bufferToUpright(rect, WIDTH, HEIGHT, rotation);
+            RotationMath.uprightToBuffer(rect, WIDTH, HEIGHT, rotation);
+            assertArrayEquals("Rotación " + rotation, new int[] {10, 20, 110, 70}, rect);
+        }
+    }
+
+    @Test
+    public void bufferToUprightMatchesKnownCorners() {
+        int[] rect = {10, 20, 110, 70};
+        RotationMath.bufferToUpright(rect, WIDTH, HEIGHT, 90);
+        assertArrayEquals(new int[] {290, 10, 340, 110}, rect);
+
+        rect = new int[] {10, 20, 110, 70};
+        RotationMath.bufferToUpright(rect, WIDTH, HEIGHT, 180);
+        assertArrayEquals(new int[] {530, 290, 630, 340}, rect);
+
+        rect = new int[] {10, 20, 110, 70};
+        RotationMath.bufferToUpright(rect, WIDTH, HEIGHT, 270);
+        assertArrayEquals(new int[] {20, 530, 70, 630}, rect);
+
+        assertEquals(360, RotationMath.uprightWidth(WIDTH, HEIGHT, 270));
+        assertEquals(640, RotationMath.uprightHeight(WIDTH, HEIGHT, -90));
+    }
+
+    @Test
+    public void cropDetectionsMapBackToFrameForAllRotations() {
+        for (int rotation : ROTATIONS) {
+            // Rostro conocido en coordenadas derechas del fotograma completo
+            int[] face = {100, 120, 180, 210};
+            float[] boxes = {face[0], face[1], face[2], face[3]};
+            RoiPlanner planner = new RoiPlanner(100, 0.25f, 0.9f);
+            int[] crop = new int[4];
+            planner.plan(boxes, 1, WIDTH, HEIGHT, rotation, crop);
+            assertTrue(planner.plan(boxes, 1, WIDTH, HEIGHT, rotation, crop));
+
+            // Lo que ML Kit vería en el recorte: buffer -> recorte -> derecho del recorte
+            int[] detected = face.clone();
+            RotationMath.uprightToBuffer(detected, WIDTH, HEIGHT, rotation);
+            assertTrue("El recorte debe contener el rostro", detected[0] >= crop[0]
+                    && detected[1] >= crop[1] && detected[2] <= crop[2] && detected[3] <= crop[3]);
+            detected[0] -= crop[0];
+            detected[1] -= crop[1];
+            detected[2] -= crop[0];
+            detected[3] -= crop[1];
+            RotationMath.bufferToUpright(detected, crop[2] - crop[0], crop[3] - crop[1], rotation);
+
+            RoiPlanner.mapToFrame(detected, crop, WIDTH, HEIGHT, rotation);
+            assertArrayEquals("Rotación " + rotation, face, detected);
+        }
+    }
+
+    @Test
+    public void cropIsEvenAlignedAndClampedToFrame() {
+        RoiPlanner planner = new RoiPlanner(100, 0.5f, 1f);
+        int[] crop = new int[4];
+        float[] boxes = {1f, 3f, 41f, 47f};
+        planner.plan(boxes, 1, WIDTH, HEIGHT, 0, crop);
+        assertTrue(planner.plan(boxes, 1, WIDTH, HEIGHT, 0, crop));
+
+        assertEquals(0, crop[0]);
+        assertEquals(0, crop[1]);
+        for (int value : crop) {
+            assertEquals(0, value & 1);
+        }
+        assertTrue(crop[2] - crop[0] >= 64);
+        assertTrue(crop[3] - crop[1] >= 64);
+        assertTrue(crop[2] <= WIDTH && crop[3] <= HEIGHT);
+    }
+
+    @Test
+    public void fallsBackToFullScanPeriodicallyAndForLargeRegions() {
+        RoiPlanner planner = new RoiPlanner(3, 0.2f, 0.5f);
+        int[] crop = new int[4];
+        float[] small = {100f, 100f, 160f, 160f};
+        assertFalse(planner.plan(small, 1, WIDTH, HEIGHT, 0, crop));
+        assertTrue(planner.plan(small, 1, WIDTH, HEIGHT, 0, crop));
+        assertTrue(planner.plan(small, 1, WIDTH, HEIGHT, 0, crop));
+        assertFalse(planner.plan(small, 1, WIDTH, HEIGHT, 0, crop));
+        assertFalse("Sin rostros conocidos", planner.plan(small, 0, WIDTH, HEIGHT, 0, crop));
+
+        float[] large = {0f, 0f, 600f, 340f};
+        assertFalse(planner.plan(large, 1, WIDTH, HEIGHT, 0, crop));
+        assertEquals(2, planner.getRoiDetectionCount());
+    }
+
+    @Test
+    public void cropperCopiesLumaAndChromaRows() {
+        FrameBufferPool pool = new FrameBufferPool(2);
+        FrameBuffer source = pool.acquire(FrameBuffer.sizeOf(8, 4, FrameBuffer.FORMAT_NV21));
+        source.setFormat(8, 4, FrameBuffer.FORMAT_NV21);
+        byte[] data = source.getData();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        FrameBuffer cropped = new FrameCropper(pool).crop(source, new int[] {2, 2, 6, 4});
+
+        assertEquals(4, cropped.getWidth());
+        assertEquals(2, cropped.getHeight());
+        assertArrayEquals(new byte[] {
+                18, 19, 20, 21,
+                26, 27, 28, 29,
+                // Fila de croma 1 (offset 32 + 8)
+                42, 43, 44, 45
+        }, cropped.getData());
+    }
+}
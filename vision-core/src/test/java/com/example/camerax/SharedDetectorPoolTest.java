@@ -0,0 +1,125 @@
+package com.example.camerax;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SharedDetectorPoolTest {
+    private static final int BACK = 0;
+    private static final int FRONT = 1;
+
+    // Detector de una lente que guarda los pedidos hasta que el test los termina
+    private static final class FakeBackend implements FaceDetectorBackend {
+        final List<Callback> calls = new ArrayList<>();
+        boolean closed;
+        // Si no es null, detect la lanza sin invocar el callback
+        RuntimeException failure;
+
+        @Override
+        public void detect(FrameBuffer input, int mode, Callback callback) {
+            if (failure != null) {
+                throw failure;
+            }
+            calls.add(callback);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        void finish(int trackingId) {
+            Callback callback = calls.remove(0);
+            callback.onFace(trackingId, 1, 2, 3, 4);
+            callback.onComplete(true);
+        }
+    }
+
+    private final class Recorder implements FaceDetectorBackend.Callback {
+        final String lens;
+
+        Recorder(String lens) {
+            this.lens = lens;
+        }
+
+        @Override
+        public void onFace(int trackingId, int left, int top, int right, int bottom) {
+            events.add(lens + " rostro " + trackingId);
+        }
+
+        @Override
+        public void onComplete(boolean success) {
+            events.add(lens + (success ? " ok" : " fallo"));
+        }
+    }
+
+    private final List<String> events = new ArrayList<>();
+    private final FrameBuffer frame = new FrameBuffer(FrameBuffer.sizeOf(8, 8, FrameBuffer.FORMAT_NV21));
+    private FakeBackend back;
+    private FakeBackend front;
+    private SharedDetectorPool pool;
+
+    @Before
+    public void setUp() {
+        back = new FakeBackend();
+        front = new FakeBackend();
+        pool = new SharedDetectorPool(new FaceDetectorBackend[]{back, front}, 1, () -> 0L);
+    }
+
+    @Test
+    public void lensesShareOneDetectionSlotAndKeepTheirOwnDetector() {
+        pool.lens(BACK).detect(frame, FrameScheduler.MODE_ACCURATE, new Recorder("trasera"));
+        pool.lens(FRONT).detect(frame, FrameScheduler.MODE_FAST, new Recorder("frontal"));
+        // La frontal espera a que la trasera suelte el único cupo
+        assertEquals(1, back.calls.size());
+        assertEquals(0, front.calls.size());
+
+        back.finish(7);
+        assertEquals(1, front.calls.size());
+        front.finish(9);
+        assertEquals(List.of("trasera rostro 7", "trasera ok", "frontal rostro 9", "frontal ok"), events);
+        assertEquals(0, pool.getScheduler().getInFlightCount());
+    }
+
+    @Test
+    public void throwingBackendFailsTheRequestAndFreesTheSlot() {
+        back.failure = new IllegalArgumentException("imagen no válida");
+        pool.lens(BACK).detect(frame, FrameScheduler.MODE_ACCURATE, new Recorder("trasera"));
+        assertEquals(List.of("trasera fallo"), events);
+        assertEquals(1, pool.getFailedCount());
+        assertEquals(0, pool.getScheduler().getInFlightCount());
+
+        // El cupo y el pedido de la lente quedan libres para la siguiente detección
+        back.failure = null;
+        pool.lens(BACK).detect(frame, FrameScheduler.MODE_ACCURATE, new Recorder("trasera"));
+        back.finish(3);
+        assertEquals(List.of("trasera fallo", "trasera rostro 3", "trasera ok"), events);
+    }
+
+    @Test
+    public void secondDetectOnBusyLensIsRejected() {
+        pool.lens(BACK).detect(frame, FrameScheduler.MODE_ACCURATE, new Recorder("trasera"));
+        pool.lens(BACK).detect(frame, FrameScheduler.MODE_ACCURATE, new Recorder("otra"));
+        assertEquals(List.of("otra fallo"), events);
+        assertEquals(1, pool.getRejectedCount());
+
+        // Tras terminar, la lente vuelve a aceptar pedidos
+        back.finish(1);
+        pool.lens(BACK).detect(frame, FrameScheduler.MODE_ACCURATE, new Recorder("trasera"));
+        assertEquals(1, back.calls.size());
+    }
+
+    @Test
+    public void closeFailsPendingRequestsAndClosesBackends() {
+        pool.lens(BACK).detect(frame, FrameScheduler.MODE_ACCURATE, new Recorder("trasera"));
+        pool.lens(FRONT).detect(frame, FrameScheduler.MODE_ACCURATE, new Recorder("frontal"));
+        pool.close();
+        assertEquals(List.of("frontal fallo"), events);
+        assertTrue(back.closed);
+        assertTrue(front.closed);
+    }
+}
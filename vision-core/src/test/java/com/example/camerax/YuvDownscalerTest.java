@@ -0,0 +1,129 @@
+package com.example.camerax;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class YuvDownscalerTest {
+
+    // Genera un plano con padding al final de cada fila y valores = f(x, y)
+    private static ByteBuffer plane(int width, int height, int rowStride, int pixelStride, int seed) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(rowStride * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.put(y * rowStride + x * pixelStride, (byte) (x + 3 * y + seed));
+            }
+        }
+        return buffer;
+    }
+
+    @Test
+    public void factorOne_copiesLumaIgnoringRowPadding() {
+        ByteBuffer y = plane(8, 4, 12, 1, 0);
+        YuvDownscaler downscaler = new YuvDownscaler(new FrameBufferPool(1), 1, FrameBuffer.FORMAT_LUMA);
+
+        FrameBuffer frame = downscaler.convert(y, 12, 1, null, null, 0, 0, 8, 4);
+
+        assertEquals(8, frame.getWidth());
+        assertEquals(4, frame.getHeight());
+        assertEquals(32, frame.getData().length);
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 8; col++) {
+                assertEquals((byte) (col + 3 * row), frame.getData()[row * 8 + col]);
+            }
+        }
+    }
+
+    @Test
+    public void factorTwo_averagesLumaBlocks() {
+        ByteBuffer y = ByteBuffer.allocate(16);
+        byte[] values = {
+                10, 20, 100, 100,
+                30, 40, 100, 100,
+                0, 0, (byte) 255, (byte) 255,
+                0, 1, (byte) 255, (byte) 255
+        };
+        y.put(values);
+        YuvDownscaler downscaler = new YuvDownscaler(new FrameBufferPool(1), 2, FrameBuffer.FORMAT_LUMA);
+
+        byte[] out = downscaler.convert(y, 4, 1, null, null, 0, 0, 4, 4).getData();
+
+        assertEquals(25, out[0] & 0xFF);
+        assertEquals(100, out[1] & 0xFF);
+        assertEquals(0, out[2] & 0xFF);
+        assertEquals(255, out[3] & 0xFF);
+    }
+
+    @Test
+    public void nv21_interleavesSemiPlanarChromaAsVu() {
+        int width = 16, height = 8;
+        ByteBuffer y = plane(width, height, 16, 1, 0);
+        // Layout semiplanar: U y V comparten memoria con pixel stride 2
+        int uvRowStride = 16;
+        ByteBuffer u = plane(width / 2, height / 2, uvRowStride, 2, 50);
+        ByteBuffer v = plane(width / 2, height / 2, uvRowStride, 2, 150);
+        YuvDownscaler downscaler = new YuvDownscaler(new FrameBufferPool(1), 2, FrameBuffer.FORMAT_NV21);
+
+        FrameBuffer frame = downscaler.convert(y, 16, 1, u, v, uvRowStride, 2, width, height);
+
+        assertEquals(8, frame.getWidth());
+        assertEquals(4, frame.getHeight());
+        byte[] out = frame.getData();
+        assertEquals(8 * 4 * 3 / 2, out.length);
+        int offset = 8 * 4;
+        // Croma de salida 4x2, muestreado cada 2 muestras de croma de entrada
+        for (int cy = 0; cy < 2; cy++) {
+            for (int cx = 0; cx < 4; cx++) {
+                int index = offset + (cy * 4 + cx) * 2;
+                assertEquals((byte) (cx * 2 + 3 * cy * 2 + 150), out[index]);
+                assertEquals((byte) (cx * 2 + 3 * cy * 2 + 50), out[index + 1]);
+            }
+        }
+    }
+
+    @Test
+    public void nv21_roundsOutputToEvenDimensions() {
+        YuvDownscaler downscaler = new YuvDownscaler(new FrameBufferPool(1), 3, FrameBuffer.FORMAT_NV21);
+        assertEquals(426, downscaler.outputWidth(1280));
+        assertEquals(240, downscaler.outputHeight(720));
+        assertEquals(426, downscaler.outputWidth(1279));
+    }
+
+    @Test
+    public void pool_reusesBuffersOnceWarm() {
+        FrameBufferPool pool = new FrameBufferPool(2);
+        FrameBuffer first = pool.acquire(100);
+        pool.release(first);
+        assertSame(first, pool.acquire(100));
+        assertEquals(1, pool.getMisses());
+    }
+
+    @Test
+    public void convert_doesNotAllocateOnceWarm() {
+        int width = 1280, height = 720;
+        ByteBuffer y = plane(width, height, width, 1, 0);
+        ByteBuffer u = plane(width / 2, height / 2, width, 2, 1);
+        ByteBuffer v = plane(width / 2, height / 2, width, 2, 2);
+        FrameBufferPool pool = new FrameBufferPool(2);
+        YuvDownscaler downscaler = new YuvDownscaler(pool, 2, FrameBuffer.FORMAT_NV21);
+        for (int i = 0; i < 50; i++) {
+            pool.release(downscaler.convert(y, width, 1, u, v, width, 2, width, height));
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100; i++) {
+            pool.release(downscaler.convert(y, width, 1, u, v, width, 2, width, height));
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // Margen para la propia llamada de medición; un solo fotograma serían ~1.3 MB
+        assertTrue("Bytes reservados: " + allocated, allocated < 1024);
+        assertEquals(1, pool.getMisses());
+    }
+}